@@ -0,0 +1,80 @@
+package ee.sk.smartid.benchmarks;
+
+import ee.sk.smartid.AuthenticationResponseValidator;
+import ee.sk.smartid.CertificateVerificationCache;
+import ee.sk.smartid.SmartIdAuthenticationResponse;
+import ee.sk.smartid.SmartIdAuthenticationResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of validating an authentication response
+ * <p>
+ * Besides the default test CAs, the validator trusts the given number of
+ * unrelated CA certificates from the {@code cacerts} of the running JDK,
+ * so the cost of growing trust stores is visible. Validation is measured
+ * with and without a {@link CertificateVerificationCache}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthenticationResponseValidatorBenchmark {
+
+  @Param({"0", "10", "100"})
+  public int additionalTrustedCertificates;
+
+  @Param({"false", "true"})
+  public boolean cache;
+
+  private AuthenticationResponseValidator validator;
+  private SmartIdAuthenticationResponse authenticationResponse;
+
+  @Setup
+  public void setUp() throws Exception {
+    validator = new AuthenticationResponseValidator();
+    int added = 0;
+    KeyStore cacerts = loadJdkCacerts();
+    for (String alias : Collections.list(cacerts.aliases())) {
+      if (added == additionalTrustedCertificates) {
+        break;
+      }
+      Certificate certificate = cacerts.getCertificate(alias);
+      if (certificate instanceof X509Certificate) {
+        validator.addTrustedCACertificate((X509Certificate) certificate);
+        added++;
+      }
+    }
+    if (added < additionalTrustedCertificates) {
+      throw new IllegalStateException("JDK cacerts has only " + added + " certificates");
+    }
+    if (cache) {
+      validator.setCertificateVerificationCache(new CertificateVerificationCache());
+    }
+    authenticationResponse = BenchmarkData.createAuthenticationResponse();
+  }
+
+  @Benchmark
+  public SmartIdAuthenticationResult validate() {
+    return validator.validate(authenticationResponse);
+  }
+
+  private static KeyStore loadJdkCacerts() throws Exception {
+    File file = new File(System.getProperty("java.home"), "lib/security/cacerts");
+    KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+    try (InputStream inputStream = new FileInputStream(file)) {
+      keyStore.load(inputStream, null);
+    }
+    return keyStore;
+  }
+}
@@ -0,0 +1,82 @@
+package ee.sk.smartid.benchmarks;
+
+import ee.sk.smartid.*;
+import ee.sk.smartid.rest.SessionStatusPoller;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the request builders from building the request to the result
+ * <p>
+ * Runs against an in-process connector whose sessions complete on the first
+ * poll, so only the work done by the client is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuilderFlowBenchmark {
+
+  private static final String RELYING_PARTY_UUID = "00000000-0000-0000-0000-000000000000";
+  private static final String RELYING_PARTY_NAME = "DEMO";
+
+  private CompletedSessionConnector connector;
+  private SessionStatusPoller poller;
+  private AuthenticationResponseValidator validator;
+
+  @Setup
+  public void setUp() {
+    connector = new CompletedSessionConnector();
+    poller = new SessionStatusPoller(connector);
+    validator = new AuthenticationResponseValidator();
+  }
+
+  @Benchmark
+  public SmartIdAuthenticationResponse authenticate() {
+    return createAuthenticationRequestBuilder().authenticate();
+  }
+
+  @Benchmark
+  public SmartIdAuthenticationResult authenticateAndValidate() {
+    return validator.validate(createAuthenticationRequestBuilder().authenticate());
+  }
+
+  @Benchmark
+  public SmartIdSignature sign() {
+    SignableHash hashToSign = new SignableHash();
+    hashToSign.setHashInBase64(BenchmarkData.SIGNED_HASH_IN_BASE64);
+    hashToSign.setHashType(HashType.SHA512);
+    return new SignatureRequestBuilder(connector, poller)
+        .withRelyingPartyUUID(RELYING_PARTY_UUID)
+        .withRelyingPartyName(RELYING_PARTY_NAME)
+        .withDocumentNumber(BenchmarkData.DOCUMENT_NUMBER)
+        .withSignableHash(hashToSign)
+        .withCertificateLevel("QUALIFIED")
+        .sign();
+  }
+
+  @Benchmark
+  public SmartIdCertificate fetchCertificate() {
+    return new CertificateRequestBuilder(connector, poller)
+        .withRelyingPartyUUID(RELYING_PARTY_UUID)
+        .withRelyingPartyName(RELYING_PARTY_NAME)
+        .withDocumentNumber(BenchmarkData.DOCUMENT_NUMBER)
+        .withCertificateLevel("QUALIFIED")
+        .fetch();
+  }
+
+  private AuthenticationRequestBuilder createAuthenticationRequestBuilder() {
+    AuthenticationHash authenticationHash = new AuthenticationHash();
+    authenticationHash.setHashInBase64(BenchmarkData.SIGNED_HASH_IN_BASE64);
+    authenticationHash.setHashType(HashType.SHA512);
+    return new AuthenticationRequestBuilder(connector, poller)
+        .withRelyingPartyUUID(RELYING_PARTY_UUID)
+        .withRelyingPartyName(RELYING_PARTY_NAME)
+        .withDocumentNumber(BenchmarkData.DOCUMENT_NUMBER)
+        .withAuthenticationHash(authenticationHash)
+        .withCertificateLevel("QUALIFIED");
+  }
+}
@@ -0,0 +1,47 @@
+package ee.sk.smartid.benchmarks;
+
+import ee.sk.smartid.CertificateParser;
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of parsing the authentication certificate of a response
+ * <p>
+ * The certificate stays referenced, so {@link CertificateParser} returns the
+ * interned instance. A fresh parse with a {@link CertificateFactory} is
+ * measured for reference.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CertificateParserBenchmark {
+
+  private X509Certificate internedCertificate;
+  private CertificateFactory certificateFactory;
+
+  @Setup
+  public void setUp() throws CertificateException {
+    internedCertificate = CertificateParser.parseX509Certificate(BenchmarkData.CERTIFICATE);
+    certificateFactory = CertificateFactory.getInstance("X.509");
+  }
+
+  @Benchmark
+  public X509Certificate parseX509Certificate() {
+    return CertificateParser.parseX509Certificate(BenchmarkData.CERTIFICATE);
+  }
+
+  @Benchmark
+  public X509Certificate parseWithCertificateFactory() throws CertificateException {
+    byte[] der = Base64.decodeBase64(BenchmarkData.CERTIFICATE);
+    return (X509Certificate) certificateFactory.generateCertificate(new ByteArrayInputStream(der));
+  }
+}
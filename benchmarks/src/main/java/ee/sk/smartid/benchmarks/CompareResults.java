@@ -0,0 +1,93 @@
+package ee.sk.smartid.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH result files written with {@code -rf json}
+ * <p>
+ * Prints the change of every benchmark present in both files and marks a
+ * change as a regression when the result got worse by more than the
+ * threshold (5% by default) and the error margins of the two results don't
+ * overlap. Exits with status 1 when there are regressions, so it can fail
+ * a build:
+ * <pre>
+ *   java -cp target/benchmarks.jar ee.sk.smartid.benchmarks.CompareResults baseline.json current.json 5
+ * </pre>
+ */
+public class CompareResults {
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: CompareResults <baseline.json> <current.json> [threshold percent]");
+      System.exit(2);
+    }
+    double thresholdPercent = args.length > 2 ? Double.parseDouble(args[2]) : 5.0;
+    Map<String, Result> baseline = readResults(new File(args[0]));
+    Map<String, Result> current = readResults(new File(args[1]));
+    int regressions = 0;
+    System.out.println(String.format("%-100s %16s %16s %9s", "Benchmark", "Baseline", "Current", "Change"));
+    for (Map.Entry<String, Result> entry : current.entrySet()) {
+      Result baselineResult = baseline.get(entry.getKey());
+      if (baselineResult == null) {
+        System.out.println(String.format("%-100s %16s %16.3f %9s", entry.getKey(), "-", entry.getValue().score, "new"));
+        continue;
+      }
+      Result currentResult = entry.getValue();
+      double changePercent = (currentResult.score - baselineResult.score) / baselineResult.score * 100.0;
+      double worsePercent = currentResult.higherIsBetter ? -changePercent : changePercent;
+      boolean overlapping = Math.abs(currentResult.score - baselineResult.score) <= currentResult.error + baselineResult.error;
+      boolean regression = worsePercent > thresholdPercent && !overlapping;
+      if (regression) {
+        regressions++;
+      }
+      System.out.println(String.format("%-100s %16.3f %16.3f %+8.1f%%%s", entry.getKey(), baselineResult.score, currentResult.score,
+          changePercent, regression ? "  REGRESSION" : ""));
+    }
+    System.out.println(regressions + " regressions");
+    if (regressions > 0) {
+      System.exit(1);
+    }
+  }
+
+  private static Map<String, Result> readResults(File file) throws IOException {
+    Map<String, Result> results = new LinkedHashMap<>();
+    for (JsonNode benchmark : new ObjectMapper().readTree(file)) {
+      StringBuilder key = new StringBuilder(benchmark.get("benchmark").asText());
+      JsonNode params = benchmark.get("params");
+      if (params != null) {
+        Map<String, String> sortedParams = new TreeMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+        while (fields.hasNext()) {
+          Map.Entry<String, JsonNode> field = fields.next();
+          sortedParams.put(field.getKey(), field.getValue().asText());
+        }
+        key.append(sortedParams);
+      }
+      JsonNode primaryMetric = benchmark.get("primaryMetric");
+      String mode = benchmark.get("mode").asText();
+      results.put(key.toString(), new Result(primaryMetric.get("score").asDouble(), primaryMetric.get("scoreError").asDouble(), "thrpt".equals(mode)));
+    }
+    return results;
+  }
+
+  private static class Result {
+
+    private final double score;
+    private final double error;
+    private final boolean higherIsBetter;
+
+    Result(double score, double error, boolean higherIsBetter) {
+      this.score = score;
+      this.error = Double.isNaN(error) ? 0.0 : error;
+      this.higherIsBetter = higherIsBetter;
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package ee.sk.smartid.benchmarks;
+
+import ee.sk.smartid.rest.SmartIdConnector;
+import ee.sk.smartid.rest.dao.*;
+
+/**
+ * Connector whose sessions are complete on the first poll
+ * <p>
+ * Every session is signed with the authentication certificate of
+ * {@link BenchmarkData}.
+ */
+class CompletedSessionConnector implements SmartIdConnector {
+
+  private static final String SESSION_ID = "97f5058e-e308-4c83-ac14-7712b0eb9d86";
+  private static final SessionStatus COMPLETE = createCompleteSessionStatus();
+
+  @Override
+  public SessionStatus getSessionStatus(SessionStatusRequest request) {
+    return COMPLETE;
+  }
+
+  @Override
+  public CertificateChoiceResponse getCertificate(NationalIdentity identity, CertificateRequest request) {
+    return createCertificateChoiceResponse();
+  }
+
+  @Override
+  public CertificateChoiceResponse getCertificate(String documentNumber, CertificateRequest request) {
+    return createCertificateChoiceResponse();
+  }
+
+  @Override
+  public SignatureSessionResponse sign(String documentNumber, SignatureSessionRequest request) {
+    SignatureSessionResponse response = new SignatureSessionResponse();
+    response.setSessionId(SESSION_ID);
+    return response;
+  }
+
+  @Override
+  public AuthenticationSessionResponse authenticate(String documentNumber, AuthenticationSessionRequest request) {
+    return createAuthenticationSessionResponse();
+  }
+
+  @Override
+  public AuthenticationSessionResponse authenticate(NationalIdentity identity, AuthenticationSessionRequest request) {
+    return createAuthenticationSessionResponse();
+  }
+
+  static SessionStatus createCompleteSessionStatus() {
+    SessionResult result = new SessionResult();
+    result.setEndResult("OK");
+    result.setDocumentNumber(BenchmarkData.DOCUMENT_NUMBER);
+    SessionSignature signature = new SessionSignature();
+    signature.setAlgorithm("sha512WithRSAEncryption");
+    signature.setValueInBase64(BenchmarkData.SIGNATURE_IN_BASE64);
+    SessionCertificate certificate = new SessionCertificate();
+    certificate.setValue(BenchmarkData.CERTIFICATE);
+    certificate.setCertificateLevel("QUALIFIED");
+    SessionStatus status = new SessionStatus();
+    status.setState("COMPLETE");
+    status.setResult(result);
+    status.setSignature(signature);
+    status.setCertificate(certificate);
+    return status;
+  }
+
+  private static CertificateChoiceResponse createCertificateChoiceResponse() {
+    CertificateChoiceResponse response = new CertificateChoiceResponse();
+    response.setSessionId(SESSION_ID);
+    return response;
+  }
+
+  private static AuthenticationSessionResponse createAuthenticationSessionResponse() {
+    AuthenticationSessionResponse response = new AuthenticationSessionResponse();
+    response.setSessionId(SESSION_ID);
+    return response;
+  }
+}
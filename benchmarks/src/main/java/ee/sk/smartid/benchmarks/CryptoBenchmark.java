@@ -0,0 +1,84 @@
+package ee.sk.smartid.benchmarks;
+
+import ee.sk.smartid.DigestCalculator;
+import ee.sk.smartid.HashType;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of looking up the crypto primitives of authentication for every call
+ * <p>
+ * Compares getting a new {@link java.security.MessageDigest} and {@link Signature}
+ * from the security providers with reusing an instance of the calling thread,
+ * as {@link DigestCalculator} and the authentication response validator do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptoBenchmark {
+
+  @Param({"SHA256", "SHA512"})
+  public HashType hashType;
+
+  private byte[] data;
+  private KeyPair keyPair;
+  private byte[] digestInfo;
+  private byte[] signatureValue;
+  private Signature reusedSignature;
+
+  @Setup
+  public void setUp() throws GeneralSecurityException {
+    data = new byte[64];
+    KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+    keyPairGenerator.initialize(2048);
+    keyPair = keyPairGenerator.generateKeyPair();
+    byte[] digest = DigestUtils.sha256(data);
+    digestInfo = new byte[HashType.SHA256.getDigestInfoPrefix().length + digest.length];
+    System.arraycopy(HashType.SHA256.getDigestInfoPrefix(), 0, digestInfo, 0, HashType.SHA256.getDigestInfoPrefix().length);
+    System.arraycopy(digest, 0, digestInfo, HashType.SHA256.getDigestInfoPrefix().length, digest.length);
+    Signature signer = Signature.getInstance("NONEwithRSA");
+    signer.initSign(keyPair.getPrivate());
+    signer.update(digestInfo);
+    signatureValue = signer.sign();
+    reusedSignature = Signature.getInstance("NONEwithRSA");
+  }
+
+  @Benchmark
+  public byte[] digestLookupPerCall() {
+    return DigestUtils.getDigest(hashType.getAlgorithmName()).digest(data);
+  }
+
+  @Benchmark
+  public byte[] digestReused() {
+    return DigestCalculator.calculateDigest(data, hashType);
+  }
+
+  @Benchmark
+  public Signature signatureLookupOnly() throws GeneralSecurityException {
+    return Signature.getInstance("NONEwithRSA");
+  }
+
+  @Benchmark
+  public boolean verifyLookupPerCall() throws GeneralSecurityException {
+    Signature signature = Signature.getInstance("NONEwithRSA");
+    signature.initVerify(keyPair.getPublic());
+    signature.update(digestInfo);
+    return signature.verify(signatureValue);
+  }
+
+  @Benchmark
+  public boolean verifyReused() throws GeneralSecurityException {
+    reusedSignature.initVerify(keyPair.getPublic());
+    reusedSignature.update(digestInfo);
+    return reusedSignature.verify(signatureValue);
+  }
+}
@@ -0,0 +1,39 @@
+package ee.sk.smartid.benchmarks;
+
+import ee.sk.smartid.DigestCalculator;
+import ee.sk.smartid.HashType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of hashing data of different sizes with every {@link HashType}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DigestCalculatorBenchmark {
+
+  @Param({"SHA256", "SHA384", "SHA512"})
+  public HashType hashType;
+
+  @Param({"64", "1024", "65536", "1048576"})
+  public int size;
+
+  private byte[] data;
+
+  @Setup
+  public void setUp() {
+    data = new byte[size];
+    new Random(42).nextBytes(data);
+  }
+
+  @Benchmark
+  public byte[] calculateDigest() {
+    return DigestCalculator.calculateDigest(data, hashType);
+  }
+}
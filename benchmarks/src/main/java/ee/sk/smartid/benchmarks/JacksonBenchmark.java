@@ -0,0 +1,96 @@
+package ee.sk.smartid.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.sk.smartid.rest.dao.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of (de)serializing the JSON bodies of the Smart-ID API
+ * <p>
+ * Covers every {@code rest.dao} class sent or received as JSON.
+ * {@link NationalIdentity} and {@link SessionStatusRequest} only
+ * go to the request path, so they are not included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonBenchmark {
+
+  @Param({"AuthenticationSessionRequest", "SignatureSessionRequest", "CertificateRequest",
+      "AuthenticationSessionResponse", "SignatureSessionResponse", "CertificateChoiceResponse", "SessionStatus"})
+  public String dao;
+
+  private ObjectMapper objectMapper;
+  private Object value;
+  private Class<?> valueType;
+  private byte[] json;
+
+  @Setup
+  public void setUp() throws IOException {
+    objectMapper = new ObjectMapper();
+    value = createValue(dao);
+    valueType = value.getClass();
+    json = objectMapper.writeValueAsBytes(value);
+  }
+
+  @Benchmark
+  public byte[] serialize() throws IOException {
+    return objectMapper.writeValueAsBytes(value);
+  }
+
+  @Benchmark
+  public Object deserialize() throws IOException {
+    return objectMapper.readValue(json, valueType);
+  }
+
+  private static Object createValue(String dao) {
+    switch (dao) {
+      case "AuthenticationSessionRequest":
+        AuthenticationSessionRequest authenticationRequest = new AuthenticationSessionRequest();
+        authenticationRequest.setRelyingPartyUUID("00000000-0000-0000-0000-000000000000");
+        authenticationRequest.setRelyingPartyName("DEMO");
+        authenticationRequest.setCertificateLevel("QUALIFIED");
+        authenticationRequest.setHash(BenchmarkData.SIGNED_HASH_IN_BASE64);
+        authenticationRequest.setHashType("SHA512");
+        authenticationRequest.setDisplayText("Log in to self-service?");
+        return authenticationRequest;
+      case "SignatureSessionRequest":
+        SignatureSessionRequest signatureRequest = new SignatureSessionRequest();
+        signatureRequest.setRelyingPartyUUID("00000000-0000-0000-0000-000000000000");
+        signatureRequest.setRelyingPartyName("DEMO");
+        signatureRequest.setCertificateLevel("QUALIFIED");
+        signatureRequest.setHash(BenchmarkData.SIGNED_HASH_IN_BASE64);
+        signatureRequest.setHashType("SHA512");
+        signatureRequest.setDisplayText("Sign the contract?");
+        return signatureRequest;
+      case "CertificateRequest":
+        CertificateRequest certificateRequest = new CertificateRequest();
+        certificateRequest.setRelyingPartyUUID("00000000-0000-0000-0000-000000000000");
+        certificateRequest.setRelyingPartyName("DEMO");
+        certificateRequest.setCertificateLevel("QUALIFIED");
+        return certificateRequest;
+      case "AuthenticationSessionResponse":
+        AuthenticationSessionResponse authenticationResponse = new AuthenticationSessionResponse();
+        authenticationResponse.setSessionId("97f5058e-e308-4c83-ac14-7712b0eb9d86");
+        return authenticationResponse;
+      case "SignatureSessionResponse":
+        SignatureSessionResponse signatureResponse = new SignatureSessionResponse();
+        signatureResponse.setSessionId("97f5058e-e308-4c83-ac14-7712b0eb9d86");
+        return signatureResponse;
+      case "CertificateChoiceResponse":
+        CertificateChoiceResponse certificateChoiceResponse = new CertificateChoiceResponse();
+        certificateChoiceResponse.setSessionId("97f5058e-e308-4c83-ac14-7712b0eb9d86");
+        return certificateChoiceResponse;
+      case "SessionStatus":
+        return CompletedSessionConnector.createCompleteSessionStatus();
+      default:
+        throw new IllegalArgumentException("Unknown rest.dao class " + dao);
+    }
+  }
+}
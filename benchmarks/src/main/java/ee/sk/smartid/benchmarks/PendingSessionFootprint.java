@@ -0,0 +1,91 @@
+package ee.sk.smartid.benchmarks;
+
+import ee.sk.smartid.rest.HashedTimingWheel;
+import ee.sk.smartid.rest.SessionStatusPoller;
+import ee.sk.smartid.rest.SessionStatusPollingEngine;
+import ee.sk.smartid.rest.SmartIdFuture;
+import ee.sk.smartid.rest.dao.SessionStatus;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the heap used per pending session of the {@link SessionStatusPollingEngine}
+ * <p>
+ * Starts polling the given number of sessions (100 000 by default) that never
+ * complete and compares the used heap before and after. The futures held by
+ * the caller are included. Run with a fixed heap, e.g. {@code -Xms2g -Xmx2g}:
+ * <pre>
+ *   java -Xms2g -Xmx2g -cp target/benchmarks.jar ee.sk.smartid.benchmarks.PendingSessionFootprint 100000
+ * </pre>
+ */
+public class PendingSessionFootprint {
+
+  public static void main(String[] args) throws Exception {
+    int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+    measureWithTimingWheel(sessions);
+    measureWithScheduledExecutor(sessions);
+  }
+
+  private static void measureWithTimingWheel(int sessions) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    HashedTimingWheel timingWheel = new HashedTimingWheel(executor);
+    try {
+      RunningSessionConnector connector = new RunningSessionConnector();
+      SessionStatusPollingEngine engine = new SessionStatusPollingEngine(createPoller(connector), timingWheel);
+      measure("timingWheel", engine, connector, sessions);
+    } finally {
+      timingWheel.close();
+      executor.shutdownNow();
+    }
+  }
+
+  private static void measureWithScheduledExecutor(int sessions) throws Exception {
+    ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    try {
+      RunningSessionConnector connector = new RunningSessionConnector();
+      SessionStatusPollingEngine engine = new SessionStatusPollingEngine(createPoller(connector), scheduler);
+      measure("scheduledExecutor", engine, connector, sessions);
+    } finally {
+      scheduler.shutdownNow();
+    }
+  }
+
+  private static void measure(String name, SessionStatusPollingEngine engine, RunningSessionConnector connector, int sessions) throws Exception {
+    long usedHeapBefore = getUsedHeapAfterGc();
+    long startTime = System.nanoTime();
+    SmartIdFuture<?>[] futures = new SmartIdFuture<?>[sessions];
+    for (int i = 0; i < sessions; i++) {
+      futures[i] = engine.fetchFinalSessionStatus(UUID.randomUUID().toString());
+    }
+    while (connector.getSessionStatusRequests() < sessions) {
+      Thread.sleep(10L);
+    }
+    long trackingMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    long usedHeapAfter = getUsedHeapAfterGc();
+    System.out.println(name + ": " + engine.getPendingSessionCount() + " pending sessions, "
+        + (usedHeapAfter - usedHeapBefore) / sessions + " bytes per session, "
+        + trackingMillis + " ms to start polling all of them");
+    for (SmartIdFuture<?> future : futures) {
+      future.cancel(false);
+    }
+  }
+
+  private static SessionStatusPoller createPoller(RunningSessionConnector connector) {
+    SessionStatusPoller poller = new SessionStatusPoller(connector);
+    poller.setPollingSleepTime(TimeUnit.HOURS, 1L);
+    return poller;
+  }
+
+  private static long getUsedHeapAfterGc() throws InterruptedException {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      Thread.sleep(100L);
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
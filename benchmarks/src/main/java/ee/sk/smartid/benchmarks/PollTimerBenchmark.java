@@ -0,0 +1,81 @@
+package ee.sk.smartid.benchmarks;
+
+import ee.sk.smartid.rest.HashedTimingWheel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of scheduling and cancelling a poll timer while many sessions are pending
+ * <p>
+ * Compares the {@link HashedTimingWheel} with a {@link ScheduledThreadPoolExecutor},
+ * whose delay queue is a binary heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PollTimerBenchmark {
+
+  private static final Runnable NO_OP = new Runnable() {
+    @Override
+    public void run() {
+    }
+  };
+
+  @Param({"100000"})
+  public int pendingSessions;
+
+  @Param({"timingWheel", "scheduledExecutor"})
+  public String timer;
+
+  private HashedTimingWheel timingWheel;
+  private ScheduledThreadPoolExecutor scheduledExecutor;
+
+  @Setup
+  public void setUp() {
+    if ("timingWheel".equals(timer)) {
+      timingWheel = new HashedTimingWheel(new Executor() {
+        @Override
+        public void execute(Runnable command) {
+          command.run();
+        }
+      });
+    } else {
+      scheduledExecutor = new ScheduledThreadPoolExecutor(1);
+      scheduledExecutor.setRemoveOnCancelPolicy(true);
+    }
+    for (int i = 0; i < pendingSessions; i++) {
+      schedule(TimeUnit.HOURS.toMillis(1) + i);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (timingWheel != null) {
+      timingWheel.close();
+    } else {
+      scheduledExecutor.shutdownNow();
+    }
+  }
+
+  @Benchmark
+  public boolean scheduleAndCancel() {
+    if (timingWheel != null) {
+      return timingWheel.newTimeout(NO_OP, 1000L, TimeUnit.MILLISECONDS).cancel();
+    }
+    return scheduledExecutor.schedule(NO_OP, 1000L, TimeUnit.MILLISECONDS).cancel(false);
+  }
+
+  private void schedule(long delayMillis) {
+    if (timingWheel != null) {
+      timingWheel.newTimeout(NO_OP, delayMillis, TimeUnit.MILLISECONDS);
+    } else {
+      scheduledExecutor.schedule(NO_OP, delayMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package ee.sk.smartid.benchmarks;
+
+import ee.sk.smartid.rest.SmartIdConnector;
+import ee.sk.smartid.rest.dao.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connector whose sessions never complete
+ */
+class RunningSessionConnector implements SmartIdConnector {
+
+  private static final SessionStatus RUNNING = createRunningSessionStatus();
+  private final AtomicLong sessionStatusRequests = new AtomicLong();
+
+  @Override
+  public SessionStatus getSessionStatus(SessionStatusRequest request) {
+    sessionStatusRequests.incrementAndGet();
+    return RUNNING;
+  }
+
+  @Override
+  public CertificateChoiceResponse getCertificate(NationalIdentity identity, CertificateRequest request) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public CertificateChoiceResponse getCertificate(String documentNumber, CertificateRequest request) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public SignatureSessionResponse sign(String documentNumber, SignatureSessionRequest request) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public AuthenticationSessionResponse authenticate(String documentNumber, AuthenticationSessionRequest request) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public AuthenticationSessionResponse authenticate(NationalIdentity identity, AuthenticationSessionRequest request) {
+    throw new UnsupportedOperationException();
+  }
+
+  long getSessionStatusRequests() {
+    return sessionStatusRequests.get();
+  }
+
+  private static SessionStatus createRunningSessionStatus() {
+    SessionStatus status = new SessionStatus();
+    status.setState("RUNNING");
+    return status;
+  }
+}
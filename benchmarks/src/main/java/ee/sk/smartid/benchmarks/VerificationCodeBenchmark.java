@@ -0,0 +1,70 @@
+package ee.sk.smartid.benchmarks;
+
+import ee.sk.smartid.DigestCalculator;
+import ee.sk.smartid.HashType;
+import ee.sk.smartid.VerificationCodeCalculator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of calculating verification codes of SHA-512 hashes
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VerificationCodeBenchmark {
+
+  private static final int BATCH_SIZE = 100;
+
+  private byte[] hash;
+  private byte[] hashDigest;
+  private List<byte[]> hashes;
+  private char[] code;
+  private StringBuilder builder;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    hashes = new ArrayList<>(BATCH_SIZE);
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      byte[] batchHash = new byte[64];
+      random.nextBytes(batchHash);
+      hashes.add(batchHash);
+    }
+    hash = hashes.get(0);
+    hashDigest = DigestCalculator.calculateDigest(hash, HashType.SHA256);
+    code = new char[VerificationCodeCalculator.CODE_LENGTH];
+    builder = new StringBuilder(VerificationCodeCalculator.CODE_LENGTH);
+  }
+
+  @Benchmark
+  public String calculate() {
+    return VerificationCodeCalculator.calculate(hash);
+  }
+
+  @Benchmark
+  public char[] calculateIntoCharArray() {
+    VerificationCodeCalculator.calculate(hash, code, 0);
+    return code;
+  }
+
+  @Benchmark
+  public StringBuilder calculateFromDigestIntoBuilder() {
+    builder.setLength(0);
+    VerificationCodeCalculator.calculateFromDigest(hashDigest, builder);
+    return builder;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public List<String> calculateBatch() {
+    return VerificationCodeCalculator.calculate(hashes);
+  }
+}
@@ -0,0 +1,84 @@
+package ee.sk.smartid.loadgenerator;
+
+import org.apache.commons.codec.binary.Base64;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.zip.Deflater;
+
+/**
+ * Writes interval histograms in the HdrHistogram log format (version 1.3)
+ * <p>
+ * Each line holds the tag, start time and length of the interval, its max value
+ * in seconds and the compressed histogram of microsecond latencies, so the log
+ * can be processed with HdrHistogram's {@code HistogramLogProcessor} and plotters.
+ */
+public class HistogramLogWriter {
+
+  static final int ENCODING_COOKIE = 0x1c849303 | 0x10;
+  static final int COMPRESSED_ENCODING_COOKIE = 0x1c849304 | 0x10;
+  private static final double MICROS_PER_SECOND = 1000000.0;
+
+  private final PrintStream output;
+  private final long baseTimeMillis;
+
+  /**
+   * Constructs a new {@code HistogramLogWriter} and writes the header of the log
+   *
+   * @param output stream to write to
+   * @param baseTimeMillis time the interval start times are relative to, in milliseconds since the epoch
+   */
+  public HistogramLogWriter(PrintStream output, long baseTimeMillis) {
+    this.output = output;
+    this.baseTimeMillis = baseTimeMillis;
+    output.println("#[Histogram log format version 1.3]");
+    output.format(Locale.US, "#[StartTime: %.3f (seconds since epoch), %s]%n", baseTimeMillis / 1000.0, new Date(baseTimeMillis));
+    output.format(Locale.US, "#[BaseTime: %.3f (seconds since epoch)]%n", baseTimeMillis / 1000.0);
+    output.println("\"StartTimestamp\",\"Interval_Length\",\"Interval_Max\",\"Interval_Compressed_Histogram\"");
+  }
+
+  /**
+   * Writes the histogram of an interval
+   *
+   * @param tag tag of the histogram, e.g. the name of the measured latency
+   * @param startTimeMillis start of the interval in milliseconds since the epoch
+   * @param endTimeMillis end of the interval in milliseconds since the epoch
+   * @param histogram latencies in microseconds
+   */
+  public synchronized void writeIntervalHistogram(String tag, long startTimeMillis, long endTimeMillis, LatencyHistogram histogram) {
+    output.format(Locale.US, "Tag=%s,%.3f,%.3f,%.3f,%s%n", tag, (startTimeMillis - baseTimeMillis) / 1000.0,
+        (endTimeMillis - startTimeMillis) / 1000.0, histogram.getMaxValue() / MICROS_PER_SECOND,
+        Base64.encodeBase64String(compress(histogram.encode())));
+    output.flush();
+  }
+
+  static byte[] compress(byte[] encodedHistogram) {
+    Deflater deflater = new Deflater();
+    try {
+      deflater.setInput(encodedHistogram);
+      deflater.finish();
+      byte[] compressed = new byte[8 + encodedHistogram.length + 64];
+      int length = 8;
+      while (!deflater.finished()) {
+        if (length == compressed.length) {
+          compressed = Arrays.copyOf(compressed, compressed.length * 2);
+        }
+        length += deflater.deflate(compressed, length, compressed.length - length);
+      }
+      writeInt(compressed, 0, COMPRESSED_ENCODING_COOKIE);
+      writeInt(compressed, 4, length - 8);
+      return Arrays.copyOf(compressed, length);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static void writeInt(byte[] target, int offset, int value) {
+    target[offset] = (byte) (value >>> 24);
+    target[offset + 1] = (byte) (value >>> 16);
+    target[offset + 2] = (byte) (value >>> 8);
+    target[offset + 3] = (byte) value;
+  }
+}
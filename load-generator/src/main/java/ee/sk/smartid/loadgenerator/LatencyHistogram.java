@@ -0,0 +1,306 @@
+package ee.sk.smartid.loadgenerator;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Histogram of latencies with 3 significant digits of precision
+ * <p>
+ * The buckets are laid out the same way as in HdrHistogram with 3 significant
+ * value digits, so the histogram can be written to HdrHistogram logs and read
+ * by its tools. Values from 0 to {@value #SUB_BUCKET_COUNT} are counted exactly,
+ * larger ones are counted in buckets whose width doubles after every
+ * {@value #SUB_BUCKET_HALF_COUNT} buckets.
+ * <p>
+ * The histogram is not thread-safe, see {@link LatencyRecorder}.
+ */
+public class LatencyHistogram {
+
+  static final int SIGNIFICANT_VALUE_DIGITS = 3;
+  static final int SUB_BUCKET_COUNT = 2048;
+  static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+  private static final int SUB_BUCKET_HALF_COUNT_MAGNITUDE = 10;
+  private static final int LEADING_ZERO_COUNT_BASE = 64 - SUB_BUCKET_HALF_COUNT_MAGNITUDE - 1;
+
+  private final long highestTrackableValue;
+  private final long[] counts;
+  private long totalCount;
+  private long minValue = Long.MAX_VALUE;
+  private long maxValue;
+
+  /**
+   * Constructs a new {@code LatencyHistogram}
+   *
+   * @param highestTrackableValue largest value that can be recorded
+   */
+  public LatencyHistogram(long highestTrackableValue) {
+    if (highestTrackableValue < SUB_BUCKET_COUNT) {
+      throw new IllegalArgumentException("Highest trackable value must be at least " + SUB_BUCKET_COUNT);
+    }
+    this.highestTrackableValue = highestTrackableValue;
+    this.counts = new long[getIndex(highestTrackableValue) + 1];
+  }
+
+  /**
+   * Records the value
+   * <p>
+   * Values above the highest trackable value are recorded as the highest trackable value.
+   *
+   * @param value non-negative value
+   */
+  public void recordValue(long value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("Value must not be negative");
+    }
+    value = Math.min(value, highestTrackableValue);
+    counts[getIndex(value)]++;
+    totalCount++;
+    minValue = Math.min(minValue, value);
+    maxValue = Math.max(maxValue, value);
+  }
+
+  /**
+   * Adds the counts of the other histogram to this one
+   *
+   * @param other histogram with the same highest trackable value
+   */
+  public void add(LatencyHistogram other) {
+    if (other.counts.length != counts.length) {
+      throw new IllegalArgumentException("Histograms must have the same highest trackable value");
+    }
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] += other.counts[i];
+    }
+    totalCount += other.totalCount;
+    minValue = Math.min(minValue, other.minValue);
+    maxValue = Math.max(maxValue, other.maxValue);
+  }
+
+  public void reset() {
+    Arrays.fill(counts, 0L);
+    totalCount = 0L;
+    minValue = Long.MAX_VALUE;
+    maxValue = 0L;
+  }
+
+  public LatencyHistogram copy() {
+    LatencyHistogram copy = new LatencyHistogram(highestTrackableValue);
+    copy.add(this);
+    return copy;
+  }
+
+  public long getHighestTrackableValue() {
+    return highestTrackableValue;
+  }
+
+  public long getTotalCount() {
+    return totalCount;
+  }
+
+  /**
+   * Gets the highest value that is equivalent to the largest recorded value
+   *
+   * @return max value, or 0 when the histogram is empty
+   */
+  public long getMaxValue() {
+    return totalCount == 0 ? 0L : getHighestEquivalentValue(maxValue);
+  }
+
+  /**
+   * Gets the lowest value that is equivalent to the smallest recorded value
+   *
+   * @return min value, or 0 when the histogram is empty
+   */
+  public long getMinValue() {
+    return totalCount == 0 ? 0L : getLowestEquivalentValue(minValue);
+  }
+
+  public double getMean() {
+    if (totalCount == 0) {
+      return 0.0;
+    }
+    double total = 0.0;
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] != 0) {
+        total += counts[i] * (double) getMedianEquivalentValue(i);
+      }
+    }
+    return total / totalCount;
+  }
+
+  public double getStdDeviation() {
+    if (totalCount == 0) {
+      return 0.0;
+    }
+    double mean = getMean();
+    double total = 0.0;
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] != 0) {
+        double deviation = getMedianEquivalentValue(i) - mean;
+        total += deviation * deviation * counts[i];
+      }
+    }
+    return Math.sqrt(total / totalCount);
+  }
+
+  /**
+   * Gets the value that the given percentage of the recorded values are equal to or below
+   *
+   * @param percentile percentile from 0 to 100
+   * @return highest value equivalent to the value at the percentile, or 0 when the histogram is empty
+   */
+  public long getValueAtPercentile(double percentile) {
+    if (totalCount == 0) {
+      return 0L;
+    }
+    double requestedPercentile = Math.min(Math.max(percentile, 0.0), 100.0);
+    long countAtPercentile = Math.max(1L, (long) Math.ceil(requestedPercentile / 100.0 * totalCount));
+    long count = 0L;
+    for (int i = 0; i < counts.length; i++) {
+      count += counts[i];
+      if (count >= countAtPercentile) {
+        return getHighestEquivalentValue(getLowestValue(i));
+      }
+    }
+    return getMaxValue();
+  }
+
+  /**
+   * Writes the percentile distribution in the format of HdrHistogram's {@code .hgrm} files
+   * <p>
+   * Percentiles are reported in 5 steps per halving of the distance to 100%.
+   *
+   * @param output stream to write to
+   * @param valueScalingRatio ratio the values are divided by, e.g. 1000.0 to write microseconds as milliseconds
+   */
+  public void outputPercentileDistribution(PrintStream output, double valueScalingRatio) {
+    output.format(Locale.US, "%12s %14s %10s %14s%n%n", "Value", "Percentile", "TotalCount", "1/(1-Percentile)");
+    if (totalCount > 0) {
+      double percentile = 0.0;
+      while (true) {
+        long value = getValueAtPercentile(percentile);
+        long countAtValue = getCountAtOrBelow(value);
+        if (countAtValue >= totalCount) {
+          break;
+        }
+        output.format(Locale.US, "%12.3f %2.12f %10d %14.2f%n", value / valueScalingRatio, percentile / 100.0, countAtValue,
+            1.0 / (1.0 - percentile / 100.0));
+        long ticksPerHalfDistance = 5L << (long) (Math.log(100.0 / (100.0 - percentile)) / Math.log(2) + 1);
+        percentile = Math.max(percentile + 100.0 / ticksPerHalfDistance, getPercentileOfCount(countAtValue) + 1e-9);
+        if (percentile >= 100.0) {
+          break;
+        }
+      }
+      output.format(Locale.US, "%12.3f %2.12f %10d%n", getMaxValue() / valueScalingRatio, 1.0, totalCount);
+    }
+    output.format(Locale.US, "#[Mean    = %12.3f, StdDeviation   = %12.3f]%n", getMean() / valueScalingRatio, getStdDeviation() / valueScalingRatio);
+    output.format(Locale.US, "#[Max     = %12.3f, Total count    = %12d]%n", getMaxValue() / valueScalingRatio, totalCount);
+    output.format(Locale.US, "#[Buckets = %12d, SubBuckets     = %12d]%n", getBucketCount(), SUB_BUCKET_COUNT);
+  }
+
+  /**
+   * Encodes the histogram in the uncompressed V2 encoding of HdrHistogram
+   * <p>
+   * Counts are written as ZigZag LEB128 numbers up to the largest recorded value,
+   * runs of empty buckets are written as a single negative number.
+   *
+   * @return encoded histogram
+   */
+  byte[] encode() {
+    int countsLimit = getIndex(maxValue) + 1;
+    ByteBuffer buffer = ByteBuffer.allocate(40 + countsLimit * 9);
+    buffer.putInt(HistogramLogWriter.ENCODING_COOKIE);
+    buffer.putInt(0);
+    buffer.putInt(0);
+    buffer.putInt(SIGNIFICANT_VALUE_DIGITS);
+    buffer.putLong(1L);
+    buffer.putLong(highestTrackableValue);
+    buffer.putDouble(1.0);
+    int payloadStart = buffer.position();
+    int index = 0;
+    while (index < countsLimit) {
+      long count = counts[index++];
+      if (count == 0) {
+        long zeros = 1;
+        while (index < countsLimit && counts[index] == 0) {
+          zeros++;
+          index++;
+        }
+        putZigZag(buffer, zeros > 1 ? -zeros : 0L);
+      } else {
+        putZigZag(buffer, count);
+      }
+    }
+    buffer.putInt(4, buffer.position() - payloadStart);
+    return Arrays.copyOf(buffer.array(), buffer.position());
+  }
+
+  private static void putZigZag(ByteBuffer buffer, long value) {
+    long encoded = (value << 1) ^ (value >> 63);
+    for (int i = 0; i < 8; i++) {
+      if ((encoded >>> 7) == 0) {
+        buffer.put((byte) encoded);
+        return;
+      }
+      buffer.put((byte) ((encoded & 0x7f) | 0x80));
+      encoded >>>= 7;
+    }
+    buffer.put((byte) encoded);
+  }
+
+  private long getCountAtOrBelow(long value) {
+    int lastIndex = getIndex(Math.min(value, highestTrackableValue));
+    long count = 0L;
+    for (int i = 0; i <= lastIndex; i++) {
+      count += counts[i];
+    }
+    return count;
+  }
+
+  private double getPercentileOfCount(long count) {
+    return 100.0 * count / totalCount;
+  }
+
+  private int getBucketCount() {
+    return getBucketIndex(highestTrackableValue) + 1;
+  }
+
+  static int getIndex(long value) {
+    int bucketIndex = getBucketIndex(value);
+    int subBucketIndex = (int) (value >>> bucketIndex);
+    return ((bucketIndex + 1) << SUB_BUCKET_HALF_COUNT_MAGNITUDE) + subBucketIndex - SUB_BUCKET_HALF_COUNT;
+  }
+
+  private static int getBucketIndex(long value) {
+    return LEADING_ZERO_COUNT_BASE - Long.numberOfLeadingZeros(value | (SUB_BUCKET_COUNT - 1));
+  }
+
+  private static long getLowestValue(int index) {
+    int bucketIndex = (index >> SUB_BUCKET_HALF_COUNT_MAGNITUDE) - 1;
+    int subBucketIndex = (index & (SUB_BUCKET_HALF_COUNT - 1)) + SUB_BUCKET_HALF_COUNT;
+    if (bucketIndex < 0) {
+      subBucketIndex -= SUB_BUCKET_HALF_COUNT;
+      bucketIndex = 0;
+    }
+    return (long) subBucketIndex << bucketIndex;
+  }
+
+  private static long getBucketWidth(long value) {
+    return 1L << getBucketIndex(value);
+  }
+
+  private static long getLowestEquivalentValue(long value) {
+    return getLowestValue(getIndex(value));
+  }
+
+  private static long getHighestEquivalentValue(long value) {
+    return getLowestEquivalentValue(value) + getBucketWidth(value) - 1;
+  }
+
+  private static long getMedianEquivalentValue(int index) {
+    long lowestValue = getLowestValue(index);
+    return lowestValue + (getBucketWidth(lowestValue) >> 1);
+  }
+}
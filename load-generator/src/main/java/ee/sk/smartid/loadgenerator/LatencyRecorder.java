@@ -0,0 +1,56 @@
+package ee.sk.smartid.loadgenerator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread-safe recorder of latencies in microseconds
+ * <p>
+ * Keeps the latencies of the current reporting interval and of the whole run.
+ */
+public class LatencyRecorder {
+
+  private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1L);
+
+  private final String name;
+  private final LatencyHistogram intervalHistogram = new LatencyHistogram(HIGHEST_TRACKABLE_MICROS);
+  private final LatencyHistogram totalHistogram = new LatencyHistogram(HIGHEST_TRACKABLE_MICROS);
+
+  public LatencyRecorder(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Records the latency
+   *
+   * @param latencyNanos latency in nanoseconds, negative values are recorded as 0
+   */
+  public synchronized void recordNanos(long latencyNanos) {
+    long latencyMicros = TimeUnit.NANOSECONDS.toMicros(Math.max(0L, latencyNanos));
+    intervalHistogram.recordValue(latencyMicros);
+    totalHistogram.recordValue(latencyMicros);
+  }
+
+  /**
+   * Gets the latencies recorded since the previous call and starts a new interval
+   *
+   * @return latencies of the interval in microseconds
+   */
+  public synchronized LatencyHistogram getIntervalHistogram() {
+    LatencyHistogram histogram = intervalHistogram.copy();
+    intervalHistogram.reset();
+    return histogram;
+  }
+
+  /**
+   * Gets all the latencies recorded
+   *
+   * @return latencies in microseconds
+   */
+  public synchronized LatencyHistogram getTotalHistogram() {
+    return totalHistogram.copy();
+  }
+}
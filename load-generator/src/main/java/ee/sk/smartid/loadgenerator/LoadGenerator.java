@@ -0,0 +1,456 @@
+package ee.sk.smartid.loadgenerator;
+
+import ee.sk.smartid.AuthenticationHash;
+import ee.sk.smartid.AuthenticationRequestBuilder;
+import ee.sk.smartid.HashType;
+import ee.sk.smartid.SignableHash;
+import ee.sk.smartid.SignatureRequestBuilder;
+import ee.sk.smartid.SmartIdClient;
+import ee.sk.smartid.SmartIdSessionHandle;
+import ee.sk.smartid.rest.AdaptivePollingStrategy;
+import ee.sk.smartid.rest.SmartIdFuture;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.client.InvocationCallback;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open model load generator for the Smart-ID client
+ * <p>
+ * Starts authentications and signatures through {@link SmartIdClient} at fixed
+ * rates, regardless of how long the earlier sessions take, and waits for their
+ * results without blocking. Three latencies are recorded:
+ * <ul>
+ *   <li>initiation: from the scheduled start of the session until the session ID is received</li>
+ *   <li>poll: each session status request, including the time the long poll is held</li>
+ *   <li>confirmation: from the scheduled start of the session until its successful result is received</li>
+ * </ul>
+ * Measuring from the scheduled start instead of the moment the session was
+ * actually started avoids coordinated omission: when the generator or the
+ * client falls behind, the delay shows up in the latencies instead of being
+ * hidden by starting fewer sessions. The uncorrected confirmation latency is
+ * recorded too, for comparison.
+ * <p>
+ * The latencies of each reporting interval are written to {@code latency.hlog}
+ * in the HdrHistogram log format, the distributions of the whole run to
+ * {@code <latency>.hgrm} files and the summary to {@code summary.txt} in the
+ * output directory. See {@link #main(String[])} for running it.
+ */
+public class LoadGenerator {
+
+  private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+  private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1L);
+
+  private final LoadGeneratorConfiguration configuration;
+  private final LatencyRecorder initiationLatency = new LatencyRecorder("initiation");
+  private final LatencyRecorder pollLatency = new LatencyRecorder("poll");
+  private final LatencyRecorder confirmationLatency = new LatencyRecorder("confirmation");
+  private final LatencyRecorder uncorrectedConfirmationLatency = new LatencyRecorder("confirmation-uncorrected");
+  private final List<LatencyRecorder> recorders = Arrays.asList(initiationLatency, pollLatency, confirmationLatency, uncorrectedConfirmationLatency);
+  private final ConcurrentMap<String, AtomicLong> outcomes = new ConcurrentSkipListMap<>();
+  private final AtomicLong startedSessions = new AtomicLong();
+  private final AtomicInteger sessionsInProgress = new AtomicInteger();
+  private final AtomicLong maxDispatchLagNanos = new AtomicLong();
+  private HistogramLogWriter histogramLogWriter;
+  private long intervalStartMillis;
+  private long durationNanos;
+
+  /**
+   * Constructs a new {@code LoadGenerator}
+   *
+   * @param configuration traffic to generate
+   */
+  public LoadGenerator(LoadGeneratorConfiguration configuration) {
+    configuration.validate();
+    this.configuration = configuration;
+  }
+
+  /**
+   * Generates the load and writes the results
+   * <p>
+   * Returns when all the started sessions are done or the drain timeout has passed.
+   *
+   * @throws IOException when the results can't be written
+   * @throws InterruptedException when the thread is interrupted
+   */
+  public void run() throws IOException, InterruptedException {
+    File outputDirectory = configuration.getOutputDirectory();
+    if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+      throw new IOException("Failed to create output directory " + outputDirectory);
+    }
+    ThreadFactory threadFactory = new LoadThreadFactory();
+    ExecutorService initiationExecutor = Executors.newCachedThreadPool(threadFactory);
+    ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    SmartIdClient client = createClient();
+    try (PrintStream histogramLog = new PrintStream(new FileOutputStream(new File(outputDirectory, "latency.hlog")), false, "UTF-8")) {
+      intervalStartMillis = System.currentTimeMillis();
+      histogramLogWriter = new HistogramLogWriter(histogramLog, intervalStartMillis);
+      reporter.scheduleAtFixedRate(new Runnable() {
+        @Override
+        public void run() {
+          writeIntervalHistograms();
+        }
+      }, configuration.getReportingIntervalMillis(), configuration.getReportingIntervalMillis(), TimeUnit.MILLISECONDS);
+      logger.info("Starting " + configuration.getAuthenticationRate() + " authentications and " + configuration.getSignatureRate()
+          + " signatures per second against " + configuration.getHostUrl());
+      long startNanos = System.nanoTime();
+      startSessions(client, initiationExecutor, startNanos);
+      durationNanos = System.nanoTime() - startNanos;
+      awaitSessions();
+      reporter.shutdown();
+      reporter.awaitTermination(1L, TimeUnit.SECONDS);
+      writeIntervalHistograms();
+    } finally {
+      reporter.shutdownNow();
+      initiationExecutor.shutdownNow();
+      client.close();
+    }
+    writeResults(outputDirectory);
+  }
+
+  public long getStartedSessionCount() {
+    return startedSessions.get();
+  }
+
+  /**
+   * Gets the number of sessions per outcome
+   *
+   * @return counts by {@code OK} or the simple name of the exception the session failed with
+   */
+  public Map<String, Long> getOutcomes() {
+    Map<String, Long> counts = new ConcurrentSkipListMap<>();
+    for (Map.Entry<String, AtomicLong> outcome : outcomes.entrySet()) {
+      counts.put(outcome.getKey(), outcome.getValue().get());
+    }
+    return counts;
+  }
+
+  public LatencyHistogram getInitiationLatency() {
+    return initiationLatency.getTotalHistogram();
+  }
+
+  public LatencyHistogram getPollLatency() {
+    return pollLatency.getTotalHistogram();
+  }
+
+  public LatencyHistogram getConfirmationLatency() {
+    return confirmationLatency.getTotalHistogram();
+  }
+
+  /**
+   * Writes the summary of the run
+   *
+   * @param output stream to write to
+   */
+  public void printSummary(PrintStream output) {
+    double durationSeconds = (double) durationNanos / NANOS_PER_SECOND;
+    output.format(Locale.US, "Smart-ID load test against %s%n", configuration.getHostUrl());
+    output.format(Locale.US, "Started %d sessions in %.1f s (%.1f per second), %d unfinished%n", startedSessions.get(), durationSeconds,
+        durationSeconds == 0.0 ? 0.0 : startedSessions.get() / durationSeconds, sessionsInProgress.get());
+    output.format(Locale.US, "Max start lag %.3f ms%n", maxDispatchLagNanos.get() / 1e6);
+    output.format(Locale.US, "%nOutcomes%n");
+    for (Map.Entry<String, Long> outcome : getOutcomes().entrySet()) {
+      output.format(Locale.US, "  %-40s %10d%n", outcome.getKey(), outcome.getValue());
+    }
+    output.format(Locale.US, "%n%-26s %8s %10s %10s %10s %10s %10s %10s%n", "Latency (ms)", "count", "mean", "p50", "p90", "p99", "p99.9", "max");
+    for (LatencyRecorder recorder : recorders) {
+      LatencyHistogram histogram = recorder.getTotalHistogram();
+      output.format(Locale.US, "%-26s %8d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n", recorder.getName(), histogram.getTotalCount(),
+          histogram.getMean() / 1000.0, histogram.getValueAtPercentile(50.0) / 1000.0, histogram.getValueAtPercentile(90.0) / 1000.0,
+          histogram.getValueAtPercentile(99.0) / 1000.0, histogram.getValueAtPercentile(99.9) / 1000.0, histogram.getMaxValue() / 1000.0);
+    }
+  }
+
+  /**
+   * Runs the load generator and prints the summary
+   * <p>
+   * Options are given as {@code --name=value}:
+   * <ul>
+   *   <li>{@code host-url}, {@code http://localhost:8080/} by default</li>
+   *   <li>{@code relying-party-uuid} and {@code relying-party-name}</li>
+   *   <li>{@code document-number} of the test user</li>
+   *   <li>{@code certificate-level}</li>
+   *   <li>{@code authentication-rate} and {@code signature-rate}, sessions started per second</li>
+   *   <li>{@code duration-s}, how long new sessions are started for</li>
+   *   <li>{@code interval-s}, how often the interval histograms are written</li>
+   *   <li>{@code drain-timeout-s}, how long the sessions are waited for after the run</li>
+   *   <li>{@code session-status-timeout-ms}, long poll timeout of the session status requests</li>
+   *   <li>{@code max-connections}, size of the connection pool</li>
+   *   <li>{@code output-dir}</li>
+   * </ul>
+   *
+   * @param args options
+   * @throws Exception when the run fails
+   */
+  public static void main(String[] args) throws Exception {
+    LoadGeneratorConfiguration configuration = new LoadGeneratorConfiguration();
+    for (String arg : args) {
+      String name = StringUtils.substringBetween(arg, "--", "=");
+      String value = StringUtils.substringAfter(arg, "=");
+      if (name == null) {
+        throw new IllegalArgumentException("Options must be given as --name=value: " + arg);
+      }
+      switch (name) {
+        case "host-url":
+          configuration.setHostUrl(value);
+          break;
+        case "relying-party-uuid":
+          configuration.setRelyingPartyUUID(value);
+          break;
+        case "relying-party-name":
+          configuration.setRelyingPartyName(value);
+          break;
+        case "document-number":
+          configuration.setDocumentNumber(value);
+          break;
+        case "certificate-level":
+          configuration.setCertificateLevel(value);
+          break;
+        case "authentication-rate":
+          configuration.setAuthenticationRate(Double.parseDouble(value));
+          break;
+        case "signature-rate":
+          configuration.setSignatureRate(Double.parseDouble(value));
+          break;
+        case "duration-s":
+          configuration.setDuration(TimeUnit.SECONDS, Long.parseLong(value));
+          break;
+        case "interval-s":
+          configuration.setReportingInterval(TimeUnit.SECONDS, Long.parseLong(value));
+          break;
+        case "drain-timeout-s":
+          configuration.setDrainTimeout(TimeUnit.SECONDS, Long.parseLong(value));
+          break;
+        case "session-status-timeout-ms":
+          configuration.setSessionStatusResponseSocketOpenTime(TimeUnit.MILLISECONDS, Long.parseLong(value));
+          break;
+        case "max-connections":
+          configuration.setMaxConnections(Integer.parseInt(value));
+          break;
+        case "output-dir":
+          configuration.setOutputDirectory(new File(value));
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + name);
+      }
+    }
+    LoadGenerator loadGenerator = new LoadGenerator(configuration);
+    loadGenerator.run();
+    System.out.println();
+    loadGenerator.printSummary(System.out);
+  }
+
+  private SmartIdClient createClient() {
+    PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+    connectionManager.setMaxTotal(configuration.getMaxConnections());
+    connectionManager.setDefaultMaxPerRoute(configuration.getMaxConnections());
+    ClientConfig clientConfig = new ClientConfig().connectorProvider(new ApacheConnectorProvider());
+    clientConfig.property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager);
+    clientConfig.register(new SessionStatusTimingFilter(pollLatency));
+    SmartIdClient client = new SmartIdClient();
+    client.setHostUrl(configuration.getHostUrl());
+    client.setRelyingPartyUUID(configuration.getRelyingPartyUUID());
+    client.setRelyingPartyName(configuration.getRelyingPartyName());
+    client.setNetworkConnectionConfig(clientConfig);
+    client.setSessionStatusResponseSocketOpenTime(TimeUnit.MILLISECONDS, configuration.getSessionStatusResponseSocketOpenTimeMillis());
+    client.setPollingStrategy(new AdaptivePollingStrategy());
+    return client;
+  }
+
+  private void startSessions(SmartIdClient client, ExecutorService initiationExecutor, long startNanos) throws InterruptedException {
+    long endNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(configuration.getDurationMillis());
+    long authentications = 0L;
+    long signatures = 0L;
+    while (true) {
+      long nextAuthentication = getScheduledStartNanos(startNanos, authentications, configuration.getAuthenticationRate());
+      long nextSignature = getScheduledStartNanos(startNanos, signatures, configuration.getSignatureRate());
+      boolean signature = nextSignature < nextAuthentication;
+      long scheduledStartNanos = signature ? nextSignature : nextAuthentication;
+      if (scheduledStartNanos - endNanos >= 0) {
+        return;
+      }
+      long delayNanos;
+      while ((delayNanos = scheduledStartNanos - System.nanoTime()) > 0) {
+        LockSupport.parkNanos(delayNanos);
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+      }
+      updateMaxDispatchLag(-delayNanos);
+      startedSessions.incrementAndGet();
+      sessionsInProgress.incrementAndGet();
+      initiationExecutor.execute(new Session(client, signature, scheduledStartNanos));
+      if (signature) {
+        signatures++;
+      } else {
+        authentications++;
+      }
+    }
+  }
+
+  private static long getScheduledStartNanos(long startNanos, long sessionNumber, double rate) {
+    return rate == 0.0 ? Long.MAX_VALUE : startNanos + (long) (sessionNumber * NANOS_PER_SECOND / rate);
+  }
+
+  private void updateMaxDispatchLag(long lagNanos) {
+    long max;
+    while (lagNanos > (max = maxDispatchLagNanos.get())) {
+      if (maxDispatchLagNanos.compareAndSet(max, lagNanos)) {
+        return;
+      }
+    }
+  }
+
+  private void awaitSessions() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + configuration.getDrainTimeoutMillis();
+    synchronized (sessionsInProgress) {
+      long remainingMillis;
+      while (sessionsInProgress.get() > 0 && (remainingMillis = deadline - System.currentTimeMillis()) > 0) {
+        sessionsInProgress.wait(remainingMillis);
+      }
+    }
+    if (sessionsInProgress.get() > 0) {
+      logger.warn(sessionsInProgress.get() + " sessions didn't finish within the drain timeout");
+    }
+  }
+
+  private synchronized void writeIntervalHistograms() {
+    long intervalEndMillis = System.currentTimeMillis();
+    for (LatencyRecorder recorder : recorders) {
+      histogramLogWriter.writeIntervalHistogram(recorder.getName(), intervalStartMillis, intervalEndMillis, recorder.getIntervalHistogram());
+    }
+    intervalStartMillis = intervalEndMillis;
+    LatencyHistogram confirmations = confirmationLatency.getTotalHistogram();
+    logger.info(startedSessions.get() + " sessions started, " + confirmations.getTotalCount() + " confirmed, "
+        + sessionsInProgress.get() + " in progress, p99 of confirmation " + confirmations.getValueAtPercentile(99.0) / 1000 + " ms");
+  }
+
+  private void writeResults(File outputDirectory) throws IOException {
+    for (LatencyRecorder recorder : recorders) {
+      try (PrintStream output = new PrintStream(new FileOutputStream(new File(outputDirectory, recorder.getName() + ".hgrm")), false, "UTF-8")) {
+        recorder.getTotalHistogram().outputPercentileDistribution(output, 1000.0);
+      }
+    }
+    try (PrintStream output = new PrintStream(new FileOutputStream(new File(outputDirectory, "summary.txt")), false, "UTF-8")) {
+      printSummary(output);
+    }
+    logger.info("Results written to " + outputDirectory.getAbsolutePath());
+  }
+
+  private void sessionDone(String outcome) {
+    AtomicLong count = outcomes.get(outcome);
+    if (count == null) {
+      AtomicLong newCount = new AtomicLong();
+      count = outcomes.putIfAbsent(outcome, newCount);
+      if (count == null) {
+        count = newCount;
+      }
+    }
+    count.incrementAndGet();
+    if (sessionsInProgress.decrementAndGet() == 0) {
+      synchronized (sessionsInProgress) {
+        sessionsInProgress.notifyAll();
+      }
+    }
+  }
+
+  private class Session implements Runnable, InvocationCallback<Object> {
+
+    private final SmartIdClient client;
+    private final boolean signature;
+    private final long scheduledStartNanos;
+    private long startNanos;
+
+    Session(SmartIdClient client, boolean signature, long scheduledStartNanos) {
+      this.client = client;
+      this.signature = signature;
+      this.scheduledStartNanos = scheduledStartNanos;
+    }
+
+    @Override
+    public void run() {
+      startNanos = System.nanoTime();
+      try {
+        SmartIdFuture<?> result = signature ? startSignature() : startAuthentication();
+        result.whenComplete(this);
+      } catch (RuntimeException e) {
+        failed(e);
+      }
+    }
+
+    private SmartIdFuture<?> startAuthentication() {
+      AuthenticationRequestBuilder builder = client.createAuthentication()
+          .withDocumentNumber(configuration.getDocumentNumber())
+          .withAuthenticationHash(AuthenticationHash.generateRandomHash())
+          .withCertificateLevel(configuration.getCertificateLevel());
+      SmartIdSessionHandle handle = builder.start();
+      initiationLatency.recordNanos(System.nanoTime() - scheduledStartNanos);
+      return builder.awaitAsync(handle);
+    }
+
+    private SmartIdFuture<?> startSignature() {
+      byte[] hash = new byte[HashType.SHA512.getDigestInfoPrefix()[HashType.SHA512.getDigestInfoPrefix().length - 1]];
+      ThreadLocalRandom.current().nextBytes(hash);
+      SignableHash signableHash = new SignableHash();
+      signableHash.setHashType(HashType.SHA512);
+      signableHash.setHash(hash);
+      SignatureRequestBuilder builder = client.createSignature()
+          .withDocumentNumber(configuration.getDocumentNumber())
+          .withSignableHash(signableHash)
+          .withCertificateLevel(configuration.getCertificateLevel());
+      SmartIdSessionHandle handle = builder.start();
+      initiationLatency.recordNanos(System.nanoTime() - scheduledStartNanos);
+      return builder.awaitAsync(handle);
+    }
+
+    @Override
+    public void completed(Object response) {
+      long endNanos = System.nanoTime();
+      confirmationLatency.recordNanos(endNanos - scheduledStartNanos);
+      uncorrectedConfirmationLatency.recordNanos(endNanos - startNanos);
+      sessionDone("OK");
+    }
+
+    @Override
+    public void failed(Throwable failure) {
+      logger.debug("Session failed: " + failure.getMessage());
+      sessionDone(failure.getClass().getSimpleName());
+    }
+  }
+
+  private static class LoadThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "smart-id-load-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,210 @@
+package ee.sk.smartid.loadgenerator;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Traffic generated by the {@link LoadGenerator} and the client settings it is sent with
+ * <p>
+ * By default 10 authentications per second are started for a minute against
+ * a simulator running on the local host (see the {@code simulator} module).
+ */
+public class LoadGeneratorConfiguration {
+
+  private String hostUrl = "http://localhost:8080/";
+  private String relyingPartyUUID = "00000000-0000-0000-0000-000000000000";
+  private String relyingPartyName = "DEMO";
+  private String documentNumber = "PNOEE-10101010005-SIMU-Q";
+  private String certificateLevel = "QUALIFIED";
+  private double authenticationRate = 10.0;
+  private double signatureRate;
+  private long durationMillis = 60000L;
+  private long reportingIntervalMillis = 10000L;
+  private long drainTimeoutMillis = 120000L;
+  private long sessionStatusResponseSocketOpenTimeMillis = 10000L;
+  private int maxConnections = 200;
+  private File outputDirectory = new File("load-generator-results");
+
+  public void setHostUrl(String hostUrl) {
+    this.hostUrl = hostUrl;
+  }
+
+  public void setRelyingPartyUUID(String relyingPartyUUID) {
+    this.relyingPartyUUID = relyingPartyUUID;
+  }
+
+  public void setRelyingPartyName(String relyingPartyName) {
+    this.relyingPartyName = relyingPartyName;
+  }
+
+  /**
+   * Sets the document number of the user all the sessions are started for
+   *
+   * @param documentNumber document number of a test user
+   */
+  public void setDocumentNumber(String documentNumber) {
+    this.documentNumber = documentNumber;
+  }
+
+  public void setCertificateLevel(String certificateLevel) {
+    this.certificateLevel = certificateLevel;
+  }
+
+  /**
+   * Sets how many authentications are started per second, 10 by default
+   *
+   * @param authenticationRate authentications per second
+   */
+  public void setAuthenticationRate(double authenticationRate) {
+    this.authenticationRate = requireNonNegative(authenticationRate, "Authentication rate");
+  }
+
+  /**
+   * Sets how many signatures are started per second, none by default
+   *
+   * @param signatureRate signatures per second
+   */
+  public void setSignatureRate(double signatureRate) {
+    this.signatureRate = requireNonNegative(signatureRate, "Signature rate");
+  }
+
+  /**
+   * Sets how long new sessions are started for, a minute by default
+   *
+   * @param unit time unit of the duration
+   * @param duration duration of the run
+   */
+  public void setDuration(TimeUnit unit, long duration) {
+    this.durationMillis = unit.toMillis(requirePositive(duration, "Duration"));
+  }
+
+  /**
+   * Sets how often the interval histograms are written, every 10 seconds by default
+   *
+   * @param unit time unit of the interval
+   * @param interval reporting interval
+   */
+  public void setReportingInterval(TimeUnit unit, long interval) {
+    this.reportingIntervalMillis = unit.toMillis(requirePositive(interval, "Reporting interval"));
+  }
+
+  /**
+   * Sets how long the started sessions are waited for after the run, 2 minutes by default
+   *
+   * @param unit time unit of the timeout
+   * @param timeout drain timeout
+   */
+  public void setDrainTimeout(TimeUnit unit, long timeout) {
+    this.drainTimeoutMillis = unit.toMillis(requireNonNegative(timeout, "Drain timeout"));
+  }
+
+  /**
+   * Sets the long poll timeout of the session status requests, 10 seconds by default
+   *
+   * @param unit time unit of the timeout
+   * @param timeout long poll timeout
+   */
+  public void setSessionStatusResponseSocketOpenTime(TimeUnit unit, long timeout) {
+    this.sessionStatusResponseSocketOpenTimeMillis = unit.toMillis(requireNonNegative(timeout, "Session status response socket open time"));
+  }
+
+  /**
+   * Sets the size of the HTTP connection pool of the client, 200 by default
+   *
+   * @param maxConnections maximum number of connections
+   */
+  public void setMaxConnections(int maxConnections) {
+    this.maxConnections = (int) requirePositive(maxConnections, "Maximum number of connections");
+  }
+
+  /**
+   * Sets the directory the histogram logs and the summary are written to
+   *
+   * @param outputDirectory output directory, created when missing
+   */
+  public void setOutputDirectory(File outputDirectory) {
+    this.outputDirectory = outputDirectory;
+  }
+
+  public String getHostUrl() {
+    return hostUrl;
+  }
+
+  public String getRelyingPartyUUID() {
+    return relyingPartyUUID;
+  }
+
+  public String getRelyingPartyName() {
+    return relyingPartyName;
+  }
+
+  public String getDocumentNumber() {
+    return documentNumber;
+  }
+
+  public String getCertificateLevel() {
+    return certificateLevel;
+  }
+
+  public double getAuthenticationRate() {
+    return authenticationRate;
+  }
+
+  public double getSignatureRate() {
+    return signatureRate;
+  }
+
+  public long getDurationMillis() {
+    return durationMillis;
+  }
+
+  public long getReportingIntervalMillis() {
+    return reportingIntervalMillis;
+  }
+
+  public long getDrainTimeoutMillis() {
+    return drainTimeoutMillis;
+  }
+
+  public long getSessionStatusResponseSocketOpenTimeMillis() {
+    return sessionStatusResponseSocketOpenTimeMillis;
+  }
+
+  public int getMaxConnections() {
+    return maxConnections;
+  }
+
+  public File getOutputDirectory() {
+    return outputDirectory;
+  }
+
+  void validate() {
+    if (authenticationRate == 0.0 && signatureRate == 0.0) {
+      throw new IllegalArgumentException("Authentication or signature rate must be set");
+    }
+    if (hostUrl == null || documentNumber == null) {
+      throw new IllegalArgumentException("Host URL and document number must be set");
+    }
+  }
+
+  private static double requireNonNegative(double value, String name) {
+    if (value < 0.0 || Double.isNaN(value)) {
+      throw new IllegalArgumentException(name + " can't be negative");
+    }
+    return value;
+  }
+
+  private static long requireNonNegative(long value, String name) {
+    if (value < 0) {
+      throw new IllegalArgumentException(name + " can't be negative");
+    }
+    return value;
+  }
+
+  private static long requirePositive(long value, String name) {
+    if (value <= 0) {
+      throw new IllegalArgumentException(name + " must be positive");
+    }
+    return value;
+  }
+}
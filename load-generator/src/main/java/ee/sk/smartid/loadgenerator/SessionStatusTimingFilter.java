@@ -0,0 +1,43 @@
+package ee.sk.smartid.loadgenerator;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+
+/**
+ * Records the latency of each session status request of the client
+ * <p>
+ * The latency is measured from the moment the request is handed to the HTTP
+ * connector until the response arrives, so it includes the time spent waiting
+ * for a pooled connection and the time the long poll is held by the server.
+ */
+class SessionStatusTimingFilter implements ClientRequestFilter, ClientResponseFilter {
+
+  private static final String START_TIME_PROPERTY = "ee.sk.smartid.loadgenerator.startTimeNanos";
+
+  private final LatencyRecorder pollLatency;
+
+  SessionStatusTimingFilter(LatencyRecorder pollLatency) {
+    this.pollLatency = pollLatency;
+  }
+
+  @Override
+  public void filter(ClientRequestContext requestContext) {
+    if (isSessionStatusRequest(requestContext)) {
+      requestContext.setProperty(START_TIME_PROPERTY, System.nanoTime());
+    }
+  }
+
+  @Override
+  public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) {
+    Object startTimeNanos = requestContext.getProperty(START_TIME_PROPERTY);
+    if (startTimeNanos != null) {
+      pollLatency.recordNanos(System.nanoTime() - (Long) startTimeNanos);
+    }
+  }
+
+  private static boolean isSessionStatusRequest(ClientRequestContext requestContext) {
+    return "GET".equals(requestContext.getMethod()) && requestContext.getUri().getPath().contains("/session/");
+  }
+}
@@ -0,0 +1,113 @@
+package ee.sk.smartid.loadgenerator;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.zip.Inflater;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void recordValue_smallValuesAreExact() {
+    LatencyHistogram histogram = new LatencyHistogram(3600000000L);
+    for (long value = 1; value <= 100; value++) {
+      histogram.recordValue(value);
+    }
+    assertEquals(100L, histogram.getTotalCount());
+    assertEquals(1L, histogram.getMinValue());
+    assertEquals(100L, histogram.getMaxValue());
+    assertEquals(50L, histogram.getValueAtPercentile(50.0));
+    assertEquals(99L, histogram.getValueAtPercentile(99.0));
+    assertEquals(100L, histogram.getValueAtPercentile(100.0));
+    assertEquals(50.5, histogram.getMean(), 0.001);
+  }
+
+  @Test
+  public void recordValue_largeValuesHaveThreeSignificantDigits() {
+    LatencyHistogram histogram = new LatencyHistogram(3600000000L);
+    histogram.recordValue(1234567L);
+    histogram.recordValue(5000000000L);
+    assertEquals(1234567L, histogram.getValueAtPercentile(50.0), 1234567L / 1000);
+    assertEquals(3600000000L, histogram.getMaxValue(), 3600000000L / 1000);
+  }
+
+  @Test
+  public void addAndReset() {
+    LatencyHistogram histogram = new LatencyHistogram(100000L);
+    LatencyHistogram other = new LatencyHistogram(100000L);
+    histogram.recordValue(10L);
+    other.recordValue(20000L);
+    histogram.add(other);
+    assertEquals(2L, histogram.getTotalCount());
+    assertEquals(10L, histogram.getMinValue());
+    histogram.reset();
+    assertEquals(0L, histogram.getTotalCount());
+    assertEquals(0L, histogram.getValueAtPercentile(99.0));
+  }
+
+  @Test
+  public void encode_shouldUseHdrHistogramV2Encoding() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram(3600000000L);
+    histogram.recordValue(5L);
+    histogram.recordValue(5L);
+    histogram.recordValue(100000L);
+
+    ByteBuffer compressed = ByteBuffer.wrap(HistogramLogWriter.compress(histogram.encode()));
+    assertEquals(0x1c849314, compressed.getInt());
+    int compressedLength = compressed.getInt();
+    Inflater inflater = new Inflater();
+    inflater.setInput(compressed.array(), 8, compressedLength);
+    byte[] encoded = new byte[1000];
+    ByteBuffer buffer = ByteBuffer.wrap(encoded, 0, inflater.inflate(encoded));
+    inflater.end();
+
+    assertEquals(0x1c849313, buffer.getInt());
+    int payloadLength = buffer.getInt();
+    assertEquals(0, buffer.getInt());
+    assertEquals(3, buffer.getInt());
+    assertEquals(1L, buffer.getLong());
+    assertEquals(3600000000L, buffer.getLong());
+    assertEquals(1.0, buffer.getDouble(), 0.0);
+    assertEquals(buffer.limit() - 40, payloadLength);
+    assertEquals(-5L, getZigZag(buffer));
+    assertEquals(2L, getZigZag(buffer));
+    assertEquals(-(LatencyHistogram.getIndex(100000L) - 6), getZigZag(buffer));
+    assertEquals(1L, getZigZag(buffer));
+    assertEquals(buffer.limit(), buffer.position());
+  }
+
+  @Test
+  public void outputPercentileDistribution() {
+    LatencyHistogram histogram = new LatencyHistogram(3600000000L);
+    for (long value = 1000; value <= 100000; value += 1000) {
+      histogram.recordValue(value);
+    }
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    histogram.outputPercentileDistribution(new PrintStream(output), 1000.0);
+    String distribution = output.toString();
+    assertThat(distribution, startsWith("       Value     Percentile TotalCount 1/(1-Percentile)"));
+    assertThat(distribution, containsString("      50.015 0.500000000000         50           2.00"));
+    assertThat(distribution, containsString("     100.031 1.000000000000        100"));
+    assertThat(distribution, containsString("#[Max     =      100.031, Total count    =          100]"));
+  }
+
+  private static long getZigZag(ByteBuffer buffer) {
+    long value = 0L;
+    for (int shift = 0; shift < 56; shift += 7) {
+      byte b = buffer.get();
+      value |= (b & 0x7fL) << shift;
+      if (b >= 0) {
+        return (value >>> 1) ^ -(value & 1);
+      }
+    }
+    value |= (buffer.get() & 0xffL) << 56;
+    return (value >>> 1) ^ -(value & 1);
+  }
+}
@@ -0,0 +1,126 @@
+package ee.sk.smartid.loadgenerator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.KeyStore;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class LoadGeneratorTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private HttpServer server;
+  private final AtomicInteger sessionStatusRequests = new AtomicInteger();
+
+  @Before
+  public void setUp() throws Exception {
+    final String sessionStatus = "{\"state\":\"COMPLETE\",\"result\":{\"endResult\":\"OK\",\"documentNumber\":\"PNOEE-31111111111\"},"
+        + "\"signature\":{\"value\":\"AAAA\",\"algorithm\":\"sha512WithRSAEncryption\"},"
+        + "\"cert\":{\"value\":\"" + getCertificateInBase64() + "\",\"certificateLevel\":\"QUALIFIED\"}}";
+    server = HttpServer.create(new InetSocketAddress(0), 100);
+    server.setExecutor(Executors.newFixedThreadPool(8));
+    server.createContext("/", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        if (exchange.getRequestURI().getPath().startsWith("/session/")) {
+          sessionStatusRequests.incrementAndGet();
+          respond(exchange, sessionStatus);
+        } else {
+          respond(exchange, "{\"sessionID\":\"" + UUID.randomUUID() + "\"}");
+        }
+      }
+    });
+    server.start();
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  @Test
+  public void run_shouldStartSessionsAtTheGivenRates() throws Exception {
+    File outputDirectory = temporaryFolder.newFolder();
+    LoadGeneratorConfiguration configuration = new LoadGeneratorConfiguration();
+    configuration.setHostUrl("http://localhost:" + server.getAddress().getPort());
+    configuration.setDocumentNumber("PNOEE-31111111111");
+    configuration.setAuthenticationRate(40.0);
+    configuration.setSignatureRate(20.0);
+    configuration.setDuration(TimeUnit.SECONDS, 1L);
+    configuration.setReportingInterval(TimeUnit.MILLISECONDS, 300L);
+    configuration.setOutputDirectory(outputDirectory);
+    LoadGenerator loadGenerator = new LoadGenerator(configuration);
+
+    loadGenerator.run();
+
+    assertEquals(60L, loadGenerator.getStartedSessionCount());
+    assertEquals(Long.valueOf(60L), loadGenerator.getOutcomes().get("OK"));
+    assertEquals(1, loadGenerator.getOutcomes().size());
+    assertEquals(60L, loadGenerator.getInitiationLatency().getTotalCount());
+    assertEquals(60L, loadGenerator.getConfirmationLatency().getTotalCount());
+    assertEquals(sessionStatusRequests.get(), loadGenerator.getPollLatency().getTotalCount());
+    assertThat(sessionStatusRequests.get(), greaterThanOrEqualTo(60));
+
+    List<String> histogramLog = Files.readAllLines(new File(outputDirectory, "latency.hlog").toPath(), UTF_8);
+    assertEquals("#[Histogram log format version 1.3]", histogramLog.get(0));
+    assertThat(histogramLog.get(histogramLog.size() - 1), startsWith("Tag=confirmation-uncorrected,"));
+    assertThat(histogramLog.get(histogramLog.size() - 2), containsString(",HISTF"));
+    assertTrue(new File(outputDirectory, "confirmation.hgrm").isFile());
+    String summary = new String(Files.readAllBytes(new File(outputDirectory, "summary.txt").toPath()), UTF_8);
+    assertThat(summary, containsString("Started 60 sessions"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void construct_withoutRates_shouldThrowException() {
+    LoadGeneratorConfiguration configuration = new LoadGeneratorConfiguration();
+    configuration.setAuthenticationRate(0.0);
+    new LoadGenerator(configuration);
+  }
+
+  private static void respond(HttpExchange exchange, String json) throws IOException {
+    byte[] body = json.getBytes(UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream output = exchange.getResponseBody()) {
+      output.write(body);
+    }
+  }
+
+  private static String getCertificateInBase64() throws Exception {
+    KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+    try (InputStream input = new FileInputStream(System.getProperty("java.home") + "/lib/security/cacerts")) {
+      keyStore.load(input, null);
+    }
+    return Base64.encodeBase64String(keyStore.getCertificate(keyStore.aliases().nextElement()).getEncoded());
+  }
+}
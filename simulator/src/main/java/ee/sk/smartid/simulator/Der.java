@@ -0,0 +1,143 @@
+package ee.sk.smartid.simulator;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Minimal DER encoder for building X.509 certificates
+ */
+final class Der {
+
+  static final int BOOLEAN = 0x01;
+  static final int INTEGER = 0x02;
+  static final int BIT_STRING = 0x03;
+  static final int OCTET_STRING = 0x04;
+  static final int NULL = 0x05;
+  static final int OBJECT_IDENTIFIER = 0x06;
+  static final int UTF8_STRING = 0x0c;
+  static final int PRINTABLE_STRING = 0x13;
+  static final int UTC_TIME = 0x17;
+  static final int SEQUENCE = 0x30;
+  static final int SET = 0x31;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+  private Der() {
+  }
+
+  static byte[] encode(int tag, byte[]... contents) {
+    int length = 0;
+    for (byte[] content : contents) {
+      length += content.length;
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream(length + 6);
+    out.write(tag);
+    writeLength(out, length);
+    for (byte[] content : contents) {
+      out.write(content, 0, content.length);
+    }
+    return out.toByteArray();
+  }
+
+  static byte[] sequence(byte[]... contents) {
+    return encode(SEQUENCE, contents);
+  }
+
+  static byte[] set(byte[]... contents) {
+    return encode(SET, contents);
+  }
+
+  /**
+   * Encodes a constructed, context specific tag, e.g. {@code [0]}
+   */
+  static byte[] explicit(int tagNumber, byte[]... contents) {
+    return encode(0xa0 | tagNumber, contents);
+  }
+
+  /**
+   * Encodes an implicitly tagged primitive value, e.g. {@code [0] IMPLICIT OCTET STRING}
+   */
+  static byte[] implicit(int tagNumber, byte[] content) {
+    return encode(0x80 | tagNumber, content);
+  }
+
+  static byte[] integer(BigInteger value) {
+    return encode(INTEGER, value.toByteArray());
+  }
+
+  static byte[] integer(long value) {
+    return integer(BigInteger.valueOf(value));
+  }
+
+  static byte[] bool(boolean value) {
+    return encode(BOOLEAN, new byte[]{value ? (byte) 0xff : 0});
+  }
+
+  static byte[] nullValue() {
+    return encode(NULL);
+  }
+
+  static byte[] octetString(byte[] value) {
+    return encode(OCTET_STRING, value);
+  }
+
+  static byte[] bitString(byte[] value) {
+    return bitString(value, 0);
+  }
+
+  static byte[] bitString(byte[] value, int unusedBits) {
+    return encode(BIT_STRING, new byte[]{(byte) unusedBits}, value);
+  }
+
+  static byte[] utf8String(String value) {
+    return encode(UTF8_STRING, value.getBytes(UTF_8));
+  }
+
+  static byte[] printableString(String value) {
+    return encode(PRINTABLE_STRING, value.getBytes(US_ASCII));
+  }
+
+  static byte[] utcTime(Date time) {
+    SimpleDateFormat format = new SimpleDateFormat("yyMMddHHmmss'Z'");
+    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+    return encode(UTC_TIME, format.format(time).getBytes(US_ASCII));
+  }
+
+  static byte[] objectIdentifier(String oid) {
+    String[] arcs = oid.split("\\.");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(Integer.parseInt(arcs[0]) * 40 + Integer.parseInt(arcs[1]));
+    for (int i = 2; i < arcs.length; i++) {
+      long arc = Long.parseLong(arcs[i]);
+      int groups = 1;
+      while ((arc >> (7 * groups)) != 0) {
+        groups++;
+      }
+      for (int group = groups - 1; group >= 0; group--) {
+        int bits = (int) ((arc >> (7 * group)) & 0x7f);
+        out.write(group == 0 ? bits : bits | 0x80);
+      }
+    }
+    return encode(OBJECT_IDENTIFIER, out.toByteArray());
+  }
+
+  private static void writeLength(ByteArrayOutputStream out, int length) {
+    if (length < 0x80) {
+      out.write(length);
+      return;
+    }
+    int bytes = 1;
+    while ((length >>> (8 * bytes)) != 0) {
+      bytes++;
+    }
+    out.write(0x80 | bytes);
+    for (int i = bytes - 1; i >= 0; i--) {
+      out.write(length >>> (8 * i));
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package ee.sk.smartid.simulator;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Identity of a simulated user
+ * <p>
+ * Every national identity is a simulated user. The document number of
+ * the user is {@code PNO<country>-<identity code>-SIMU-Q}; any document number
+ * starting with {@code PNO<country>-<identity code>} belongs to the user.
+ */
+public final class SimulatedIdentity {
+
+  private static final Pattern DOCUMENT_NUMBER = Pattern.compile("PNO([A-Z]{2})-([0-9A-Za-z]+)(-.*)?");
+  private static final Pattern COUNTRY = Pattern.compile("[A-Z]{2}");
+  private static final Pattern IDENTITY_CODE = Pattern.compile("[0-9A-Za-z]+");
+
+  private final String country;
+  private final String identityCode;
+
+  private SimulatedIdentity(String country, String identityCode) {
+    this.country = country;
+    this.identityCode = identityCode;
+  }
+
+  /**
+   * Gets the user of the national identity
+   *
+   * @param country country code in upper case
+   * @param identityCode national identity number
+   * @return identity or null when the national identity is not valid
+   */
+  public static SimulatedIdentity fromNationalIdentity(String country, String identityCode) {
+    if (!COUNTRY.matcher(country).matches() || !IDENTITY_CODE.matcher(identityCode).matches()) {
+      return null;
+    }
+    return new SimulatedIdentity(country, identityCode);
+  }
+
+  /**
+   * Gets the user of the document number
+   *
+   * @param documentNumber document number
+   * @return identity or null when the document number doesn't belong to any simulated user
+   */
+  public static SimulatedIdentity fromDocumentNumber(String documentNumber) {
+    Matcher matcher = DOCUMENT_NUMBER.matcher(documentNumber);
+    if (!matcher.matches()) {
+      return null;
+    }
+    return new SimulatedIdentity(matcher.group(1), matcher.group(2));
+  }
+
+  public String getCountry() {
+    return country;
+  }
+
+  public String getIdentityCode() {
+    return identityCode;
+  }
+
+  public String getGivenName() {
+    return "TEST";
+  }
+
+  public String getSurname() {
+    return "SIMULATED";
+  }
+
+  public String getDocumentNumber() {
+    return "PNO" + country + "-" + identityCode + "-SIMU-Q";
+  }
+
+  @Override
+  public String toString() {
+    return getDocumentNumber();
+  }
+}
@@ -0,0 +1,62 @@
+package ee.sk.smartid.simulator;
+
+import java.security.cert.X509Certificate;
+
+/**
+ * Session started in the simulator
+ * <p>
+ * The outcome, the time it is reported and the signature are decided when
+ * the session is created.
+ */
+class SimulatedSession {
+
+  private final String documentNumber;
+  private final X509Certificate certificate;
+  private final String signatureAlgorithm;
+  private final String signatureValueInBase64;
+  private final String endResult;
+  private final long completesAtMillis;
+
+  SimulatedSession(String documentNumber, X509Certificate certificate, String signatureAlgorithm, String signatureValueInBase64,
+                   String endResult, long completesAtMillis) {
+    this.documentNumber = documentNumber;
+    this.certificate = certificate;
+    this.signatureAlgorithm = signatureAlgorithm;
+    this.signatureValueInBase64 = signatureValueInBase64;
+    this.endResult = endResult;
+    this.completesAtMillis = completesAtMillis;
+  }
+
+  String getDocumentNumber() {
+    return documentNumber;
+  }
+
+  X509Certificate getCertificate() {
+    return certificate;
+  }
+
+  /**
+   * Gets the algorithm of the signature
+   *
+   * @return algorithm or null for certificate choice sessions
+   */
+  String getSignatureAlgorithm() {
+    return signatureAlgorithm;
+  }
+
+  String getSignatureValueInBase64() {
+    return signatureValueInBase64;
+  }
+
+  String getEndResult() {
+    return endResult;
+  }
+
+  long getCompletesAtMillis() {
+    return completesAtMillis;
+  }
+
+  boolean isComplete(long nowMillis) {
+    return nowMillis >= completesAtMillis;
+  }
+}
@@ -0,0 +1,203 @@
+package ee.sk.smartid.simulator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Behaviour of the simulated users and the simulated service
+ * <p>
+ * The outcome of a session is drawn when the session is created: the user
+ * refuses, lets the session time out or has an unusable document with the
+ * configured rates, and confirms otherwise. Confirming, refusing and the
+ * unusable document are reported after a user response delay drawn
+ * uniformly between the minimum and maximum delay. A timed out session is
+ * reported after the user timeout.
+ * <p>
+ * Any request can also fail with HTTP 480 (client not supported) or 580
+ * (server under maintenance) at the configured rates.
+ */
+public class SimulatorConfiguration {
+
+  private long minUserResponseDelayMillis = 1000L;
+  private long maxUserResponseDelayMillis = 3000L;
+  private long userTimeoutMillis = 60000L;
+  private long maxLongPollMillis = 120000L;
+  private long sessionRetentionMillis = 300000L;
+  private double refusalRate;
+  private double timeoutRate;
+  private double documentUnusableRate;
+  private double clientNotSupportedRate;
+  private double maintenanceRate;
+  private String certificateLevel = "QUALIFIED";
+  private int handlerThreadCount = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+  /**
+   * Sets the range of the time users take to respond, 1 to 3 seconds by default
+   *
+   * @param unit time unit of the delays
+   * @param minDelay minimum delay
+   * @param maxDelay maximum delay
+   */
+  public void setUserResponseDelay(TimeUnit unit, long minDelay, long maxDelay) {
+    if (minDelay < 0 || maxDelay < minDelay) {
+      throw new IllegalArgumentException("Delays must be non-negative and the maximum delay can't be less than the minimum delay");
+    }
+    this.minUserResponseDelayMillis = unit.toMillis(minDelay);
+    this.maxUserResponseDelayMillis = unit.toMillis(maxDelay);
+  }
+
+  /**
+   * Sets after how long a session the user doesn't respond to times out, 60 seconds by default
+   *
+   * @param unit time unit of the timeout
+   * @param timeout user timeout
+   */
+  public void setUserTimeout(TimeUnit unit, long timeout) {
+    this.userTimeoutMillis = unit.toMillis(requireNonNegative(timeout, "User timeout"));
+  }
+
+  /**
+   * Sets the longest time a session status request is held open, 120 seconds by default
+   * <p>
+   * A request is held for the {@code timeoutMs} it asks for, but not longer than this.
+   *
+   * @param unit time unit of the timeout
+   * @param timeout maximum long poll time
+   */
+  public void setMaxLongPoll(TimeUnit unit, long timeout) {
+    this.maxLongPollMillis = unit.toMillis(requireNonNegative(timeout, "Long poll time"));
+  }
+
+  /**
+   * Sets how long the status of a finished session can be queried, 5 minutes by default
+   *
+   * @param unit time unit of the retention
+   * @param retention retention time
+   */
+  public void setSessionRetention(TimeUnit unit, long retention) {
+    this.sessionRetentionMillis = unit.toMillis(requireNonNegative(retention, "Session retention"));
+  }
+
+  public void setRefusalRate(double refusalRate) {
+    this.refusalRate = requireRate(refusalRate);
+  }
+
+  public void setTimeoutRate(double timeoutRate) {
+    this.timeoutRate = requireRate(timeoutRate);
+  }
+
+  public void setDocumentUnusableRate(double documentUnusableRate) {
+    this.documentUnusableRate = requireRate(documentUnusableRate);
+  }
+
+  /**
+   * Sets the rate of requests failing with HTTP 480
+   *
+   * @param clientNotSupportedRate rate between 0 and 1
+   */
+  public void setClientNotSupportedRate(double clientNotSupportedRate) {
+    this.clientNotSupportedRate = requireRate(clientNotSupportedRate);
+  }
+
+  /**
+   * Sets the rate of requests failing with HTTP 580
+   *
+   * @param maintenanceRate rate between 0 and 1
+   */
+  public void setMaintenanceRate(double maintenanceRate) {
+    this.maintenanceRate = requireRate(maintenanceRate);
+  }
+
+  /**
+   * Sets the level of the certificates returned, QUALIFIED by default
+   *
+   * @param certificateLevel certificate level
+   */
+  public void setCertificateLevel(String certificateLevel) {
+    this.certificateLevel = certificateLevel;
+  }
+
+  /**
+   * Sets the number of threads handling the requests
+   * <p>
+   * Held session status requests don't occupy a thread.
+   *
+   * @param handlerThreadCount number of threads
+   */
+  public void setHandlerThreadCount(int handlerThreadCount) {
+    if (handlerThreadCount < 1) {
+      throw new IllegalArgumentException("Handler thread count must be positive");
+    }
+    this.handlerThreadCount = handlerThreadCount;
+  }
+
+  public long getMinUserResponseDelayMillis() {
+    return minUserResponseDelayMillis;
+  }
+
+  public long getMaxUserResponseDelayMillis() {
+    return maxUserResponseDelayMillis;
+  }
+
+  public long getUserTimeoutMillis() {
+    return userTimeoutMillis;
+  }
+
+  public long getMaxLongPollMillis() {
+    return maxLongPollMillis;
+  }
+
+  public long getSessionRetentionMillis() {
+    return sessionRetentionMillis;
+  }
+
+  public double getRefusalRate() {
+    return refusalRate;
+  }
+
+  public double getTimeoutRate() {
+    return timeoutRate;
+  }
+
+  public double getDocumentUnusableRate() {
+    return documentUnusableRate;
+  }
+
+  public double getClientNotSupportedRate() {
+    return clientNotSupportedRate;
+  }
+
+  public double getMaintenanceRate() {
+    return maintenanceRate;
+  }
+
+  public String getCertificateLevel() {
+    return certificateLevel;
+  }
+
+  public int getHandlerThreadCount() {
+    return handlerThreadCount;
+  }
+
+  void validate() {
+    if (refusalRate + timeoutRate + documentUnusableRate > 1.0) {
+      throw new IllegalArgumentException("Refusal, timeout and unusable document rates can't add up to more than 1");
+    }
+    if (clientNotSupportedRate + maintenanceRate > 1.0) {
+      throw new IllegalArgumentException("Error rates can't add up to more than 1");
+    }
+  }
+
+  private static double requireRate(double rate) {
+    if (rate < 0.0 || rate > 1.0) {
+      throw new IllegalArgumentException("Rate must be between 0 and 1");
+    }
+    return rate;
+  }
+
+  private static long requireNonNegative(long value, String name) {
+    if (value < 0) {
+      throw new IllegalArgumentException(name + " can't be negative");
+    }
+    return value;
+  }
+}
@@ -0,0 +1,601 @@
+package ee.sk.smartid.simulator;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import ee.sk.smartid.HashType;
+import ee.sk.smartid.rest.dao.*;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulator of the Smart-ID relying party API for load testing
+ * <p>
+ * Serves certificate choice, authentication, signature and session status
+ * requests over HTTP, so the whole integration can be tested offline. Every
+ * national identity is a simulated user, see {@link SimulatedIdentity}. The
+ * users respond as configured by {@link SimulatorConfiguration}. Session
+ * status requests with {@code timeoutMs} are held until the session completes
+ * or the timeout passes, without occupying a thread.
+ * <p>
+ * Signatures are made with keys certified by the {@link TestCertificateAuthority}
+ * of the simulator, so {@code AuthenticationResponseValidator} accepts them
+ * once the CA certificate is trusted:
+ * <pre class="code"><code class="java">
+ *   SmartIdSimulator simulator = new SmartIdSimulator();
+ *   simulator.start(0);
+ *   client.setHostUrl(simulator.getUrl());
+ *   validator.addTrustedCACertificate(simulator.getCaCertificate());
+ *   ...
+ *   simulator.close();
+ * </code></pre>
+ * The API paths may have any prefix, e.g. {@code /smart-id-rp/v1/}.
+ * See {@link #main(String[])} for running it standalone.
+ */
+public class SmartIdSimulator implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(SmartIdSimulator.class);
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int CLIENT_NOT_SUPPORTED = 480;
+  private static final int SERVER_MAINTENANCE = 580;
+  private static final AtomicInteger simulatorNumber = new AtomicInteger();
+
+  private final SimulatorConfiguration configuration;
+  private final TestCertificateAuthority certificateAuthority;
+  private final ConcurrentMap<String, SimulatedSession> sessions = new ConcurrentHashMap<>();
+  private final ObjectMapper objectMapper = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+  private final AtomicLong startedSessions = new AtomicLong();
+  private final AtomicLong sessionStatusRequests = new AtomicLong();
+  private final AtomicLong injectedErrors = new AtomicLong();
+  private HttpServer server;
+  private ExecutorService handlerExecutor;
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * Constructs a simulator whose users always confirm within 1 to 3 seconds
+   */
+  public SmartIdSimulator() {
+    this(new SimulatorConfiguration());
+  }
+
+  /**
+   * Constructs a new {@code SmartIdSimulator} with a new test CA
+   *
+   * @param configuration behaviour of the users and the service
+   */
+  public SmartIdSimulator(SimulatorConfiguration configuration) {
+    configuration.validate();
+    this.configuration = configuration;
+    this.certificateAuthority = new TestCertificateAuthority();
+  }
+
+  /**
+   * Starts serving requests
+   *
+   * @param port port to listen on, or 0 for any free port
+   * @throws IOException when the port can't be bound
+   */
+  public synchronized void start(int port) throws IOException {
+    if (server != null) {
+      throw new IllegalStateException("Simulator has already been started");
+    }
+    ThreadFactory threadFactory = new SimulatorThreadFactory(simulatorNumber.incrementAndGet());
+    handlerExecutor = Executors.newFixedThreadPool(configuration.getHandlerThreadCount(), threadFactory);
+    scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    scheduler.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        removeExpiredSessions();
+      }
+    }, 1L, 1L, TimeUnit.SECONDS);
+    server = HttpServer.create(new InetSocketAddress(port), 1024);
+    server.setExecutor(handlerExecutor);
+    server.createContext("/", new ApiHandler());
+    server.start();
+    logger.info("Smart-ID simulator listening on " + getUrl());
+  }
+
+  public synchronized int getPort() {
+    if (server == null) {
+      throw new IllegalStateException("Simulator has not been started");
+    }
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Gets the URL to use as the host URL of the client
+   *
+   * @return URL of the API
+   */
+  public String getUrl() {
+    return "http://localhost:" + getPort() + "/";
+  }
+
+  /**
+   * Gets the certificate of the test CA that has issued the user certificates
+   *
+   * @return CA certificate
+   */
+  public X509Certificate getCaCertificate() {
+    return certificateAuthority.getCertificate();
+  }
+
+  public TestCertificateAuthority getCertificateAuthority() {
+    return certificateAuthority;
+  }
+
+  public SimulatorConfiguration getConfiguration() {
+    return configuration;
+  }
+
+  public long getStartedSessionCount() {
+    return startedSessions.get();
+  }
+
+  public long getSessionStatusRequestCount() {
+    return sessionStatusRequests.get();
+  }
+
+  /**
+   * Gets the number of requests failed with HTTP 480 or 580 on purpose
+   *
+   * @return number of injected errors
+   */
+  public long getInjectedErrorCount() {
+    return injectedErrors.get();
+  }
+
+  /**
+   * Stops serving requests
+   * <p>
+   * Held session status requests are not answered.
+   */
+  @Override
+  public synchronized void close() {
+    if (server == null) {
+      return;
+    }
+    server.stop(0);
+    scheduler.shutdownNow();
+    handlerExecutor.shutdownNow();
+    sessions.clear();
+    logger.info("Smart-ID simulator stopped");
+  }
+
+  /**
+   * Runs the simulator until the process is stopped
+   * <p>
+   * Options are given as {@code --name=value}:
+   * <ul>
+   *   <li>{@code port}, 8080 by default</li>
+   *   <li>{@code min-delay-ms} and {@code max-delay-ms}, the range of user response delays</li>
+   *   <li>{@code user-timeout-ms}</li>
+   *   <li>{@code refusal-rate}, {@code timeout-rate} and {@code document-unusable-rate}</li>
+   *   <li>{@code client-not-supported-rate} and {@code maintenance-rate}, rates of HTTP 480 and 580</li>
+   *   <li>{@code certificate-level}</li>
+   *   <li>{@code threads}, number of request handling threads</li>
+   *   <li>{@code ca-certificate-file}, file the CA certificate is written to in PEM</li>
+   * </ul>
+   *
+   * @param args options
+   * @throws Exception when the simulator can't be started
+   */
+  public static void main(String[] args) throws Exception {
+    SimulatorConfiguration configuration = new SimulatorConfiguration();
+    int port = 8080;
+    String caCertificateFile = null;
+    long minDelayMillis = configuration.getMinUserResponseDelayMillis();
+    long maxDelayMillis = configuration.getMaxUserResponseDelayMillis();
+    for (String arg : args) {
+      String name = StringUtils.substringBetween(arg, "--", "=");
+      String value = StringUtils.substringAfter(arg, "=");
+      if (name == null) {
+        throw new IllegalArgumentException("Options must be given as --name=value: " + arg);
+      }
+      switch (name) {
+        case "port":
+          port = Integer.parseInt(value);
+          break;
+        case "min-delay-ms":
+          minDelayMillis = Long.parseLong(value);
+          break;
+        case "max-delay-ms":
+          maxDelayMillis = Long.parseLong(value);
+          break;
+        case "user-timeout-ms":
+          configuration.setUserTimeout(TimeUnit.MILLISECONDS, Long.parseLong(value));
+          break;
+        case "refusal-rate":
+          configuration.setRefusalRate(Double.parseDouble(value));
+          break;
+        case "timeout-rate":
+          configuration.setTimeoutRate(Double.parseDouble(value));
+          break;
+        case "document-unusable-rate":
+          configuration.setDocumentUnusableRate(Double.parseDouble(value));
+          break;
+        case "client-not-supported-rate":
+          configuration.setClientNotSupportedRate(Double.parseDouble(value));
+          break;
+        case "maintenance-rate":
+          configuration.setMaintenanceRate(Double.parseDouble(value));
+          break;
+        case "certificate-level":
+          configuration.setCertificateLevel(value);
+          break;
+        case "threads":
+          configuration.setHandlerThreadCount(Integer.parseInt(value));
+          break;
+        case "ca-certificate-file":
+          caCertificateFile = value;
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + name);
+      }
+    }
+    configuration.setUserResponseDelay(TimeUnit.MILLISECONDS, minDelayMillis, maxDelayMillis);
+    final SmartIdSimulator simulator = new SmartIdSimulator(configuration);
+    if (caCertificateFile != null) {
+      writeCertificate(simulator.getCaCertificate(), new File(caCertificateFile));
+    }
+    Runtime.getRuntime().addShutdownHook(new Thread() {
+      @Override
+      public void run() {
+        simulator.close();
+      }
+    });
+    simulator.start(port);
+    Thread.currentThread().join();
+  }
+
+  private static void writeCertificate(X509Certificate certificate, File file) throws IOException, CertificateEncodingException {
+    String pem = "-----BEGIN CERTIFICATE-----\n"
+        + Base64.encodeBase64String(certificate.getEncoded()).replaceAll("(.{64})", "$1\n")
+        + "\n-----END CERTIFICATE-----\n";
+    Files.write(file.toPath(), pem.getBytes(UTF_8));
+    logger.info("Wrote the CA certificate to " + file);
+  }
+
+  private void handle(HttpExchange exchange, String[] path) throws IOException {
+    int root = findRoot(path);
+    if (root < 0) {
+      respond(exchange, 404, null);
+      return;
+    }
+    if (injectError(exchange)) {
+      return;
+    }
+    String resource = path[root];
+    int parameters = path.length - root - 1;
+    if ("session".equals(resource) && parameters == 1) {
+      requireMethod(exchange, "GET");
+      getSessionStatus(exchange, path[root + 1]);
+      return;
+    }
+    requireMethod(exchange, "POST");
+    SimulatedIdentity identity;
+    if (parameters == 3 && "pno".equals(path[root + 1]) && !"signature".equals(resource)) {
+      identity = SimulatedIdentity.fromNationalIdentity(path[root + 2], path[root + 3]);
+    } else if (parameters == 2 && "document".equals(path[root + 1])) {
+      identity = SimulatedIdentity.fromDocumentNumber(path[root + 2]);
+    } else {
+      respond(exchange, 404, null);
+      return;
+    }
+    if (identity == null) {
+      logger.debug("No simulated user for " + exchange.getRequestURI());
+      respond(exchange, 404, null);
+      return;
+    }
+    switch (resource) {
+      case "certificatechoice":
+        startCertificateChoice(exchange, identity);
+        break;
+      case "authentication":
+        startAuthentication(exchange, identity);
+        break;
+      default:
+        startSignature(exchange, identity);
+        break;
+    }
+  }
+
+  private static int findRoot(String[] path) {
+    for (int i = 0; i < path.length; i++) {
+      switch (path[i]) {
+        case "session":
+        case "certificatechoice":
+        case "authentication":
+        case "signature":
+          return i;
+        default:
+          break;
+      }
+    }
+    return -1;
+  }
+
+  private boolean injectError(HttpExchange exchange) throws IOException {
+    double random = ThreadLocalRandom.current().nextDouble();
+    int status;
+    if (random < configuration.getClientNotSupportedRate()) {
+      status = CLIENT_NOT_SUPPORTED;
+    } else if (random < configuration.getClientNotSupportedRate() + configuration.getMaintenanceRate()) {
+      status = SERVER_MAINTENANCE;
+    } else {
+      return false;
+    }
+    injectedErrors.incrementAndGet();
+    respond(exchange, status, null);
+    return true;
+  }
+
+  private void startCertificateChoice(HttpExchange exchange, SimulatedIdentity identity) throws IOException {
+    CertificateRequest request = readRequest(exchange, CertificateRequest.class);
+    requireRelyingParty(request.getRelyingPartyUUID(), request.getRelyingPartyName());
+    X509Certificate certificate = certificateAuthority.getUserCertificate(identity);
+    CertificateChoiceResponse response = new CertificateChoiceResponse();
+    response.setSessionId(startSession(identity, certificate, null, null));
+    respond(exchange, 200, response);
+  }
+
+  private void startAuthentication(HttpExchange exchange, SimulatedIdentity identity) throws IOException {
+    AuthenticationSessionRequest request = readRequest(exchange, AuthenticationSessionRequest.class);
+    requireRelyingParty(request.getRelyingPartyUUID(), request.getRelyingPartyName());
+    AuthenticationSessionResponse response = new AuthenticationSessionResponse();
+    response.setSessionId(startSigningSession(identity, request.getHashType(), request.getHash()));
+    respond(exchange, 200, response);
+  }
+
+  private void startSignature(HttpExchange exchange, SimulatedIdentity identity) throws IOException {
+    SignatureSessionRequest request = readRequest(exchange, SignatureSessionRequest.class);
+    requireRelyingParty(request.getRelyingPartyUUID(), request.getRelyingPartyName());
+    SignatureSessionResponse response = new SignatureSessionResponse();
+    response.setSessionId(startSigningSession(identity, request.getHashType(), request.getHash()));
+    respond(exchange, 200, response);
+  }
+
+  private String startSigningSession(SimulatedIdentity identity, String hashTypeName, String hashInBase64) {
+    HashType hashType = parseHashType(hashTypeName);
+    byte[] hash = hashInBase64 == null ? null : Base64.decodeBase64(hashInBase64);
+    byte[] digestInfoPrefix = hashType.getDigestInfoPrefix();
+    if (hash == null || hash.length != digestInfoPrefix[digestInfoPrefix.length - 1]) {
+      throw new BadRequestException("Hash doesn't match hash type " + hashTypeName);
+    }
+    byte[] digestInfo = new byte[digestInfoPrefix.length + hash.length];
+    System.arraycopy(digestInfoPrefix, 0, digestInfo, 0, digestInfoPrefix.length);
+    System.arraycopy(hash, 0, digestInfo, digestInfoPrefix.length, hash.length);
+    String signatureValue = Base64.encodeBase64String(certificateAuthority.signAsUser(digestInfo));
+    String signatureAlgorithm = hashType.getHashTypeName().toLowerCase() + "WithRSAEncryption";
+    return startSession(identity, certificateAuthority.getUserCertificate(identity), signatureAlgorithm, signatureValue);
+  }
+
+  private static HashType parseHashType(String hashTypeName) {
+    for (HashType hashType : HashType.values()) {
+      if (hashType.getHashTypeName().equals(hashTypeName)) {
+        return hashType;
+      }
+    }
+    throw new BadRequestException("Unknown hash type " + hashTypeName);
+  }
+
+  private String startSession(SimulatedIdentity identity, X509Certificate certificate, String signatureAlgorithm, String signatureValue) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    double outcome = random.nextDouble();
+    String endResult;
+    long delayMillis;
+    if (outcome < configuration.getRefusalRate()) {
+      endResult = "USER_REFUSED";
+    } else if (outcome < configuration.getRefusalRate() + configuration.getTimeoutRate()) {
+      endResult = "TIMEOUT";
+    } else if (outcome < configuration.getRefusalRate() + configuration.getTimeoutRate() + configuration.getDocumentUnusableRate()) {
+      endResult = "DOCUMENT_UNUSABLE";
+    } else {
+      endResult = "OK";
+    }
+    if ("TIMEOUT".equals(endResult)) {
+      delayMillis = configuration.getUserTimeoutMillis();
+    } else {
+      long minDelay = configuration.getMinUserResponseDelayMillis();
+      long maxDelay = configuration.getMaxUserResponseDelayMillis();
+      delayMillis = minDelay == maxDelay ? minDelay : minDelay + random.nextLong(maxDelay - minDelay + 1);
+    }
+    String sessionId = UUID.randomUUID().toString();
+    sessions.put(sessionId, new SimulatedSession(identity.getDocumentNumber(), certificate, signatureAlgorithm, signatureValue, endResult,
+        System.currentTimeMillis() + delayMillis));
+    startedSessions.incrementAndGet();
+    logger.debug("Started session " + sessionId + " of " + identity + " ending with " + endResult + " in " + delayMillis + " ms");
+    return sessionId;
+  }
+
+  private void getSessionStatus(final HttpExchange exchange, String sessionId) throws IOException {
+    sessionStatusRequests.incrementAndGet();
+    final SimulatedSession session = sessions.get(sessionId);
+    if (session == null) {
+      respond(exchange, 404, null);
+      return;
+    }
+    long now = System.currentTimeMillis();
+    long holdMillis = Math.min(Math.min(parseTimeout(exchange), configuration.getMaxLongPollMillis()), session.getCompletesAtMillis() - now);
+    if (holdMillis <= 0) {
+      respond(exchange, 200, createSessionStatus(session, now));
+      return;
+    }
+    scheduler.schedule(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          respond(exchange, 200, createSessionStatus(session, System.currentTimeMillis()));
+        } catch (IOException e) {
+          logger.debug("Failed to send held session status: " + e.getMessage());
+        } catch (RuntimeException e) {
+          logger.error("Failed to send held session status", e);
+          exchange.close();
+        }
+      }
+    }, holdMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private static long parseTimeout(HttpExchange exchange) {
+    String query = exchange.getRequestURI().getQuery();
+    if (query == null) {
+      return 0L;
+    }
+    for (String parameter : query.split("&")) {
+      if (parameter.startsWith("timeoutMs=")) {
+        try {
+          return Long.parseLong(parameter.substring("timeoutMs=".length()));
+        } catch (NumberFormatException e) {
+          throw new BadRequestException("Invalid timeoutMs " + parameter);
+        }
+      }
+    }
+    return 0L;
+  }
+
+  private SessionStatus createSessionStatus(SimulatedSession session, long now) {
+    SessionStatus status = new SessionStatus();
+    if (!session.isComplete(now)) {
+      status.setState("RUNNING");
+      return status;
+    }
+    status.setState("COMPLETE");
+    SessionResult result = new SessionResult();
+    result.setEndResult(session.getEndResult());
+    status.setResult(result);
+    if (!"OK".equals(session.getEndResult())) {
+      return status;
+    }
+    result.setDocumentNumber(session.getDocumentNumber());
+    SessionCertificate certificate = new SessionCertificate();
+    try {
+      certificate.setValue(Base64.encodeBase64String(session.getCertificate().getEncoded()));
+    } catch (CertificateEncodingException e) {
+      throw new IllegalStateException("Failed to encode user certificate", e);
+    }
+    certificate.setCertificateLevel(configuration.getCertificateLevel());
+    status.setCertificate(certificate);
+    if (session.getSignatureAlgorithm() != null) {
+      SessionSignature signature = new SessionSignature();
+      signature.setAlgorithm(session.getSignatureAlgorithm());
+      signature.setValueInBase64(session.getSignatureValueInBase64());
+      status.setSignature(signature);
+    }
+    return status;
+  }
+
+  private void removeExpiredSessions() {
+    long expiredBefore = System.currentTimeMillis() - configuration.getSessionRetentionMillis();
+    Iterator<SimulatedSession> iterator = sessions.values().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().getCompletesAtMillis() < expiredBefore) {
+        iterator.remove();
+      }
+    }
+  }
+
+  private <T> T readRequest(HttpExchange exchange, Class<T> requestType) throws IOException {
+    try {
+      return objectMapper.readValue(exchange.getRequestBody(), requestType);
+    } catch (JsonProcessingException e) {
+      throw new BadRequestException("Invalid request body: " + e.getOriginalMessage());
+    }
+  }
+
+  private static void requireRelyingParty(String relyingPartyUUID, String relyingPartyName) {
+    if (StringUtils.isEmpty(relyingPartyUUID) || StringUtils.isEmpty(relyingPartyName)) {
+      throw new BadRequestException("Relying party UUID and name must be set");
+    }
+  }
+
+  private static void requireMethod(HttpExchange exchange, String method) {
+    if (!method.equals(exchange.getRequestMethod())) {
+      throw new BadRequestException("Method " + exchange.getRequestMethod() + " is not allowed");
+    }
+  }
+
+  private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+    try {
+      if (body == null) {
+        exchange.sendResponseHeaders(status, -1);
+        return;
+      }
+      byte[] json = objectMapper.writeValueAsBytes(body);
+      exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+      exchange.sendResponseHeaders(status, json.length);
+      OutputStream responseBody = exchange.getResponseBody();
+      responseBody.write(json);
+      responseBody.close();
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private class ApiHandler implements HttpHandler {
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+      String[] path = StringUtils.split(exchange.getRequestURI().getPath(), '/');
+      try {
+        SmartIdSimulator.this.handle(exchange, path);
+      } catch (BadRequestException e) {
+        logger.debug("Bad request " + exchange.getRequestURI() + ": " + e.getMessage());
+        respond(exchange, 400, null);
+      } catch (RuntimeException e) {
+        logger.error("Failed to handle request " + exchange.getRequestURI(), e);
+        respond(exchange, 500, null);
+      }
+    }
+  }
+
+  private static class BadRequestException extends RuntimeException {
+
+    BadRequestException(String message) {
+      super(message);
+    }
+  }
+
+  private static class SimulatorThreadFactory implements ThreadFactory {
+
+    private final int simulatorId;
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    SimulatorThreadFactory(int simulatorId) {
+      this.simulatorId = simulatorId;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "smart-id-simulator-" + simulatorId + "-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,210 @@
+package ee.sk.smartid.simulator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test CA issuing the certificates of the simulated users
+ * <p>
+ * The CA and user keys are generated when the CA is created, so every
+ * simulator run has its own trust anchor: add {@link #getCertificate()} to
+ * the trusted CA certificates of the {@code AuthenticationResponseValidator}.
+ * <p>
+ * All the simulated users share one RSA key, as generating a key per user
+ * would dominate the load of the simulator. Every user still gets a
+ * certificate of their own, with the identity of the document number in
+ * its subject. The certificates of up to {@value #MAX_CACHED_CERTIFICATES}
+ * users are kept.
+ */
+public class TestCertificateAuthority {
+
+  static final int MAX_CACHED_CERTIFICATES = 100000;
+
+  private static final Logger logger = LoggerFactory.getLogger(TestCertificateAuthority.class);
+  private static final String SHA256_WITH_RSA_OID = "1.2.840.113549.1.1.11";
+  private static final String COUNTRY_OID = "2.5.4.6";
+  private static final String ORGANIZATION_OID = "2.5.4.10";
+  private static final String ORGANIZATIONAL_UNIT_OID = "2.5.4.11";
+  private static final String COMMON_NAME_OID = "2.5.4.3";
+  private static final String SURNAME_OID = "2.5.4.4";
+  private static final String GIVEN_NAME_OID = "2.5.4.42";
+  private static final String SERIAL_NUMBER_OID = "2.5.4.5";
+  private static final String SUBJECT_KEY_IDENTIFIER_OID = "2.5.29.14";
+  private static final String KEY_USAGE_OID = "2.5.29.15";
+  private static final String BASIC_CONSTRAINTS_OID = "2.5.29.19";
+  private static final String AUTHORITY_KEY_IDENTIFIER_OID = "2.5.29.35";
+  private static final String ORGANIZATION = "Smart-ID simulator";
+
+  private final KeyPair caKeyPair;
+  private final KeyPair userKeyPair;
+  private final byte[] caName;
+  private final byte[] caKeyIdentifier;
+  private final X509Certificate certificate;
+  private final AtomicLong serialNumber = new AtomicLong(System.currentTimeMillis());
+  private final Map<String, X509Certificate> userCertificates = new LinkedHashMap<String, X509Certificate>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, X509Certificate> eldest) {
+      return size() > MAX_CACHED_CERTIFICATES;
+    }
+  };
+
+  /**
+   * Generates the keys and the self-signed certificate of the CA
+   *
+   * @throws IllegalStateException when RSA keys can't be generated
+   */
+  public TestCertificateAuthority() {
+    try {
+      KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+      keyPairGenerator.initialize(2048, new SecureRandom());
+      caKeyPair = keyPairGenerator.generateKeyPair();
+      userKeyPair = keyPairGenerator.generateKeyPair();
+      caName = name(rdn(COUNTRY_OID, Der.printableString("EE")), rdn(ORGANIZATION_OID, Der.utf8String(ORGANIZATION)),
+          rdn(COMMON_NAME_OID, Der.utf8String("TEST of Smart-ID simulator CA")));
+      caKeyIdentifier = keyIdentifier(caKeyPair.getPublic());
+      byte[] extensions = Der.sequence(
+          extension(BASIC_CONSTRAINTS_OID, true, Der.sequence(Der.bool(true))),
+          extension(KEY_USAGE_OID, true, Der.bitString(new byte[]{0x06}, 1)),
+          extension(SUBJECT_KEY_IDENTIFIER_OID, false, Der.octetString(caKeyIdentifier)));
+      certificate = createCertificate(caName, caKeyPair.getPublic(), TimeUnit.DAYS.toMillis(3650), extensions);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Failed to create the test CA: " + e.getMessage(), e);
+    }
+    logger.debug("Created test CA " + certificate.getSubjectX500Principal());
+  }
+
+  /**
+   * Gets the self-signed certificate of the CA
+   *
+   * @return CA certificate
+   */
+  public X509Certificate getCertificate() {
+    return certificate;
+  }
+
+  /**
+   * Gets the certificate of the simulated user, issuing it when needed
+   *
+   * @param identity identity of the user
+   * @return user certificate
+   */
+  public X509Certificate getUserCertificate(SimulatedIdentity identity) {
+    String key = identity.getCountry() + "-" + identity.getIdentityCode();
+    synchronized (userCertificates) {
+      X509Certificate userCertificate = userCertificates.get(key);
+      if (userCertificate != null) {
+        return userCertificate;
+      }
+    }
+    X509Certificate userCertificate = issueUserCertificate(identity);
+    synchronized (userCertificates) {
+      userCertificates.put(key, userCertificate);
+    }
+    return userCertificate;
+  }
+
+  /**
+   * Signs the DigestInfo with the key of the simulated users
+   *
+   * @param digestInfo DER encoded DigestInfo of the hash
+   * @return PKCS#1 v1.5 signature
+   */
+  byte[] signAsUser(byte[] digestInfo) {
+    try {
+      Signature signature = Signature.getInstance("NONEwithRSA");
+      signature.initSign(userKeyPair.getPrivate());
+      signature.update(digestInfo);
+      return signature.sign();
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Failed to sign as user: " + e.getMessage(), e);
+    }
+  }
+
+  private X509Certificate issueUserCertificate(SimulatedIdentity identity) {
+    String serialNumber = "PNO" + identity.getCountry() + "-" + identity.getIdentityCode();
+    byte[] subject = name(
+        rdn(COUNTRY_OID, Der.printableString(identity.getCountry())),
+        rdn(ORGANIZATION_OID, Der.utf8String(ORGANIZATION)),
+        rdn(ORGANIZATIONAL_UNIT_OID, Der.utf8String("authentication")),
+        rdn(COMMON_NAME_OID, Der.utf8String(identity.getSurname() + "," + identity.getGivenName() + "," + serialNumber)),
+        rdn(SURNAME_OID, Der.utf8String(identity.getSurname())),
+        rdn(GIVEN_NAME_OID, Der.utf8String(identity.getGivenName())),
+        rdn(SERIAL_NUMBER_OID, Der.printableString(serialNumber)));
+    try {
+      byte[] extensions = Der.sequence(
+          extension(BASIC_CONSTRAINTS_OID, true, Der.sequence()),
+          extension(KEY_USAGE_OID, true, Der.bitString(new byte[]{(byte) 0xb0}, 4)),
+          extension(SUBJECT_KEY_IDENTIFIER_OID, false, Der.octetString(keyIdentifier(userKeyPair.getPublic()))),
+          extension(AUTHORITY_KEY_IDENTIFIER_OID, false, Der.sequence(Der.implicit(0, caKeyIdentifier))));
+      return createCertificate(subject, userKeyPair.getPublic(), TimeUnit.DAYS.toMillis(3 * 365), extensions);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Failed to issue user certificate: " + e.getMessage(), e);
+    }
+  }
+
+  private X509Certificate createCertificate(byte[] subject, PublicKey publicKey, long validityMillis, byte[] extensions) throws GeneralSecurityException {
+    long now = System.currentTimeMillis();
+    byte[] signatureAlgorithm = Der.sequence(Der.objectIdentifier(SHA256_WITH_RSA_OID), Der.nullValue());
+    byte[] tbsCertificate = Der.sequence(
+        Der.explicit(0, Der.integer(2)),
+        Der.integer(BigInteger.valueOf(serialNumber.incrementAndGet())),
+        signatureAlgorithm,
+        caName,
+        Der.sequence(Der.utcTime(new Date(now - TimeUnit.DAYS.toMillis(1))), Der.utcTime(new Date(now + validityMillis))),
+        subject,
+        publicKey.getEncoded(),
+        Der.explicit(3, extensions));
+    byte[] certificateBytes = Der.sequence(tbsCertificate, signatureAlgorithm, Der.bitString(sign(caKeyPair.getPrivate(), tbsCertificate)));
+    CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
+    return (X509Certificate) certificateFactory.generateCertificate(new ByteArrayInputStream(certificateBytes));
+  }
+
+  private static byte[] sign(PrivateKey privateKey, byte[] data) throws GeneralSecurityException {
+    Signature signature = Signature.getInstance("SHA256withRSA");
+    signature.initSign(privateKey);
+    signature.update(data);
+    return signature.sign();
+  }
+
+  private static byte[] keyIdentifier(PublicKey publicKey) throws GeneralSecurityException {
+    return MessageDigest.getInstance("SHA-1").digest(publicKey.getEncoded());
+  }
+
+  private static byte[] name(byte[]... rdns) {
+    return Der.sequence(rdns);
+  }
+
+  private static byte[] rdn(String oid, byte[] value) {
+    return Der.set(Der.sequence(Der.objectIdentifier(oid), value));
+  }
+
+  private static byte[] extension(String oid, boolean critical, byte[] value) {
+    List<byte[]> fields = new ArrayList<>(3);
+    fields.add(Der.objectIdentifier(oid));
+    if (critical) {
+      fields.add(Der.bool(true));
+    }
+    fields.add(Der.octetString(value));
+    return Der.sequence(fields.toArray(new byte[fields.size()][]));
+  }
+}
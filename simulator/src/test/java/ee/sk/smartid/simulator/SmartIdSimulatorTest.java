@@ -0,0 +1,153 @@
+package ee.sk.smartid.simulator;
+
+import ee.sk.smartid.AuthenticationHash;
+import ee.sk.smartid.AuthenticationResponseValidator;
+import ee.sk.smartid.HashType;
+import ee.sk.smartid.SignableData;
+import ee.sk.smartid.SmartIdAuthenticationResponse;
+import ee.sk.smartid.SmartIdAuthenticationResult;
+import ee.sk.smartid.SmartIdCertificate;
+import ee.sk.smartid.SmartIdClient;
+import ee.sk.smartid.SmartIdSignature;
+import ee.sk.smartid.exception.ServerMaintenanceException;
+import ee.sk.smartid.exception.UserAccountNotFoundException;
+import ee.sk.smartid.exception.UserRefusedException;
+import ee.sk.smartid.rest.dao.NationalIdentity;
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.Signature;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SmartIdSimulatorTest {
+
+  private SmartIdSimulator simulator;
+  private SmartIdClient client;
+
+  @After
+  public void tearDown() {
+    if (client != null) {
+      client.close();
+    }
+    if (simulator != null) {
+      simulator.close();
+    }
+  }
+
+  @Test
+  public void authenticate_shouldPassValidation() throws Exception {
+    startSimulator(createConfiguration());
+    AuthenticationHash authenticationHash = AuthenticationHash.generateRandomHash();
+
+    SmartIdAuthenticationResponse response = client
+        .createAuthentication()
+        .withNationalIdentity(new NationalIdentity("EE", "10101010005"))
+        .withAuthenticationHash(authenticationHash)
+        .withCertificateLevel("QUALIFIED")
+        .authenticate();
+
+    AuthenticationResponseValidator validator = new AuthenticationResponseValidator();
+    validator.addTrustedCACertificate(simulator.getCaCertificate());
+    SmartIdAuthenticationResult result = validator.validate(response);
+    assertTrue(result.getErrors().toString(), result.isValid());
+    assertEquals("EE", result.getAuthenticationIdentity().getCountry());
+    assertEquals("10101010005", result.getAuthenticationIdentity().getIdentityCode());
+  }
+
+  @Test
+  public void getCertificateAndSign() throws Exception {
+    startSimulator(createConfiguration());
+    SmartIdCertificate certificate = client
+        .getCertificate()
+        .withCountryCode("LT")
+        .withNationalIdentityNumber("30303039914")
+        .fetch();
+    SignableData dataToSign = new SignableData("Hello World!".getBytes());
+    dataToSign.setHashType(HashType.SHA256);
+
+    SmartIdSignature signature = client
+        .createSignature()
+        .withDocumentNumber(certificate.getDocumentNumber())
+        .withSignableData(dataToSign)
+        .sign();
+
+    assertEquals("sha256WithRSAEncryption", signature.getAlgorithmName());
+    assertEquals("PNOLT-30303039914-SIMU-Q", signature.getDocumentNumber());
+    Signature verifier = Signature.getInstance("SHA256withRSA");
+    verifier.initVerify(certificate.getCertificate().getPublicKey());
+    verifier.update("Hello World!".getBytes());
+    assertTrue(verifier.verify(signature.getValue()));
+  }
+
+  @Test
+  public void sessionStatus_shouldBeHeldUntilSessionCompletes() throws Exception {
+    SimulatorConfiguration configuration = new SimulatorConfiguration();
+    configuration.setUserResponseDelay(TimeUnit.MILLISECONDS, 1500L, 1500L);
+    startSimulator(configuration);
+    client.setSessionStatusResponseSocketOpenTime(TimeUnit.SECONDS, 10L);
+
+    client.getCertificate()
+        .withDocumentNumber("PNOEE-10101010005-SIMU-Q")
+        .fetch();
+
+    assertEquals(1L, simulator.getStartedSessionCount());
+    assertEquals(1L, simulator.getSessionStatusRequestCount());
+  }
+
+  @Test(expected = UserRefusedException.class)
+  public void authenticate_whenUserRefuses() throws Exception {
+    SimulatorConfiguration configuration = createConfiguration();
+    configuration.setRefusalRate(1.0);
+    startSimulator(configuration);
+    client.createAuthentication()
+        .withDocumentNumber("PNOEE-10101010005-SIMU-Q")
+        .withAuthenticationHash(AuthenticationHash.generateRandomHash())
+        .authenticate();
+  }
+
+  @Test(expected = ServerMaintenanceException.class)
+  public void getCertificate_whenInMaintenance() throws Exception {
+    SimulatorConfiguration configuration = createConfiguration();
+    configuration.setMaintenanceRate(1.0);
+    startSimulator(configuration);
+    client.getCertificate()
+        .withDocumentNumber("PNOEE-10101010005-SIMU-Q")
+        .fetch();
+  }
+
+  @Test(expected = UserAccountNotFoundException.class)
+  public void sign_whenDocumentNumberIsNotSimulated() throws Exception {
+    startSimulator(createConfiguration());
+    client.createSignature()
+        .withDocumentNumber("ABC")
+        .withSignableData(new SignableData("Hello World!".getBytes()))
+        .sign();
+  }
+
+  @Test
+  public void sessionStatus_whenSessionIsUnknown_shouldReturnNotFound() throws Exception {
+    startSimulator(createConfiguration());
+    HttpURLConnection connection = (HttpURLConnection) new URL(simulator.getUrl() + "session/de305d54-75b4-431b-adb2-eb6b9e546014").openConnection();
+    assertEquals(404, connection.getResponseCode());
+  }
+
+  private static SimulatorConfiguration createConfiguration() {
+    SimulatorConfiguration configuration = new SimulatorConfiguration();
+    configuration.setUserResponseDelay(TimeUnit.MILLISECONDS, 10L, 50L);
+    return configuration;
+  }
+
+  private void startSimulator(SimulatorConfiguration configuration) throws Exception {
+    simulator = new SmartIdSimulator(configuration);
+    simulator.start(0);
+    client = new SmartIdClient();
+    client.setRelyingPartyUUID("de305d54-75b4-431b-adb2-eb6b9e546014");
+    client.setRelyingPartyName("BANK123");
+    client.setHostUrl(simulator.getUrl());
+  }
+}
@@ -4,9 +4,14 @@ import java.security.SecureRandom;
 
 /**
  * Class containing the hash and its hash type used for authentication
+ * <p>
+ * The random hashes are generated from one shared {@link SecureRandom}.
+ * {@link AuthenticationHashPool} can be used to generate them ahead of time.
  */
 public class AuthenticationHash extends SignableHash {
 
+  private static final SecureRandom random = new SecureRandom();
+
   /**
    * creates {@link AuthenticationHash} instance
    * containing a randomly generated hash
@@ -35,7 +40,7 @@ public class AuthenticationHash extends SignableHash {
 
   private static byte[] getRandomBytes() {
     byte randBytes[] = new byte[64];
-    new SecureRandom().nextBytes(randBytes);
+    random.nextBytes(randBytes);
     return randBytes;
   }
 
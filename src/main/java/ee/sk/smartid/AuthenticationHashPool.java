@@ -0,0 +1,136 @@
+package ee.sk.smartid;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of random authentication hashes generated ahead of time
+ * <p>
+ * A background thread keeps the pool filled with hashes whose verification
+ * code is already calculated, so starting an authentication doesn't spend
+ * time on random numbers or hashing. Every hash is handed out only once.
+ * When the pool is empty, a hash is generated on the calling thread and
+ * the event is counted by {@link #getEmptyCount()}.
+ * <p>
+ * <pre class="code"><code class="java">
+ *   AuthenticationHashPool hashPool = new AuthenticationHashPool();
+ *   AuthenticationHash authenticationHash = hashPool.getAuthenticationHash();
+ *   String verificationCode = authenticationHash.calculateVerificationCode();
+ *   ...
+ *   hashPool.close();
+ * </code></pre>
+ */
+public class AuthenticationHashPool implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(AuthenticationHashPool.class);
+  private static final AtomicInteger poolNumber = new AtomicInteger();
+  private final HashType hashType;
+  private final BlockingQueue<AuthenticationHash> hashes;
+  private final AtomicLong emptyCount = new AtomicLong();
+  private final Thread refiller;
+  private volatile boolean closed;
+
+  /**
+   * Constructs a pool of up to 1000 SHA-512 hashes
+   */
+  public AuthenticationHashPool() {
+    this(HashType.SHA512, 1000);
+  }
+
+  /**
+   * Constructs a new {@code AuthenticationHashPool} and starts filling it
+   *
+   * @param hashType hash type of the generated hashes
+   * @param capacity maximum number of hashes kept in the pool
+   */
+  public AuthenticationHashPool(HashType hashType, int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+    this.hashType = hashType;
+    this.hashes = new ArrayBlockingQueue<>(capacity);
+    this.refiller = new Thread(new Refiller(), "smart-id-hash-pool-" + poolNumber.incrementAndGet());
+    refiller.setDaemon(true);
+    refiller.start();
+  }
+
+  /**
+   * Takes a hash from the pool
+   * <p>
+   * Generates the hash on the calling thread when the pool is empty.
+   *
+   * @return authentication hash with its verification code calculated
+   */
+  public AuthenticationHash getAuthenticationHash() {
+    AuthenticationHash authenticationHash = hashes.poll();
+    if (authenticationHash == null) {
+      emptyCount.incrementAndGet();
+      logger.debug("Authentication hash pool is empty, generating hash on the calling thread");
+      authenticationHash = generateHash();
+    }
+    return authenticationHash;
+  }
+
+  public HashType getHashType() {
+    return hashType;
+  }
+
+  /**
+   * Gets the number of hashes ready in the pool
+   *
+   * @return number of hashes
+   */
+  public int getSize() {
+    return hashes.size();
+  }
+
+  /**
+   * Gets how many times a hash was requested from an empty pool
+   *
+   * @return number of times the pool was empty
+   */
+  public long getEmptyCount() {
+    return emptyCount.get();
+  }
+
+  /**
+   * Stops filling the pool and discards the hashes in it
+   */
+  @Override
+  public void close() {
+    closed = true;
+    refiller.interrupt();
+    hashes.clear();
+  }
+
+  private AuthenticationHash generateHash() {
+    AuthenticationHash authenticationHash = AuthenticationHash.generateRandomHash(hashType);
+    authenticationHash.calculateVerificationCode();
+    return authenticationHash;
+  }
+
+  private class Refiller implements Runnable {
+
+    @Override
+    public void run() {
+      try {
+        while (!closed) {
+          hashes.put(generateHash());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (RuntimeException e) {
+        logger.error("Failed to generate authentication hashes, the pool won't be refilled", e);
+      }
+      if (closed) {
+        hashes.clear();
+      }
+    }
+  }
+}
@@ -1,8 +1,11 @@
 package ee.sk.smartid;
 
 import ee.sk.smartid.exception.*;
+import ee.sk.smartid.rest.AsyncSmartIdConnector;
 import ee.sk.smartid.rest.SessionStatusPoller;
+import ee.sk.smartid.rest.SessionStatusPollingEngine;
 import ee.sk.smartid.rest.SmartIdConnector;
+import ee.sk.smartid.rest.SmartIdFuture;
 import ee.sk.smartid.rest.dao.AuthenticationSessionRequest;
 import ee.sk.smartid.rest.dao.AuthenticationSessionResponse;
 import ee.sk.smartid.rest.dao.NationalIdentity;
@@ -49,6 +52,17 @@ public class AuthenticationRequestBuilder extends SmartIdRequestBuilder {
     logger.debug("Instantiating authentication request builder");
   }
 
+  /**
+   * Constructs a new {@code AuthenticationRequestBuilder} that can also send the request asynchronously
+   *
+   * @param connector for requesting authentication initiation
+   * @param sessionStatusPollingEngine for polling the authentication response without blocking
+   */
+  public AuthenticationRequestBuilder(SmartIdConnector connector, SessionStatusPollingEngine sessionStatusPollingEngine) {
+    super(connector, sessionStatusPollingEngine);
+    logger.debug("Instantiating authentication request builder");
+  }
+
   /**
    * Sets the request's UUID of the relying party
    * <p>
@@ -235,13 +249,149 @@ public class AuthenticationRequestBuilder extends SmartIdRequestBuilder {
    */
   public SmartIdAuthenticationResponse authenticate() throws InvalidParametersException, UserAccountNotFoundException, RequestForbiddenException, UserRefusedException,
       SessionTimeoutException, DocumentUnusableException, TechnicalErrorException, ClientNotSupportedException, ServerMaintenanceException {
+    SmartIdSessionHandle handle = start();
+    return await(handle);
+  }
+
+  /**
+   * Send the authentication initiation request without waiting for the user
+   * <p>
+   * The returned handle holds the verification code to display to the user.
+   * The authentication can be finished later, also by another instance of the
+   * application, with {@link #await(SmartIdSessionHandle)} or {@link #poll(SmartIdSessionHandle)}.
+   *
+   * @throws InvalidParametersException when mandatory request parameters are missing
+   * @throws UserAccountNotFoundException when the user account was not found
+   * @throws RequestForbiddenException when Relying Party has no permission to issue the request.
+   *                                   This may happen when Relying Party has no permission to invoke operations on accounts with ADVANCED certificates.
+   * @throws ClientNotSupportedException when the client-side implementation of this API is old and not supported any more
+   * @throws ServerMaintenanceException when the server is under maintenance
+   *
+   * @return handle of the started authentication session
+   */
+  public SmartIdSessionHandle start() throws InvalidParametersException, UserAccountNotFoundException, RequestForbiddenException,
+      ClientNotSupportedException, ServerMaintenanceException {
     validateParameters();
     AuthenticationSessionRequest request = createAuthenticationSessionRequest();
     AuthenticationSessionResponse response = getAuthenticationResponse(request);
-    SessionStatus sessionStatus = getSessionStatusPoller().fetchFinalSessionStatus(response.getSessionId());
-    validateResponse(sessionStatus);
-    SmartIdAuthenticationResponse authenticationResponse = createSmartIdAuthenticationResponse(sessionStatus);
-    return authenticationResponse;
+    return createSessionHandle(response.getSessionId(), SessionType.AUTHENTICATION);
+  }
+
+  /**
+   * Wait for the started authentication session to complete and get the response
+   * <p>
+   * Only the connection settings of the builder are used, the request
+   * parameters are taken from the handle.
+   *
+   * @param handle handle returned by {@link #start()}
+   *
+   * @throws InvalidParametersException when the handle is missing
+   * @throws IllegalArgumentException when the handle is of another type of session
+   * @throws UserRefusedException when the user has refused the session
+   * @throws SessionTimeoutException when there was a timeout, i.e. end user did not confirm or refuse the operation within given timeframe
+   * @throws DocumentUnusableException when for some reason, this relying party request cannot be completed.
+   * @throws TechnicalErrorException when session status response's result is missing or it has some unknown value
+   *
+   * @return the authentication response
+   */
+  public SmartIdAuthenticationResponse await(SmartIdSessionHandle handle) throws InvalidParametersException, UserRefusedException,
+      SessionTimeoutException, DocumentUnusableException, TechnicalErrorException {
+    validateSessionHandle(handle, SessionType.AUTHENTICATION);
+    SessionStatus sessionStatus = getSessionStatusPoller().fetchFinalSessionStatus(handle.getSessionId());
+    return createSmartIdAuthenticationResponse(sessionStatus, handle);
+  }
+
+  /**
+   * Check the started authentication session once without waiting
+   *
+   * @param handle handle returned by {@link #start()}
+   *
+   * @throws InvalidParametersException when the handle is missing
+   * @throws IllegalArgumentException when the handle is of another type of session
+   * @throws UserRefusedException when the user has refused the session
+   * @throws SessionTimeoutException when there was a timeout, i.e. end user did not confirm or refuse the operation within given timeframe
+   * @throws DocumentUnusableException when for some reason, this relying party request cannot be completed.
+   * @throws TechnicalErrorException when session status response's result is missing or it has some unknown value
+   *
+   * @return the authentication response or null when the session is still running
+   */
+  public SmartIdAuthenticationResponse poll(SmartIdSessionHandle handle) throws InvalidParametersException, UserRefusedException,
+      SessionTimeoutException, DocumentUnusableException, TechnicalErrorException {
+    validateSessionHandle(handle, SessionType.AUTHENTICATION);
+    SessionStatus sessionStatus = getSessionStatusPoller().pollSessionStatusOnce(handle.getSessionId());
+    if (sessionStatus == null) {
+      return null;
+    }
+    return createSmartIdAuthenticationResponse(sessionStatus, handle);
+  }
+
+  /**
+   * Send the authentication request asynchronously
+   * <p>
+   * Neither the initiation request nor the session status polling block
+   * the calling thread. The returned future fails with the same exceptions
+   * that {@link #authenticate()} throws, except for {@link InvalidParametersException}
+   * on missing mandatory request parameters, which is thrown immediately.
+   * Cancelling the future stops polling the session status.
+   *
+   * @throws InvalidParametersException when mandatory request parameters are missing
+   * @throws IllegalStateException when the builder was constructed without a session status polling engine
+   *
+   * @return future of the authentication response
+   */
+  public SmartIdFuture<SmartIdAuthenticationResponse> authenticateAsync() throws InvalidParametersException {
+    validateParameters();
+    AuthenticationSessionRequest request = createAuthenticationSessionRequest();
+    return createAsyncSession().start(request);
+  }
+
+  /**
+   * Wait for the started authentication session to complete without blocking
+   * <p>
+   * E.g. for resuming the sessions of {@link SmartIdClient#getPendingSessions()}
+   * after a restart. Only the connection settings of the builder are used,
+   * the request parameters are taken from the handle.
+   *
+   * @param handle handle returned by {@link #start()}
+   *
+   * @throws InvalidParametersException when the handle is missing
+   * @throws IllegalArgumentException when the handle is of another type of session
+   * @throws IllegalStateException when the builder was constructed without a session status polling engine
+   *
+   * @return future of the authentication response
+   */
+  public SmartIdFuture<SmartIdAuthenticationResponse> awaitAsync(SmartIdSessionHandle handle) throws InvalidParametersException {
+    validateSessionHandle(handle, SessionType.AUTHENTICATION);
+    return createAsyncSession().resume(handle);
+  }
+
+  private AsyncSession<AuthenticationSessionRequest, AuthenticationSessionResponse, SmartIdAuthenticationResponse> createAsyncSession() {
+    return new AsyncSession<AuthenticationSessionRequest, AuthenticationSessionResponse, SmartIdAuthenticationResponse>(SessionType.AUTHENTICATION) {
+      @Override
+      protected AuthenticationSessionResponse initiate(AuthenticationSessionRequest request) {
+        return getAuthenticationResponse(request);
+      }
+
+      @Override
+      protected SmartIdFuture<AuthenticationSessionResponse> initiateAsync(AsyncSmartIdConnector connector, AuthenticationSessionRequest request) {
+        if (isNotEmpty(getDocumentNumber())) {
+          return connector.authenticateAsync(getDocumentNumber(), request);
+        } else {
+          NationalIdentity identity = getNationalIdentity();
+          return connector.authenticateAsync(identity, request);
+        }
+      }
+
+      @Override
+      protected String getSessionId(AuthenticationSessionResponse initiationResponse) {
+        return initiationResponse.getSessionId();
+      }
+
+      @Override
+      protected SmartIdAuthenticationResponse createResult(SessionStatus sessionStatus, SmartIdSessionHandle handle) {
+        return createSmartIdAuthenticationResponse(sessionStatus, handle);
+      }
+    };
   }
 
   private AuthenticationSessionResponse getAuthenticationResponse(AuthenticationSessionRequest request) {
@@ -288,19 +438,24 @@ public class AuthenticationRequestBuilder extends SmartIdRequestBuilder {
     return request;
   }
 
-  private SmartIdAuthenticationResponse createSmartIdAuthenticationResponse(SessionStatus sessionStatus) {
+  private SmartIdAuthenticationResponse createSmartIdAuthenticationResponse(SessionStatus sessionStatus, SmartIdSessionHandle handle) {
+    return createSmartIdAuthenticationResponse(sessionStatus, handle.getHashInBase64(), handle.getHashType(), handle.getRequestedCertificateLevel());
+  }
+
+  private SmartIdAuthenticationResponse createSmartIdAuthenticationResponse(SessionStatus sessionStatus, String hashInBase64, HashType hashType, String requestedCertificateLevel) {
+    validateResponse(sessionStatus);
     SessionResult sessionResult = sessionStatus.getResult();
     SessionSignature sessionSignature = sessionStatus.getSignature();
     SessionCertificate certificate = sessionStatus.getCertificate();
 
     SmartIdAuthenticationResponse authenticationResponse = new SmartIdAuthenticationResponse();
     authenticationResponse.setEndResult(sessionResult.getEndResult());
-    authenticationResponse.setSignedHashInBase64(getHashInBase64());
-    authenticationResponse.setHashType(getHashType());
+    authenticationResponse.setSignedHashInBase64(hashInBase64);
+    authenticationResponse.setHashType(hashType);
     authenticationResponse.setSignatureValueInBase64(sessionSignature.getValueInBase64());
     authenticationResponse.setAlgorithmName(sessionSignature.getAlgorithm());
     authenticationResponse.setCertificate(CertificateParser.parseX509Certificate(certificate.getValue()));
-    authenticationResponse.setRequestedCertificateLevel(getCertificateLevel());
+    authenticationResponse.setRequestedCertificateLevel(requestedCertificateLevel);
     authenticationResponse.setCertificateLevel(certificate.getCertificateLevel());
     return authenticationResponse;
   }
@@ -14,11 +14,8 @@ import javax.naming.ldap.Rdn;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.security.GeneralSecurityException;
-import java.security.KeyStore;
-import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.Signature;
@@ -26,30 +23,45 @@ import java.security.SignatureException;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Class used to validate the authentication
+ * <p>
+ * The default trusted CA certificates are loaded once and shared by all
+ * the validators. Adding or clearing the trusted CA certificates replaces
+ * the list of this validator only, so a validator can be used by several
+ * threads at once. The issuer of the authenticating person's certificate
+ * is looked up by its Authority Key Identifier or issuer name, so its
+ * signature is verified only against the matching CA certificate.
  */
 public class AuthenticationResponseValidator {
 
   private static final Logger logger = LoggerFactory.getLogger(AuthenticationResponseValidator.class);
 
-  private List<X509Certificate> trustedCACertificates = new ArrayList<>();
+  private static final ThreadLocal<Map<String, Signature>> signatures = new ThreadLocal<Map<String, Signature>>() {
+    @Override
+    protected Map<String, Signature> initialValue() {
+      return new HashMap<>();
+    }
+  };
+
+  private volatile TrustedCACertificateIndex trustedCACertificates;
+  private volatile CertificateVerificationCache certificateVerificationCache;
 
   /**
    * Constructs a new {@code AuthenticationResponseValidator}.
    * <p>
    * The constructed instance is initialized with default trusted
-   * CA certificates.
+   * CA certificates. They are read from the key store only once.
    *
    * @throws TechnicalErrorException when there was an error initializing trusted CA certificates
    */
   public AuthenticationResponseValidator() {
-      initializeTrustedCACertificatesFromKeyStore();
+    trustedCACertificates = DefaultTrustedCACertificates.get();
   }
 
   /**
@@ -63,7 +75,22 @@ public class AuthenticationResponseValidator {
   public SmartIdAuthenticationResult validate(SmartIdAuthenticationResponse authenticationResponse) {
     validateAuthenticationResponse(authenticationResponse);
     SmartIdAuthenticationResult authenticationResult = new SmartIdAuthenticationResult();
-    AuthenticationIdentity identity = constructAuthenticationIdentity(authenticationResponse.getCertificate());
+    X509Certificate certificate = authenticationResponse.getCertificate();
+    TrustedCACertificateIndex trustedCertificates = trustedCACertificates;
+    CertificateVerificationCache cache = certificateVerificationCache;
+    CertificateVerificationCache.Verdict cachedVerification = cache == null ? null : cache.get(certificate, trustedCertificates);
+    AuthenticationIdentity identity;
+    boolean certificateTrusted;
+    if (cachedVerification != null) {
+      identity = cachedVerification.getIdentity();
+      certificateTrusted = cachedVerification.isTrusted();
+    } else {
+      identity = constructAuthenticationIdentity(certificate);
+      certificateTrusted = isCertificateTrusted(certificate, trustedCertificates);
+      if (cache != null) {
+        cache.put(certificate, trustedCertificates, certificateTrusted, identity);
+      }
+    }
     authenticationResult.setAuthenticationIdentity(identity);
     if (!verifyResponseEndResult(authenticationResponse)) {
       authenticationResult.setValid(false);
@@ -77,7 +104,7 @@ public class AuthenticationResponseValidator {
       authenticationResult.setValid(false);
       authenticationResult.addError(SmartIdAuthenticationResult.Error.CERTIFICATE_EXPIRED);
     }
-    if (!isCertificateTrusted(authenticationResponse.getCertificate())) {
+    if (!certificateTrusted) {
       authenticationResult.setValid(false);
       authenticationResult.addError(SmartIdAuthenticationResult.Error.CERTIFICATE_NOT_TRUSTED);
     }
@@ -88,6 +115,24 @@ public class AuthenticationResponseValidator {
     return authenticationResult;
   }
 
+  /**
+   * Sets the cache of certificate trust verdicts
+   * <p>
+   * Users log in with the same certificate again and again. With a cache,
+   * the certificate is checked against the trusted CA certificates and its
+   * identity is parsed only once while its verdict is cached. The cache can
+   * be shared by validators. By default nothing is cached.
+   *
+   * @param certificateVerificationCache cache of verdicts or null to disable caching
+   */
+  public void setCertificateVerificationCache(CertificateVerificationCache certificateVerificationCache) {
+    this.certificateVerificationCache = certificateVerificationCache;
+  }
+
+  public CertificateVerificationCache getCertificateVerificationCache() {
+    return certificateVerificationCache;
+  }
+
   /**
    * Gets the list of trusted CA certificates
    * <p>
@@ -95,10 +140,10 @@ public class AuthenticationResponseValidator {
    * one of the trusted CA certificates. Otherwise the person's
    * authentication is deemed untrusted and therefore not valid.
    *
-   * @return list of trusted CA certificates
+   * @return unmodifiable list of trusted CA certificates
    */
   public List<X509Certificate> getTrustedCACertificates() {
-    return trustedCACertificates;
+    return trustedCACertificates.getCertificates();
   }
 
   /**
@@ -110,8 +155,8 @@ public class AuthenticationResponseValidator {
    *
    * @param certificate trusted CA certificate
    */
-  public void addTrustedCACertificate(X509Certificate certificate) {
-    trustedCACertificates.add(certificate);
+  public synchronized void addTrustedCACertificate(X509Certificate certificate) {
+    trustedCACertificates = trustedCACertificates.with(certificate);
   }
 
   /**
@@ -157,25 +202,8 @@ public class AuthenticationResponseValidator {
    * there is impossible to verify the trust of the
    * authenticating person.
    */
-  public void clearTrustedCACertificates() {
-    trustedCACertificates.clear();
-  }
-
-  private void initializeTrustedCACertificatesFromKeyStore() {
-    try {
-      InputStream is = AuthenticationResponseValidator.class.getResourceAsStream("/trusted_certificates.jks");
-      KeyStore keystore = KeyStore.getInstance(KeyStore.getDefaultType());
-      keystore.load(is, "changeit".toCharArray());
-      Enumeration<String> aliases = keystore.aliases();
-      while (aliases.hasMoreElements()) {
-        String alias = aliases.nextElement();
-        X509Certificate certificate = (X509Certificate) keystore.getCertificate(alias);
-        addTrustedCACertificate(certificate);
-      }
-    } catch (IOException | CertificateException | KeyStoreException | NoSuchAlgorithmException e) {
-      logger.error("Error initializing trusted CA certificates", e);
-      throw new TechnicalErrorException("Error initializing trusted CA certificates", e);
-    }
+  public synchronized void clearTrustedCACertificates() {
+    trustedCACertificates = TrustedCACertificateIndex.empty();
   }
 
   private void validateAuthenticationResponse(SmartIdAuthenticationResponse authenticationResponse) {
@@ -200,7 +228,7 @@ public class AuthenticationResponseValidator {
   private boolean verifySignature(SmartIdAuthenticationResponse authenticationResponse) {
     try {
       PublicKey signersPublicKey = authenticationResponse.getCertificate().getPublicKey();
-      Signature signature = Signature.getInstance("NONEwith" + signersPublicKey.getAlgorithm());
+      Signature signature = getSignature("NONEwith" + signersPublicKey.getAlgorithm());
       signature.initVerify(signersPublicKey);
       byte[] signedHash = Base64.decodeBase64(authenticationResponse.getSignedHashInBase64());
       byte[] signedDigestWithPadding = addPadding(authenticationResponse.getHashType().getDigestInfoPrefix(), signedHash);
@@ -212,12 +240,22 @@ public class AuthenticationResponseValidator {
     }
   }
 
+  private static Signature getSignature(String algorithm) throws NoSuchAlgorithmException {
+    Map<String, Signature> threadSignatures = signatures.get();
+    Signature signature = threadSignatures.get(algorithm);
+    if (signature == null) {
+      signature = Signature.getInstance(algorithm);
+      threadSignatures.put(algorithm, signature);
+    }
+    return signature;
+  }
+
   private boolean verifyCertificateExpiry(X509Certificate certificate) {
     return !certificate.getNotAfter().before(new Date());
   }
 
-  private boolean isCertificateTrusted(X509Certificate certificate) {
-    for (X509Certificate trustedCACertificate : trustedCACertificates) {
+  private boolean isCertificateTrusted(X509Certificate certificate, TrustedCACertificateIndex trustedCertificates) {
+    for (X509Certificate trustedCACertificate : trustedCertificates.findIssuers(certificate)) {
       try {
         certificate.verify(trustedCACertificate.getPublicKey());
         return true;
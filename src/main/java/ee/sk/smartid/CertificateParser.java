@@ -1,14 +1,29 @@
 package ee.sk.smartid;
 
 import ee.sk.smartid.exception.TechnicalErrorException;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayInputStream;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Parses the base64 encoded certificates of the Smart-ID responses
+ * <p>
+ * The base64 value is decoded straight to DER, without wrapping it in PEM.
+ * Parsed certificates are interned by their SHA-256 fingerprint: as long as
+ * a certificate is in use, parsing the same value again returns the same
+ * {@link X509Certificate} instance.
+ */
 public class CertificateParser {
 
   public static final String BEGIN_CERT = "-----BEGIN CERTIFICATE-----";
@@ -17,16 +32,101 @@ public class CertificateParser {
 
   private static final Logger logger = LoggerFactory.getLogger(CertificateParser.class);
 
+  private static final ThreadLocal<CertificateFactory> certificateFactory = new ThreadLocal<CertificateFactory>() {
+    @Override
+    protected CertificateFactory initialValue() {
+      try {
+        return CertificateFactory.getInstance("X.509");
+      } catch (CertificateException e) {
+        throw new IllegalStateException("X.509 certificate factory is not available", e);
+      }
+    }
+  };
+
+  private static final ConcurrentMap<String, InternedCertificate> internedCertificates = new ConcurrentHashMap<>();
+
+  private static final ReferenceQueue<X509Certificate> unusedCertificates = new ReferenceQueue<>();
+
   public static X509Certificate parseX509Certificate(String certificateValue) {
     logger.debug("Parsing X509 certificate");
-    String certificateString = BEGIN_CERT + "\n" + certificateValue + "\n" + END_CERT;
+    byte[] der = Base64.decodeBase64(certificateValue);
+    String fingerprint = getFingerprint(der);
+    X509Certificate certificate = getInternedCertificate(fingerprint);
+    if (certificate != null) {
+      return certificate;
+    }
     try {
-      CertificateFactory cf = CertificateFactory.getInstance("X.509");
-      return (X509Certificate) cf.generateCertificate(new ByteArrayInputStream(certificateString.getBytes()));
+      certificate = (X509Certificate) certificateFactory.get().generateCertificate(new ByteArrayInputStream(der));
     } catch (CertificateException e) {
-      logger.error("Failed to parse X509 certificate from " + certificateString + ". Error " + e.getMessage());
-      throw new TechnicalErrorException("Failed to parse X509 certificate from " + certificateString + ". Error " + e.getMessage(), e);
+      logger.error("Failed to parse X509 certificate from " + certificateValue + ". Error " + e.getMessage());
+      throw new TechnicalErrorException("Failed to parse X509 certificate from " + certificateValue + ". Error " + e.getMessage(), e);
     }
+    return intern(fingerprint, certificate);
+  }
+
+  /**
+   * Gets the SHA-256 fingerprint of the certificate
+   *
+   * @throws TechnicalErrorException when the certificate can't be encoded
+   *
+   * @param certificate certificate
+   * @return fingerprint in hex
+   */
+  static String getFingerprint(X509Certificate certificate) {
+    try {
+      return getFingerprint(certificate.getEncoded());
+    } catch (CertificateEncodingException e) {
+      logger.error("Error calculating certificate fingerprint", e);
+      throw new TechnicalErrorException("Error calculating certificate fingerprint", e);
+    }
+  }
+
+  static int getInternedCertificateCount() {
+    removeUnusedCertificates();
+    return internedCertificates.size();
+  }
+
+  private static String getFingerprint(byte[] der) {
+    return Hex.encodeHexString(DigestCalculator.calculateDigest(der, HashType.SHA256));
   }
 
+  private static X509Certificate getInternedCertificate(String fingerprint) {
+    InternedCertificate reference = internedCertificates.get(fingerprint);
+    return reference == null ? null : reference.get();
+  }
+
+  private static X509Certificate intern(String fingerprint, X509Certificate certificate) {
+    removeUnusedCertificates();
+    InternedCertificate reference = new InternedCertificate(fingerprint, certificate);
+    while (true) {
+      InternedCertificate existingReference = internedCertificates.putIfAbsent(fingerprint, reference);
+      if (existingReference == null) {
+        return certificate;
+      }
+      X509Certificate existingCertificate = existingReference.get();
+      if (existingCertificate != null) {
+        return existingCertificate;
+      }
+      if (internedCertificates.replace(fingerprint, existingReference, reference)) {
+        return certificate;
+      }
+    }
+  }
+
+  private static void removeUnusedCertificates() {
+    InternedCertificate reference;
+    while ((reference = (InternedCertificate) unusedCertificates.poll()) != null) {
+      internedCertificates.remove(reference.fingerprint, reference);
+    }
+  }
+
+  private static class InternedCertificate extends WeakReference<X509Certificate> {
+
+    private final String fingerprint;
+
+    InternedCertificate(String fingerprint, X509Certificate certificate) {
+      super(certificate, unusedCertificates);
+      this.fingerprint = fingerprint;
+    }
+  }
 }
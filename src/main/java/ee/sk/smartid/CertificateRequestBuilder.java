@@ -1,8 +1,11 @@
 package ee.sk.smartid;
 
 import ee.sk.smartid.exception.*;
+import ee.sk.smartid.rest.AsyncSmartIdConnector;
 import ee.sk.smartid.rest.SessionStatusPoller;
+import ee.sk.smartid.rest.SessionStatusPollingEngine;
 import ee.sk.smartid.rest.SmartIdConnector;
+import ee.sk.smartid.rest.SmartIdFuture;
 import ee.sk.smartid.rest.dao.CertificateChoiceResponse;
 import ee.sk.smartid.rest.dao.CertificateRequest;
 import ee.sk.smartid.rest.dao.NationalIdentity;
@@ -48,6 +51,17 @@ public class CertificateRequestBuilder extends SmartIdRequestBuilder {
     logger.debug("Instantiating certificate request builder");
   }
 
+  /**
+   * Constructs a new {@code CertificateRequestBuilder} that can also send the request asynchronously
+   *
+   * @param connector for requesting certificate choice initiation
+   * @param sessionStatusPollingEngine for polling the certificate choice response without blocking
+   */
+  public CertificateRequestBuilder(SmartIdConnector connector, SessionStatusPollingEngine sessionStatusPollingEngine) {
+    super(connector, sessionStatusPollingEngine);
+    logger.debug("Instantiating certificate request builder");
+  }
+
   /**
    * Sets the request's UUID of the relying party
    * <p>
@@ -205,12 +219,145 @@ public class CertificateRequestBuilder extends SmartIdRequestBuilder {
   public SmartIdCertificate fetch() throws InvalidParametersException, CertificateNotFoundException, RequestForbiddenException, UserRefusedException,
       SessionTimeoutException, DocumentUnusableException, TechnicalErrorException, ClientNotSupportedException, ServerMaintenanceException {
     logger.debug("Starting to fetch certificate");
+    SmartIdSessionHandle handle = start();
+    return await(handle);
+  }
+
+  /**
+   * Send the certificate choice initiation request without waiting for the user
+   * <p>
+   * The certificate choice can be finished later, also by another instance of the
+   * application, with {@link #await(SmartIdSessionHandle)} or {@link #poll(SmartIdSessionHandle)}.
+   *
+   * @throws InvalidParametersException when mandatory request parameters are missing
+   * @throws CertificateNotFoundException when the certificate was not found
+   * @throws RequestForbiddenException when Relying Party has no permission to issue the request.
+   *                                   This may happen when Relying Party has no permission to invoke operations on accounts with ADVANCED certificates.
+   * @throws ClientNotSupportedException when the client-side implementation of this API is old and not supported any more
+   * @throws ServerMaintenanceException when the server is under maintenance
+   *
+   * @return handle of the started certificate choice session
+   */
+  public SmartIdSessionHandle start() throws InvalidParametersException, CertificateNotFoundException, RequestForbiddenException,
+      ClientNotSupportedException, ServerMaintenanceException {
     validateParameters();
     CertificateRequest request = createCertificateRequest();
     CertificateChoiceResponse certificateChoiceResponse = fetchCertificateChoiceSessionResponse(request);
-    SessionStatus sessionStatus = getSessionStatusPoller().fetchFinalSessionStatus(certificateChoiceResponse.getSessionId());
-    SmartIdCertificate smartIdCertificate = createSmartIdCertificate(sessionStatus);
-    return smartIdCertificate;
+    return createSessionHandle(certificateChoiceResponse.getSessionId(), SessionType.CERTIFICATE_CHOICE);
+  }
+
+  /**
+   * Wait for the started certificate choice session to complete and get the certificate
+   *
+   * @param handle handle returned by {@link #start()}
+   *
+   * @throws InvalidParametersException when the handle is missing
+   * @throws IllegalArgumentException when the handle is of another type of session
+   * @throws UserRefusedException when the user has refused the session
+   * @throws SessionTimeoutException when there was a timeout, i.e. end user did not confirm or refuse the operation within given timeframe
+   * @throws DocumentUnusableException when for some reason, this relying party request cannot be completed.
+   * @throws TechnicalErrorException when session status response's result is missing or it has some unknown value
+   *
+   * @return the certificate
+   */
+  public SmartIdCertificate await(SmartIdSessionHandle handle) throws InvalidParametersException, UserRefusedException,
+      SessionTimeoutException, DocumentUnusableException, TechnicalErrorException {
+    validateSessionHandle(handle, SessionType.CERTIFICATE_CHOICE);
+    SessionStatus sessionStatus = getSessionStatusPoller().fetchFinalSessionStatus(handle.getSessionId());
+    return createSmartIdCertificate(sessionStatus);
+  }
+
+  /**
+   * Check the started certificate choice session once without waiting
+   *
+   * @param handle handle returned by {@link #start()}
+   *
+   * @throws InvalidParametersException when the handle is missing
+   * @throws IllegalArgumentException when the handle is of another type of session
+   * @throws UserRefusedException when the user has refused the session
+   * @throws SessionTimeoutException when there was a timeout, i.e. end user did not confirm or refuse the operation within given timeframe
+   * @throws DocumentUnusableException when for some reason, this relying party request cannot be completed.
+   * @throws TechnicalErrorException when session status response's result is missing or it has some unknown value
+   *
+   * @return the certificate or null when the session is still running
+   */
+  public SmartIdCertificate poll(SmartIdSessionHandle handle) throws InvalidParametersException, UserRefusedException,
+      SessionTimeoutException, DocumentUnusableException, TechnicalErrorException {
+    validateSessionHandle(handle, SessionType.CERTIFICATE_CHOICE);
+    SessionStatus sessionStatus = getSessionStatusPoller().pollSessionStatusOnce(handle.getSessionId());
+    if (sessionStatus == null) {
+      return null;
+    }
+    return createSmartIdCertificate(sessionStatus);
+  }
+
+  /**
+   * Send the certificate choice request asynchronously
+   * <p>
+   * Neither the initiation request nor the session status polling block
+   * the calling thread. The returned future fails with the same exceptions
+   * that {@link #fetch()} throws, except for {@link InvalidParametersException}
+   * on missing mandatory request parameters, which is thrown immediately.
+   * Cancelling the future stops polling the session status.
+   *
+   * @throws InvalidParametersException when mandatory request parameters are missing
+   * @throws IllegalStateException when the builder was constructed without a session status polling engine
+   *
+   * @return future of the certificate
+   */
+  public SmartIdFuture<SmartIdCertificate> fetchAsync() throws InvalidParametersException {
+    logger.debug("Starting to fetch certificate asynchronously");
+    validateParameters();
+    CertificateRequest request = createCertificateRequest();
+    return createAsyncSession().start(request);
+  }
+
+  /**
+   * Wait for the started certificate choice session to complete without blocking
+   * <p>
+   * E.g. for resuming the sessions of {@link SmartIdClient#getPendingSessions()}
+   * after a restart. Only the connection settings of the builder are used.
+   *
+   * @param handle handle returned by {@link #start()}
+   *
+   * @throws InvalidParametersException when the handle is missing
+   * @throws IllegalArgumentException when the handle is of another type of session
+   * @throws IllegalStateException when the builder was constructed without a session status polling engine
+   *
+   * @return future of the certificate
+   */
+  public SmartIdFuture<SmartIdCertificate> awaitAsync(SmartIdSessionHandle handle) throws InvalidParametersException {
+    validateSessionHandle(handle, SessionType.CERTIFICATE_CHOICE);
+    return createAsyncSession().resume(handle);
+  }
+
+  private AsyncSession<CertificateRequest, CertificateChoiceResponse, SmartIdCertificate> createAsyncSession() {
+    return new AsyncSession<CertificateRequest, CertificateChoiceResponse, SmartIdCertificate>(SessionType.CERTIFICATE_CHOICE) {
+      @Override
+      protected CertificateChoiceResponse initiate(CertificateRequest request) {
+        return fetchCertificateChoiceSessionResponse(request);
+      }
+
+      @Override
+      protected SmartIdFuture<CertificateChoiceResponse> initiateAsync(AsyncSmartIdConnector connector, CertificateRequest request) {
+        if (isNotEmpty(getDocumentNumber())) {
+          return connector.getCertificateAsync(getDocumentNumber(), request);
+        } else {
+          NationalIdentity identity = getNationalIdentity();
+          return connector.getCertificateAsync(identity, request);
+        }
+      }
+
+      @Override
+      protected String getSessionId(CertificateChoiceResponse initiationResponse) {
+        return initiationResponse.getSessionId();
+      }
+
+      @Override
+      protected SmartIdCertificate createResult(SessionStatus sessionStatus, SmartIdSessionHandle handle) {
+        return createSmartIdCertificate(sessionStatus);
+      }
+    };
   }
 
   private SmartIdCertificate createSmartIdCertificate(SessionStatus sessionStatus) {
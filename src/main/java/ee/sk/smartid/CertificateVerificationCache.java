@@ -0,0 +1,141 @@
+package ee.sk.smartid;
+
+import java.security.cert.X509Certificate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of the trust verdicts of authentication certificates
+ * <p>
+ * Keeps whether the certificate was issued by a trusted CA and the identity
+ * parsed from it, keyed by the SHA-256 fingerprint of the certificate. The least
+ * recently used entry is evicted when the cache is full. An entry expires after
+ * the time to live, but never later than the certificate itself.
+ * <p>
+ * A cache can be shared by several {@link AuthenticationResponseValidator}s:
+ * a verdict is only reused by validators with the same trusted CA certificates.
+ *
+ * @see AuthenticationResponseValidator#setCertificateVerificationCache(CertificateVerificationCache)
+ */
+public class CertificateVerificationCache {
+
+  private final long timeToLiveMillis;
+  private final Map<String, Verdict> verdicts;
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+
+  /**
+   * Constructs a cache of up to 10 000 verdicts kept for up to an hour
+   */
+  public CertificateVerificationCache() {
+    this(10000, TimeUnit.HOURS, 1L);
+  }
+
+  /**
+   * Constructs a new {@code CertificateVerificationCache}
+   *
+   * @param maxEntries maximum number of certificates in the cache
+   * @param unit time unit of the {@code timeToLive} argument
+   * @param timeToLive time a verdict is kept for
+   */
+  public CertificateVerificationCache(final int maxEntries, TimeUnit unit, long timeToLive) {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("Maximum number of entries must be positive");
+    }
+    if (timeToLive <= 0) {
+      throw new IllegalArgumentException("Time to live must be positive");
+    }
+    this.timeToLiveMillis = unit.toMillis(timeToLive);
+    this.verdicts = new LinkedHashMap<String, Verdict>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Verdict> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  public synchronized int getSize() {
+    return verdicts.size();
+  }
+
+  /**
+   * Removes all the verdicts from the cache
+   */
+  public synchronized void clear() {
+    verdicts.clear();
+  }
+
+  Verdict get(X509Certificate certificate, TrustedCACertificateIndex trustedCACertificates) {
+    String fingerprint = CertificateParser.getFingerprint(certificate);
+    synchronized (this) {
+      Verdict verdict = verdicts.get(fingerprint);
+      if (verdict != null && verdict.expiresAtMillis <= System.currentTimeMillis()) {
+        verdicts.remove(fingerprint);
+        verdict = null;
+      }
+      if (verdict == null || verdict.trustedCACertificates != trustedCACertificates) {
+        missCount.incrementAndGet();
+        return null;
+      }
+      hitCount.incrementAndGet();
+      return verdict;
+    }
+  }
+
+  void put(X509Certificate certificate, TrustedCACertificateIndex trustedCACertificates, boolean trusted, AuthenticationIdentity identity) {
+    long expiresAtMillis = Math.min(System.currentTimeMillis() + timeToLiveMillis, certificate.getNotAfter().getTime());
+    if (expiresAtMillis <= System.currentTimeMillis()) {
+      return;
+    }
+    Verdict verdict = new Verdict(trustedCACertificates, trusted, copyOf(identity), expiresAtMillis);
+    String fingerprint = CertificateParser.getFingerprint(certificate);
+    synchronized (this) {
+      verdicts.put(fingerprint, verdict);
+    }
+  }
+
+  private static AuthenticationIdentity copyOf(AuthenticationIdentity identity) {
+    AuthenticationIdentity copy = new AuthenticationIdentity();
+    copy.setGivenName(identity.getGivenName());
+    copy.setSurName(identity.getSurName());
+    copy.setIdentityCode(identity.getIdentityCode());
+    copy.setCountry(identity.getCountry());
+    return copy;
+  }
+
+  static final class Verdict {
+
+    private final TrustedCACertificateIndex trustedCACertificates;
+    private final boolean trusted;
+    private final AuthenticationIdentity identity;
+    private final long expiresAtMillis;
+
+    private Verdict(TrustedCACertificateIndex trustedCACertificates, boolean trusted, AuthenticationIdentity identity, long expiresAtMillis) {
+      this.trustedCACertificates = trustedCACertificates;
+      this.trusted = trusted;
+      this.identity = identity;
+      this.expiresAtMillis = expiresAtMillis;
+    }
+
+    boolean isTrusted() {
+      return trusted;
+    }
+
+    /**
+     * Gets a copy of the identity, so the cached one can't be modified
+     */
+    AuthenticationIdentity getIdentity() {
+      return copyOf(identity);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package ee.sk.smartid;
+
+import ee.sk.smartid.exception.TechnicalErrorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Trusted CA certificates shipped with the library
+ * <p>
+ * The key store is read once per class loader, when the certificates are
+ * needed for the first time. The index is immutable, so all the validators
+ * share the same instance.
+ */
+final class DefaultTrustedCACertificates {
+
+  private static final Logger logger = LoggerFactory.getLogger(DefaultTrustedCACertificates.class);
+  private static final String KEY_STORE_PATH = "/trusted_certificates.jks";
+  private static volatile TrustedCACertificateIndex certificates;
+
+  private DefaultTrustedCACertificates() {
+  }
+
+  /**
+   * Gets the default trusted CA certificates
+   *
+   * @throws TechnicalErrorException when the key store can't be read. Reading is retried on the next call.
+   *
+   * @return immutable index of trusted CA certificates
+   */
+  static TrustedCACertificateIndex get() {
+    TrustedCACertificateIndex loadedCertificates = certificates;
+    if (loadedCertificates == null) {
+      synchronized (DefaultTrustedCACertificates.class) {
+        loadedCertificates = certificates;
+        if (loadedCertificates == null) {
+          loadedCertificates = load();
+          certificates = loadedCertificates;
+        }
+      }
+    }
+    return loadedCertificates;
+  }
+
+  private static TrustedCACertificateIndex load() {
+    logger.debug("Loading trusted CA certificates from " + KEY_STORE_PATH);
+    try (InputStream is = DefaultTrustedCACertificates.class.getResourceAsStream(KEY_STORE_PATH)) {
+      KeyStore keystore = KeyStore.getInstance(KeyStore.getDefaultType());
+      keystore.load(is, "changeit".toCharArray());
+      List<X509Certificate> trustedCertificates = new ArrayList<>();
+      Enumeration<String> aliases = keystore.aliases();
+      while (aliases.hasMoreElements()) {
+        String alias = aliases.nextElement();
+        trustedCertificates.add((X509Certificate) keystore.getCertificate(alias));
+      }
+      return new TrustedCACertificateIndex(trustedCertificates);
+    } catch (IOException | CertificateException | KeyStoreException | NoSuchAlgorithmException e) {
+      logger.error("Error initializing trusted CA certificates", e);
+      throw new TechnicalErrorException("Error initializing trusted CA certificates", e);
+    }
+  }
+}
@@ -2,10 +2,121 @@ package ee.sk.smartid;
 
 import org.apache.commons.codec.digest.DigestUtils;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestException;
+import java.security.MessageDigest;
+
+/**
+ * Calculates digests with {@link MessageDigest} instances reused by the calling thread
+ * <p>
+ * Looking up a digest from the security providers for every hash costs more
+ * than hashing the short Smart-ID inputs, so each thread keeps one instance
+ * per {@link HashType}. Streams, files and buffers are hashed in chunks of
+ * {@value #CHUNK_SIZE} bytes, so the heap used doesn't depend on the size of the data.
+ */
 public class DigestCalculator {
 
+  static final int CHUNK_SIZE = 64 * 1024;
+
+  private static final ThreadLocal<MessageDigest[]> digests = new ThreadLocal<MessageDigest[]>() {
+    @Override
+    protected MessageDigest[] initialValue() {
+      return new MessageDigest[HashType.values().length];
+    }
+  };
+
   public static byte[] calculateDigest(byte[] dataToDigest, HashType hashType) {
-    String algorithmName = hashType.getAlgorithmName();
-    return DigestUtils.getDigest(algorithmName).digest(dataToDigest);
+    return getDigest(hashType).digest(dataToDigest);
+  }
+
+  /**
+   * Calculates the digest into the output array without allocating
+   *
+   * @param dataToDigest data
+   * @param hashType hash type
+   * @param output array the digest is written to, from its start
+   * @throws IllegalArgumentException when the digest doesn't fit the output array
+   */
+  static void calculateDigest(byte[] dataToDigest, HashType hashType, byte[] output) {
+    MessageDigest digest = getDigest(hashType);
+    digest.update(dataToDigest);
+    try {
+      digest.digest(output, 0, output.length);
+    } catch (DigestException e) {
+      throw new IllegalArgumentException("Output array is too small for " + hashType.getAlgorithmName() + " digest", e);
+    }
+  }
+
+  /**
+   * Calculates the digest of the remaining bytes of the stream
+   * <p>
+   * The stream is read to the end but not closed.
+   *
+   * @param dataToDigest stream of the data
+   * @param hashType hash type
+   * @return digest
+   * @throws IOException when reading the stream fails
+   */
+  public static byte[] calculateDigest(InputStream dataToDigest, HashType hashType) throws IOException {
+    MessageDigest digest = getDigest(hashType);
+    byte[] chunk = new byte[CHUNK_SIZE];
+    int length;
+    while ((length = dataToDigest.read(chunk)) != -1) {
+      digest.update(chunk, 0, length);
+    }
+    return digest.digest();
+  }
+
+  /**
+   * Calculates the digest of the file
+   *
+   * @param file path of the file
+   * @param hashType hash type
+   * @return digest
+   * @throws IOException when reading the file fails
+   */
+  public static byte[] calculateDigest(Path file, HashType hashType) throws IOException {
+    MessageDigest digest = getDigest(hashType);
+    ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      while (channel.read(chunk) != -1) {
+        chunk.flip();
+        digest.update(chunk);
+        chunk.clear();
+      }
+    }
+    return digest.digest();
+  }
+
+  /**
+   * Calculates the digest of the remaining bytes of the buffer
+   * <p>
+   * The position of the buffer is not changed.
+   *
+   * @param dataToDigest buffer of the data
+   * @param hashType hash type
+   * @return digest
+   */
+  public static byte[] calculateDigest(ByteBuffer dataToDigest, HashType hashType) {
+    MessageDigest digest = getDigest(hashType);
+    digest.update(dataToDigest.duplicate());
+    return digest.digest();
+  }
+
+  private static MessageDigest getDigest(HashType hashType) {
+    MessageDigest[] threadDigests = digests.get();
+    MessageDigest digest = threadDigests[hashType.ordinal()];
+    if (digest == null) {
+      digest = DigestUtils.getDigest(hashType.getAlgorithmName());
+      threadDigests[hashType.ordinal()] = digest;
+    } else {
+      digest.reset();
+    }
+    return digest;
   }
 }
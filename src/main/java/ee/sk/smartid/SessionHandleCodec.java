@@ -0,0 +1,78 @@
+package ee.sk.smartid;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Encodes the fields of a {@link SmartIdSessionHandle} for the pending session journal
+ * <p>
+ * The fields are written one by one instead of serializing the handle, so
+ * reading a journal never instantiates classes named in the file.
+ */
+final class SessionHandleCodec {
+
+  private static final int VERSION = 1;
+
+  private SessionHandleCodec() {
+  }
+
+  static byte[] encode(SmartIdSessionHandle handle) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    DataOutputStream output = new DataOutputStream(bytes);
+    try {
+      output.writeByte(VERSION);
+      writeNullable(output, handle.getSessionType() == null ? null : handle.getSessionType().name());
+      writeNullable(output, handle.getSessionId());
+      writeNullable(output, handle.getHashInBase64());
+      writeNullable(output, handle.getHashType() == null ? null : handle.getHashType().name());
+      writeNullable(output, handle.getRequestedCertificateLevel());
+      writeNullable(output, handle.getVerificationCode());
+      output.flush();
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to encode session handle", e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @throws IllegalArgumentException when the data is not an encoded session handle
+   */
+  static SmartIdSessionHandle decode(byte[] data) {
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(data));
+    try {
+      int version = input.readUnsignedByte();
+      if (version != VERSION) {
+        throw new IllegalArgumentException("Unsupported session handle version " + version);
+      }
+      SmartIdSessionHandle handle = new SmartIdSessionHandle();
+      String sessionType = readNullable(input);
+      handle.setSessionType(sessionType == null ? null : SessionType.valueOf(sessionType));
+      handle.setSessionId(readNullable(input));
+      handle.setHashInBase64(readNullable(input));
+      String hashType = readNullable(input);
+      handle.setHashType(hashType == null ? null : HashType.valueOf(hashType));
+      handle.setRequestedCertificateLevel(readNullable(input));
+      handle.setVerificationCode(readNullable(input));
+      if (input.available() > 0) {
+        throw new IllegalArgumentException("Unexpected data after the session handle");
+      }
+      return handle;
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Truncated session handle", e);
+    }
+  }
+
+  private static void writeNullable(DataOutputStream output, String value) throws IOException {
+    output.writeBoolean(value != null);
+    if (value != null) {
+      output.writeUTF(value);
+    }
+  }
+
+  private static String readNullable(DataInputStream input) throws IOException {
+    return input.readBoolean() ? input.readUTF() : null;
+  }
+}
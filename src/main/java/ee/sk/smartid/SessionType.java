@@ -0,0 +1,11 @@
+package ee.sk.smartid;
+
+/**
+ * Type of the operation a Smart-ID session was started for
+ */
+public enum SessionType {
+
+  AUTHENTICATION,
+  SIGNATURE,
+  CERTIFICATE_CHOICE
+}
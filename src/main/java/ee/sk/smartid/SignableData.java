@@ -1,8 +1,17 @@
 package ee.sk.smartid;
 
+import ee.sk.smartid.exception.TechnicalErrorException;
 import org.apache.commons.codec.binary.Base64;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * This class can be used to contain the data
@@ -15,26 +24,102 @@ import java.io.Serializable;
  * {@link #calculateHashInBase64()} methods
  * are used to calculate the hash for signing request.
  * <p>
+ * Large documents don't have to be loaded to the heap:
+ * {@link #fromPath(Path)}, {@link #fromByteBuffer(ByteBuffer)}
+ * and {@link #fromInputStream(InputStream, HashType)}
+ * hash the data in chunks as it is read.
+ * <p>
+ * The hash is calculated once per hash type and kept together
+ * with its base64 form and verification code, so the data must
+ * not be changed after the hash has been calculated.
+ * <p>
+ * The serialized form is the one of the earlier versions that
+ * kept only the data and the hash type, with the file and the
+ * digest of the stream as optional extra fields.
+ * <p>
  * {@link ee.sk.smartid.SignableHash} can be used
  * instead when the data to be signed is already
  * in hashed format.
  */
 public class SignableData implements Serializable {
 
-  private byte[] dataToSign;
+  private static final long serialVersionUID = 744139901122487355L;
+
+  private static final ObjectStreamField[] serialPersistentFields = {
+      new ObjectStreamField("dataToSign", byte[].class),
+      new ObjectStreamField("hashType", HashType.class),
+      new ObjectStreamField("file", String.class),
+      new ObjectStreamField("digest", byte[].class)
+  };
+
+  private Content content;
   private HashType hashType = HashType.SHA512;
+  private transient CalculatedHash[] calculatedHashes;
 
   public SignableData(byte[] dataToSign) {
-    this.dataToSign = dataToSign;
+    this(new ByteArrayContent(dataToSign));
+  }
+
+  private SignableData(Content content) {
+    this.content = content;
+  }
+
+  /**
+   * Creates signable data from a file
+   * <p>
+   * The file is read when the hash is calculated.
+   *
+   * @param file path of the file to be signed
+   * @return signable data
+   */
+  public static SignableData fromPath(Path file) {
+    return new SignableData(new PathContent(file));
+  }
+
+  /**
+   * Creates signable data from the remaining bytes of the buffer
+   * <p>
+   * The buffer is read when the hash is calculated, its position
+   * is not changed. When the signable data is serialized, the
+   * remaining bytes are copied into it.
+   *
+   * @param dataToSign buffer of the data to be signed
+   * @return signable data
+   */
+  public static SignableData fromByteBuffer(ByteBuffer dataToSign) {
+    return new SignableData(new ByteBufferContent(dataToSign));
+  }
+
+  /**
+   * Creates signable data by hashing the stream
+   * <p>
+   * The stream is read to the end right away, but not closed.
+   * As it can be read only once, the hash type can't be
+   * changed afterwards.
+   *
+   * @param dataToSign stream of the data to be signed
+   * @param hashType hash type
+   * @return signable data
+   * @throws TechnicalErrorException when reading the stream fails
+   */
+  public static SignableData fromInputStream(InputStream dataToSign, HashType hashType) {
+    byte[] digest;
+    try {
+      digest = DigestCalculator.calculateDigest(dataToSign, hashType);
+    } catch (IOException e) {
+      throw new TechnicalErrorException("Failed to read the data to sign: " + e.getMessage(), e);
+    }
+    SignableData signableData = new SignableData(new DigestContent(hashType, digest));
+    signableData.hashType = hashType;
+    return signableData;
   }
 
   public String calculateHashInBase64() {
-    byte[] digest = calculateHash();
-    return Base64.encodeBase64String(digest);
+    return getCalculatedHash().getHashInBase64();
   }
 
   public byte[] calculateHash() {
-    return DigestCalculator.calculateDigest(dataToSign, hashType);
+    return getCalculatedHash().digest.clone();
   }
 
   /**
@@ -47,15 +132,181 @@ public class SignableData implements Serializable {
    * @return the verification code
    */
   public String calculateVerificationCode() {
-    byte[] digest = calculateHash();
-    return VerificationCodeCalculator.calculate(digest);
+    return getCalculatedHash().getVerificationCode();
   }
 
+  /**
+   * Sets the hash type
+   *
+   * @param hashType hash type
+   * @throws IllegalStateException when the data was read from a stream with another hash type
+   */
   public void setHashType(HashType hashType) {
+    if (!content.canCalculateDigest(hashType)) {
+      throw new IllegalStateException("Hash type of data read from a stream can't be changed");
+    }
     this.hashType = hashType;
   }
 
   public HashType getHashType() {
     return hashType;
   }
+
+  private synchronized CalculatedHash getCalculatedHash() {
+    if (calculatedHashes == null) {
+      calculatedHashes = new CalculatedHash[HashType.values().length];
+    }
+    CalculatedHash calculatedHash = calculatedHashes[hashType.ordinal()];
+    if (calculatedHash == null) {
+      calculatedHash = new CalculatedHash(content.calculateDigest(hashType));
+      calculatedHashes[hashType.ordinal()] = calculatedHash;
+    }
+    return calculatedHash;
+  }
+
+  private void writeObject(ObjectOutputStream output) throws IOException {
+    ObjectOutputStream.PutField fields = output.putFields();
+    fields.put("hashType", hashType);
+    content.writeFields(fields);
+    output.writeFields();
+  }
+
+  private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = input.readFields();
+    hashType = (HashType) fields.get("hashType", HashType.SHA512);
+    String file = (String) fields.get("file", null);
+    byte[] digest = (byte[]) fields.get("digest", null);
+    if (file != null) {
+      content = new PathContent(Paths.get(file));
+    } else if (digest != null) {
+      content = new DigestContent(hashType, digest);
+    } else {
+      content = new ByteArrayContent((byte[]) fields.get("dataToSign", null));
+    }
+  }
+
+  private static class CalculatedHash {
+
+    private final byte[] digest;
+    private String hashInBase64;
+    private String verificationCode;
+
+    CalculatedHash(byte[] digest) {
+      this.digest = digest;
+    }
+
+    String getHashInBase64() {
+      if (hashInBase64 == null) {
+        hashInBase64 = Base64.encodeBase64String(digest);
+      }
+      return hashInBase64;
+    }
+
+    String getVerificationCode() {
+      if (verificationCode == null) {
+        verificationCode = VerificationCodeCalculator.calculate(digest);
+      }
+      return verificationCode;
+    }
+  }
+
+  private static abstract class Content {
+
+    boolean canCalculateDigest(HashType hashType) {
+      return true;
+    }
+
+    abstract byte[] calculateDigest(HashType hashType);
+
+    abstract void writeFields(ObjectOutputStream.PutField fields);
+  }
+
+  private static class ByteArrayContent extends Content {
+
+    private final byte[] data;
+
+    ByteArrayContent(byte[] data) {
+      this.data = data;
+    }
+
+    @Override
+    byte[] calculateDigest(HashType hashType) {
+      return DigestCalculator.calculateDigest(data, hashType);
+    }
+
+    @Override
+    void writeFields(ObjectOutputStream.PutField fields) {
+      fields.put("dataToSign", data);
+    }
+  }
+
+  private static class PathContent extends Content {
+
+    private final String file;
+
+    PathContent(Path file) {
+      this.file = file.toString();
+    }
+
+    @Override
+    byte[] calculateDigest(HashType hashType) {
+      try {
+        return DigestCalculator.calculateDigest(Paths.get(file), hashType);
+      } catch (IOException e) {
+        throw new TechnicalErrorException("Failed to read the data to sign from " + file + ": " + e.getMessage(), e);
+      }
+    }
+
+    @Override
+    void writeFields(ObjectOutputStream.PutField fields) {
+      fields.put("file", file);
+    }
+  }
+
+  private static class ByteBufferContent extends Content {
+
+    private final ByteBuffer data;
+
+    ByteBufferContent(ByteBuffer data) {
+      this.data = data;
+    }
+
+    @Override
+    byte[] calculateDigest(HashType hashType) {
+      return DigestCalculator.calculateDigest(data, hashType);
+    }
+
+    @Override
+    void writeFields(ObjectOutputStream.PutField fields) {
+      byte[] bytes = new byte[data.remaining()];
+      data.duplicate().get(bytes);
+      fields.put("dataToSign", bytes);
+    }
+  }
+
+  private static class DigestContent extends Content {
+
+    private final HashType hashType;
+    private final byte[] digest;
+
+    DigestContent(HashType hashType, byte[] digest) {
+      this.hashType = hashType;
+      this.digest = digest;
+    }
+
+    @Override
+    boolean canCalculateDigest(HashType hashType) {
+      return this.hashType == hashType;
+    }
+
+    @Override
+    byte[] calculateDigest(HashType hashType) {
+      return digest;
+    }
+
+    @Override
+    void writeFields(ObjectOutputStream.PutField fields) {
+      fields.put("digest", digest);
+    }
+  }
 }
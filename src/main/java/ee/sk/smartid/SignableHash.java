@@ -21,13 +21,16 @@ public class SignableHash implements Serializable {
 
   private byte[] hash;
   private HashType hashType;
+  private transient String verificationCode;
 
   public void setHash(byte[] hash) {
     this.hash = hash;
+    verificationCode = null;
   }
 
   public void setHashInBase64(String hashInBase64) {
     hash = Base64.decodeBase64(hashInBase64);
+    verificationCode = null;
   }
 
   public String getHashInBase64() {
@@ -52,10 +55,15 @@ public class SignableHash implements Serializable {
    * Verification code should be displayed on the web page or some sort of web service
    * so the person signing through the Smart-ID mobile app can verify if if the verification code
    * displayed on the phone matches with the one shown on the web page.
+   * <p>
+   * The code is calculated once and kept until the hash is set again.
    *
    * @return the verification code
    */
   public String calculateVerificationCode() {
-    return VerificationCodeCalculator.calculate(hash);
+    if (verificationCode == null) {
+      verificationCode = VerificationCodeCalculator.calculate(hash);
+    }
+    return verificationCode;
   }
 }
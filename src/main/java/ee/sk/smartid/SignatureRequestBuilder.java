@@ -1,8 +1,11 @@
 package ee.sk.smartid;
 
 import ee.sk.smartid.exception.*;
+import ee.sk.smartid.rest.AsyncSmartIdConnector;
 import ee.sk.smartid.rest.SessionStatusPoller;
+import ee.sk.smartid.rest.SessionStatusPollingEngine;
 import ee.sk.smartid.rest.SmartIdConnector;
+import ee.sk.smartid.rest.SmartIdFuture;
 import ee.sk.smartid.rest.dao.SessionSignature;
 import ee.sk.smartid.rest.dao.SessionStatus;
 import ee.sk.smartid.rest.dao.SignatureSessionRequest;
@@ -46,6 +49,17 @@ public class SignatureRequestBuilder extends SmartIdRequestBuilder {
     logger.debug("Instantiating signature request builder");
   }
 
+  /**
+   * Constructs a new {@code SignatureRequestBuilder} that can also send the request asynchronously
+   *
+   * @param connector for requesting signing initiation
+   * @param sessionStatusPollingEngine for polling the signing response without blocking
+   */
+  public SignatureRequestBuilder(SmartIdConnector connector, SessionStatusPollingEngine sessionStatusPollingEngine) {
+    super(connector, sessionStatusPollingEngine);
+    logger.debug("Instantiating signature request builder");
+  }
+
   /**
    * Sets the request's UUID of the relying party
    * <p>
@@ -194,13 +208,143 @@ public class SignatureRequestBuilder extends SmartIdRequestBuilder {
    */
   public SmartIdSignature sign() throws InvalidParametersException, UserAccountNotFoundException, RequestForbiddenException,UserRefusedException,
       SessionTimeoutException, DocumentUnusableException, TechnicalErrorException, ClientNotSupportedException, ServerMaintenanceException {
+    SmartIdSessionHandle handle = start();
+    return await(handle);
+  }
+
+  /**
+   * Send the signing initiation request without waiting for the user
+   * <p>
+   * The returned handle holds the verification code to display to the user.
+   * The signing can be finished later, also by another instance of the
+   * application, with {@link #await(SmartIdSessionHandle)} or {@link #poll(SmartIdSessionHandle)}.
+   *
+   * @throws InvalidParametersException when mandatory request parameters are missing
+   * @throws UserAccountNotFoundException when the user account was not found
+   * @throws RequestForbiddenException when Relying Party has no permission to issue the request.
+   *                                   This may happen when Relying Party has no permission to invoke operations on accounts with ADVANCED certificates.
+   * @throws ClientNotSupportedException when the client-side implementation of this API is old and not supported any more
+   * @throws ServerMaintenanceException when the server is under maintenance
+   *
+   * @return handle of the started signing session
+   */
+  public SmartIdSessionHandle start() throws InvalidParametersException, UserAccountNotFoundException, RequestForbiddenException,
+      ClientNotSupportedException, ServerMaintenanceException {
     validateParameters();
     SignatureSessionRequest request = createSignatureSessionRequest();
     SignatureSessionResponse response = getConnector().sign(getDocumentNumber(), request);
-    SessionStatus sessionStatus = getSessionStatusPoller().fetchFinalSessionStatus(response.getSessionId());
+    return createSessionHandle(response.getSessionId(), SessionType.SIGNATURE);
+  }
+
+  /**
+   * Wait for the started signing session to complete and get the signature
+   *
+   * @param handle handle returned by {@link #start()}
+   *
+   * @throws InvalidParametersException when the handle is missing
+   * @throws IllegalArgumentException when the handle is of another type of session
+   * @throws UserRefusedException when the user has refused the session
+   * @throws SessionTimeoutException when there was a timeout, i.e. end user did not confirm or refuse the operation within given timeframe
+   * @throws DocumentUnusableException when for some reason, this relying party request cannot be completed.
+   * @throws TechnicalErrorException when session status response's result is missing or it has some unknown value
+   *
+   * @return the signature
+   */
+  public SmartIdSignature await(SmartIdSessionHandle handle) throws InvalidParametersException, UserRefusedException,
+      SessionTimeoutException, DocumentUnusableException, TechnicalErrorException {
+    validateSessionHandle(handle, SessionType.SIGNATURE);
+    SessionStatus sessionStatus = getSessionStatusPoller().fetchFinalSessionStatus(handle.getSessionId());
     validateResponse(sessionStatus);
-    SmartIdSignature signature = createSmartIdSignature(sessionStatus);
-    return signature;
+    return createSmartIdSignature(sessionStatus);
+  }
+
+  /**
+   * Check the started signing session once without waiting
+   *
+   * @param handle handle returned by {@link #start()}
+   *
+   * @throws InvalidParametersException when the handle is missing
+   * @throws IllegalArgumentException when the handle is of another type of session
+   * @throws UserRefusedException when the user has refused the session
+   * @throws SessionTimeoutException when there was a timeout, i.e. end user did not confirm or refuse the operation within given timeframe
+   * @throws DocumentUnusableException when for some reason, this relying party request cannot be completed.
+   * @throws TechnicalErrorException when session status response's result is missing or it has some unknown value
+   *
+   * @return the signature or null when the session is still running
+   */
+  public SmartIdSignature poll(SmartIdSessionHandle handle) throws InvalidParametersException, UserRefusedException,
+      SessionTimeoutException, DocumentUnusableException, TechnicalErrorException {
+    validateSessionHandle(handle, SessionType.SIGNATURE);
+    SessionStatus sessionStatus = getSessionStatusPoller().pollSessionStatusOnce(handle.getSessionId());
+    if (sessionStatus == null) {
+      return null;
+    }
+    validateResponse(sessionStatus);
+    return createSmartIdSignature(sessionStatus);
+  }
+
+  /**
+   * Send the signature request asynchronously
+   * <p>
+   * Neither the initiation request nor the session status polling block
+   * the calling thread. The returned future fails with the same exceptions
+   * that {@link #sign()} throws, except for {@link InvalidParametersException}
+   * on missing mandatory request parameters, which is thrown immediately.
+   * Cancelling the future stops polling the session status.
+   *
+   * @throws InvalidParametersException when mandatory request parameters are missing
+   * @throws IllegalStateException when the builder was constructed without a session status polling engine
+   *
+   * @return future of the signature
+   */
+  public SmartIdFuture<SmartIdSignature> signAsync() throws InvalidParametersException {
+    validateParameters();
+    SignatureSessionRequest request = createSignatureSessionRequest();
+    return createAsyncSession().start(request);
+  }
+
+  /**
+   * Wait for the started signing session to complete without blocking
+   * <p>
+   * E.g. for resuming the sessions of {@link SmartIdClient#getPendingSessions()}
+   * after a restart. Only the connection settings of the builder are used.
+   *
+   * @param handle handle returned by {@link #start()}
+   *
+   * @throws InvalidParametersException when the handle is missing
+   * @throws IllegalArgumentException when the handle is of another type of session
+   * @throws IllegalStateException when the builder was constructed without a session status polling engine
+   *
+   * @return future of the signature
+   */
+  public SmartIdFuture<SmartIdSignature> awaitAsync(SmartIdSessionHandle handle) throws InvalidParametersException {
+    validateSessionHandle(handle, SessionType.SIGNATURE);
+    return createAsyncSession().resume(handle);
+  }
+
+  private AsyncSession<SignatureSessionRequest, SignatureSessionResponse, SmartIdSignature> createAsyncSession() {
+    return new AsyncSession<SignatureSessionRequest, SignatureSessionResponse, SmartIdSignature>(SessionType.SIGNATURE) {
+      @Override
+      protected SignatureSessionResponse initiate(SignatureSessionRequest request) {
+        return getConnector().sign(getDocumentNumber(), request);
+      }
+
+      @Override
+      protected SmartIdFuture<SignatureSessionResponse> initiateAsync(AsyncSmartIdConnector connector, SignatureSessionRequest request) {
+        return connector.signAsync(getDocumentNumber(), request);
+      }
+
+      @Override
+      protected String getSessionId(SignatureSessionResponse initiationResponse) {
+        return initiationResponse.getSessionId();
+      }
+
+      @Override
+      protected SmartIdSignature createResult(SessionStatus sessionStatus, SmartIdSessionHandle handle) {
+        validateResponse(sessionStatus);
+        return createSmartIdSignature(sessionStatus);
+      }
+    };
   }
 
   protected void validateParameters() {
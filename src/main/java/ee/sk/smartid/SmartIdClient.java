@@ -1,11 +1,29 @@
 package ee.sk.smartid;
 
+import ee.sk.smartid.metrics.NoOpSmartIdMetrics;
+import ee.sk.smartid.metrics.SmartIdMetrics;
+import ee.sk.smartid.rest.HashedTimingWheel;
+import ee.sk.smartid.rest.PendingSessionJournal;
+import ee.sk.smartid.rest.PollingStatistics;
+import ee.sk.smartid.rest.PollingStrategy;
 import ee.sk.smartid.rest.SessionStatusPoller;
+import ee.sk.smartid.rest.SessionStatusPollingEngine;
 import ee.sk.smartid.rest.SmartIdRestConnector;
 import org.glassfish.jersey.client.ClientConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class that can be used to configure and get different types of request builders
@@ -71,18 +89,60 @@ import java.util.concurrent.TimeUnit;
 
  *   byte[] signature = signature.getValue();
  * </code></pre>
+ * <p>
+ * The client is meant to be created once and shared. The configuration is
+ * taken into use when the first request builder is requested: from then on
+ * all the builders share the same connector and session status poller, and
+ * the configuration can't be changed anymore. The client is thread-safe and
+ * its network resources are released with {@link #close()}.
+ * <p>
+ * Every builder can also send its request asynchronously, e.g.
+ * {@link AuthenticationRequestBuilder#authenticateAsync()}. The session
+ * statuses of the asynchronous requests are polled by a small pool of
+ * daemon threads shared by the client (see {@link #setPollingThreadCount(int)}),
+ * with the poll timers kept in a {@link HashedTimingWheel}.
+ * <p>
+ * The sessions of the asynchronous requests can be journaled in a file
+ * (see {@link #setPendingSessionJournal(File)}), so that they are resumed
+ * after a restart instead of asking the users to start over. Their results
+ * can be picked up with the handles of the pending sessions:
+ * <pre class="code"><code class="java">
+ *   for (SmartIdSessionHandle handle : client.getPendingSessions()) {
+ *     if (handle.getSessionType() == SessionType.AUTHENTICATION) {
+ *       SmartIdFuture&lt;SmartIdAuthenticationResponse&gt; response = client.createAuthentication().awaitAsync(handle);
+ *       ...
+ *     }
+ *   }
+ * </code></pre>
  * @see <a href="https://github.com/SK-EID/smart-id-java-client/wiki/Examples-of-using-it">https://github.com/SK-EID/smart-id-java-client/wiki/Examples-of-using-it</a>
  */
-public class SmartIdClient {
+public class SmartIdClient implements AutoCloseable {
 
+  private static final Logger logger = LoggerFactory.getLogger(SmartIdClient.class);
   private String relyingPartyUUID;
   private String relyingPartyName;
   private String hostUrl;
   private ClientConfig networkConnectionConfig;
   private TimeUnit pollingSleepTimeUnit = TimeUnit.SECONDS;
   private long pollingSleepTimeout = 1L;
+  private PollingStrategy pollingStrategy;
+  private TimeUnit sessionDeadlineUnit = TimeUnit.SECONDS;
+  private long sessionDeadline;
+  private final PollingStatistics pollingStatistics = new PollingStatistics();
+  private SmartIdMetrics metrics = new NoOpSmartIdMetrics();
   private TimeUnit sessionStatusResponseSocketOpenTimeUnit;
   private long sessionStatusResponseSocketOpenTimeValue;
+  private SmartIdRestConnector connector;
+  private SessionStatusPoller sessionStatusPoller;
+  private int pollingThreadCount = 2;
+  private ExecutorService pollingExecutor;
+  private HashedTimingWheel pollingTimer;
+  private SessionStatusPollingEngine sessionStatusPollingEngine;
+  private File pendingSessionJournalFile;
+  private PendingSessionJournal pendingSessionJournal;
+  private List<SmartIdSessionHandle> pendingSessions = Collections.emptyList();
+  private volatile boolean initialized;
+  private volatile boolean closed;
 
   /**
    * Gets an instance of the certificate request builder
@@ -90,9 +150,8 @@ public class SmartIdClient {
    * @return certificate request builder instance
    */
   public CertificateRequestBuilder getCertificate() {
-    SmartIdRestConnector connector = new SmartIdRestConnector(hostUrl, networkConnectionConfig);
-    SessionStatusPoller sessionStatusPoller = createSessionStatusPoller(connector);
-    CertificateRequestBuilder builder = new CertificateRequestBuilder(connector, sessionStatusPoller);
+    initializeIfNeeded();
+    CertificateRequestBuilder builder = new CertificateRequestBuilder(connector, sessionStatusPollingEngine);
     populateBuilderFields(builder);
     return builder;
   }
@@ -103,9 +162,8 @@ public class SmartIdClient {
    * @return signature request builder instance
    */
   public SignatureRequestBuilder createSignature() {
-    SmartIdRestConnector connector = new SmartIdRestConnector(hostUrl, networkConnectionConfig);
-    SessionStatusPoller sessionStatusPoller = createSessionStatusPoller(connector);
-    SignatureRequestBuilder builder = new SignatureRequestBuilder(connector, sessionStatusPoller);
+    initializeIfNeeded();
+    SignatureRequestBuilder builder = new SignatureRequestBuilder(connector, sessionStatusPollingEngine);
     populateBuilderFields(builder);
     return builder;
   }
@@ -116,9 +174,8 @@ public class SmartIdClient {
    * @return authentication request builder instance
    */
   public AuthenticationRequestBuilder createAuthentication() {
-    SmartIdRestConnector connector = new SmartIdRestConnector(hostUrl, networkConnectionConfig);
-    SessionStatusPoller sessionStatusPoller = createSessionStatusPoller(connector);
-    AuthenticationRequestBuilder builder = new AuthenticationRequestBuilder(connector, sessionStatusPoller);
+    initializeIfNeeded();
+    AuthenticationRequestBuilder builder = new AuthenticationRequestBuilder(connector, sessionStatusPollingEngine);
     populateBuilderFields(builder);
     return builder;
   }
@@ -132,7 +189,8 @@ public class SmartIdClient {
    *
    * @param relyingPartyUUID UUID of the relying party
    */
-  public void setRelyingPartyUUID(String relyingPartyUUID) {
+  public synchronized void setRelyingPartyUUID(String relyingPartyUUID) {
+    checkNotInitialized();
     this.relyingPartyUUID = relyingPartyUUID;
   }
 
@@ -154,7 +212,8 @@ public class SmartIdClient {
    *
    * @param relyingPartyName name of the relying party
    */
-  public void setRelyingPartyName(String relyingPartyName) {
+  public synchronized void setRelyingPartyName(String relyingPartyName) {
+    checkNotInitialized();
     this.relyingPartyName = relyingPartyName;
   }
 
@@ -174,7 +233,8 @@ public class SmartIdClient {
    *
    * @param hostUrl base URL of the Smart-ID backend environment
    */
-  public void setHostUrl(String hostUrl) {
+  public synchronized void setHostUrl(String hostUrl) {
+    checkNotInitialized();
     this.hostUrl = hostUrl;
   }
 
@@ -186,7 +246,8 @@ public class SmartIdClient {
    *
    * @param networkConnectionConfig Jersey's network connection configuration instance
    */
-  public void setNetworkConnectionConfig(ClientConfig networkConnectionConfig) {
+  public synchronized void setNetworkConnectionConfig(ClientConfig networkConnectionConfig) {
+    checkNotInitialized();
     this.networkConnectionConfig = networkConnectionConfig;
   }
 
@@ -212,7 +273,8 @@ public class SmartIdClient {
    * @param timeUnit time unit of the {@code timeValue} argument
    * @param timeValue time value of each status poll's timeout.
    */
-  public void setSessionStatusResponseSocketOpenTime(TimeUnit timeUnit, long timeValue) {
+  public synchronized void setSessionStatusResponseSocketOpenTime(TimeUnit timeUnit, long timeValue) {
+    checkNotInitialized();
     sessionStatusResponseSocketOpenTimeUnit = timeUnit;
     sessionStatusResponseSocketOpenTimeValue = timeValue;
   }
@@ -223,11 +285,181 @@ public class SmartIdClient {
    * @param unit time unit of the {@code timeout} argument
    * @param timeout timeout value in the given {@code unit}
    */
-  public void setPollingSleepTimeout(TimeUnit unit, long timeout) {
+  public synchronized void setPollingSleepTimeout(TimeUnit unit, long timeout) {
+    checkNotInitialized();
     pollingSleepTimeUnit = unit;
     pollingSleepTimeout = timeout;
   }
 
+  /**
+   * Sets the strategy deciding the pause between each session status poll
+   * <p>
+   * Overrides {@link #setPollingSleepTimeout(TimeUnit, long)}. E.g.
+   * {@link ee.sk.smartid.rest.AdaptivePollingStrategy} polls again
+   * right away after a long poll
+   * (see {@link #setSessionStatusResponseSocketOpenTime(TimeUnit, long)}).
+   *
+   * @param pollingStrategy strategy shared by all the sessions of this client
+   */
+  public synchronized void setPollingStrategy(PollingStrategy pollingStrategy) {
+    checkNotInitialized();
+    this.pollingStrategy = pollingStrategy;
+  }
+
+  /**
+   * Sets the overall time limit for polling a session
+   * <p>
+   * When a session doesn't complete in time, the request fails with
+   * {@link ee.sk.smartid.exception.SessionTimeoutException}.
+   * By default there is no limit besides the server-side session timeout.
+   *
+   * @param unit time unit of the {@code deadline} argument
+   * @param deadline time limit counted from the first session status poll
+   */
+  public synchronized void setSessionDeadline(TimeUnit unit, long deadline) {
+    checkNotInitialized();
+    sessionDeadlineUnit = unit;
+    sessionDeadline = deadline;
+  }
+
+  /**
+   * Gets the session status polling statistics of this client
+   * <p>
+   * Useful for comparing the polling strategies.
+   *
+   * @return polling statistics
+   */
+  public PollingStatistics getPollingStatistics() {
+    return pollingStatistics;
+  }
+
+  /**
+   * Sets the metrics the requests and sessions of this client are recorded to
+   * <p>
+   * E.g. {@link ee.sk.smartid.metrics.InMemorySmartIdMetrics} or a bridge to
+   * the metrics library of the application. Nothing is recorded by default.
+   *
+   * @param metrics metrics implementation
+   */
+  public synchronized void setMetrics(SmartIdMetrics metrics) {
+    checkNotInitialized();
+    if (metrics == null) {
+      throw new IllegalArgumentException("Metrics must not be null");
+    }
+    this.metrics = metrics;
+  }
+
+  public SmartIdMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Sets the number of threads polling the session statuses of asynchronous requests
+   * <p>
+   * The threads don't wait for the session status responses when the
+   * default connector is used, so the default of 2 threads is
+   * enough for thousands of concurrent sessions.
+   *
+   * @param pollingThreadCount number of polling threads
+   */
+  public synchronized void setPollingThreadCount(int pollingThreadCount) {
+    checkNotInitialized();
+    if (pollingThreadCount < 1) {
+      throw new IllegalArgumentException("Polling thread count must be positive");
+    }
+    this.pollingThreadCount = pollingThreadCount;
+  }
+
+  /**
+   * Sets the file journaling the sessions of the asynchronous requests
+   * <p>
+   * A session is journaled until its final status has been received. When
+   * the client is first used, polling of the sessions that were pending when
+   * the application stopped is resumed, except for the ones started more than
+   * {@link PendingSessionJournal#DEFAULT_SESSION_LIFETIME_MILLIS} ago (see
+   * {@link #getPendingSessions()}). The file must not be shared by running
+   * clients. By default the sessions are not journaled.
+   *
+   * @param pendingSessionJournalFile journal file. It is created when it doesn't exist.
+   */
+  public synchronized void setPendingSessionJournal(File pendingSessionJournalFile) {
+    checkNotInitialized();
+    this.pendingSessionJournalFile = pendingSessionJournalFile;
+  }
+
+  /**
+   * Gets the sessions that were pending in the journal when the client was started
+   * <p>
+   * Polling of the sessions has already been resumed. The result of a session
+   * is got by passing its handle to {@code awaitAsync(SmartIdSessionHandle)} of
+   * the request builder matching its {@link SmartIdSessionHandle#getSessionType()}.
+   * A session is removed from the journal once its final status has been
+   * received, whether or not its result is asked for.
+   *
+   * @return handles of the pending sessions, empty when no journal has been set
+   */
+  public List<SmartIdSessionHandle> getPendingSessions() {
+    initializeIfNeeded();
+    return pendingSessions;
+  }
+
+  /**
+   * Closes the client and releases its network resources
+   * <p>
+   * The client can't be used after it has been closed.
+   * Pending asynchronous requests are not completed anymore.
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    if (initialized) {
+      if (pendingSessionJournal != null) {
+        pendingSessionJournal.close();
+      }
+      pollingTimer.close();
+      pollingExecutor.shutdownNow();
+      connector.close();
+    }
+  }
+
+  private void initializeIfNeeded() {
+    if (closed) {
+      throw new IllegalStateException("Client has been closed");
+    }
+    if (!initialized) {
+      synchronized (this) {
+        if (closed) {
+          throw new IllegalStateException("Client has been closed");
+        }
+        if (!initialized) {
+          // The journal is opened first, so that failing to read it leaves no threads or connections behind
+          if (pendingSessionJournalFile != null) {
+            pendingSessionJournal = openPendingSessionJournal(pendingSessionJournalFile);
+          }
+          connector = new SmartIdRestConnector(hostUrl, networkConnectionConfig);
+          connector.setMetrics(metrics);
+          sessionStatusPoller = createSessionStatusPoller(connector);
+          pollingExecutor = Executors.newFixedThreadPool(pollingThreadCount, new PollingThreadFactory());
+          pollingTimer = new HashedTimingWheel(pollingExecutor);
+          sessionStatusPollingEngine = new SessionStatusPollingEngine(sessionStatusPoller, pollingTimer);
+          if (pendingSessionJournal != null) {
+            sessionStatusPollingEngine.setPendingSessionJournal(pendingSessionJournal);
+            for (SmartIdSessionHandle handle : pendingSessions) {
+              sessionStatusPollingEngine.resumeSession(handle.getSessionId());
+            }
+          }
+          initialized = true;
+        }
+      }
+    }
+  }
+
+  private void checkNotInitialized() {
+    if (initialized || closed) {
+      throw new IllegalStateException("Client configuration can't be changed after the client has been used");
+    }
+  }
+
   private void populateBuilderFields(SmartIdRequestBuilder builder) {
     builder.withRelyingPartyUUID(relyingPartyUUID);
     builder.withRelyingPartyName(relyingPartyName);
@@ -236,7 +468,52 @@ public class SmartIdClient {
   private SessionStatusPoller createSessionStatusPoller(SmartIdRestConnector connector) {
     SessionStatusPoller sessionStatusPoller = new SessionStatusPoller(connector);
     sessionStatusPoller.setPollingSleepTime(pollingSleepTimeUnit, pollingSleepTimeout);
+    if (pollingStrategy != null) {
+      sessionStatusPoller.setPollingStrategy(pollingStrategy);
+    }
+    sessionStatusPoller.setSessionDeadline(sessionDeadlineUnit, sessionDeadline);
+    sessionStatusPoller.setPollingStatistics(pollingStatistics);
+    sessionStatusPoller.setMetrics(metrics);
     sessionStatusPoller.setResponseSocketOpenTime(sessionStatusResponseSocketOpenTimeUnit, sessionStatusResponseSocketOpenTimeValue);
     return sessionStatusPoller;
   }
+
+  private PendingSessionJournal openPendingSessionJournal(File file) {
+    PendingSessionJournal journal = new PendingSessionJournal(file);
+    try {
+      pendingSessions = readPendingSessions(journal);
+    } catch (RuntimeException e) {
+      journal.close();
+      throw e;
+    }
+    return journal;
+  }
+
+  private static List<SmartIdSessionHandle> readPendingSessions(PendingSessionJournal journal) {
+    List<SmartIdSessionHandle> handles = new ArrayList<>();
+    for (Map.Entry<String, byte[]> session : journal.getPendingSessions().entrySet()) {
+      try {
+        handles.add(SessionHandleCodec.decode(session.getValue()));
+      } catch (IllegalArgumentException e) {
+        logger.warn("Dropping pending session " + session.getKey() + " without a valid session handle: " + e.getMessage());
+        journal.sessionFinished(session.getKey());
+      }
+    }
+    logger.debug("Found " + handles.size() + " pending sessions in the journal");
+    return Collections.unmodifiableList(handles);
+  }
+
+  private static class PollingThreadFactory implements ThreadFactory {
+
+    private static final AtomicInteger clientNumber = new AtomicInteger();
+    private final int clientId = clientNumber.incrementAndGet();
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "smart-id-poller-" + clientId + "-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
 }
@@ -1,12 +1,19 @@
 package ee.sk.smartid;
 
 import ee.sk.smartid.exception.InvalidParametersException;
+import ee.sk.smartid.exception.TechnicalErrorException;
+import ee.sk.smartid.rest.AsyncSmartIdConnector;
 import ee.sk.smartid.rest.SessionStatusPoller;
+import ee.sk.smartid.rest.SessionStatusPollingEngine;
 import ee.sk.smartid.rest.SmartIdConnector;
+import ee.sk.smartid.rest.SmartIdFuture;
 import ee.sk.smartid.rest.dao.NationalIdentity;
+import ee.sk.smartid.rest.dao.SessionStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.ws.rs.client.InvocationCallback;
+
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
@@ -15,6 +22,7 @@ public abstract class SmartIdRequestBuilder {
   private static final Logger logger = LoggerFactory.getLogger(SmartIdRequestBuilder.class);
   private SmartIdConnector connector;
   private SessionStatusPoller sessionStatusPoller;
+  private SessionStatusPollingEngine sessionStatusPollingEngine;
   private String relyingPartyUUID;
   private String relyingPartyName;
   private String countryCode;
@@ -32,6 +40,12 @@ public abstract class SmartIdRequestBuilder {
     this.sessionStatusPoller = sessionStatusPoller;
   }
 
+  protected SmartIdRequestBuilder(SmartIdConnector connector, SessionStatusPollingEngine sessionStatusPollingEngine) {
+    this.connector = connector;
+    this.sessionStatusPoller = sessionStatusPollingEngine.getSessionStatusPoller();
+    this.sessionStatusPollingEngine = sessionStatusPollingEngine;
+  }
+
   protected SmartIdRequestBuilder withRelyingPartyUUID(String relyingPartyUUID) {
     this.relyingPartyUUID = relyingPartyUUID;
     return this;
@@ -135,6 +149,45 @@ public abstract class SmartIdRequestBuilder {
     return dataToSign.calculateHashInBase64();
   }
 
+  protected String getVerificationCode() {
+    if (hashToSign != null) {
+      return hashToSign.calculateVerificationCode();
+    }
+    return dataToSign.calculateVerificationCode();
+  }
+
+  protected SmartIdSessionHandle createSessionHandle(String sessionId, SessionType sessionType) {
+    SmartIdSessionHandle handle = new SmartIdSessionHandle();
+    handle.setSessionType(sessionType);
+    handle.setSessionId(sessionId);
+    handle.setRequestedCertificateLevel(certificateLevel);
+    if (sessionType != SessionType.CERTIFICATE_CHOICE) {
+      handle.setHashType(getHashType());
+      handle.setHashInBase64(getHashInBase64());
+      handle.setVerificationCode(getVerificationCode());
+    }
+    return handle;
+  }
+
+  /**
+   * Checks that the handle has a session ID and is of a session of the given type
+   * <p>
+   * Handles without a session type are accepted, as the type was not kept in
+   * the handles of the earlier versions.
+   *
+   * @throws InvalidParametersException when the handle or its session ID is missing
+   * @throws IllegalArgumentException when the handle is of a session of another type
+   */
+  protected void validateSessionHandle(SmartIdSessionHandle handle, SessionType sessionType) {
+    if (handle == null || isBlank(handle.getSessionId())) {
+      logger.error("Session handle with session ID must be set");
+      throw new InvalidParametersException("Session handle with session ID must be set");
+    }
+    if (handle.getSessionType() != null && handle.getSessionType() != sessionType) {
+      throw new IllegalArgumentException("Handle of a " + handle.getSessionType() + " session can't be used for " + sessionType);
+    }
+  }
+
   protected SmartIdConnector getConnector() {
     return connector;
   }
@@ -143,6 +196,22 @@ public abstract class SmartIdRequestBuilder {
     return sessionStatusPoller;
   }
 
+  protected SessionStatusPollingEngine getSessionStatusPollingEngine() {
+    if (sessionStatusPollingEngine == null) {
+      logger.error("Session status polling engine must be set for asynchronous requests");
+      throw new IllegalStateException("Session status polling engine must be set for asynchronous requests");
+    }
+    return sessionStatusPollingEngine;
+  }
+
+  protected boolean isAsyncConnector() {
+    return connector instanceof AsyncSmartIdConnector;
+  }
+
+  protected AsyncSmartIdConnector getAsyncConnector() {
+    return (AsyncSmartIdConnector) connector;
+  }
+
   protected String getRelyingPartyUUID() {
     return relyingPartyUUID;
   }
@@ -166,4 +235,113 @@ public abstract class SmartIdRequestBuilder {
   protected String getDisplayText() {
     return displayText;
   }
+
+  /**
+   * Runs an asynchronous operation: initiates its session, polls the final
+   * session status and maps it to the result of the operation.
+   * The session is initiated on the calling thread when the connector is
+   * not an {@link AsyncSmartIdConnector}. The session is journaled while it
+   * is being polled when the polling engine has a
+   * {@link ee.sk.smartid.rest.PendingSessionJournal}.
+   *
+   * @param <Q> type of the initiation request
+   * @param <R> type of the initiation response
+   * @param <T> type of the result of the operation
+   */
+  protected abstract class AsyncSession<Q, R, T> implements InvocationCallback<R> {
+
+    private final SmartIdFuture<T> result = new SmartIdFuture<>();
+    private final SessionStatusPollingEngine pollingEngine = getSessionStatusPollingEngine();
+    private final SessionType sessionType;
+
+    protected AsyncSession(SessionType sessionType) {
+      this.sessionType = sessionType;
+    }
+
+    protected abstract R initiate(Q request);
+
+    protected abstract SmartIdFuture<R> initiateAsync(AsyncSmartIdConnector connector, Q request);
+
+    protected abstract String getSessionId(R initiationResponse);
+
+    protected abstract T createResult(SessionStatus sessionStatus, SmartIdSessionHandle handle);
+
+    public SmartIdFuture<T> start(Q request) {
+      if (isAsyncConnector()) {
+        initiateAsync(getAsyncConnector(), request).whenComplete(this);
+        return result;
+      }
+      try {
+        completed(initiate(request));
+      } catch (RuntimeException e) {
+        failed(e);
+      }
+      return result;
+    }
+
+    public SmartIdFuture<T> resume(SmartIdSessionHandle handle) {
+      try {
+        pollFinalSessionStatus(handle);
+      } catch (RuntimeException e) {
+        result.completeExceptionally(e);
+      }
+      return result;
+    }
+
+    /**
+     * Runs as a callback of the initiation future, which only logs the exceptions
+     * of its callbacks, so every failure has to complete the result instead.
+     */
+    @Override
+    public void completed(R initiationResponse) {
+      if (result.isDone()) {
+        return;
+      }
+      try {
+        String sessionId = getSessionId(initiationResponse);
+        if (isBlank(sessionId)) {
+          logger.error("Session ID was not present in the session initiation response");
+          throw new TechnicalErrorException("Session ID was not present in the session initiation response");
+        }
+        pollFinalSessionStatus(createSessionHandle(sessionId, sessionType));
+      } catch (RuntimeException e) {
+        result.completeExceptionally(e);
+      }
+    }
+
+    @Override
+    public void failed(Throwable throwable) {
+      result.completeExceptionally(throwable);
+    }
+
+    private void pollFinalSessionStatus(final SmartIdSessionHandle handle) {
+      byte[] journalData = pollingEngine.getPendingSessionJournal() == null ? null : SessionHandleCodec.encode(handle);
+      final SmartIdFuture<SessionStatus> sessionStatus = pollingEngine.fetchFinalSessionStatus(handle.getSessionId(), journalData);
+      result.whenComplete(new InvocationCallback<T>() {
+        @Override
+        public void completed(T response) {
+        }
+
+        @Override
+        public void failed(Throwable throwable) {
+          sessionStatus.cancel(false);
+        }
+      });
+      sessionStatus.whenComplete(new InvocationCallback<SessionStatus>() {
+        @Override
+        public void completed(SessionStatus status) {
+          try {
+            result.complete(createResult(status, handle));
+          } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+          }
+        }
+
+        @Override
+        public void failed(Throwable throwable) {
+          result.completeExceptionally(throwable);
+        }
+      });
+    }
+  }
 }
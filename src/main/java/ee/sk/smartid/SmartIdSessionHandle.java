@@ -0,0 +1,84 @@
+package ee.sk.smartid;
+
+import java.io.Serializable;
+
+/**
+ * Started Smart-ID session that can be finished later, possibly on another node
+ * <p>
+ * Returned by the {@code start()} methods of the request builders and passed
+ * back to their {@code await(SmartIdSessionHandle)} or {@code poll(SmartIdSessionHandle)}
+ * methods. Holds everything needed to finish the session, so it can be
+ * kept in the HTTP session or any other shared storage.
+ * <p>
+ * The verification code should be displayed to the user right away.
+ * Certificate choice sessions don't have a hash nor a verification code.
+ */
+public class SmartIdSessionHandle implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+  private SessionType sessionType;
+  private String sessionId;
+  private String hashInBase64;
+  private HashType hashType;
+  private String requestedCertificateLevel;
+  private String verificationCode;
+
+  public SessionType getSessionType() {
+    return sessionType;
+  }
+
+  public void setSessionType(SessionType sessionType) {
+    this.sessionType = sessionType;
+  }
+
+  public String getSessionId() {
+    return sessionId;
+  }
+
+  public void setSessionId(String sessionId) {
+    this.sessionId = sessionId;
+  }
+
+  public String getHashInBase64() {
+    return hashInBase64;
+  }
+
+  public void setHashInBase64(String hashInBase64) {
+    this.hashInBase64 = hashInBase64;
+  }
+
+  public HashType getHashType() {
+    return hashType;
+  }
+
+  public void setHashType(HashType hashType) {
+    this.hashType = hashType;
+  }
+
+  public String getRequestedCertificateLevel() {
+    return requestedCertificateLevel;
+  }
+
+  public void setRequestedCertificateLevel(String requestedCertificateLevel) {
+    this.requestedCertificateLevel = requestedCertificateLevel;
+  }
+
+  public String getVerificationCode() {
+    return verificationCode;
+  }
+
+  public void setVerificationCode(String verificationCode) {
+    this.verificationCode = verificationCode;
+  }
+
+  @Override
+  public String toString() {
+    return "SmartIdSessionHandle{" +
+        "sessionType=" + sessionType +
+        ", sessionId='" + sessionId + '\'' +
+        ", hashType=" + hashType +
+        ", requestedCertificateLevel='" + requestedCertificateLevel + '\'' +
+        ", verificationCode='" + verificationCode + '\'' +
+        '}';
+  }
+}
@@ -0,0 +1,137 @@
+package ee.sk.smartid;
+
+import org.apache.commons.codec.binary.Hex;
+
+import javax.security.auth.x500.X500Principal;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable set of trusted CA certificates indexed for finding the issuer of a certificate
+ * <p>
+ * The CA certificates are indexed by their subject and Subject Key Identifier.
+ * The issuer of a certificate is looked up by its Authority Key Identifier,
+ * or by its issuer name when it has no Authority Key Identifier, so usually
+ * only one signature verification is needed to tell if the certificate is trusted.
+ */
+final class TrustedCACertificateIndex {
+
+  private static final String SUBJECT_KEY_IDENTIFIER_OID = "2.5.29.14";
+  private static final String AUTHORITY_KEY_IDENTIFIER_OID = "2.5.29.35";
+  private static final int OCTET_STRING_TAG = 0x04;
+  private static final int SEQUENCE_TAG = 0x30;
+  private static final int KEY_IDENTIFIER_TAG = 0x80;
+  private static final TrustedCACertificateIndex EMPTY = new TrustedCACertificateIndex(Collections.<X509Certificate>emptyList());
+
+  private final List<X509Certificate> certificates;
+  private final Map<X500Principal, List<X509Certificate>> certificatesBySubject = new HashMap<>();
+  private final Map<String, List<X509Certificate>> certificatesByKeyIdentifier = new HashMap<>();
+
+  TrustedCACertificateIndex(List<X509Certificate> certificates) {
+    this.certificates = Collections.unmodifiableList(new ArrayList<>(certificates));
+    for (X509Certificate certificate : this.certificates) {
+      addToIndex(certificatesBySubject, certificate.getSubjectX500Principal(), certificate);
+      byte[] keyIdentifier = getSubjectKeyIdentifier(certificate);
+      if (keyIdentifier != null) {
+        addToIndex(certificatesByKeyIdentifier, Hex.encodeHexString(keyIdentifier), certificate);
+      }
+    }
+  }
+
+  static TrustedCACertificateIndex empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Creates a new index with the certificate added
+   *
+   * @param certificate trusted CA certificate
+   * @return new index
+   */
+  TrustedCACertificateIndex with(X509Certificate certificate) {
+    List<X509Certificate> extendedCertificates = new ArrayList<>(certificates.size() + 1);
+    extendedCertificates.addAll(certificates);
+    extendedCertificates.add(certificate);
+    return new TrustedCACertificateIndex(extendedCertificates);
+  }
+
+  List<X509Certificate> getCertificates() {
+    return certificates;
+  }
+
+  /**
+   * Finds the trusted CA certificates that may have issued the certificate
+   *
+   * @param certificate certificate to find the issuer of
+   * @return candidate issuers, usually one, or an empty list when none of the trusted CAs can be the issuer
+   */
+  List<X509Certificate> findIssuers(X509Certificate certificate) {
+    byte[] authorityKeyIdentifier = getAuthorityKeyIdentifier(certificate);
+    if (authorityKeyIdentifier != null) {
+      List<X509Certificate> issuers = certificatesByKeyIdentifier.get(Hex.encodeHexString(authorityKeyIdentifier));
+      if (issuers != null) {
+        return issuers;
+      }
+    }
+    List<X509Certificate> issuers = certificatesBySubject.get(certificate.getIssuerX500Principal());
+    return issuers == null ? Collections.<X509Certificate>emptyList() : issuers;
+  }
+
+  static byte[] getSubjectKeyIdentifier(X509Certificate certificate) {
+    byte[] extensionValue = certificate.getExtensionValue(SUBJECT_KEY_IDENTIFIER_OID);
+    if (extensionValue == null) {
+      return null;
+    }
+    return readContents(readContents(extensionValue, OCTET_STRING_TAG), OCTET_STRING_TAG);
+  }
+
+  static byte[] getAuthorityKeyIdentifier(X509Certificate certificate) {
+    byte[] extensionValue = certificate.getExtensionValue(AUTHORITY_KEY_IDENTIFIER_OID);
+    if (extensionValue == null) {
+      return null;
+    }
+    byte[] authorityKeyIdentifier = readContents(readContents(extensionValue, OCTET_STRING_TAG), SEQUENCE_TAG);
+    return readContents(authorityKeyIdentifier, KEY_IDENTIFIER_TAG);
+  }
+
+  /**
+   * Reads the contents of the DER encoded value that starts the array
+   *
+   * @return contents of the value or null when it doesn't have the expected tag or is malformed
+   */
+  private static byte[] readContents(byte[] der, int expectedTag) {
+    if (der == null || der.length < 2 || (der[0] & 0xff) != expectedTag) {
+      return null;
+    }
+    int length = der[1] & 0xff;
+    int offset = 2;
+    if (length > 0x7f) {
+      int lengthBytes = length & 0x7f;
+      if (lengthBytes > 3 || der.length < offset + lengthBytes) {
+        return null;
+      }
+      length = 0;
+      for (int i = 0; i < lengthBytes; i++) {
+        length = (length << 8) | (der[offset++] & 0xff);
+      }
+    }
+    if (der.length < offset + length) {
+      return null;
+    }
+    return Arrays.copyOfRange(der, offset, offset + length);
+  }
+
+  private static <K> void addToIndex(Map<K, List<X509Certificate>> index, K key, X509Certificate certificate) {
+    List<X509Certificate> certificates = index.get(key);
+    if (certificates == null) {
+      certificates = new ArrayList<>(1);
+      index.put(key, certificates);
+    }
+    certificates.add(certificate);
+  }
+}
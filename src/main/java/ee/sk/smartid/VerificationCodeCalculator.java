@@ -1,11 +1,31 @@
 package ee.sk.smartid;
 
-import java.nio.ByteBuffer;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Calculates the verification codes of hashes
+ * <p>
+ * Besides returning the code as a {@link String}, the code can be written to
+ * a {@code char[]} or {@link StringBuilder} without allocating anything, e.g.
+ * when rendering many codes.
+ */
 public class VerificationCodeCalculator {
 
+  /**
+   * Number of characters in a verification code
+   */
+  public static final int CODE_LENGTH = 4;
+
+  private static final int SHA256_LENGTH = 32;
+
+  private static final ThreadLocal<byte[]> sha256Digests = new ThreadLocal<byte[]>() {
+    @Override
+    protected byte[] initialValue() {
+      return new byte[SHA256_LENGTH];
+    }
+  };
+
   /**
    * The Verification Code (VC) is computed as:
    * <p>
@@ -20,14 +40,94 @@ public class VerificationCodeCalculator {
    * @return verification code.
    */
   public static String calculate(byte[] documentHash) {
-    byte[] digest = DigestCalculator.calculateDigest(documentHash, HashType.SHA256);
-    ByteBuffer byteBuffer = ByteBuffer.wrap(digest);
-    int shortBytes = Short.SIZE / Byte.SIZE; // Short.BYTES in java 8
-    int rightMostBytesIndex = byteBuffer.limit() - shortBytes;
-    short twoRightmostBytes = byteBuffer.getShort(rightMostBytesIndex);
-    int positiveInteger = ((int) twoRightmostBytes) & 0xffff;
-    String code = String.valueOf(positiveInteger);
-    String paddedCode = "0000" + code;
-    return paddedCode.substring(code.length());
+    char[] code = new char[CODE_LENGTH];
+    calculate(documentHash, code, 0);
+    return new String(code);
+  }
+
+  /**
+   * Calculates the verification code and writes it to the array
+   *
+   * @param documentHash hash used to calculate verification code.
+   * @param destination array the {@value #CODE_LENGTH} characters of the code are written to
+   * @param offset index in the array of the first character of the code
+   */
+  public static void calculate(byte[] documentHash, char[] destination, int offset) {
+    writeCode(calculateCode(documentHash), destination, offset);
+  }
+
+  /**
+   * Calculates the verification code and appends it to the builder
+   *
+   * @param documentHash hash used to calculate verification code.
+   * @param destination builder the code is appended to
+   */
+  public static void calculate(byte[] documentHash, StringBuilder destination) {
+    appendCode(calculateCode(documentHash), destination);
+  }
+
+  /**
+   * Calculates the verification codes of many hashes
+   *
+   * @param documentHashes hashes used to calculate verification codes.
+   * @return verification codes in the order of the hashes
+   */
+  public static List<String> calculate(List<byte[]> documentHashes) {
+    List<String> codes = new ArrayList<>(documentHashes.size());
+    char[] code = new char[CODE_LENGTH];
+    for (byte[] documentHash : documentHashes) {
+      calculate(documentHash, code, 0);
+      codes.add(new String(code));
+    }
+    return codes;
+  }
+
+  /**
+   * Calculates the verification code from the SHA256 digest of the hash
+   *
+   * @param documentHashDigest SHA256 digest of the hash
+   * @return verification code.
+   */
+  public static String calculateFromDigest(byte[] documentHashDigest) {
+    char[] code = new char[CODE_LENGTH];
+    writeCode(getCode(documentHashDigest), code, 0);
+    return new String(code);
+  }
+
+  /**
+   * Calculates the verification code from the SHA256 digest of the hash and appends it to the builder
+   *
+   * @param documentHashDigest SHA256 digest of the hash
+   * @param destination builder the code is appended to
+   */
+  public static void calculateFromDigest(byte[] documentHashDigest, StringBuilder destination) {
+    appendCode(getCode(documentHashDigest), destination);
+  }
+
+  private static int calculateCode(byte[] documentHash) {
+    byte[] digest = sha256Digests.get();
+    DigestCalculator.calculateDigest(documentHash, HashType.SHA256, digest);
+    return getCode(digest);
+  }
+
+  private static int getCode(byte[] digest) {
+    if (digest.length != SHA256_LENGTH) {
+      throw new IllegalArgumentException("SHA256 digest must be " + SHA256_LENGTH + " bytes long");
+    }
+    int twoRightmostBytes = ((digest[SHA256_LENGTH - 2] & 0xff) << 8) | (digest[SHA256_LENGTH - 1] & 0xff);
+    return twoRightmostBytes % 10000;
+  }
+
+  private static void writeCode(int code, char[] destination, int offset) {
+    for (int i = offset + CODE_LENGTH - 1; i >= offset; i--) {
+      destination[i] = (char) ('0' + code % 10);
+      code /= 10;
+    }
+  }
+
+  private static void appendCode(int code, StringBuilder destination) {
+    for (int divisor = 1000; divisor > 0; divisor /= 10) {
+      destination.append((char) ('0' + code / divisor % 10));
+    }
   }
 }
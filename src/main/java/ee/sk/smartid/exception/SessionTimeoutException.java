@@ -1,4 +1,11 @@
 package ee.sk.smartid.exception;
 
 public class SessionTimeoutException extends SmartIdException {
+
+  public SessionTimeoutException() {
+  }
+
+  public SessionTimeoutException(String message) {
+    super(message);
+  }
 }
@@ -0,0 +1,165 @@
+package ee.sk.smartid.metrics;
+
+import ee.sk.smartid.exception.SmartIdException;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics kept in memory since the client was created
+ * <p>
+ * E.g. for exposing them through a health check or polling them into a
+ * monitoring system:
+ * <pre class="code"><code class="java">
+ *   InMemorySmartIdMetrics metrics = new InMemorySmartIdMetrics();
+ *   client.setMetrics(metrics);
+ *   ...
+ *   long p99 = metrics.getRequestLatency(SmartIdEndpoint.AUTHENTICATION).getPercentileMillis(99.0);
+ * </code></pre>
+ */
+public class InMemorySmartIdMetrics implements SmartIdMetrics {
+
+  private final Map<SmartIdEndpoint, LatencyTimer> requestLatencies = new EnumMap<>(SmartIdEndpoint.class);
+  private final Map<SmartIdEndpoint, ConcurrentMap<Integer, AtomicLong>> statusCounts = new EnumMap<>(SmartIdEndpoint.class);
+  private final LatencyTimer timeToComplete = new LatencyTimer();
+  private final AtomicLong pollsOfCompletedSessions = new AtomicLong();
+  private final AtomicLong maxPollsPerSession = new AtomicLong();
+  private final ConcurrentMap<String, AtomicLong> endResultCounts = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Class<? extends SmartIdException>, AtomicLong> exceptionCounts = new ConcurrentHashMap<>();
+
+  public InMemorySmartIdMetrics() {
+    for (SmartIdEndpoint endpoint : SmartIdEndpoint.values()) {
+      requestLatencies.put(endpoint, new LatencyTimer());
+      statusCounts.put(endpoint, new ConcurrentHashMap<Integer, AtomicLong>());
+    }
+  }
+
+  @Override
+  public void recordRequest(SmartIdEndpoint endpoint, int httpStatus, long latencyNanos) {
+    requestLatencies.get(endpoint).record(latencyNanos);
+    increment(statusCounts.get(endpoint), httpStatus);
+  }
+
+  @Override
+  public void recordSessionComplete(String endResult, int pollCount, long durationNanos) {
+    timeToComplete.record(durationNanos);
+    pollsOfCompletedSessions.addAndGet(pollCount);
+    long max;
+    while (pollCount > (max = maxPollsPerSession.get()) && !maxPollsPerSession.compareAndSet(max, pollCount)) {
+      // retry until the max is updated or a larger one is recorded
+    }
+    increment(endResultCounts, endResult == null ? "" : endResult);
+  }
+
+  @Override
+  public void recordException(SmartIdException exception) {
+    increment(exceptionCounts, exception.getClass());
+  }
+
+  /**
+   * Gets the latencies of the requests to the endpoint, including the failed ones
+   *
+   * @param endpoint endpoint
+   * @return live latency timer
+   */
+  public LatencyTimer getRequestLatency(SmartIdEndpoint endpoint) {
+    return requestLatencies.get(endpoint);
+  }
+
+  /**
+   * Gets the number of responses of the endpoint by HTTP status
+   *
+   * @param endpoint endpoint
+   * @return counts by status, 0 for requests that got no response
+   */
+  public Map<Integer, Long> getStatusCounts(SmartIdEndpoint endpoint) {
+    return snapshot(statusCounts.get(endpoint));
+  }
+
+  /**
+   * Gets the time the sessions took to complete, counted from their first session status request
+   *
+   * @return live latency timer
+   */
+  public LatencyTimer getTimeToComplete() {
+    return timeToComplete;
+  }
+
+  public long getCompletedSessionCount() {
+    return timeToComplete.getCount();
+  }
+
+  public double getAveragePollsPerSession() {
+    long sessions = timeToComplete.getCount();
+    return sessions == 0 ? 0.0 : (double) pollsOfCompletedSessions.get() / sessions;
+  }
+
+  public long getMaxPollsPerSession() {
+    return maxPollsPerSession.get();
+  }
+
+  /**
+   * Gets the number of completed sessions by end result
+   *
+   * @return counts by end result, e.g. OK, USER_REFUSED, TIMEOUT or DOCUMENT_UNUSABLE
+   */
+  public Map<String, Long> getEndResultCounts() {
+    return snapshot(endResultCounts);
+  }
+
+  public long getEndResultCount(String endResult) {
+    AtomicLong count = endResultCounts.get(endResult);
+    return count == null ? 0L : count.get();
+  }
+
+  /**
+   * Gets the number of errors by the exception they were mapped to
+   *
+   * @return counts by exception class
+   */
+  public Map<Class<? extends SmartIdException>, Long> getExceptionCounts() {
+    return snapshot(exceptionCounts);
+  }
+
+  public long getExceptionCount(Class<? extends SmartIdException> exceptionClass) {
+    AtomicLong count = exceptionCounts.get(exceptionClass);
+    return count == null ? 0L : count.get();
+  }
+
+  private static <K> void increment(ConcurrentMap<K, AtomicLong> counts, K key) {
+    AtomicLong count = counts.get(key);
+    if (count == null) {
+      AtomicLong newCount = new AtomicLong();
+      count = counts.putIfAbsent(key, newCount);
+      if (count == null) {
+        count = newCount;
+      }
+    }
+    count.incrementAndGet();
+  }
+
+  private static <K> Map<K, Long> snapshot(Map<K, AtomicLong> counts) {
+    Map<K, Long> snapshot = new HashMap<>();
+    for (Map.Entry<K, AtomicLong> count : counts.entrySet()) {
+      snapshot.put(count.getKey(), count.getValue().get());
+    }
+    return Collections.unmodifiableMap(snapshot);
+  }
+
+  @Override
+  public String toString() {
+    return "InMemorySmartIdMetrics{" +
+        "requestLatencies=" + requestLatencies +
+        ", statusCounts=" + statusCounts +
+        ", timeToComplete=" + timeToComplete +
+        ", averagePollsPerSession=" + getAveragePollsPerSession() +
+        ", endResultCounts=" + endResultCounts +
+        ", exceptionCounts=" + exceptionCounts +
+        "}";
+  }
+}
@@ -0,0 +1,111 @@
+package ee.sk.smartid.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe counter of latencies in fixed buckets
+ * <p>
+ * The buckets have upper bounds from 5 ms to 5 minutes, roughly doubling,
+ * plus one for anything longer. Percentiles are reported as the upper bound
+ * of the bucket they fall into, which is precise enough for alerting on
+ * latency regressions.
+ */
+public class LatencyTimer {
+
+  private static final long[] BUCKET_BOUNDS_MILLIS = {5L, 10L, 25L, 50L, 100L, 250L, 500L, 1000L, 2500L, 5000L, 10000L, 30000L, 60000L, 120000L, 300000L};
+
+  private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_BOUNDS_MILLIS.length + 1);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong totalNanos = new AtomicLong();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  void record(long latencyNanos) {
+    long latency = Math.max(0L, latencyNanos);
+    bucketCounts.incrementAndGet(getBucketIndex(TimeUnit.NANOSECONDS.toMillis(latency)));
+    count.incrementAndGet();
+    totalNanos.addAndGet(latency);
+    long max;
+    while (latency > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, latency)) {
+      // retry until the max is updated or a larger one is recorded
+    }
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public double getAverageMillis() {
+    long latencies = count.get();
+    return latencies == 0 ? 0.0 : totalNanos.get() / 1e6 / latencies;
+  }
+
+  public double getMaxMillis() {
+    return maxNanos.get() / 1e6;
+  }
+
+  /**
+   * Gets the upper bound of the bucket the percentile falls into
+   *
+   * @param percentile percentile from 0 to 100
+   * @return latency in milliseconds, {@link Long#MAX_VALUE} when it is above the largest bound or 0 when nothing has been recorded
+   */
+  public long getPercentileMillis(double percentile) {
+    long total = 0L;
+    long[] counts = getBucketCounts();
+    for (long bucketCount : counts) {
+      total += bucketCount;
+    }
+    if (total == 0) {
+      return 0L;
+    }
+    long countAtPercentile = Math.max(1L, (long) Math.ceil(Math.min(Math.max(percentile, 0.0), 100.0) / 100.0 * total));
+    long cumulativeCount = 0L;
+    for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+      cumulativeCount += counts[i];
+      if (cumulativeCount >= countAtPercentile) {
+        return BUCKET_BOUNDS_MILLIS[i];
+      }
+    }
+    return Long.MAX_VALUE;
+  }
+
+  /**
+   * Gets the number of latencies in each bucket
+   *
+   * @return counts in the order of {@link #getBucketBoundsMillis()}, followed by the count above the largest bound
+   */
+  public long[] getBucketCounts() {
+    long[] counts = new long[bucketCounts.length()];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = bucketCounts.get(i);
+    }
+    return counts;
+  }
+
+  /**
+   * Gets the inclusive upper bounds of the buckets
+   *
+   * @return bounds in milliseconds
+   */
+  public static long[] getBucketBoundsMillis() {
+    return BUCKET_BOUNDS_MILLIS.clone();
+  }
+
+  private static int getBucketIndex(long latencyMillis) {
+    int index = Arrays.binarySearch(BUCKET_BOUNDS_MILLIS, latencyMillis);
+    return index >= 0 ? index : -index - 1;
+  }
+
+  @Override
+  public String toString() {
+    return "LatencyTimer{" +
+        "count=" + getCount() +
+        ", averageMillis=" + getAverageMillis() +
+        ", p99Millis=" + getPercentileMillis(99.0) +
+        ", maxMillis=" + getMaxMillis() +
+        "}";
+  }
+}
@@ -0,0 +1,21 @@
+package ee.sk.smartid.metrics;
+
+import ee.sk.smartid.exception.SmartIdException;
+
+/**
+ * Metrics that ignore all the measurements, used by default
+ */
+public class NoOpSmartIdMetrics implements SmartIdMetrics {
+
+  @Override
+  public void recordRequest(SmartIdEndpoint endpoint, int httpStatus, long latencyNanos) {
+  }
+
+  @Override
+  public void recordSessionComplete(String endResult, int pollCount, long durationNanos) {
+  }
+
+  @Override
+  public void recordException(SmartIdException exception) {
+  }
+}
@@ -0,0 +1,12 @@
+package ee.sk.smartid.metrics;
+
+/**
+ * Endpoint of the Smart-ID relying party API a request was sent to
+ */
+public enum SmartIdEndpoint {
+
+  CERTIFICATE_CHOICE,
+  AUTHENTICATION,
+  SIGNATURE,
+  SESSION_STATUS
+}
@@ -0,0 +1,53 @@
+package ee.sk.smartid.metrics;
+
+import ee.sk.smartid.exception.SmartIdException;
+
+/**
+ * Receives measurements of the requests and sessions of the client
+ * <p>
+ * Implement it to bridge the measurements to a monitoring system, or use
+ * {@link InMemorySmartIdMetrics}. Extending {@link NoOpSmartIdMetrics}
+ * allows implementing only the measurements of interest.
+ * <pre class="code"><code class="java">
+ *   client.setMetrics(new NoOpSmartIdMetrics() {
+ *     &#64;Override
+ *     public void recordRequest(SmartIdEndpoint endpoint, int httpStatus, long latencyNanos) {
+ *       registry.timer("smartid.requests", "endpoint", endpoint.name(), "status", String.valueOf(httpStatus))
+ *           .record(latencyNanos, TimeUnit.NANOSECONDS);
+ *     }
+ *   });
+ * </code></pre>
+ * The methods are called by the threads sending the requests and polling the
+ * sessions, so they must be thread-safe and return quickly.
+ *
+ * @see ee.sk.smartid.SmartIdClient#setMetrics(SmartIdMetrics)
+ */
+public interface SmartIdMetrics {
+
+  /**
+   * Records a request to the Smart-ID service
+   * <p>
+   * Successful requests are recorded with status 200.
+   *
+   * @param endpoint endpoint the request was sent to
+   * @param httpStatus HTTP status of the response, or 0 when no response was received
+   * @param latencyNanos time from sending the request until the response was received or the request failed
+   */
+  void recordRequest(SmartIdEndpoint endpoint, int httpStatus, long latencyNanos);
+
+  /**
+   * Records a session that has reached the COMPLETE state
+   *
+   * @param endResult end result of the session, e.g. OK or USER_REFUSED, or null when missing
+   * @param pollCount number of session status requests made for the session
+   * @param durationNanos time from the first session status request until the session was seen complete
+   */
+  void recordSessionComplete(String endResult, int pollCount, long durationNanos);
+
+  /**
+   * Records an error response or end result mapped to an exception
+   *
+   * @param exception exception thrown to the caller
+   */
+  void recordException(SmartIdException exception);
+}
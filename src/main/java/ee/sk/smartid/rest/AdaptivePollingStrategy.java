@@ -0,0 +1,60 @@
+package ee.sk.smartid.rest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls again right away after a long poll and backs off exponentially otherwise
+ * <p>
+ * A long poll ({@link SessionStatusPoller#setResponseSocketOpenTime}) has
+ * already waited for the result server-side, so sleeping after it only
+ * delays noticing the user's confirmation. Without long polling the delay
+ * starts from the initial delay and is multiplied after every poll until it
+ * reaches the maximum delay.
+ */
+public class AdaptivePollingStrategy implements PollingStrategy {
+
+  private final long initialDelayMillis;
+  private final long maxDelayMillis;
+  private final double multiplier;
+
+  /**
+   * Constructs a strategy that starts from 250 ms and doubles the delay up to 2 seconds
+   */
+  public AdaptivePollingStrategy() {
+    this(TimeUnit.MILLISECONDS, 250L, 2000L, 2.0);
+  }
+
+  /**
+   * Constructs a new {@code AdaptivePollingStrategy}
+   *
+   * @param unit time unit of the delays
+   * @param initialDelay delay after the first poll
+   * @param maxDelay upper bound of the delay
+   * @param multiplier factor the delay is multiplied with after every poll
+   */
+  public AdaptivePollingStrategy(TimeUnit unit, long initialDelay, long maxDelay, double multiplier) {
+    if (initialDelay < 0 || maxDelay < initialDelay) {
+      throw new IllegalArgumentException("Delays must be non-negative and the maximum delay can't be less than the initial delay");
+    }
+    if (multiplier < 1.0) {
+      throw new IllegalArgumentException("Multiplier can't be less than 1");
+    }
+    this.initialDelayMillis = unit.toMillis(initialDelay);
+    this.maxDelayMillis = unit.toMillis(maxDelay);
+    this.multiplier = multiplier;
+  }
+
+  @Override
+  public long getNextPollDelayMillis(int pollCount, boolean longPolling) {
+    if (longPolling) {
+      return 0L;
+    }
+    double delay = initialDelayMillis * Math.pow(multiplier, Math.max(0, pollCount - 1));
+    return delay >= maxDelayMillis ? maxDelayMillis : (long) delay;
+  }
+
+  @Override
+  public String toString() {
+    return "AdaptivePollingStrategy{initialDelayMillis=" + initialDelayMillis + ", maxDelayMillis=" + maxDelayMillis + ", multiplier=" + multiplier + "}";
+  }
+}
@@ -0,0 +1,28 @@
+package ee.sk.smartid.rest;
+
+import ee.sk.smartid.rest.dao.*;
+
+import java.io.Serializable;
+
+/**
+ * Non-blocking counterpart of the {@link SmartIdConnector}
+ * <p>
+ * The requests are sent without blocking the calling thread. The returned
+ * futures are completed with the response or fail with the same exceptions
+ * the {@link SmartIdConnector} methods would throw.
+ */
+public interface AsyncSmartIdConnector extends Serializable {
+
+  SmartIdFuture<SessionStatus> getSessionStatusAsync(SessionStatusRequest request);
+
+  SmartIdFuture<CertificateChoiceResponse> getCertificateAsync(NationalIdentity identity, CertificateRequest request);
+
+  SmartIdFuture<CertificateChoiceResponse> getCertificateAsync(String documentNumber, CertificateRequest request);
+
+  SmartIdFuture<SignatureSessionResponse> signAsync(String documentNumber, SignatureSessionRequest request);
+
+  SmartIdFuture<AuthenticationSessionResponse> authenticateAsync(String documentNumber, AuthenticationSessionRequest request);
+
+  SmartIdFuture<AuthenticationSessionResponse> authenticateAsync(NationalIdentity identity, AuthenticationSessionRequest request);
+
+}
@@ -0,0 +1,92 @@
+package ee.sk.smartid.rest;
+
+import org.glassfish.jersey.uri.UriComponent;
+
+import javax.ws.rs.core.UriBuilder;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * URI template of a Smart-ID endpoint parsed once
+ * <p>
+ * Gives the same URIs as {@link UriBuilder#build(Object...)} from the
+ * endpoint URL and the path template, but the endpoint URL and the template
+ * are not parsed again for every request: the parameter values are
+ * percent-encoded as path segments and concatenated with the literal parts
+ * of the template. Like {@code build(Object...)}, which encodes slashes in
+ * path values, a '/' in a value is encoded as {@code %2F}, so a value never
+ * adds path segments. Instances are immutable and thread-safe.
+ */
+final class EndpointTemplate {
+
+  private final String[] literals;
+  private final String fragment;
+  private final boolean hasQuery;
+
+  EndpointTemplate(String endpointUrl, String pathTemplate) {
+    String template = UriBuilder.fromUri(endpointUrl).path(pathTemplate).toTemplate();
+    int fragmentStart = template.indexOf('#');
+    this.fragment = fragmentStart < 0 ? "" : template.substring(fragmentStart);
+    template = fragmentStart < 0 ? template : template.substring(0, fragmentStart);
+    this.hasQuery = template.indexOf('?') >= 0;
+    this.literals = splitLiterals(template);
+  }
+
+  /**
+   * Builds the URI of the endpoint
+   *
+   * @param values values of the template parameters in the order they appear in the template
+   * @return URI of the endpoint
+   */
+  URI build(String... values) {
+    return URI.create(expand(values).append(fragment).toString());
+  }
+
+  /**
+   * Builds the URI of the endpoint with a query parameter
+   *
+   * @param queryParamName name of the query parameter
+   * @param queryParamValue value of the query parameter
+   * @param values values of the template parameters in the order they appear in the template
+   * @return URI of the endpoint
+   */
+  URI buildWithQueryParam(String queryParamName, String queryParamValue, String... values) {
+    StringBuilder uri = expand(values)
+        .append(hasQuery ? '&' : '?')
+        .append(UriComponent.encode(queryParamName, UriComponent.Type.QUERY_PARAM))
+        .append('=')
+        .append(UriComponent.encode(queryParamValue, UriComponent.Type.QUERY_PARAM));
+    return URI.create(uri.append(fragment).toString());
+  }
+
+  private StringBuilder expand(String... values) {
+    if (values.length != literals.length - 1) {
+      throw new IllegalArgumentException("Expected " + (literals.length - 1) + " template values but got " + values.length);
+    }
+    StringBuilder uri = new StringBuilder(128).append(literals[0]);
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] == null) {
+        throw new IllegalArgumentException("Template value " + i + " is null");
+      }
+      uri.append(UriComponent.encode(values[i], UriComponent.Type.PATH_SEGMENT)).append(literals[i + 1]);
+    }
+    return uri;
+  }
+
+  private static String[] splitLiterals(String template) {
+    List<String> literals = new ArrayList<>();
+    int literalStart = 0;
+    int paramStart;
+    while ((paramStart = template.indexOf('{', literalStart)) >= 0) {
+      int paramEnd = template.indexOf('}', paramStart);
+      if (paramEnd < 0) {
+        throw new IllegalArgumentException("Unterminated template parameter in " + template);
+      }
+      literals.add(template.substring(literalStart, paramStart));
+      literalStart = paramEnd + 1;
+    }
+    literals.add(template.substring(literalStart));
+    return literals.toArray(new String[literals.size()]);
+  }
+}
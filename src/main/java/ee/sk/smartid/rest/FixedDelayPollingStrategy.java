@@ -0,0 +1,25 @@
+package ee.sk.smartid.rest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits the same time before every session status poll
+ */
+public class FixedDelayPollingStrategy implements PollingStrategy {
+
+  private final long delayMillis;
+
+  public FixedDelayPollingStrategy(TimeUnit unit, long delay) {
+    this.delayMillis = unit.toMillis(delay);
+  }
+
+  @Override
+  public long getNextPollDelayMillis(int pollCount, boolean longPolling) {
+    return delayMillis;
+  }
+
+  @Override
+  public String toString() {
+    return "FixedDelayPollingStrategy{delayMillis=" + delayMillis + "}";
+  }
+}
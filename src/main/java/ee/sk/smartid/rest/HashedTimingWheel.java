@@ -0,0 +1,327 @@
+package ee.sk.smartid.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Timer for a very large number of short-lived timeouts
+ * <p>
+ * The timeouts are kept in a wheel of buckets, each covering one tick. Adding
+ * and cancelling a timeout is O(1) and the ticker thread only visits the
+ * timeouts of the current bucket, so the cost doesn't grow with the number
+ * of pending timeouts like it does with a {@link java.util.concurrent.DelayQueue}
+ * based scheduler. The price is precision: a timeout expires on the first
+ * tick after its deadline.
+ * <p>
+ * The ticker thread only moves the timeouts around. The expired tasks are run
+ * by the given executor, so they may block without delaying other timeouts.
+ */
+public class HashedTimingWheel implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(HashedTimingWheel.class);
+  private static final AtomicInteger wheelNumber = new AtomicInteger();
+  private final long tickNanos;
+  private final Bucket[] wheel;
+  private final int mask;
+  private final Executor taskExecutor;
+  private final Queue<Timeout> addedTimeouts = new ConcurrentLinkedQueue<>();
+  private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pendingTimeouts = new AtomicInteger();
+  private final Thread ticker;
+  private volatile long startNanos;
+  private volatile boolean started;
+  private volatile boolean closed;
+  private long tick;
+
+  /**
+   * Constructs a timing wheel of 512 ticks of 10 milliseconds
+   *
+   * @param taskExecutor executor running the expired tasks
+   */
+  public HashedTimingWheel(Executor taskExecutor) {
+    this(10L, TimeUnit.MILLISECONDS, 512, taskExecutor);
+  }
+
+  /**
+   * Constructs a new {@code HashedTimingWheel}
+   *
+   * @param tickDuration duration of a single tick, i.e. the precision of the timer
+   * @param unit time unit of the {@code tickDuration}
+   * @param ticksPerWheel number of buckets in the wheel, rounded up to a power of two
+   * @param taskExecutor executor running the expired tasks
+   */
+  public HashedTimingWheel(long tickDuration, TimeUnit unit, int ticksPerWheel, Executor taskExecutor) {
+    if (tickDuration <= 0) {
+      throw new IllegalArgumentException("Tick duration must be positive");
+    }
+    if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+      throw new IllegalArgumentException("Ticks per wheel must be between 1 and 2^30");
+    }
+    this.tickNanos = unit.toNanos(tickDuration);
+    this.wheel = createWheel(ticksPerWheel);
+    this.mask = wheel.length - 1;
+    this.taskExecutor = taskExecutor;
+    this.ticker = new TickerThreadFactory().newThread(new Ticker());
+  }
+
+  /**
+   * Schedules the task to be run after the delay
+   *
+   * @param task task to run
+   * @param delay delay before running the task
+   * @param unit time unit of the {@code delay}
+   * @return handle for cancelling the task
+   * @throws RejectedExecutionException when the timer has been closed
+   */
+  public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+    if (closed) {
+      throw new RejectedExecutionException("Timer has been closed");
+    }
+    startIfNeeded();
+    long deadline = System.nanoTime() - startNanos + unit.toNanos(Math.max(0L, delay));
+    Timeout timeout = new Timeout(this, task, deadline);
+    pendingTimeouts.incrementAndGet();
+    addedTimeouts.add(timeout);
+    return timeout;
+  }
+
+  /**
+   * Gets the number of timeouts that have neither expired nor been cancelled
+   *
+   * @return number of pending timeouts
+   */
+  public int getPendingTimeouts() {
+    return pendingTimeouts.get();
+  }
+
+  /**
+   * Stops the ticker thread
+   * <p>
+   * The pending timeouts are dropped.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    ticker.interrupt();
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  private void startIfNeeded() {
+    if (!started) {
+      synchronized (this) {
+        if (!started) {
+          startNanos = System.nanoTime();
+          ticker.start();
+          started = true;
+        }
+      }
+    }
+  }
+
+  private static Bucket[] createWheel(int ticksPerWheel) {
+    int size = 1;
+    while (size < ticksPerWheel) {
+      size <<= 1;
+    }
+    Bucket[] wheel = new Bucket[size];
+    for (int i = 0; i < size; i++) {
+      wheel[i] = new Bucket();
+    }
+    return wheel;
+  }
+
+  private void transferAddedTimeouts() {
+    Timeout timeout;
+    while ((timeout = addedTimeouts.poll()) != null) {
+      if (timeout.state != Timeout.PENDING) {
+        continue;
+      }
+      long ticksUntilDeadline = (timeout.deadline + tickNanos - 1) / tickNanos;
+      long targetTick = Math.max(ticksUntilDeadline, tick);
+      timeout.remainingRounds = (targetTick - tick) / wheel.length;
+      wheel[(int) (targetTick & mask)].add(timeout);
+    }
+  }
+
+  private void removeCancelledTimeouts() {
+    Timeout timeout;
+    while ((timeout = cancelledTimeouts.poll()) != null) {
+      if (timeout.bucket != null) {
+        timeout.bucket.remove(timeout);
+      }
+    }
+  }
+
+  private void expire(Timeout timeout) {
+    if (!timeout.expire()) {
+      return;
+    }
+    pendingTimeouts.decrementAndGet();
+    try {
+      taskExecutor.execute(timeout.task);
+    } catch (RuntimeException e) {
+      logger.error("Failed to run an expired task: " + e.getMessage(), e);
+    }
+  }
+
+  private class Ticker implements Runnable {
+
+    @Override
+    public void run() {
+      while (!closed) {
+        long tickDeadline = (tick + 1) * tickNanos;
+        long sleepNanos = tickDeadline - (System.nanoTime() - startNanos);
+        if (sleepNanos > 0) {
+          try {
+            TimeUnit.NANOSECONDS.sleep(sleepNanos);
+          } catch (InterruptedException e) {
+            if (closed) {
+              break;
+            }
+          }
+          continue;
+        }
+        removeCancelledTimeouts();
+        transferAddedTimeouts();
+        Bucket bucket = wheel[(int) (tick & mask)];
+        bucket.expireTimeouts();
+        tick++;
+      }
+      logger.debug("Timing wheel ticker stopped");
+    }
+  }
+
+  /**
+   * Handle of a scheduled task
+   */
+  public static final class Timeout {
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+    private final HashedTimingWheel timer;
+    private final Runnable task;
+    private final long deadline;
+    private volatile int state = PENDING;
+    private long remainingRounds;
+    private Timeout next;
+    private Timeout prev;
+    private Bucket bucket;
+
+    private Timeout(HashedTimingWheel timer, Runnable task, long deadline) {
+      this.timer = timer;
+      this.task = task;
+      this.deadline = deadline;
+    }
+
+    /**
+     * Cancels the task if it hasn't been run yet
+     *
+     * @return true if the task was cancelled
+     */
+    public boolean cancel() {
+      synchronized (this) {
+        if (state != PENDING) {
+          return false;
+        }
+        state = CANCELLED;
+      }
+      timer.pendingTimeouts.decrementAndGet();
+      timer.cancelledTimeouts.add(this);
+      return true;
+    }
+
+    public boolean isCancelled() {
+      return state == CANCELLED;
+    }
+
+    public boolean isExpired() {
+      return state == EXPIRED;
+    }
+
+    private synchronized boolean expire() {
+      if (state != PENDING) {
+        return false;
+      }
+      state = EXPIRED;
+      return true;
+    }
+  }
+
+  private static final class Bucket {
+
+    private Timeout head;
+    private Timeout tail;
+
+    void add(Timeout timeout) {
+      timeout.bucket = this;
+      if (head == null) {
+        head = tail = timeout;
+      } else {
+        tail.next = timeout;
+        timeout.prev = tail;
+        tail = timeout;
+      }
+    }
+
+    void expireTimeouts() {
+      Timeout timeout = head;
+      while (timeout != null) {
+        Timeout next = timeout.next;
+        if (timeout.remainingRounds <= 0) {
+          remove(timeout);
+          timeout.timer.expire(timeout);
+        } else if (timeout.isCancelled()) {
+          remove(timeout);
+        } else {
+          timeout.remainingRounds--;
+        }
+        timeout = next;
+      }
+    }
+
+    void remove(Timeout timeout) {
+      if (timeout.bucket != this) {
+        return;
+      }
+      Timeout next = timeout.next;
+      if (timeout.prev != null) {
+        timeout.prev.next = next;
+      }
+      if (next != null) {
+        next.prev = timeout.prev;
+      }
+      if (timeout == head) {
+        head = next;
+      }
+      if (timeout == tail) {
+        tail = timeout.prev;
+      }
+      timeout.prev = null;
+      timeout.next = null;
+      timeout.bucket = null;
+    }
+  }
+
+  private static class TickerThreadFactory implements ThreadFactory {
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "smart-id-timing-wheel-" + wheelNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -15,11 +15,43 @@ import javax.ws.rs.ext.WriterInterceptorContext;
 import java.io.*;
 import java.net.URI;
 import java.nio.charset.Charset;
-
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.regex.Pattern;
+
+/**
+ * Logs the requests and responses of the client
+ * <p>
+ * The URLs and statuses are logged at DEBUG level, the headers and bodies
+ * at TRACE level. At most {@link #DEFAULT_MAX_BODY_LENGTH} bytes of each body
+ * are logged by default, so that enabling TRACE level with large or many
+ * concurrent messages doesn't buffer whole payloads. The values of the
+ * relying party UUID, hashes, signatures and certificates are masked.
+ */
 public class LoggingFilter implements ClientRequestFilter, ClientResponseFilter, WriterInterceptor {
 
+  public static final int DEFAULT_MAX_BODY_LENGTH = 4096;
   private static final Logger logger = LoggerFactory.getLogger(LoggingFilter.class);
   private static final String LOGGING_OUTPUT_STREAM_PROPERTY = "loggingOutputStream";
+  private static final Pattern SENSITIVE_FIELDS = Pattern.compile("(\"(?:relyingPartyUUID|hash|value)\"\\s*:\\s*)\"[^\"]*(\"|$)");
+  private static final int BUFFER_POOL_SIZE = 16;
+  private final int maxBodyLength;
+  private final BlockingQueue<byte[]> bufferPool = new ArrayBlockingQueue<>(BUFFER_POOL_SIZE);
+
+  public LoggingFilter() {
+    this(DEFAULT_MAX_BODY_LENGTH);
+  }
+
+  /**
+   * @param maxBodyLength maximum number of bytes logged of each request and response body
+   */
+  public LoggingFilter(int maxBodyLength) {
+    if (maxBodyLength < 0) {
+      throw new IllegalArgumentException("Maximum body length must not be negative");
+    }
+    this.maxBodyLength = maxBodyLength;
+  }
 
   @Override
   public void filter(ClientRequestContext requestContext) throws IOException {
@@ -67,60 +99,147 @@ public class LoggingFilter implements ClientRequestFilter, ClientResponseFilter,
 
   private void wrapEntityStreamWithLogger(ClientRequestContext requestContext) {
     OutputStream entityStream = requestContext.getEntityStream();
-    LoggingOutputStream loggingOutputStream = new LoggingOutputStream(entityStream);
+    LoggingOutputStream loggingOutputStream = new LoggingOutputStream(entityStream, acquireBuffer(), maxBodyLength);
     requestContext.setEntityStream(loggingOutputStream);
     requestContext.setProperty(LOGGING_OUTPUT_STREAM_PROPERTY, loggingOutputStream);
   }
 
+  /**
+   * Logs the beginning of the response body and puts it back in front of
+   * the rest of the entity stream, which is left for the reader
+   */
   private void logResponseBody(ClientResponseContext responseContext) throws IOException {
     Charset charset = MessageUtils.getCharset(responseContext.getMediaType());
     InputStream entityStream = responseContext.getEntityStream();
-    byte[] bodyBytes = readInputStreamBytes(entityStream);
-    responseContext.setEntityStream(new ByteArrayInputStream(bodyBytes));
-    logger.trace("Response body: " + new String(bodyBytes, charset));
+    byte[] buffer = acquireBuffer();
+    try {
+      int length = readAtMost(entityStream, buffer, maxBodyLength + 1);
+      if (length <= maxBodyLength) {
+        entityStream.close();
+        responseContext.setEntityStream(new ByteArrayInputStream(Arrays.copyOf(buffer, length)));
+        logger.trace("Response body: " + maskSensitiveFields(new String(buffer, 0, length, charset)));
+      } else {
+        InputStream head = new ByteArrayInputStream(Arrays.copyOf(buffer, length));
+        responseContext.setEntityStream(new SequenceInputStream(head, entityStream));
+        logger.trace("Response body: " + maskSensitiveFields(new String(buffer, 0, maxBodyLength, charset))
+            + "... (" + describeLength(responseContext.getLength()) + ", truncated)");
+      }
+    } finally {
+      releaseBuffer(buffer);
+    }
   }
 
-  private byte[] readInputStreamBytes(InputStream entityStream) throws IOException {
-    ByteArrayOutputStream result = new ByteArrayOutputStream();
-    byte[] buffer = new byte[1024];
-    int length;
-    while ((length = entityStream.read(buffer)) != -1) {
-      result.write(buffer, 0, length);
+  private static int readAtMost(InputStream entityStream, byte[] buffer, int maxLength) throws IOException {
+    int length = 0;
+    int count;
+    while (length < maxLength && (count = entityStream.read(buffer, length, maxLength - length)) != -1) {
+      length += count;
     }
-    return result.toByteArray();
+    return length;
   }
 
   private void logRequestBody(WriterInterceptorContext context) {
     LoggingOutputStream loggingOutputStream = (LoggingOutputStream) context.getProperty(LOGGING_OUTPUT_STREAM_PROPERTY);
     if (loggingOutputStream != null) {
       Charset charset = MessageUtils.getCharset(context.getMediaType());
-      byte[] bytes = loggingOutputStream.getBytes();
-      logger.trace("Message body: " + new String(bytes, charset));
+      String body = maskSensitiveFields(new String(loggingOutputStream.buffer, 0, loggingOutputStream.length, charset));
+      if (loggingOutputStream.isTruncated()) {
+        body += "... (" + describeLength(loggingOutputStream.getTotalLength()) + ", truncated)";
+      }
+      releaseBuffer(loggingOutputStream.detachBuffer());
+      logger.trace("Message body: " + body);
     }
   }
 
+  private static String describeLength(long length) {
+    return length < 0 ? "length unknown" : length + " bytes";
+  }
+
+  static String maskSensitiveFields(String body) {
+    return SENSITIVE_FIELDS.matcher(body).replaceAll("$1\"***$2");
+  }
+
+  private byte[] acquireBuffer() {
+    byte[] buffer = bufferPool.poll();
+    return buffer != null ? buffer : new byte[maxBodyLength + 1];
+  }
+
+  private void releaseBuffer(byte[] buffer) {
+    if (buffer != null) {
+      bufferPool.offer(buffer);
+    }
+  }
+
+  /**
+   * Passes the written bytes through and keeps a copy of the first ones
+   */
   public static class LoggingOutputStream extends FilterOutputStream {
 
-    private ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    private byte[] buffer;
+    private final int maxLength;
+    private int length;
+    private long totalLength;
 
     public LoggingOutputStream(OutputStream out) {
+      this(out, new byte[DEFAULT_MAX_BODY_LENGTH], DEFAULT_MAX_BODY_LENGTH);
+    }
+
+    LoggingOutputStream(OutputStream out, byte[] buffer, int maxLength) {
       super(out);
+      this.buffer = buffer;
+      this.maxLength = Math.min(maxLength, buffer.length);
     }
 
     @Override
     public void write(byte[] b) throws IOException {
-      super.write(b);
-      byteArrayOutputStream.write(b);
+      write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      capture(b, off, len);
     }
 
     @Override
     public void write(int b) throws IOException {
-      super.write(b);
-      byteArrayOutputStream.write(b);
+      out.write(b);
+      if (buffer != null && length < maxLength) {
+        buffer[length++] = (byte) b;
+      }
+      totalLength++;
+    }
+
+    private void capture(byte[] b, int off, int len) {
+      if (buffer != null && length < maxLength) {
+        int count = Math.min(len, maxLength - length);
+        System.arraycopy(b, off, buffer, length, count);
+        length += count;
+      }
+      totalLength += len;
     }
 
+    /**
+     * Gets the bytes kept for logging
+     *
+     * @return at most the maximum body length of the first bytes written
+     */
     public byte[] getBytes() {
-      return byteArrayOutputStream.toByteArray();
+      return buffer == null ? new byte[0] : Arrays.copyOf(buffer, length);
+    }
+
+    public long getTotalLength() {
+      return totalLength;
+    }
+
+    public boolean isTruncated() {
+      return totalLength > length;
+    }
+
+    byte[] detachBuffer() {
+      byte[] result = buffer;
+      buffer = null;
+      return result;
     }
   }
 }
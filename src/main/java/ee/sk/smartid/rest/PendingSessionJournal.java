@@ -0,0 +1,347 @@
+package ee.sk.smartid.rest;
+
+import ee.sk.smartid.exception.TechnicalErrorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the sessions that are being polled
+ * <p>
+ * A record is appended to the file when polling of a session starts and
+ * when it ends, so the pending sessions survive a restart of the
+ * application: {@link #getPendingSessions()} of a journal opened from the
+ * same file returns the sessions that didn't finish. Every session can carry
+ * opaque data needed to finish it, e.g. the fields of a
+ * {@link ee.sk.smartid.SmartIdSessionHandle}. The sessions started longer
+ * ago than the session lifetime are finished when the journal is opened,
+ * as there is no point in polling them anymore.
+ * <p>
+ * Writes go to the page cache of the operating system, so they survive a
+ * crash of the application but not necessarily of the whole machine. A
+ * record that was only partially written when the application crashed is
+ * detected by its checksum and ignored on replay. When the file grows past
+ * its size limit, the pending sessions are rewritten to a new file that
+ * replaces the old one. The file is not memory-mapped, so it can be replaced
+ * on every platform once it has been closed.
+ */
+public class PendingSessionJournal implements Closeable {
+
+  /**
+   * Default time after which a journaled session is not resumed anymore,
+   * well past the time the user has to confirm a Smart-ID session
+   */
+  public static final long DEFAULT_SESSION_LIFETIME_MILLIS = TimeUnit.MINUTES.toMillis(10);
+  private static final Logger logger = LoggerFactory.getLogger(PendingSessionJournal.class);
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int MAGIC = 0x534a4e32;
+  private static final int HEADER_SIZE = 4;
+  private static final int RECORD_HEADER_SIZE = 9;
+  private static final byte SESSION_STARTED = 1;
+  private static final byte SESSION_FINISHED = 2;
+  private static final byte[] NO_DATA = new byte[0];
+  private final File file;
+  private final long sessionLifetimeMillis;
+  private final Map<String, PendingSession> pendingSessions = new LinkedHashMap<>();
+  private FileChannel channel;
+  private long sizeLimit;
+  private long writePosition;
+  private boolean closed;
+
+  /**
+   * Opens the journal with a size limit of 1 MB and the default session lifetime
+   *
+   * @param file journal file. It is created when it doesn't exist.
+   * @throws TechnicalErrorException when the file can't be opened or is not a journal
+   */
+  public PendingSessionJournal(File file) {
+    this(file, 1 << 20);
+  }
+
+  /**
+   * Opens the journal with the default session lifetime
+   *
+   * @param file journal file. It is created when it doesn't exist.
+   * @param initialSize size in bytes the file is compacted at first
+   * @throws TechnicalErrorException when the file can't be opened or is not a journal
+   */
+  public PendingSessionJournal(File file, int initialSize) {
+    this(file, initialSize, TimeUnit.MILLISECONDS, DEFAULT_SESSION_LIFETIME_MILLIS);
+  }
+
+  /**
+   * Opens the journal and replays its records
+   *
+   * @param file journal file. It is created when it doesn't exist.
+   * @param initialSize size in bytes the file is compacted at first
+   * @param sessionLifetimeUnit time unit of the {@code sessionLifetime} argument
+   * @param sessionLifetime time after the start of a session it is not replayed anymore
+   * @throws TechnicalErrorException when the file can't be opened or is not a journal
+   */
+  public PendingSessionJournal(File file, int initialSize, TimeUnit sessionLifetimeUnit, long sessionLifetime) {
+    if (initialSize < HEADER_SIZE + RECORD_HEADER_SIZE) {
+      throw new IllegalArgumentException("Journal size must be at least " + (HEADER_SIZE + RECORD_HEADER_SIZE) + " bytes");
+    }
+    if (sessionLifetime <= 0) {
+      throw new IllegalArgumentException("Session lifetime must be positive");
+    }
+    this.file = file;
+    this.sizeLimit = initialSize;
+    this.sessionLifetimeMillis = sessionLifetimeUnit.toMillis(sessionLifetime);
+    try {
+      channel = open();
+      replay();
+    } catch (IOException e) {
+      close();
+      logger.error("Failed to open pending session journal " + file + ": " + e.getMessage());
+      throw new TechnicalErrorException("Failed to open pending session journal " + file + ": " + e.getMessage(), e);
+    }
+    logger.debug("Opened pending session journal " + file + " with " + pendingSessions.size() + " pending sessions");
+  }
+
+  /**
+   * Records that polling of the session has started
+   *
+   * @param sessionId ID of the session
+   * @param data data needed to finish the session or null
+   */
+  public synchronized void sessionStarted(String sessionId, byte[] data) {
+    if (closed) {
+      return;
+    }
+    PendingSession session = new PendingSession(System.currentTimeMillis(), data == null ? NO_DATA : data);
+    append(SESSION_STARTED, sessionId, session);
+    pendingSessions.put(sessionId, session);
+  }
+
+  /**
+   * Records that the session has finished, successfully or not
+   *
+   * @param sessionId ID of the session
+   */
+  public synchronized void sessionFinished(String sessionId) {
+    if (closed || !pendingSessions.containsKey(sessionId)) {
+      return;
+    }
+    append(SESSION_FINISHED, sessionId, null);
+    pendingSessions.remove(sessionId);
+  }
+
+  /**
+   * Gets the sessions that have been started but not finished, in the order they were started
+   *
+   * @return data of the pending sessions by session ID
+   */
+  public synchronized Map<String, byte[]> getPendingSessions() {
+    Map<String, byte[]> sessions = new LinkedHashMap<>();
+    for (Map.Entry<String, PendingSession> session : pendingSessions.entrySet()) {
+      sessions.put(session.getKey(), session.getValue().data);
+    }
+    return sessions;
+  }
+
+  public synchronized int getPendingSessionCount() {
+    return pendingSessions.size();
+  }
+
+  public long getSessionLifetimeMillis() {
+    return sessionLifetimeMillis;
+  }
+
+  /**
+   * Closes the journal file
+   * <p>
+   * The sessions that are still pending are kept in the file.
+   * Later records are ignored.
+   */
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (channel == null) {
+      return;
+    }
+    try {
+      channel.close();
+    } catch (IOException e) {
+      logger.warn("Failed to close pending session journal " + file + ": " + e.getMessage());
+    }
+  }
+
+  private FileChannel open() throws IOException {
+    return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+  }
+
+  private void replay() throws IOException {
+    long size = channel.size();
+    if (size == 0) {
+      writeFully(channel, (ByteBuffer) ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).flip(), 0);
+      writePosition = HEADER_SIZE;
+      return;
+    }
+    if (size < HEADER_SIZE || readFully(HEADER_SIZE, 0).getInt() != MAGIC) {
+      close();
+      logger.error("File " + file + " is not a pending session journal");
+      throw new TechnicalErrorException("File " + file + " is not a pending session journal");
+    }
+    long oldestStartMillis = System.currentTimeMillis() - sessionLifetimeMillis;
+    long position = HEADER_SIZE;
+    Set<String> expiredSessionIds = new LinkedHashSet<>();
+    while (position + RECORD_HEADER_SIZE <= size) {
+      ByteBuffer recordHeader = readFully(RECORD_HEADER_SIZE, position);
+      byte type = recordHeader.get();
+      int length = recordHeader.getInt();
+      if ((type != SESSION_STARTED && type != SESSION_FINISHED) || length < 2 || length > size - position - RECORD_HEADER_SIZE) {
+        break;
+      }
+      ByteBuffer payload = readFully(length, position + RECORD_HEADER_SIZE);
+      if (recordHeader.getInt() != checksum(type, payload)) {
+        break;
+      }
+      replayRecord(type, payload, oldestStartMillis, expiredSessionIds);
+      position += RECORD_HEADER_SIZE + length;
+    }
+    if (position < size) {
+      logger.warn("Ignoring " + (size - position) + " bytes of an incomplete record at the end of pending session journal " + file);
+      channel.truncate(position);
+    }
+    writePosition = position;
+    if (!expiredSessionIds.isEmpty()) {
+      logger.debug("Dropping " + expiredSessionIds.size() + " sessions started more than " + sessionLifetimeMillis + " ms ago from pending session journal " + file);
+      for (String sessionId : expiredSessionIds) {
+        append(SESSION_FINISHED, sessionId, null);
+      }
+    }
+  }
+
+  private void replayRecord(byte type, ByteBuffer payload, long oldestStartMillis, Set<String> expiredSessionIds) {
+    byte[] sessionIdBytes = new byte[payload.getShort() & 0xffff];
+    payload.get(sessionIdBytes);
+    String sessionId = new String(sessionIdBytes, UTF_8);
+    pendingSessions.remove(sessionId);
+    expiredSessionIds.remove(sessionId);
+    if (type == SESSION_FINISHED) {
+      return;
+    }
+    long startedAtMillis = payload.getLong();
+    byte[] data = new byte[payload.remaining()];
+    payload.get(data);
+    if (startedAtMillis < oldestStartMillis) {
+      expiredSessionIds.add(sessionId);
+    } else {
+      pendingSessions.put(sessionId, new PendingSession(startedAtMillis, data));
+    }
+  }
+
+  private void append(byte type, String sessionId, PendingSession session) {
+    ByteBuffer record = createRecord(type, sessionId.getBytes(UTF_8), session);
+    try {
+      if (writePosition + record.remaining() > sizeLimit) {
+        compact(record.remaining());
+      }
+      writeFully(channel, record, writePosition);
+      writePosition += record.limit();
+    } catch (IOException e) {
+      logger.error("Failed to write to pending session journal " + file + ": " + e.getMessage());
+      throw new TechnicalErrorException("Failed to write to pending session journal " + file + ": " + e.getMessage(), e);
+    }
+  }
+
+  private void compact(int requiredSpace) throws IOException {
+    long liveSize = HEADER_SIZE + requiredSpace;
+    for (Map.Entry<String, PendingSession> session : pendingSessions.entrySet()) {
+      liveSize += RECORD_HEADER_SIZE + 2 + session.getKey().getBytes(UTF_8).length + 8 + session.getValue().data.length;
+    }
+    while (liveSize > sizeLimit / 2) {
+      sizeLimit *= 2;
+    }
+    logger.debug("Compacting pending session journal " + file + " with " + pendingSessions.size() + " pending sessions");
+    File compactedFile = new File(file.getPath() + ".tmp");
+    long position = HEADER_SIZE;
+    FileChannel compacted = FileChannel.open(compactedFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    try {
+      writeFully(compacted, (ByteBuffer) ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).flip(), 0);
+      for (Map.Entry<String, PendingSession> session : pendingSessions.entrySet()) {
+        ByteBuffer record = createRecord(SESSION_STARTED, session.getKey().getBytes(UTF_8), session.getValue());
+        writeFully(compacted, record, position);
+        position += record.limit();
+      }
+      compacted.force(true);
+    } finally {
+      compacted.close();
+    }
+    channel.close();
+    try {
+      Files.move(compactedFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      writePosition = position;
+    } finally {
+      channel = open();
+    }
+  }
+
+  private ByteBuffer readFully(int length, long position) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of file");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer, position + buffer.position());
+    }
+  }
+
+  private static ByteBuffer createRecord(byte type, byte[] sessionIdBytes, PendingSession session) {
+    int length = 2 + sessionIdBytes.length + (session == null ? 0 : 8 + session.data.length);
+    ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+    record.position(RECORD_HEADER_SIZE);
+    record.putShort((short) sessionIdBytes.length).put(sessionIdBytes);
+    if (session != null) {
+      record.putLong(session.startedAtMillis).put(session.data);
+    }
+    ByteBuffer payload = ByteBuffer.wrap(record.array(), RECORD_HEADER_SIZE, length);
+    record.put(0, type).putInt(1, length).putInt(5, checksum(type, payload));
+    record.position(0);
+    return record;
+  }
+
+  private static int checksum(byte type, ByteBuffer payload) {
+    CRC32 crc = new CRC32();
+    crc.update(type);
+    crc.update(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+    return (int) crc.getValue();
+  }
+
+  private static final class PendingSession {
+
+    private final long startedAtMillis;
+    private final byte[] data;
+
+    private PendingSession(long startedAtMillis, byte[] data) {
+      this.startedAtMillis = startedAtMillis;
+      this.data = data;
+    }
+  }
+}
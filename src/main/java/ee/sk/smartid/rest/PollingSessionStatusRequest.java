@@ -0,0 +1,49 @@
+package ee.sk.smartid.rest;
+
+import ee.sk.smartid.rest.dao.SessionStatusRequest;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session status request reused for all the polls of a session
+ * <p>
+ * {@link SmartIdRestConnector} keeps the URI of the request, including the
+ * long poll timeout, so that it is built only once per session. The URI is
+ * tied to the template it was built with, so the request can still be sent
+ * with another connector.
+ */
+class PollingSessionStatusRequest extends SessionStatusRequest {
+
+  private transient volatile CachedUri cachedUri;
+
+  PollingSessionStatusRequest(String sessionId) {
+    super(sessionId);
+  }
+
+  @Override
+  public void setResponseSocketOpenTime(TimeUnit timeUnit, long timeValue) {
+    super.setResponseSocketOpenTime(timeUnit, timeValue);
+    cachedUri = null;
+  }
+
+  URI getUri(EndpointTemplate template) {
+    CachedUri result = cachedUri;
+    return result != null && result.template == template ? result.uri : null;
+  }
+
+  void setUri(EndpointTemplate template, URI uri) {
+    cachedUri = new CachedUri(template, uri);
+  }
+
+  private static final class CachedUri {
+
+    private final EndpointTemplate template;
+    private final URI uri;
+
+    private CachedUri(EndpointTemplate template, URI uri) {
+      this.template = template;
+      this.uri = uri;
+    }
+  }
+}
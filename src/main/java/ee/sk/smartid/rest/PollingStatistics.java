@@ -0,0 +1,75 @@
+package ee.sk.smartid.rest;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for comparing polling strategies
+ * <p>
+ * The completion lag of a session is the time between the last poll that
+ * still saw the session running and the poll that saw it complete. The user
+ * confirmed somewhere within that window, so it is an upper bound of how late
+ * the client noticed the completion.
+ */
+public class PollingStatistics {
+
+  private final AtomicLong polls = new AtomicLong();
+  private final AtomicLong completedSessions = new AtomicLong();
+  private final AtomicLong pollsOfCompletedSessions = new AtomicLong();
+  private final AtomicLong totalSessionDurationMillis = new AtomicLong();
+  private final AtomicLong totalCompletionLagMillis = new AtomicLong();
+  private final AtomicLong deadlinesExceeded = new AtomicLong();
+
+  void recordPoll() {
+    polls.incrementAndGet();
+  }
+
+  void recordCompletion(int pollCount, long sessionDurationMillis, long completionLagMillis) {
+    completedSessions.incrementAndGet();
+    pollsOfCompletedSessions.addAndGet(pollCount);
+    totalSessionDurationMillis.addAndGet(sessionDurationMillis);
+    totalCompletionLagMillis.addAndGet(completionLagMillis);
+  }
+
+  void recordDeadlineExceeded() {
+    deadlinesExceeded.incrementAndGet();
+  }
+
+  public long getPollCount() {
+    return polls.get();
+  }
+
+  public long getCompletedSessionCount() {
+    return completedSessions.get();
+  }
+
+  public long getDeadlineExceededCount() {
+    return deadlinesExceeded.get();
+  }
+
+  public double getAveragePollsPerSession() {
+    long sessions = completedSessions.get();
+    return sessions == 0 ? 0.0 : (double) pollsOfCompletedSessions.get() / sessions;
+  }
+
+  public double getAverageSessionDurationMillis() {
+    long sessions = completedSessions.get();
+    return sessions == 0 ? 0.0 : (double) totalSessionDurationMillis.get() / sessions;
+  }
+
+  public double getAverageCompletionLagMillis() {
+    long sessions = completedSessions.get();
+    return sessions == 0 ? 0.0 : (double) totalCompletionLagMillis.get() / sessions;
+  }
+
+  @Override
+  public String toString() {
+    return "PollingStatistics{" +
+        "polls=" + getPollCount() +
+        ", completedSessions=" + getCompletedSessionCount() +
+        ", deadlinesExceeded=" + getDeadlineExceededCount() +
+        ", averagePollsPerSession=" + getAveragePollsPerSession() +
+        ", averageSessionDurationMillis=" + getAverageSessionDurationMillis() +
+        ", averageCompletionLagMillis=" + getAverageCompletionLagMillis() +
+        "}";
+  }
+}
@@ -0,0 +1,23 @@
+package ee.sk.smartid.rest;
+
+/**
+ * Decides how long to wait before the next session status poll
+ * <p>
+ * The strategy is shared by all the sessions polled by a
+ * {@link SessionStatusPoller}, so the implementations must be thread-safe.
+ *
+ * @see FixedDelayPollingStrategy
+ * @see AdaptivePollingStrategy
+ */
+public interface PollingStrategy {
+
+  /**
+   * Gets the delay before the next poll of a session that is still running
+   *
+   * @param pollCount number of polls made for the session so far
+   * @param longPolling whether the previous poll was a long poll, i.e. it could wait for the result server-side
+   * @return delay in milliseconds
+   */
+  long getNextPollDelayMillis(int pollCount, boolean longPolling);
+
+}
@@ -0,0 +1,97 @@
+package ee.sk.smartid.rest;
+
+import ee.sk.smartid.exception.SessionTimeoutException;
+import ee.sk.smartid.metrics.SmartIdMetrics;
+import ee.sk.smartid.rest.dao.SessionResult;
+import ee.sk.smartid.rest.dao.SessionStatus;
+import ee.sk.smartid.rest.dao.SessionStatusRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.commons.lang3.StringUtils.equalsIgnoreCase;
+
+/**
+ * Polling state of a single session
+ * <p>
+ * Counts the polls, enforces the session deadline and records the
+ * statistics and metrics once the session is complete. A session is polled by
+ * one thread at a time, so the state doesn't need synchronization.
+ * <p>
+ * The state is kept compact as there may be tens of thousands of pending
+ * sessions. The session status request, and with it the request URI, is
+ * created on the first poll and reused by the following ones, sharing the
+ * session ID string of the context.
+ */
+class SessionPollingContext {
+
+  private static final Logger logger = LoggerFactory.getLogger(SessionPollingContext.class);
+  private final String sessionId;
+  private final long deadlineMillis;
+  private final PollingStatistics statistics;
+  private final SmartIdMetrics metrics;
+  private final long startNanos;
+  private long lastRunningNanos;
+  private int pollCount;
+  private SessionStatusRequest sessionStatusRequest;
+
+  SessionPollingContext(String sessionId, long deadlineMillis, PollingStatistics statistics, SmartIdMetrics metrics) {
+    this.sessionId = sessionId;
+    this.deadlineMillis = deadlineMillis;
+    this.statistics = statistics;
+    this.metrics = metrics;
+    this.startNanos = System.nanoTime();
+    this.lastRunningNanos = startNanos;
+  }
+
+  void beforePoll() throws SessionTimeoutException {
+    if (deadlineMillis > 0 && getElapsedMillis() >= deadlineMillis) {
+      logger.debug("Session " + getSessionId() + " did not complete within " + deadlineMillis + " ms");
+      statistics.recordDeadlineExceeded();
+      SessionTimeoutException exception = new SessionTimeoutException("Session did not complete within " + deadlineMillis + " ms");
+      metrics.recordException(exception);
+      throw exception;
+    }
+    pollCount++;
+    statistics.recordPoll();
+  }
+
+  void afterPoll(SessionStatus sessionStatus) {
+    long now = System.nanoTime();
+    if (equalsIgnoreCase("COMPLETE", sessionStatus.getState())) {
+      statistics.recordCompletion(pollCount, TimeUnit.NANOSECONDS.toMillis(now - startNanos), TimeUnit.NANOSECONDS.toMillis(now - lastRunningNanos));
+      SessionResult result = sessionStatus.getResult();
+      metrics.recordSessionComplete(result == null ? null : result.getEndResult(), pollCount, now - startNanos);
+    } else {
+      lastRunningNanos = now;
+    }
+  }
+
+  long limitToDeadline(long delayMillis) {
+    if (deadlineMillis <= 0) {
+      return delayMillis;
+    }
+    return Math.max(0L, Math.min(delayMillis, deadlineMillis - getElapsedMillis()));
+  }
+
+  String getSessionId() {
+    return sessionId;
+  }
+
+  int getPollCount() {
+    return pollCount;
+  }
+
+  SessionStatusRequest getSessionStatusRequest() {
+    return sessionStatusRequest;
+  }
+
+  void setSessionStatusRequest(SessionStatusRequest sessionStatusRequest) {
+    this.sessionStatusRequest = sessionStatusRequest;
+  }
+
+  private long getElapsedMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+  }
+}
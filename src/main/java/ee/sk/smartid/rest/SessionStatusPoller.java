@@ -2,14 +2,19 @@ package ee.sk.smartid.rest;
 
 import ee.sk.smartid.exception.DocumentUnusableException;
 import ee.sk.smartid.exception.SessionTimeoutException;
+import ee.sk.smartid.exception.SmartIdException;
 import ee.sk.smartid.exception.TechnicalErrorException;
 import ee.sk.smartid.exception.UserRefusedException;
+import ee.sk.smartid.metrics.NoOpSmartIdMetrics;
+import ee.sk.smartid.metrics.SmartIdMetrics;
 import ee.sk.smartid.rest.dao.SessionResult;
 import ee.sk.smartid.rest.dao.SessionStatus;
 import ee.sk.smartid.rest.dao.SessionStatusRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.ws.rs.client.InvocationCallback;
+
 import java.util.concurrent.TimeUnit;
 
 import static org.apache.commons.lang3.StringUtils.equalsIgnoreCase;
@@ -18,8 +23,10 @@ public class SessionStatusPoller {
 
   private static final Logger logger = LoggerFactory.getLogger(SessionStatusPoller.class);
   private SmartIdConnector connector;
-  private TimeUnit pollingSleepTimeUnit = TimeUnit.SECONDS;
-  private long pollingSleepTimeout = 1L;
+  private PollingStrategy pollingStrategy = new FixedDelayPollingStrategy(TimeUnit.SECONDS, 1L);
+  private long sessionDeadlineMillis;
+  private PollingStatistics pollingStatistics = new PollingStatistics();
+  private SmartIdMetrics metrics = new NoOpSmartIdMetrics();
   private TimeUnit responseSocketOpenTimeUnit;
   private long responseSocketOpenTimeValue;
 
@@ -39,35 +46,115 @@ public class SessionStatusPoller {
     }
   }
 
+  /**
+   * Polls the session status once without waiting for the session to complete
+   *
+   * @param sessionId ID of the session to poll
+   * @return the final session status or null when the session is still running
+   */
+  public SessionStatus pollSessionStatusOnce(String sessionId) throws UserRefusedException, SessionTimeoutException, DocumentUnusableException {
+    logger.debug("Polling session status once for session " + sessionId);
+    SessionStatus status = pollSessionStatus(createPollingContext(sessionId));
+    if (!equalsIgnoreCase("COMPLETE", status.getState())) {
+      return null;
+    }
+    validateResult(status);
+    return status;
+  }
+
   private SessionStatus pollForFinalSessionStatus(String sessionId) throws InterruptedException {
+    SessionPollingContext context = createPollingContext(sessionId);
     SessionStatus sessionStatus = null;
     while (sessionStatus == null || equalsIgnoreCase("RUNNING", sessionStatus.getState())) {
-      sessionStatus = pollSessionStatus(sessionId);
+      sessionStatus = pollSessionStatus(context);
       if (equalsIgnoreCase("COMPLETE", sessionStatus.getState())) {
         break;
       }
-      logger.debug("Sleeping for " + pollingSleepTimeout + " " + pollingSleepTimeUnit);
-      pollingSleepTimeUnit.sleep(pollingSleepTimeout);
+      long delayMillis = getNextPollDelayMillis(context);
+      logger.debug("Sleeping for " + delayMillis + " ms");
+      sleep(delayMillis);
     }
     logger.debug("Got session final session status response");
     return sessionStatus;
   }
 
-  private SessionStatus pollSessionStatus(String sessionId) {
+  void sleep(long delayMillis) throws InterruptedException {
+    TimeUnit.MILLISECONDS.sleep(delayMillis);
+  }
+
+  SessionPollingContext createPollingContext(String sessionId) {
+    return new SessionPollingContext(sessionId, sessionDeadlineMillis, pollingStatistics, metrics);
+  }
+
+  SessionStatus pollSessionStatus(SessionPollingContext context) {
     logger.debug("Polling session status");
-    SessionStatusRequest request = createSessionStatusRequest(sessionId);
-    return connector.getSessionStatus(request);
+    context.beforePoll();
+    SessionStatusRequest request = getSessionStatusRequest(context);
+    SessionStatus sessionStatus = connector.getSessionStatus(request);
+    context.afterPoll(sessionStatus);
+    return sessionStatus;
+  }
+
+  boolean isAsyncPollingSupported() {
+    return connector instanceof AsyncSmartIdConnector;
+  }
+
+  SmartIdFuture<SessionStatus> pollSessionStatusAsync(final SessionPollingContext context) {
+    logger.debug("Polling session status asynchronously");
+    context.beforePoll();
+    SessionStatusRequest request = getSessionStatusRequest(context);
+    final SmartIdFuture<SessionStatus> result = new SmartIdFuture<>();
+    ((AsyncSmartIdConnector) connector).getSessionStatusAsync(request).whenComplete(new InvocationCallback<SessionStatus>() {
+      @Override
+      public void completed(SessionStatus sessionStatus) {
+        context.afterPoll(sessionStatus);
+        result.complete(sessionStatus);
+      }
+
+      @Override
+      public void failed(Throwable throwable) {
+        result.completeExceptionally(throwable);
+      }
+    });
+    return result;
+  }
+
+  long getNextPollDelayMillis(SessionPollingContext context) {
+    long delayMillis = pollingStrategy.getNextPollDelayMillis(context.getPollCount(), isLongPolling());
+    return context.limitToDeadline(delayMillis);
+  }
+
+  private boolean isLongPolling() {
+    return responseSocketOpenTimeUnit != null && responseSocketOpenTimeValue > 0;
+  }
+
+  private SessionStatusRequest getSessionStatusRequest(SessionPollingContext context) {
+    SessionStatusRequest request = context.getSessionStatusRequest();
+    if (request == null) {
+      request = createSessionStatusRequest(context.getSessionId());
+      context.setSessionStatusRequest(request);
+    }
+    return request;
   }
 
   private SessionStatusRequest createSessionStatusRequest(String sessionId) {
-    SessionStatusRequest request = new SessionStatusRequest(sessionId);
+    SessionStatusRequest request = new PollingSessionStatusRequest(sessionId);
     if (responseSocketOpenTimeUnit != null && responseSocketOpenTimeValue > 0) {
       request.setResponseSocketOpenTime(responseSocketOpenTimeUnit, responseSocketOpenTimeValue);
     }
     return request;
   }
 
-  private void validateResult(SessionStatus status) throws UserRefusedException, SessionTimeoutException, DocumentUnusableException {
+  void validateResult(SessionStatus status) throws UserRefusedException, SessionTimeoutException, DocumentUnusableException {
+    try {
+      validateEndResult(status);
+    } catch (SmartIdException e) {
+      metrics.recordException(e);
+      throw e;
+    }
+  }
+
+  private void validateEndResult(SessionStatus status) {
     SessionResult result = status.getResult();
     if (result == null) {
       logger.error("Result is missing in the session status response");
@@ -91,8 +178,46 @@ public class SessionStatusPoller {
 
   public void setPollingSleepTime(TimeUnit unit, long timeout) {
     logger.debug("Polling sleep time is " + timeout + " " + unit.toString());
-    pollingSleepTimeUnit = unit;
-    pollingSleepTimeout = timeout;
+    pollingStrategy = new FixedDelayPollingStrategy(unit, timeout);
+  }
+
+  public void setPollingStrategy(PollingStrategy pollingStrategy) {
+    logger.debug("Polling strategy is " + pollingStrategy);
+    this.pollingStrategy = pollingStrategy;
+  }
+
+  public PollingStrategy getPollingStrategy() {
+    return pollingStrategy;
+  }
+
+  /**
+   * Sets the overall time limit for polling a session
+   * <p>
+   * When the session hasn't completed by then, polling fails with
+   * {@link SessionTimeoutException}. Zero means no limit, which is the default.
+   *
+   * @param unit time unit of the {@code deadline} argument
+   * @param deadline time limit counted from the first poll
+   */
+  public void setSessionDeadline(TimeUnit unit, long deadline) {
+    logger.debug("Session deadline is " + deadline + " " + unit.toString());
+    sessionDeadlineMillis = unit.toMillis(deadline);
+  }
+
+  public PollingStatistics getPollingStatistics() {
+    return pollingStatistics;
+  }
+
+  public void setPollingStatistics(PollingStatistics pollingStatistics) {
+    this.pollingStatistics = pollingStatistics;
+  }
+
+  public SmartIdMetrics getMetrics() {
+    return metrics;
+  }
+
+  public void setMetrics(SmartIdMetrics metrics) {
+    this.metrics = metrics;
   }
 
   public void setResponseSocketOpenTime(TimeUnit timeUnit, long timeValue) {
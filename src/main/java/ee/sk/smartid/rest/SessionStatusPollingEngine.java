@@ -0,0 +1,330 @@
+package ee.sk.smartid.rest;
+
+import ee.sk.smartid.exception.TechnicalErrorException;
+import ee.sk.smartid.rest.dao.SessionStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.client.InvocationCallback;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import static org.apache.commons.lang3.StringUtils.equalsIgnoreCase;
+
+/**
+ * Polls the status of many sessions without blocking the callers
+ * <p>
+ * Each tracked session is polled by a task on the shared scheduler. Between
+ * the polls the session doesn't occupy any thread: the next poll is scheduled
+ * after the delay given by the {@link PollingStrategy} of the {@link SessionStatusPoller}.
+ * When the connector is an {@link AsyncSmartIdConnector} the session status
+ * requests are sent asynchronously too, so the scheduler threads never wait for
+ * the long poll responses. Otherwise a scheduler thread is busy for the duration
+ * of a single session status request, so a small pool is enough for thousands of
+ * sessions as long as the long poll timeout
+ * ({@link SessionStatusPoller#setResponseSocketOpenTime}) is kept short.
+ * <p>
+ * The returned futures are completed when the session reaches the COMPLETE state,
+ * with the same end result mapping as {@link SessionStatusPoller#fetchFinalSessionStatus(String)}:
+ * e.g. a refused session fails with {@link ee.sk.smartid.exception.UserRefusedException}.
+ * Cancelling a future stops polling of its session. Once the scheduler has
+ * been shut down, the futures of the pending sessions are not completed
+ * anymore and the sessions are left in the journal.
+ * <p>
+ * With a {@link PendingSessionJournal} the sessions are journaled while they
+ * are being polled, so that they can be resumed after a restart with
+ * {@link #resumeSession(String)}.
+ */
+public class SessionStatusPollingEngine {
+
+  private static final Logger logger = LoggerFactory.getLogger(SessionStatusPollingEngine.class);
+  private static final AtomicIntegerFieldUpdater<PollTask> FINISHED_UPDATER = AtomicIntegerFieldUpdater.newUpdater(PollTask.class, "finished");
+  private final SessionStatusPoller poller;
+  private final ScheduledExecutorService scheduler;
+  private final HashedTimingWheel timingWheel;
+  private final AtomicInteger pendingSessionCount = new AtomicInteger();
+  private final ConcurrentMap<String, SmartIdFuture<SessionStatus>> resumedSessions = new ConcurrentHashMap<>();
+  private volatile PendingSessionJournal pendingSessionJournal;
+
+  /**
+   * Constructs a new {@code SessionStatusPollingEngine}
+   *
+   * @param poller for polling the session status and validating the final status
+   * @param scheduler shared scheduler that runs the polls. Its lifecycle is managed by the caller.
+   */
+  public SessionStatusPollingEngine(SessionStatusPoller poller, ScheduledExecutorService scheduler) {
+    this.poller = poller;
+    this.scheduler = scheduler;
+    this.timingWheel = null;
+  }
+
+  /**
+   * Constructs a new {@code SessionStatusPollingEngine} that keeps the poll timers in a timing wheel
+   * <p>
+   * Meant for tens of thousands of pending sessions: scheduling a poll is O(1)
+   * regardless of the number of pending sessions.
+   *
+   * @param poller for polling the session status and validating the final status
+   * @param timingWheel shared timer that runs the polls. Its lifecycle is managed by the caller.
+   */
+  public SessionStatusPollingEngine(SessionStatusPoller poller, HashedTimingWheel timingWheel) {
+    this.poller = poller;
+    this.scheduler = null;
+    this.timingWheel = timingWheel;
+  }
+
+  /**
+   * Starts polling the session until it is complete
+   *
+   * @param sessionId ID of the session to poll
+   * @return future of the final session status
+   */
+  public SmartIdFuture<SessionStatus> fetchFinalSessionStatus(String sessionId) {
+    return fetchFinalSessionStatus(sessionId, null);
+  }
+
+  /**
+   * Starts polling the session until it is complete
+   *
+   * @param sessionId ID of the session to poll
+   * @param journalData data needed to finish the session after a restart, kept in the {@link PendingSessionJournal}
+   * @return future of the final session status
+   */
+  public SmartIdFuture<SessionStatus> fetchFinalSessionStatus(String sessionId, byte[] journalData) {
+    SmartIdFuture<SessionStatus> resumedSession = resumedSessions.remove(sessionId);
+    if (resumedSession != null) {
+      logger.debug("Polling of session " + sessionId + " has already been resumed");
+      return resumedSession;
+    }
+    logger.debug("Starting to poll session status asynchronously for session " + sessionId);
+    journalSessionStarted(sessionId, journalData);
+    return startPolling(sessionId);
+  }
+
+  /**
+   * Resumes polling a session left pending in the journal by a previous run
+   * <p>
+   * The session is not journaled again. Its final status is handed over to the
+   * first {@link #fetchFinalSessionStatus(String, byte[])} of the same session,
+   * so a resumed session is finished and removed from the journal even when
+   * nobody asks for its result. A final status nobody asks for is dropped
+   * after the session lifetime of the journal.
+   *
+   * @param sessionId ID of the session to poll
+   */
+  public void resumeSession(final String sessionId) {
+    logger.debug("Resuming to poll session status asynchronously for session " + sessionId);
+    final SmartIdFuture<SessionStatus> future = startPolling(sessionId);
+    resumedSessions.put(sessionId, future);
+    future.whenComplete(new InvocationCallback<SessionStatus>() {
+      @Override
+      public void completed(SessionStatus sessionStatus) {
+        dropResumedSessionLater(sessionId, future);
+      }
+
+      @Override
+      public void failed(Throwable throwable) {
+        dropResumedSessionLater(sessionId, future);
+      }
+    });
+  }
+
+  int getResumedSessionCount() {
+    return resumedSessions.size();
+  }
+
+  private void dropResumedSessionLater(final String sessionId, final SmartIdFuture<SessionStatus> future) {
+    PendingSessionJournal journal = pendingSessionJournal;
+    long retentionMillis = journal == null ? PendingSessionJournal.DEFAULT_SESSION_LIFETIME_MILLIS : journal.getSessionLifetimeMillis();
+    Runnable drop = new Runnable() {
+      @Override
+      public void run() {
+        if (resumedSessions.remove(sessionId, future)) {
+          logger.debug("Dropping unclaimed status of resumed session " + sessionId);
+        }
+      }
+    };
+    try {
+      schedule(drop, retentionMillis);
+    } catch (RejectedExecutionException e) {
+      drop.run();
+    }
+  }
+
+  private SmartIdFuture<SessionStatus> startPolling(String sessionId) {
+    SmartIdFuture<SessionStatus> future = new SmartIdFuture<>();
+    pendingSessionCount.incrementAndGet();
+    PollTask task = new PollTask(sessionId, future);
+    try {
+      execute(task);
+    } catch (RejectedExecutionException e) {
+      task.fail(new TechnicalErrorException("Failed to poll session status: " + e.getMessage(), e));
+    }
+    return future;
+  }
+
+  /**
+   * Gets the number of sessions that are being polled
+   *
+   * @return number of pending sessions
+   */
+  public int getPendingSessionCount() {
+    return pendingSessionCount.get();
+  }
+
+  public SessionStatusPoller getSessionStatusPoller() {
+    return poller;
+  }
+
+  /**
+   * Sets the journal of the sessions that are being polled
+   *
+   * @param pendingSessionJournal journal to record the started and finished sessions in.
+   *                              Its lifecycle is managed by the caller.
+   */
+  public void setPendingSessionJournal(PendingSessionJournal pendingSessionJournal) {
+    this.pendingSessionJournal = pendingSessionJournal;
+  }
+
+  public PendingSessionJournal getPendingSessionJournal() {
+    return pendingSessionJournal;
+  }
+
+  private void journalSessionStarted(String sessionId, byte[] journalData) {
+    PendingSessionJournal journal = pendingSessionJournal;
+    if (journal == null) {
+      return;
+    }
+    try {
+      journal.sessionStarted(sessionId, journalData);
+    } catch (RuntimeException e) {
+      logger.warn("Failed to journal session " + sessionId + ": " + e.getMessage());
+    }
+  }
+
+  private void journalSessionFinished(String sessionId) {
+    PendingSessionJournal journal = pendingSessionJournal;
+    if (journal == null) {
+      return;
+    }
+    try {
+      journal.sessionFinished(sessionId);
+    } catch (RuntimeException e) {
+      logger.warn("Failed to journal the end of session " + sessionId + ": " + e.getMessage());
+    }
+  }
+
+  private void execute(Runnable task) {
+    if (timingWheel != null) {
+      timingWheel.newTimeout(task, 0L, TimeUnit.MILLISECONDS);
+    } else {
+      scheduler.execute(task);
+    }
+  }
+
+  private boolean isStopped() {
+    return timingWheel != null ? timingWheel.isClosed() : scheduler.isShutdown();
+  }
+
+  private void schedule(Runnable task, long delayMillis) {
+    if (timingWheel != null) {
+      timingWheel.newTimeout(task, delayMillis, TimeUnit.MILLISECONDS);
+    } else {
+      scheduler.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private class PollTask implements Runnable, InvocationCallback<SessionStatus> {
+
+    private final SmartIdFuture<SessionStatus> future;
+    private final SessionPollingContext context;
+    volatile int finished;
+
+    PollTask(String sessionId, SmartIdFuture<SessionStatus> future) {
+      this.future = future;
+      this.context = poller.createPollingContext(sessionId);
+    }
+
+    @Override
+    public void run() {
+      if (stopIfCancelled()) {
+        return;
+      }
+      try {
+        if (poller.isAsyncPollingSupported()) {
+          poller.pollSessionStatusAsync(context).whenComplete(this);
+        } else {
+          handleSessionStatus(poller.pollSessionStatus(context));
+        }
+      } catch (RuntimeException e) {
+        failUnlessStopped(e);
+      }
+    }
+
+    @Override
+    public void completed(SessionStatus sessionStatus) {
+      if (stopIfCancelled()) {
+        return;
+      }
+      try {
+        handleSessionStatus(sessionStatus);
+      } catch (RuntimeException e) {
+        failUnlessStopped(e);
+      }
+    }
+
+    @Override
+    public void failed(Throwable throwable) {
+      failUnlessStopped(throwable);
+    }
+
+    private void handleSessionStatus(SessionStatus sessionStatus) {
+      if (equalsIgnoreCase("COMPLETE", sessionStatus.getState())) {
+        logger.debug("Got final session status response for session " + context.getSessionId());
+        poller.validateResult(sessionStatus);
+        finish();
+        future.complete(sessionStatus);
+      } else {
+        try {
+          schedule(this, poller.getNextPollDelayMillis(context));
+        } catch (RejectedExecutionException e) {
+          failUnlessStopped(new TechnicalErrorException("Failed to poll session status: " + e.getMessage(), e));
+        }
+      }
+    }
+
+    private boolean stopIfCancelled() {
+      if (future.isDone()) {
+        logger.debug("Stopping to poll cancelled session " + context.getSessionId());
+        finish();
+        return true;
+      }
+      return false;
+    }
+
+    private void failUnlessStopped(Throwable e) {
+      if (isStopped()) {
+        logger.debug("Polling has been stopped, leaving session " + context.getSessionId() + " pending");
+        return;
+      }
+      fail(e);
+    }
+
+    private void fail(Throwable e) {
+      finish();
+      future.completeExceptionally(e);
+    }
+
+    private void finish() {
+      if (FINISHED_UPDATER.compareAndSet(this, 0, 1)) {
+        pendingSessionCount.decrementAndGet();
+        journalSessionFinished(context.getSessionId());
+      }
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package ee.sk.smartid.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.client.InvocationCallback;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Completion handle of an asynchronous Smart-ID operation
+ * <p>
+ * The future is completed exactly once, either with a result or with
+ * the exception the operation failed with. Callbacks registered with
+ * {@link #whenComplete(InvocationCallback)} are run by the thread that
+ * completes the future, or immediately when it is already done.
+ *
+ * @param <T> type of the result
+ */
+public class SmartIdFuture<T> implements Future<T> {
+
+  private static final Logger logger = LoggerFactory.getLogger(SmartIdFuture.class);
+  private final CountDownLatch completion = new CountDownLatch(1);
+  private final List<InvocationCallback<? super T>> callbacks = new ArrayList<>();
+  private boolean done;
+  private T result;
+  private Throwable failure;
+
+  /**
+   * Completes the future with the result
+   *
+   * @param result result of the operation
+   * @return true if this call completed the future, false if it was already done
+   */
+  public boolean complete(T result) {
+    List<InvocationCallback<? super T>> callbacksToRun;
+    synchronized (this) {
+      if (done) {
+        return false;
+      }
+      this.result = result;
+      callbacksToRun = markDone();
+    }
+    for (InvocationCallback<? super T> callback : callbacksToRun) {
+      notifyCompleted(callback, result);
+    }
+    return true;
+  }
+
+  /**
+   * Completes the future with the exception the operation failed with
+   *
+   * @param failure cause of the failure
+   * @return true if this call completed the future, false if it was already done
+   */
+  public boolean completeExceptionally(Throwable failure) {
+    List<InvocationCallback<? super T>> callbacksToRun;
+    synchronized (this) {
+      if (done) {
+        return false;
+      }
+      this.failure = failure;
+      callbacksToRun = markDone();
+    }
+    for (InvocationCallback<? super T> callback : callbacksToRun) {
+      notifyFailed(callback, failure);
+    }
+    return true;
+  }
+
+  /**
+   * Registers a callback that is notified when the future is done
+   *
+   * @param callback callback to be notified of the result or the failure
+   */
+  public void whenComplete(InvocationCallback<? super T> callback) {
+    synchronized (this) {
+      if (!done) {
+        callbacks.add(callback);
+        return;
+      }
+    }
+    if (failure == null) {
+      notifyCompleted(callback, result);
+    } else {
+      notifyFailed(callback, failure);
+    }
+  }
+
+  @Override
+  public boolean cancel(boolean mayInterruptIfRunning) {
+    return completeExceptionally(new CancellationException());
+  }
+
+  @Override
+  public synchronized boolean isCancelled() {
+    return failure instanceof CancellationException;
+  }
+
+  @Override
+  public synchronized boolean isDone() {
+    return done;
+  }
+
+  @Override
+  public T get() throws InterruptedException, ExecutionException {
+    completion.await();
+    return getResult();
+  }
+
+  @Override
+  public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+    if (!completion.await(timeout, unit)) {
+      throw new TimeoutException();
+    }
+    return getResult();
+  }
+
+  private List<InvocationCallback<? super T>> markDone() {
+    done = true;
+    completion.countDown();
+    List<InvocationCallback<? super T>> callbacksToRun = new ArrayList<>(callbacks);
+    callbacks.clear();
+    return callbacksToRun;
+  }
+
+  private synchronized T getResult() throws ExecutionException {
+    if (failure instanceof CancellationException) {
+      throw (CancellationException) failure;
+    }
+    if (failure != null) {
+      throw new ExecutionException(failure);
+    }
+    return result;
+  }
+
+  private void notifyCompleted(InvocationCallback<? super T> callback, T result) {
+    try {
+      callback.completed(result);
+    } catch (RuntimeException e) {
+      logger.error("Completion callback failed: " + e.getMessage(), e);
+    }
+  }
+
+  private void notifyFailed(InvocationCallback<? super T> callback, Throwable failure) {
+    try {
+      callback.failed(failure);
+    } catch (RuntimeException e) {
+      logger.error("Failure callback failed: " + e.getMessage(), e);
+    }
+  }
+}
@@ -0,0 +1,199 @@
+package ee.sk.smartid.rest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserSequence;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import ee.sk.smartid.rest.dao.*;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads and writes the JSON messages of the Smart-ID API
+ * <p>
+ * Takes precedence over the generic Jackson provider of Jersey for the
+ * {@code rest.dao} types only. The readers and writers of the types are
+ * configured once and shared, and the values that recur in every session
+ * status response, e.g. {@code RUNNING}, {@code COMPLETE} and {@code OK},
+ * are deserialized to the same string instances instead of new ones.
+ * <p>
+ * A session status response is scanned for its state first: a RUNNING
+ * response is read into a new status with only the state set, without
+ * binding the rest of the message. Only the final status is bound in full.
+ */
+@Consumes(MediaType.APPLICATION_JSON)
+@Produces(MediaType.APPLICATION_JSON)
+class SmartIdJsonProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+
+  private static final String RUNNING_STATE = "RUNNING";
+  private static final String[] RECURRING_VALUES = {
+      RUNNING_STATE, "COMPLETE",
+      "OK", "USER_REFUSED", "TIMEOUT", "DOCUMENT_UNUSABLE",
+      "QUALIFIED", "ADVANCED",
+      "sha256WithRSAEncryption", "sha384WithRSAEncryption", "sha512WithRSAEncryption"
+  };
+  private static final Map<Class<?>, ObjectReader> READERS = new HashMap<>();
+  private static final Map<Class<?>, ObjectWriter> WRITERS = new HashMap<>();
+  private static final JsonFactory JSON_FACTORY;
+  private static final ObjectReader SESSION_STATUS_READER;
+
+  static {
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.getFactory().disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+    mapper.getFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    SimpleModule module = new SimpleModule("SmartIdRecurringValues");
+    module.addDeserializer(String.class, new RecurringValueDeserializer());
+    mapper.registerModule(module);
+    for (Class<?> type : new Class<?>[]{SessionStatus.class, CertificateChoiceResponse.class, SignatureSessionResponse.class, AuthenticationSessionResponse.class}) {
+      READERS.put(type, createReader(mapper, type));
+    }
+    for (Class<?> type : new Class<?>[]{CertificateRequest.class, SignatureSessionRequest.class, AuthenticationSessionRequest.class}) {
+      WRITERS.put(type, createWriter(mapper, type));
+    }
+    JSON_FACTORY = mapper.getFactory();
+    SESSION_STATUS_READER = READERS.get(SessionStatus.class);
+  }
+
+  /**
+   * Jersey brings in Jackson 2.5, which doesn't have the non-deprecated {@code readerFor}
+   */
+  @SuppressWarnings("deprecation")
+  private static ObjectReader createReader(ObjectMapper mapper, Class<?> type) {
+    return mapper.reader(type);
+  }
+
+  /**
+   * Jersey brings in Jackson 2.5, which doesn't have the non-deprecated {@code writerFor}
+   */
+  @SuppressWarnings("deprecation")
+  private static ObjectWriter createWriter(ObjectMapper mapper, Class<?> type) {
+    return mapper.writerWithType(type);
+  }
+
+  @Override
+  public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+    return READERS.containsKey(type) && isJson(mediaType);
+  }
+
+  @Override
+  public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                         MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException, WebApplicationException {
+    if (SessionStatus.class.equals(type)) {
+      return readSessionStatus(entityStream);
+    }
+    return READERS.get(type).readValue(entityStream);
+  }
+
+  /**
+   * Reads the top-level fields up to the state and binds the whole message only when the session is not running
+   */
+  static SessionStatus readSessionStatus(InputStream entityStream) throws IOException {
+    JsonParser parser = JSON_FACTORY.createParser(entityStream);
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      return SESSION_STATUS_READER.readValue(parser);
+    }
+    TokenBuffer precedingFields = new TokenBuffer(parser.getCodec(), false);
+    precedingFields.writeStartObject();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = parser.getCurrentName();
+      parser.nextToken();
+      if ("state".equals(fieldName) && parser.getCurrentToken() == JsonToken.VALUE_STRING
+          && RUNNING_STATE.equals(getRecurringValue(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength()))) {
+        return createRunningSessionStatus();
+      }
+      precedingFields.writeFieldName(fieldName);
+      precedingFields.copyCurrentStructure(parser);
+      if ("state".equals(fieldName)) {
+        break;
+      }
+    }
+    if (parser.getCurrentToken() == JsonToken.END_OBJECT) {
+      precedingFields.writeEndObject();
+      return SESSION_STATUS_READER.readValue(precedingFields.asParser());
+    }
+    return SESSION_STATUS_READER.readValue(JsonParserSequence.createFlattened(precedingFields.asParser(), parser));
+  }
+
+  private static SessionStatus createRunningSessionStatus() {
+    SessionStatus sessionStatus = new SessionStatus();
+    sessionStatus.setState(RUNNING_STATE);
+    return sessionStatus;
+  }
+
+  @Override
+  public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+    return WRITERS.containsKey(type) && isJson(mediaType);
+  }
+
+  @Override
+  public long getSize(Object value, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+    return -1;
+  }
+
+  @Override
+  public void writeTo(Object value, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                      MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException, WebApplicationException {
+    WRITERS.get(type).writeValue(entityStream, value);
+  }
+
+  private static boolean isJson(MediaType mediaType) {
+    return mediaType == null || MediaType.APPLICATION_JSON_TYPE.isCompatible(mediaType);
+  }
+
+  /**
+   * Gets the recurring value equal to the characters without creating a string
+   *
+   * @return recurring value or null when the characters are not one of them
+   */
+  static String getRecurringValue(char[] characters, int offset, int length) {
+    for (String value : RECURRING_VALUES) {
+      if (value.length() == length && regionMatches(value, characters, offset)) {
+        return value;
+      }
+    }
+    return null;
+  }
+
+  private static boolean regionMatches(String value, char[] characters, int offset) {
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) != characters[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static class RecurringValueDeserializer extends JsonDeserializer<String> {
+
+    @Override
+    public String deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+      if (parser.getCurrentToken() == JsonToken.VALUE_STRING) {
+        String value = getRecurringValue(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        return value != null ? value : parser.getText();
+      }
+      return StringDeserializer.instance.deserialize(parser, context);
+    }
+  }
+}
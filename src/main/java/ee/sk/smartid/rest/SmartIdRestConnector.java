@@ -1,29 +1,55 @@
 package ee.sk.smartid.rest;
 
 import ee.sk.smartid.exception.*;
+import ee.sk.smartid.metrics.NoOpSmartIdMetrics;
+import ee.sk.smartid.metrics.SmartIdEndpoint;
+import ee.sk.smartid.metrics.SmartIdMetrics;
 import ee.sk.smartid.rest.dao.*;
 import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.JerseyInvocation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.ClientErrorException;
 import javax.ws.rs.ForbiddenException;
+import javax.ws.rs.HttpMethod;
 import javax.ws.rs.NotAuthorizedException;
 import javax.ws.rs.NotFoundException;
 import javax.ws.rs.ServerErrorException;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.client.ResponseProcessingException;
+import javax.ws.rs.core.GenericType;
 import javax.ws.rs.core.MediaType;
-import javax.ws.rs.core.UriBuilder;
+import java.io.Closeable;
 import java.net.URI;
-import java.util.concurrent.TimeUnit;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
 
-public class SmartIdRestConnector implements SmartIdConnector {
+/**
+ * Jersey based implementation of the {@link SmartIdConnector}
+ * and the {@link AsyncSmartIdConnector}
+ * <p>
+ * The connector owns a single {@link Client} instance that is created
+ * on first use and shared by all the requests made through this connector.
+ * Jersey clients are thread-safe, so one connector can be used concurrently.
+ * Connection pooling can be tuned through the {@link ClientConfig} given to the
+ * constructor, e.g. by using Apache connector with a pooling connection manager:
+ * <pre class="code"><code class="java">
+ *   PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+ *   connectionManager.setMaxTotal(100);
+ *   connectionManager.setDefaultMaxPerRoute(100);
+ *   ClientConfig clientConfig = new ClientConfig().connectorProvider(new ApacheConnectorProvider());
+ *   clientConfig.property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager);
+ * </code></pre>
+ * The client and its connections are released with {@link #close()}.
+ */
+public class SmartIdRestConnector implements SmartIdConnector, AsyncSmartIdConnector, Closeable {
 
   private static final Logger logger = LoggerFactory.getLogger(SmartIdRestConnector.class);
   private static final String SESSION_STATUS_URI = "/session/{sessionId}";
@@ -32,8 +58,13 @@ public class SmartIdRestConnector implements SmartIdConnector {
   private static final String SIGNATURE_BY_DOCUMENT_NUMBER_PATH = "/signature/document/{documentNumber}";
   private static final String AUTHENTICATE_BY_DOCUMENT_NUMBER_PATH = "/authentication/document/{documentNumber}";
   private static final String AUTHENTICATE_BY_NATIONAL_IDENTITY_PATH = "/authentication/pno/{country}/{nationalIdentityNumber}";
+  private static final SmartIdMetrics NO_METRICS = new NoOpSmartIdMetrics();
   private String endpointUrl;
   private ClientConfig clientConfig;
+  private transient volatile Client client;
+  private transient volatile EndpointTemplates endpointTemplates;
+  private transient volatile SmartIdMetrics metrics;
+  private volatile boolean closed;
 
   public SmartIdRestConnector(String endpointUrl) {
     this.endpointUrl = endpointUrl;
@@ -47,145 +78,401 @@ public class SmartIdRestConnector implements SmartIdConnector {
   @Override
   public SessionStatus getSessionStatus(SessionStatusRequest request) throws SessionNotFoundException {
     logger.debug("Getting session status for " + request.getSessionId());
-    UriBuilder uriBuilder = UriBuilder
-        .fromUri(endpointUrl)
-        .path(SESSION_STATUS_URI);
-    addResponseSocketOpenTimeUrlParameter(request, uriBuilder);
-    URI uri = uriBuilder.build(request.getSessionId());
+    URI uri = createSessionStatusUri(request);
+    long startNanos = System.nanoTime();
     try {
       SessionStatus result = prepareClient(uri).get(SessionStatus.class);
+      recordResponse(SmartIdEndpoint.SESSION_STATUS, startNanos, null);
       return result;
-    } catch (NotFoundException e) {
-      logger.warn("Session " + request + " not found: " + e.getMessage());
-      throw new SessionNotFoundException();
+    } catch (RuntimeException e) {
+      recordResponse(SmartIdEndpoint.SESSION_STATUS, startNanos, e);
+      throw recordException(translateSessionStatusException(request, e));
     }
+  }
 
+  @Override
+  public SmartIdFuture<SessionStatus> getSessionStatusAsync(final SessionStatusRequest request) {
+    logger.debug("Getting session status asynchronously for " + request.getSessionId());
+    URI uri = createSessionStatusUri(request);
+    return submitAsync(SmartIdEndpoint.SESSION_STATUS, uri, HttpMethod.GET, null, SessionStatus.class, new ExceptionTranslator() {
+      @Override
+      public RuntimeException translate(RuntimeException e) {
+        return translateSessionStatusException(request, e);
+      }
+    });
   }
 
   @Override
   public CertificateChoiceResponse getCertificate(NationalIdentity identity, CertificateRequest request) {
     logger.debug("Getting certificate for " + identity);
-    URI uri = UriBuilder
-        .fromUri(endpointUrl)
-        .path(CERTIFICATE_CHOICE_BY_NATIONAL_IDENTITY_PATH)
-        .build(identity.getCountryCode(), identity.getNationalIdentityNumber());
+    URI uri = createCertificateChoiceUri(identity);
     return postCertificateRequest(uri, request);
   }
 
+  @Override
+  public SmartIdFuture<CertificateChoiceResponse> getCertificateAsync(NationalIdentity identity, CertificateRequest request) {
+    logger.debug("Getting certificate asynchronously for " + identity);
+    URI uri = createCertificateChoiceUri(identity);
+    return postCertificateRequestAsync(uri, request);
+  }
+
   @Override
   public CertificateChoiceResponse getCertificate(String documentNumber, CertificateRequest request) {
     logger.debug("Getting certificate for document " + documentNumber);
-    URI uri = UriBuilder
-        .fromUri(endpointUrl)
-        .path(CERTIFICATE_CHOICE_BY_DOCUMENT_NUMBER_PATH)
-        .build(documentNumber);
+    URI uri = createCertificateChoiceUri(documentNumber);
     return postCertificateRequest(uri, request);
   }
 
+  @Override
+  public SmartIdFuture<CertificateChoiceResponse> getCertificateAsync(String documentNumber, CertificateRequest request) {
+    logger.debug("Getting certificate asynchronously for document " + documentNumber);
+    URI uri = createCertificateChoiceUri(documentNumber);
+    return postCertificateRequestAsync(uri, request);
+  }
+
   @Override
   public SignatureSessionResponse sign(String documentNumber, SignatureSessionRequest request) {
     logger.debug("Signing for document " + documentNumber);
-    URI uri = UriBuilder
-        .fromUri(endpointUrl)
-        .path(SIGNATURE_BY_DOCUMENT_NUMBER_PATH)
-        .build(documentNumber);
+    URI uri = createSignatureUri(documentNumber);
     try {
-      return postRequest(uri, request, SignatureSessionResponse.class);
-    } catch (NotFoundException e) {
-      logger.warn("User account not found for signing with document " + documentNumber);
-      throw new UserAccountNotFoundException();
-    } catch (ForbiddenException e) {
-      logger.warn("No permission to issue the request");
-      throw new RequestForbiddenException();
+      return postRequest(SmartIdEndpoint.SIGNATURE, uri, request, SignatureSessionResponse.class);
+    } catch (RuntimeException e) {
+      throw recordException(translateSignatureException(documentNumber, e));
     }
   }
 
+  @Override
+  public SmartIdFuture<SignatureSessionResponse> signAsync(final String documentNumber, SignatureSessionRequest request) {
+    logger.debug("Signing asynchronously for document " + documentNumber);
+    final URI uri = createSignatureUri(documentNumber);
+    return submitAsync(SmartIdEndpoint.SIGNATURE, uri, HttpMethod.POST, request, SignatureSessionResponse.class, new ExceptionTranslator() {
+      @Override
+      public RuntimeException translate(RuntimeException e) {
+        return translateSignatureException(documentNumber, translatePostRequestException(uri, e));
+      }
+    });
+  }
+
   @Override
   public AuthenticationSessionResponse authenticate(String documentNumber, AuthenticationSessionRequest request) {
     logger.debug("Authenticating for document " + documentNumber);
-    URI uri = UriBuilder
-        .fromUri(endpointUrl)
-        .path(AUTHENTICATE_BY_DOCUMENT_NUMBER_PATH)
-        .build(documentNumber);
+    URI uri = createAuthenticationUri(documentNumber);
     return postAuthenticationRequest(uri, request);
   }
 
+  @Override
+  public SmartIdFuture<AuthenticationSessionResponse> authenticateAsync(String documentNumber, AuthenticationSessionRequest request) {
+    logger.debug("Authenticating asynchronously for document " + documentNumber);
+    URI uri = createAuthenticationUri(documentNumber);
+    return postAuthenticationRequestAsync(uri, request);
+  }
+
   @Override
   public AuthenticationSessionResponse authenticate(NationalIdentity identity, AuthenticationSessionRequest request) {
     logger.debug("Authenticating for " + identity);
-    URI uri = UriBuilder
-        .fromUri(endpointUrl)
-        .path(AUTHENTICATE_BY_NATIONAL_IDENTITY_PATH)
-        .build(identity.getCountryCode(), identity.getNationalIdentityNumber());
+    URI uri = createAuthenticationUri(identity);
     return postAuthenticationRequest(uri, request);
   }
 
+  @Override
+  public SmartIdFuture<AuthenticationSessionResponse> authenticateAsync(NationalIdentity identity, AuthenticationSessionRequest request) {
+    logger.debug("Authenticating asynchronously for " + identity);
+    URI uri = createAuthenticationUri(identity);
+    return postAuthenticationRequestAsync(uri, request);
+  }
+
+  /**
+   * Sets the metrics the requests are recorded to
+   * <p>
+   * The metrics are not serialized with the connector.
+   *
+   * @param metrics metrics, no measurements are recorded by default
+   */
+  public void setMetrics(SmartIdMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  public SmartIdMetrics getMetrics() {
+    SmartIdMetrics result = metrics;
+    return result == null ? NO_METRICS : result;
+  }
+
+  /**
+   * Closes the underlying client and releases its connections
+   * <p>
+   * The connector can't be used after it has been closed.
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    if (client != null) {
+      logger.debug("Closing the client of the connector");
+      client.close();
+      client = null;
+    }
+  }
+
   private Invocation.Builder prepareClient(URI uri) {
-    Client client = clientConfig == null ? ClientBuilder.newClient() : ClientBuilder.newClient(clientConfig);
-    Invocation.Builder builder = client
-        .register(new LoggingFilter())
+    Invocation.Builder builder = getClient()
         .target(uri)
         .request()
         .accept(APPLICATION_JSON_TYPE);
     return builder;
   }
 
+  private Client getClient() {
+    Client result = client;
+    if (result == null) {
+      synchronized (this) {
+        if (closed) {
+          throw new IllegalStateException("Connector has been closed");
+        }
+        result = client;
+        if (result == null) {
+          result = clientConfig == null ? ClientBuilder.newClient() : ClientBuilder.newClient(clientConfig);
+          result.register(new SmartIdJsonProvider());
+          result.register(new LoggingFilter());
+          client = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  private EndpointTemplates getEndpointTemplates() {
+    EndpointTemplates result = endpointTemplates;
+    if (result == null) {
+      result = new EndpointTemplates(endpointUrl);
+      endpointTemplates = result;
+    }
+    return result;
+  }
+
+  EndpointTemplate getSessionStatusTemplate() {
+    return getEndpointTemplates().sessionStatus;
+  }
+
+  private URI createSessionStatusUri(SessionStatusRequest request) {
+    EndpointTemplate template = getSessionStatusTemplate();
+    if (request instanceof PollingSessionStatusRequest) {
+      PollingSessionStatusRequest pollingRequest = (PollingSessionStatusRequest) request;
+      URI uri = pollingRequest.getUri(template);
+      if (uri == null) {
+        uri = buildSessionStatusUri(template, request);
+        pollingRequest.setUri(template, uri);
+      }
+      return uri;
+    }
+    return buildSessionStatusUri(template, request);
+  }
+
+  private static URI buildSessionStatusUri(EndpointTemplate template, SessionStatusRequest request) {
+    if (request.isResponseSocketOpenTimeSet()) {
+      long queryTimeoutInMilliseconds = request.getResponseSocketOpenTimeUnit().toMillis(request.getResponseSocketOpenTimeValue());
+      return template.buildWithQueryParam("timeoutMs", String.valueOf(queryTimeoutInMilliseconds), request.getSessionId());
+    }
+    return template.build(request.getSessionId());
+  }
+
+  private URI createCertificateChoiceUri(NationalIdentity identity) {
+    return getEndpointTemplates().certificateChoiceByNationalIdentity.build(identity.getCountryCode(), identity.getNationalIdentityNumber());
+  }
+
+  private URI createCertificateChoiceUri(String documentNumber) {
+    return getEndpointTemplates().certificateChoiceByDocumentNumber.build(documentNumber);
+  }
+
+  private URI createSignatureUri(String documentNumber) {
+    return getEndpointTemplates().signatureByDocumentNumber.build(documentNumber);
+  }
+
+  private URI createAuthenticationUri(String documentNumber) {
+    return getEndpointTemplates().authenticationByDocumentNumber.build(documentNumber);
+  }
+
+  private URI createAuthenticationUri(NationalIdentity identity) {
+    return getEndpointTemplates().authenticationByNationalIdentity.build(identity.getCountryCode(), identity.getNationalIdentityNumber());
+  }
+
   private CertificateChoiceResponse postCertificateRequest(URI uri, CertificateRequest request) {
     try {
-      return postRequest(uri, request, CertificateChoiceResponse.class);
-    } catch (NotFoundException e) {
-      logger.warn("Certificate not found for URI " + uri + ": " + e.getMessage());
-      throw new CertificateNotFoundException();
-    } catch (ForbiddenException e) {
-      logger.warn("No permission to issue the request");
-      throw new RequestForbiddenException();
+      return postRequest(SmartIdEndpoint.CERTIFICATE_CHOICE, uri, request, CertificateChoiceResponse.class);
+    } catch (RuntimeException e) {
+      throw recordException(translateCertificateException(uri, e));
     }
   }
 
+  private SmartIdFuture<CertificateChoiceResponse> postCertificateRequestAsync(final URI uri, CertificateRequest request) {
+    return submitAsync(SmartIdEndpoint.CERTIFICATE_CHOICE, uri, HttpMethod.POST, request, CertificateChoiceResponse.class, new ExceptionTranslator() {
+      @Override
+      public RuntimeException translate(RuntimeException e) {
+        return translateCertificateException(uri, translatePostRequestException(uri, e));
+      }
+    });
+  }
+
   private AuthenticationSessionResponse postAuthenticationRequest(URI uri, AuthenticationSessionRequest request) {
     try {
-      return postRequest(uri, request, AuthenticationSessionResponse.class);
-    } catch (NotFoundException e) {
-      logger.warn("User account not found for URI " + uri + ": " + e.getMessage());
-      throw new UserAccountNotFoundException();
-    } catch (ForbiddenException e) {
-      logger.warn("No permission to issue the request");
-      throw new RequestForbiddenException();
+      return postRequest(SmartIdEndpoint.AUTHENTICATION, uri, request, AuthenticationSessionResponse.class);
+    } catch (RuntimeException e) {
+      throw recordException(translateAuthenticationException(uri, e));
     }
   }
 
-  private <T, V> T postRequest(URI uri, V request, Class<T> responseType) {
+  private SmartIdFuture<AuthenticationSessionResponse> postAuthenticationRequestAsync(final URI uri, AuthenticationSessionRequest request) {
+    return submitAsync(SmartIdEndpoint.AUTHENTICATION, uri, HttpMethod.POST, request, AuthenticationSessionResponse.class, new ExceptionTranslator() {
+      @Override
+      public RuntimeException translate(RuntimeException e) {
+        return translateAuthenticationException(uri, translatePostRequestException(uri, e));
+      }
+    });
+  }
+
+  private <T, V> T postRequest(SmartIdEndpoint endpoint, URI uri, V request, Class<T> responseType) {
+    long startNanos = System.nanoTime();
     try {
       Entity<V> requestEntity = Entity.entity(request, MediaType.APPLICATION_JSON);
       T result = prepareClient(uri).post(requestEntity, responseType);
+      recordResponse(endpoint, startNanos, null);
       return result;
-    } catch (NotAuthorizedException e) {
-      logger.warn("Request is unauthorized for URI " + uri + ": " + e.getMessage());
-      throw new UnauthorizedException();
-    } catch (BadRequestException e) {
-      logger.warn("Request is invalid for URI " + uri + ": " + e.getMessage());
-      throw new InvalidParametersException();
-    } catch (ClientErrorException e) {
-      if (e.getResponse().getStatus() == 480) {
-        logger.warn("Client-side API is too old and not supported anymore");
-        throw new ClientNotSupportedException();
+    } catch (RuntimeException e) {
+      recordResponse(endpoint, startNanos, e);
+      throw translatePostRequestException(uri, e);
+    }
+  }
+
+  private <T, V> SmartIdFuture<T> submitAsync(final SmartIdEndpoint endpoint, URI uri, String method, V request, Class<T> responseType,
+      final ExceptionTranslator exceptionTranslator) {
+    final SmartIdFuture<T> future = new SmartIdFuture<>();
+    Invocation.Builder builder = prepareClient(uri);
+    Invocation invocation = request == null ? builder.build(method) : builder.build(method, Entity.entity(request, MediaType.APPLICATION_JSON));
+    final long startNanos = System.nanoTime();
+    ((JerseyInvocation) invocation).submit(new GenericType<T>(responseType), new InvocationCallback<T>() {
+      @Override
+      public void completed(T response) {
+        recordResponse(endpoint, startNanos, null);
+        future.complete(response);
       }
-      throw e;
-    } catch (ServerErrorException e) {
-      if (e.getResponse().getStatus() == 580) {
-        logger.warn("Server is under maintenance, retry later");
-        throw new ServerMaintenanceException();
+
+      @Override
+      public void failed(Throwable throwable) {
+        if (throwable instanceof ResponseProcessingException && throwable.getCause() instanceof WebApplicationException) {
+          throwable = throwable.getCause();
+        }
+        recordResponse(endpoint, startNanos, throwable);
+        if (throwable instanceof RuntimeException) {
+          future.completeExceptionally(recordException(exceptionTranslator.translate((RuntimeException) throwable)));
+        } else {
+          future.completeExceptionally(throwable);
+        }
       }
-      throw e;
+    });
+    return future;
+  }
+
+  private void recordResponse(SmartIdEndpoint endpoint, long startNanos, Throwable failure) {
+    int httpStatus;
+    if (failure == null) {
+      httpStatus = 200;
+    } else if (failure instanceof WebApplicationException) {
+      httpStatus = ((WebApplicationException) failure).getResponse().getStatus();
+    } else if (failure instanceof ResponseProcessingException) {
+      httpStatus = ((ResponseProcessingException) failure).getResponse().getStatus();
+    } else {
+      httpStatus = 0;
     }
+    getMetrics().recordRequest(endpoint, httpStatus, System.nanoTime() - startNanos);
   }
 
-  private void addResponseSocketOpenTimeUrlParameter(SessionStatusRequest request, UriBuilder uriBuilder) {
-    if (request.isResponseSocketOpenTimeSet()) {
-      TimeUnit timeUnit = request.getResponseSocketOpenTimeUnit();
-      long timeValue = request.getResponseSocketOpenTimeValue();
-      long queryTimeoutInMilliseconds = timeUnit.toMillis(timeValue);
-      uriBuilder.queryParam("timeoutMs", queryTimeoutInMilliseconds);
+  private RuntimeException recordException(RuntimeException e) {
+    if (e instanceof SmartIdException) {
+      getMetrics().recordException((SmartIdException) e);
+    }
+    return e;
+  }
+
+  private RuntimeException translateSessionStatusException(SessionStatusRequest request, RuntimeException e) {
+    if (e instanceof NotFoundException) {
+      logger.warn("Session " + request + " not found: " + e.getMessage());
+      return new SessionNotFoundException();
+    }
+    return e;
+  }
+
+  private RuntimeException translateCertificateException(URI uri, RuntimeException e) {
+    if (e instanceof NotFoundException) {
+      logger.warn("Certificate not found for URI " + uri + ": " + e.getMessage());
+      return new CertificateNotFoundException();
+    } else if (e instanceof ForbiddenException) {
+      logger.warn("No permission to issue the request");
+      return new RequestForbiddenException();
+    }
+    return e;
+  }
+
+  private RuntimeException translateSignatureException(String documentNumber, RuntimeException e) {
+    if (e instanceof NotFoundException) {
+      logger.warn("User account not found for signing with document " + documentNumber);
+      return new UserAccountNotFoundException();
+    } else if (e instanceof ForbiddenException) {
+      logger.warn("No permission to issue the request");
+      return new RequestForbiddenException();
+    }
+    return e;
+  }
+
+  private RuntimeException translateAuthenticationException(URI uri, RuntimeException e) {
+    if (e instanceof NotFoundException) {
+      logger.warn("User account not found for URI " + uri + ": " + e.getMessage());
+      return new UserAccountNotFoundException();
+    } else if (e instanceof ForbiddenException) {
+      logger.warn("No permission to issue the request");
+      return new RequestForbiddenException();
+    }
+    return e;
+  }
+
+  private RuntimeException translatePostRequestException(URI uri, RuntimeException e) {
+    if (e instanceof NotAuthorizedException) {
+      logger.warn("Request is unauthorized for URI " + uri + ": " + e.getMessage());
+      return new UnauthorizedException();
+    } else if (e instanceof BadRequestException) {
+      logger.warn("Request is invalid for URI " + uri + ": " + e.getMessage());
+      return new InvalidParametersException();
+    } else if (e instanceof ClientErrorException && ((ClientErrorException) e).getResponse().getStatus() == 480) {
+      logger.warn("Client-side API is too old and not supported anymore");
+      return new ClientNotSupportedException();
+    } else if (e instanceof ServerErrorException && ((ServerErrorException) e).getResponse().getStatus() == 580) {
+      logger.warn("Server is under maintenance, retry later");
+      return new ServerMaintenanceException();
+    }
+    return e;
+  }
+
+  private interface ExceptionTranslator {
+
+    RuntimeException translate(RuntimeException e);
+  }
+
+  /**
+   * Templates of the endpoints parsed once per connector
+   */
+  private static final class EndpointTemplates {
+
+    private final EndpointTemplate sessionStatus;
+    private final EndpointTemplate certificateChoiceByNationalIdentity;
+    private final EndpointTemplate certificateChoiceByDocumentNumber;
+    private final EndpointTemplate signatureByDocumentNumber;
+    private final EndpointTemplate authenticationByDocumentNumber;
+    private final EndpointTemplate authenticationByNationalIdentity;
+
+    private EndpointTemplates(String endpointUrl) {
+      sessionStatus = new EndpointTemplate(endpointUrl, SESSION_STATUS_URI);
+      certificateChoiceByNationalIdentity = new EndpointTemplate(endpointUrl, CERTIFICATE_CHOICE_BY_NATIONAL_IDENTITY_PATH);
+      certificateChoiceByDocumentNumber = new EndpointTemplate(endpointUrl, CERTIFICATE_CHOICE_BY_DOCUMENT_NUMBER_PATH);
+      signatureByDocumentNumber = new EndpointTemplate(endpointUrl, SIGNATURE_BY_DOCUMENT_NUMBER_PATH);
+      authenticationByDocumentNumber = new EndpointTemplate(endpointUrl, AUTHENTICATE_BY_DOCUMENT_NUMBER_PATH);
+      authenticationByNationalIdentity = new EndpointTemplate(endpointUrl, AUTHENTICATE_BY_NATIONAL_IDENTITY_PATH);
     }
   }
 }
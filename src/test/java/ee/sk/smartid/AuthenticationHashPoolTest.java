@@ -0,0 +1,80 @@
+package ee.sk.smartid;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AuthenticationHashPoolTest {
+
+  private AuthenticationHashPool hashPool;
+
+  @After
+  public void tearDown() {
+    if (hashPool != null) {
+      hashPool.close();
+    }
+  }
+
+  @Test
+  public void pool_shouldFillUpToCapacity() throws Exception {
+    hashPool = new AuthenticationHashPool(HashType.SHA256, 10);
+    waitForSize(10);
+    Thread.sleep(20L);
+    assertEquals(10, hashPool.getSize());
+  }
+
+  @Test
+  public void getAuthenticationHash_shouldReturnReadyHash() throws Exception {
+    hashPool = new AuthenticationHashPool(HashType.SHA256, 10);
+    waitForSize(10);
+
+    AuthenticationHash authenticationHash = hashPool.getAuthenticationHash();
+
+    assertEquals(HashType.SHA256, authenticationHash.getHashType());
+    assertTrue(authenticationHash.areFieldsFilled());
+    assertEquals(VerificationCodeCalculator.calculate(Base64.decodeBase64(authenticationHash.getHashInBase64())),
+        authenticationHash.calculateVerificationCode());
+    assertEquals(0, hashPool.getEmptyCount());
+  }
+
+  @Test
+  public void getAuthenticationHash_shouldNeverReturnSameHash() {
+    hashPool = new AuthenticationHashPool(HashType.SHA512, 16);
+    Set<String> hashes = new HashSet<>();
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(hashes.add(hashPool.getAuthenticationHash().getHashInBase64()));
+    }
+  }
+
+  @Test
+  public void getAuthenticationHash_fromEmptyPool_shouldGenerateHashAndCountIt() {
+    hashPool = new AuthenticationHashPool(HashType.SHA512, 1);
+    hashPool.close();
+
+    AuthenticationHash authenticationHash = hashPool.getAuthenticationHash();
+
+    assertEquals(HashType.SHA512, authenticationHash.getHashType());
+    assertTrue(authenticationHash.areFieldsFilled());
+    assertEquals(1, hashPool.getEmptyCount());
+    assertEquals(0, hashPool.getSize());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void pool_withoutCapacity_shouldThrowException() {
+    new AuthenticationHashPool(HashType.SHA512, 0);
+  }
+
+  private void waitForSize(int size) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000L;
+    while (hashPool.getSize() < size && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5L);
+    }
+    assertEquals(size, hashPool.getSize());
+  }
+}
@@ -4,6 +4,7 @@ import ee.sk.smartid.exception.InvalidParametersException;
 import ee.sk.smartid.exception.TechnicalErrorException;
 import ee.sk.smartid.exception.UserRefusedException;
 import ee.sk.smartid.rest.SessionStatusPoller;
+import ee.sk.smartid.rest.SessionStatusPollingEngine;
 import ee.sk.smartid.rest.SmartIdConnectorSpy;
 import ee.sk.smartid.rest.dao.AuthenticationSessionResponse;
 import ee.sk.smartid.rest.dao.NationalIdentity;
@@ -11,14 +12,19 @@ import ee.sk.smartid.rest.dao.SessionCertificate;
 import ee.sk.smartid.rest.dao.SessionSignature;
 import ee.sk.smartid.rest.dao.SessionStatus;
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.lang3.SerializationUtils;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.security.cert.CertificateEncodingException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static ee.sk.smartid.DummyData.createSessionEndResult;
 import static ee.sk.smartid.DummyData.createUserRefusedSessionStatus;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertNotNull;
 
 public class AuthenticationRequestBuilderTest {
@@ -233,6 +239,88 @@ public class AuthenticationRequestBuilderTest {
     makeAuthenticationRequest();
   }
 
+  @Test
+  public void authenticateAsync_withBlockingConnector() throws Exception {
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    try {
+      AuthenticationHash authenticationHash = AuthenticationHash.generateRandomHash();
+      AuthenticationRequestBuilder asyncBuilder = new AuthenticationRequestBuilder(connector, new SessionStatusPollingEngine(sessionStatusPoller, scheduler));
+
+      SmartIdAuthenticationResponse authenticationResponse = asyncBuilder
+          .withRelyingPartyUUID("relying-party-uuid")
+          .withRelyingPartyName("relying-party-name")
+          .withCertificateLevel("QUALIFIED")
+          .withAuthenticationHash(authenticationHash)
+          .withDocumentNumber("PNOEE-31111111111")
+          .authenticateAsync()
+          .get(5, TimeUnit.SECONDS);
+
+      assertCorrectAuthenticationRequestMadeWithDocumentNumber(authenticationHash.getHashInBase64(), "QUALIFIED");
+      assertCorrectSessionRequestMade();
+      assertAuthenticationResponseCorrect(authenticationResponse, authenticationHash.getHashInBase64());
+    } finally {
+      scheduler.shutdownNow();
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void authenticateAsync_withoutPollingEngine_shouldThrowException() throws Exception {
+    builder
+        .withRelyingPartyUUID("relying-party-uuid")
+        .withRelyingPartyName("relying-party-name")
+        .withAuthenticationHash(AuthenticationHash.generateRandomHash())
+        .withDocumentNumber("PNOEE-31111111111")
+        .authenticateAsync();
+  }
+
+  @Test
+  public void startAndAwait_withSerializedHandleOnAnotherBuilder() throws Exception {
+    AuthenticationHash authenticationHash = AuthenticationHash.generateRandomHash();
+
+    SmartIdSessionHandle handle = builder
+        .withRelyingPartyUUID("relying-party-uuid")
+        .withRelyingPartyName("relying-party-name")
+        .withCertificateLevel("QUALIFIED")
+        .withAuthenticationHash(authenticationHash)
+        .withDocumentNumber("PNOEE-31111111111")
+        .start();
+
+    assertEquals("97f5058e-e308-4c83-ac14-7712b0eb9d86", handle.getSessionId());
+    assertEquals(authenticationHash.calculateVerificationCode(), handle.getVerificationCode());
+    assertCorrectAuthenticationRequestMadeWithDocumentNumber(authenticationHash.getHashInBase64(), "QUALIFIED");
+
+    SmartIdSessionHandle restoredHandle = SerializationUtils.roundtrip(handle);
+    SmartIdAuthenticationResponse authenticationResponse = new AuthenticationRequestBuilder(connector, sessionStatusPoller).await(restoredHandle);
+
+    assertCorrectSessionRequestMade();
+    assertAuthenticationResponseCorrect(authenticationResponse, authenticationHash.getHashInBase64());
+  }
+
+  @Test
+  public void poll_whenSessionIsRunning_shouldReturnNull() throws Exception {
+    SessionStatus runningStatus = new SessionStatus();
+    runningStatus.setState("RUNNING");
+    connector.sessionStatusToRespond = runningStatus;
+    SmartIdSessionHandle handle = new SmartIdSessionHandle();
+    handle.setSessionId("97f5058e-e308-4c83-ac14-7712b0eb9d86");
+
+    assertNull(builder.poll(handle));
+    assertCorrectSessionRequestMade();
+  }
+
+  @Test(expected = InvalidParametersException.class)
+  public void await_withoutSessionId_shouldThrowException() throws Exception {
+    builder.await(new SmartIdSessionHandle());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void await_withSignatureSessionHandle_shouldThrowException() throws Exception {
+    SmartIdSessionHandle handle = new SmartIdSessionHandle();
+    handle.setSessionType(SessionType.SIGNATURE);
+    handle.setSessionId("97f5058e-e308-4c83-ac14-7712b0eb9d86");
+    builder.await(handle);
+  }
+
   private void assertCorrectAuthenticationRequestMadeWithDocumentNumber(String expectedHashToSignInBase64, String expectedCertificateLevel) {
     assertEquals("PNOEE-31111111111", connector.documentNumberUsed);
     assertEquals("relying-party-uuid", connector.authenticationSessionRequestUsed.getRelyingPartyUUID());
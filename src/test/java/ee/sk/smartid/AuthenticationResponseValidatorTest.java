@@ -19,9 +19,9 @@ import java.util.Date;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
-import static org.mockito.Mockito.spy;
-import static org.mockito.Mockito.when;
 
 public class AuthenticationResponseValidatorTest {
   
@@ -158,6 +158,70 @@ public class AuthenticationResponseValidatorTest {
     assertEquals(getX509Certificate(Files.readAllBytes(caCertificateFile.toPath())).getSubjectDN(), validator.getTrustedCACertificates().get(0).getSubjectDN());
   }
 
+  @Test
+  public void newValidators_shouldShareDefaultTrustedCACertificates() throws Exception {
+    AuthenticationResponseValidator otherValidator = new AuthenticationResponseValidator();
+
+    assertFalse(validator.getTrustedCACertificates().isEmpty());
+    assertSame(validator.getTrustedCACertificates(), otherValidator.getTrustedCACertificates());
+  }
+
+  @Test
+  public void addTrustedCACertificate_shouldNotAffectOtherValidators() throws Exception {
+    AuthenticationResponseValidator otherValidator = new AuthenticationResponseValidator();
+    int defaultCertificateCount = otherValidator.getTrustedCACertificates().size();
+
+    validator.addTrustedCACertificate(Base64.decodeBase64(CERTIFICATE));
+
+    assertEquals(defaultCertificateCount + 1, validator.getTrustedCACertificates().size());
+    assertEquals(defaultCertificateCount, otherValidator.getTrustedCACertificates().size());
+    assertEquals(defaultCertificateCount, new AuthenticationResponseValidator().getTrustedCACertificates().size());
+    assertNotSame(validator.getTrustedCACertificates(), otherValidator.getTrustedCACertificates());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void getTrustedCACertificates_shouldNotBeModifiable() throws Exception {
+    validator.getTrustedCACertificates().clear();
+  }
+
+  @Test
+  public void validate_withCertificateVerificationCache_shouldVerifyCertificateOnce() throws Exception {
+    CertificateVerificationCache cache = new CertificateVerificationCache();
+    validator.setCertificateVerificationCache(cache);
+    AuthenticationResponseValidator otherValidator = new AuthenticationResponseValidator();
+    otherValidator.setCertificateVerificationCache(cache);
+    SmartIdAuthenticationResponse response = createValidValidationResponse();
+    DelegatingX509Certificate certificate = new DelegatingX509Certificate(response.getCertificate(), DateUtils.addDays(new Date(), 1));
+    response.setCertificate(certificate);
+
+    SmartIdAuthenticationResult firstResult = validator.validate(response);
+    SmartIdAuthenticationResult secondResult = otherValidator.validate(response);
+
+    assertTrue(firstResult.isValid());
+    assertTrue(secondResult.isValid());
+    assertAuthenticationIdentityValid(secondResult.getAuthenticationIdentity(), response.getCertificate());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, certificate.getVerifyCount());
+  }
+
+  @Test
+  public void validate_afterTrustedCACertificatesChange_shouldNotReuseVerdict() throws Exception {
+    CertificateVerificationCache cache = new CertificateVerificationCache();
+    validator.setCertificateVerificationCache(cache);
+    SmartIdAuthenticationResponse response = createValidValidationResponse();
+    DelegatingX509Certificate certificate = new DelegatingX509Certificate(response.getCertificate(), DateUtils.addDays(new Date(), 1));
+    response.setCertificate(certificate);
+
+    assertTrue(validator.validate(response).isValid());
+    validator.clearTrustedCACertificates();
+    SmartIdAuthenticationResult result = validator.validate(response);
+
+    assertFalse(result.isValid());
+    assertTrue(result.getErrors().contains(SmartIdAuthenticationResult.Error.CERTIFICATE_NOT_TRUSTED.getMessage()));
+    assertEquals(2, cache.getMissCount());
+  }
+
   @Test
   public void withEmptyRequestedCertificateLevel_shouldPass() throws Exception {
     SmartIdAuthenticationResponse response = createValidValidationResponse();
@@ -223,9 +287,7 @@ public class AuthenticationResponseValidatorTest {
 
   private SmartIdAuthenticationResponse createValidationResponseWithExpiredCertificate() {
     SmartIdAuthenticationResponse response = createValidationResponse("OK", VALID_SIGNATURE_IN_BASE64, "QUALIFIED", "QUALIFIED");
-    X509Certificate certificateSpy = spy(response.getCertificate());
-    when(certificateSpy.getNotAfter()).thenReturn(DateUtils.addHours(new Date(), -1));
-    response.setCertificate(certificateSpy);
+    response.setCertificate(new DelegatingX509Certificate(response.getCertificate(), DateUtils.addHours(new Date(), -1)));
     return response;
   }
 
@@ -0,0 +1,49 @@
+package ee.sk.smartid;
+
+import ee.sk.smartid.exception.TechnicalErrorException;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CertificateParserTest {
+
+  @Test
+  public void parseX509Certificate() throws Exception {
+    X509Certificate certificate = CertificateParser.parseX509Certificate(DummyData.CERTIFICATE);
+
+    X509Certificate expectedCertificate = (X509Certificate) CertificateFactory.getInstance("X.509")
+        .generateCertificate(new ByteArrayInputStream(Base64.decodeBase64(DummyData.CERTIFICATE)));
+    assertEquals(expectedCertificate, certificate);
+    assertEquals("SERIALNUMBER=PNOEE-31111111111, GIVENNAME=MANIVALDE, SURNAME=ELFRIIDA, CN=\"ELFRIIDA,MANIVALDE,PNOEE-31111111111\", OU=digital signature, O=AS Sertifitseerimiskeskus, C=EE",
+        certificate.getSubjectDN().getName());
+  }
+
+  @Test
+  public void parseX509Certificate_withLineBreaks() throws Exception {
+    String certificateValue = DummyData.CERTIFICATE.substring(0, 64) + "\n" + DummyData.CERTIFICATE.substring(64);
+
+    X509Certificate certificate = CertificateParser.parseX509Certificate(certificateValue);
+
+    assertEquals(CertificateParser.parseX509Certificate(DummyData.CERTIFICATE), certificate);
+  }
+
+  @Test
+  public void parseX509Certificate_sameValueTwice_shouldReturnInternedInstance() throws Exception {
+    X509Certificate certificate = CertificateParser.parseX509Certificate(DummyData.CERTIFICATE);
+
+    assertSame(certificate, CertificateParser.parseX509Certificate(new String(DummyData.CERTIFICATE)));
+    assertTrue(CertificateParser.getInternedCertificateCount() >= 1);
+  }
+
+  @Test(expected = TechnicalErrorException.class)
+  public void parseX509Certificate_withInvalidValue_shouldThrowException() throws Exception {
+    CertificateParser.parseX509Certificate("bm90IGEgY2VydGlmaWNhdGU=");
+  }
+}
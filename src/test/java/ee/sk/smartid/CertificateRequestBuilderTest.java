@@ -4,6 +4,7 @@ import ee.sk.smartid.exception.InvalidParametersException;
 import ee.sk.smartid.exception.TechnicalErrorException;
 import ee.sk.smartid.exception.UserRefusedException;
 import ee.sk.smartid.rest.SessionStatusPoller;
+import ee.sk.smartid.rest.SessionStatusPollingEngine;
 import ee.sk.smartid.rest.SmartIdConnectorSpy;
 import ee.sk.smartid.rest.dao.CertificateChoiceResponse;
 import ee.sk.smartid.rest.dao.NationalIdentity;
@@ -13,11 +14,15 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.security.cert.X509Certificate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static ee.sk.smartid.DummyData.createSessionEndResult;
 import static ee.sk.smartid.DummyData.createUserRefusedSessionStatus;
 import static org.hamcrest.Matchers.containsString;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 
@@ -159,6 +164,56 @@ public class CertificateRequestBuilderTest {
     makeCertificateRequest();
   }
 
+  @Test
+  public void fetchAsync_withBlockingConnector() throws Exception {
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    try {
+      CertificateRequestBuilder asyncBuilder = new CertificateRequestBuilder(connector, new SessionStatusPollingEngine(sessionStatusPoller, scheduler));
+
+      SmartIdCertificate certificate = asyncBuilder
+          .withRelyingPartyUUID("relying-party-uuid")
+          .withRelyingPartyName("relying-party-name")
+          .withCountryCode("EE")
+          .withNationalIdentityNumber("31111111111")
+          .withCertificateLevel("QUALIFIED")
+          .fetchAsync()
+          .get(5, TimeUnit.SECONDS);
+
+      assertCertificateResponseValid(certificate);
+      assertCorrectSessionRequestMade();
+      assertValidCertificateChoiceRequestMade("QUALIFIED");
+    } finally {
+      scheduler.shutdownNow();
+    }
+  }
+
+  @Test
+  public void startAndAwait() throws Exception {
+    SmartIdSessionHandle handle = builder
+        .withRelyingPartyUUID("relying-party-uuid")
+        .withRelyingPartyName("relying-party-name")
+        .withCountryCode("EE")
+        .withNationalIdentityNumber("31111111111")
+        .withCertificateLevel("QUALIFIED")
+        .start();
+
+    assertValidCertificateChoiceRequestMade("QUALIFIED");
+    assertNull(handle.getVerificationCode());
+
+    SmartIdCertificate certificate = builder.await(handle);
+
+    assertCorrectSessionRequestMade();
+    assertCertificateResponseValid(certificate);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void await_withSignatureSessionHandle_shouldThrowException() throws Exception {
+    SmartIdSessionHandle handle = new SmartIdSessionHandle();
+    handle.setSessionType(SessionType.SIGNATURE);
+    handle.setSessionId("97f5058e-e308-4c83-ac14-7712b0eb9d86");
+    builder.await(handle);
+  }
+
   private void assertCertificateResponseValid(SmartIdCertificate certificate) {
     assertNotNull(certificate);
     assertNotNull(certificate.getCertificate());
@@ -0,0 +1,106 @@
+package ee.sk.smartid;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CertificateVerificationCacheTest {
+
+  private X509Certificate eidCACertificate;
+  private X509Certificate nqCACertificate;
+  private TrustedCACertificateIndex trustedCertificates;
+
+  @Before
+  public void setUp() throws Exception {
+    eidCACertificate = readCertificate("/trusted_certificates/TEST_of_EID-SK_2016.pem.crt");
+    nqCACertificate = readCertificate("/trusted_certificates/TEST_of_NQ-SK_2016.pem.crt");
+    trustedCertificates = new TrustedCACertificateIndex(Collections.singletonList(eidCACertificate));
+  }
+
+  @Test
+  public void get_afterPut_shouldReturnVerdict() throws Exception {
+    CertificateVerificationCache cache = new CertificateVerificationCache();
+    AuthenticationIdentity identity = createIdentity();
+
+    assertNull(cache.get(eidCACertificate, trustedCertificates));
+    cache.put(eidCACertificate, trustedCertificates, true, identity);
+    CertificateVerificationCache.Verdict entry = cache.get(eidCACertificate, trustedCertificates);
+
+    assertNotNull(entry);
+    assertTrue(entry.isTrusted());
+    assertEquals("31111111111", entry.getIdentity().getIdentityCode());
+    assertNotSame(identity, entry.getIdentity());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public void get_withOtherTrustedCertificates_shouldMiss() throws Exception {
+    CertificateVerificationCache cache = new CertificateVerificationCache();
+    cache.put(eidCACertificate, trustedCertificates, true, createIdentity());
+
+    assertNull(cache.get(eidCACertificate, trustedCertificates.with(nqCACertificate)));
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public void put_whenFull_shouldEvictLeastRecentlyUsed() throws Exception {
+    CertificateVerificationCache cache = new CertificateVerificationCache(1, TimeUnit.HOURS, 1L);
+    cache.put(eidCACertificate, trustedCertificates, true, createIdentity());
+    cache.put(nqCACertificate, trustedCertificates, false, createIdentity());
+
+    assertEquals(1, cache.getSize());
+    assertNull(cache.get(eidCACertificate, trustedCertificates));
+    assertFalse(cache.get(nqCACertificate, trustedCertificates).isTrusted());
+  }
+
+  @Test
+  public void get_afterTimeToLive_shouldMiss() throws Exception {
+    CertificateVerificationCache cache = new CertificateVerificationCache(10, TimeUnit.MILLISECONDS, 20L);
+    cache.put(eidCACertificate, trustedCertificates, true, createIdentity());
+    Thread.sleep(50L);
+
+    assertNull(cache.get(eidCACertificate, trustedCertificates));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void put_withExpiredCertificate_shouldNotCache() throws Exception {
+    CertificateVerificationCache cache = new CertificateVerificationCache();
+    X509Certificate expiredCertificate = CertificateParser.parseX509Certificate(DummyData.CERTIFICATE);
+
+    cache.put(expiredCertificate, trustedCertificates, true, createIdentity());
+
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void construct_withZeroEntries_shouldThrowException() throws Exception {
+    new CertificateVerificationCache(0, TimeUnit.HOURS, 1L);
+  }
+
+  private static AuthenticationIdentity createIdentity() {
+    AuthenticationIdentity identity = new AuthenticationIdentity();
+    identity.setIdentityCode("31111111111");
+    identity.setCountry("EE");
+    return identity;
+  }
+
+  private static X509Certificate readCertificate(String resource) throws Exception {
+    try (InputStream is = CertificateVerificationCacheTest.class.getResourceAsStream(resource)) {
+      return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(is);
+    }
+  }
+}
@@ -0,0 +1,198 @@
+package ee.sk.smartid;
+
+import javax.security.auth.x500.X500Principal;
+import java.math.BigInteger;
+import java.security.*;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateExpiredException;
+import java.security.cert.CertificateNotYetValidException;
+import java.security.cert.CertificateParsingException;
+import java.security.cert.X509Certificate;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Certificate that delegates to a parsed one, with the expiry date replaceable
+ * and the signature verifications counted
+ */
+public class DelegatingX509Certificate extends X509Certificate {
+
+  private final X509Certificate delegate;
+  private final Date notAfter;
+  private final AtomicInteger verifyCount = new AtomicInteger();
+
+  public DelegatingX509Certificate(X509Certificate delegate, Date notAfter) {
+    this.delegate = delegate;
+    this.notAfter = notAfter;
+  }
+
+  public int getVerifyCount() {
+    return verifyCount.get();
+  }
+
+  @Override
+  public Date getNotAfter() {
+    return notAfter;
+  }
+
+  @Override
+  public void verify(PublicKey key) throws CertificateException, NoSuchAlgorithmException, InvalidKeyException, NoSuchProviderException, SignatureException {
+    verifyCount.incrementAndGet();
+    delegate.verify(key);
+  }
+
+  @Override
+  public void verify(PublicKey key, String sigProvider) throws CertificateException, NoSuchAlgorithmException, InvalidKeyException, NoSuchProviderException, SignatureException {
+    verifyCount.incrementAndGet();
+    delegate.verify(key, sigProvider);
+  }
+
+  @Override
+  public void checkValidity() throws CertificateExpiredException, CertificateNotYetValidException {
+    checkValidity(new Date());
+  }
+
+  @Override
+  public void checkValidity(Date date) throws CertificateExpiredException, CertificateNotYetValidException {
+    if (date.after(notAfter)) {
+      throw new CertificateExpiredException("Certificate expired on " + notAfter);
+    }
+    if (date.before(getNotBefore())) {
+      throw new CertificateNotYetValidException("Certificate not valid until " + getNotBefore());
+    }
+  }
+
+  @Override
+  public int getVersion() {
+    return delegate.getVersion();
+  }
+
+  @Override
+  public BigInteger getSerialNumber() {
+    return delegate.getSerialNumber();
+  }
+
+  @Override
+  public Principal getIssuerDN() {
+    return delegate.getIssuerDN();
+  }
+
+  @Override
+  public X500Principal getIssuerX500Principal() {
+    return delegate.getIssuerX500Principal();
+  }
+
+  @Override
+  public Principal getSubjectDN() {
+    return delegate.getSubjectDN();
+  }
+
+  @Override
+  public X500Principal getSubjectX500Principal() {
+    return delegate.getSubjectX500Principal();
+  }
+
+  @Override
+  public Date getNotBefore() {
+    return delegate.getNotBefore();
+  }
+
+  @Override
+  public byte[] getTBSCertificate() throws CertificateEncodingException {
+    return delegate.getTBSCertificate();
+  }
+
+  @Override
+  public byte[] getSignature() {
+    return delegate.getSignature();
+  }
+
+  @Override
+  public String getSigAlgName() {
+    return delegate.getSigAlgName();
+  }
+
+  @Override
+  public String getSigAlgOID() {
+    return delegate.getSigAlgOID();
+  }
+
+  @Override
+  public byte[] getSigAlgParams() {
+    return delegate.getSigAlgParams();
+  }
+
+  @Override
+  public boolean[] getIssuerUniqueID() {
+    return delegate.getIssuerUniqueID();
+  }
+
+  @Override
+  public boolean[] getSubjectUniqueID() {
+    return delegate.getSubjectUniqueID();
+  }
+
+  @Override
+  public boolean[] getKeyUsage() {
+    return delegate.getKeyUsage();
+  }
+
+  @Override
+  public List<String> getExtendedKeyUsage() throws CertificateParsingException {
+    return delegate.getExtendedKeyUsage();
+  }
+
+  @Override
+  public int getBasicConstraints() {
+    return delegate.getBasicConstraints();
+  }
+
+  @Override
+  public Collection<List<?>> getSubjectAlternativeNames() throws CertificateParsingException {
+    return delegate.getSubjectAlternativeNames();
+  }
+
+  @Override
+  public Collection<List<?>> getIssuerAlternativeNames() throws CertificateParsingException {
+    return delegate.getIssuerAlternativeNames();
+  }
+
+  @Override
+  public boolean hasUnsupportedCriticalExtension() {
+    return delegate.hasUnsupportedCriticalExtension();
+  }
+
+  @Override
+  public Set<String> getCriticalExtensionOIDs() {
+    return delegate.getCriticalExtensionOIDs();
+  }
+
+  @Override
+  public Set<String> getNonCriticalExtensionOIDs() {
+    return delegate.getNonCriticalExtensionOIDs();
+  }
+
+  @Override
+  public byte[] getExtensionValue(String oid) {
+    return delegate.getExtensionValue(oid);
+  }
+
+  @Override
+  public byte[] getEncoded() throws CertificateEncodingException {
+    return delegate.getEncoded();
+  }
+
+  @Override
+  public PublicKey getPublicKey() {
+    return delegate.getPublicKey();
+  }
+
+  @Override
+  public String toString() {
+    return delegate.toString();
+  }
+}
@@ -0,0 +1,62 @@
+package ee.sk.smartid;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DigestCalculatorTest {
+
+  private static final byte[] DATA = "Hello World!".getBytes();
+
+  @Test
+  public void calculateDigest_shouldMatchDigestUtils() {
+    for (HashType hashType : HashType.values()) {
+      byte[] expected = DigestUtils.getDigest(hashType.getAlgorithmName()).digest(DATA);
+      assertArrayEquals(expected, DigestCalculator.calculateDigest(DATA, hashType));
+    }
+  }
+
+  @Test
+  public void calculateDigest_repeatedly_shouldReturnSameDigest() {
+    byte[] first = DigestCalculator.calculateDigest(DATA, HashType.SHA512);
+    DigestCalculator.calculateDigest("other data".getBytes(), HashType.SHA512);
+    assertArrayEquals(first, DigestCalculator.calculateDigest(DATA, HashType.SHA512));
+  }
+
+  @Test
+  public void calculateDigest_fromManyThreads() throws Exception {
+    final byte[] expected = DigestUtils.sha256(DATA);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        results.add(executor.submit(new Callable<Boolean>() {
+          @Override
+          public Boolean call() {
+            for (int j = 0; j < 10000; j++) {
+              if (!Arrays.equals(expected, DigestCalculator.calculateDigest(DATA, HashType.SHA256))) {
+                return false;
+              }
+            }
+            return true;
+          }
+        }));
+      }
+      for (Future<Boolean> result : results) {
+        assertTrue(result.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
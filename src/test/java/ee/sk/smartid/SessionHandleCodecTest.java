@@ -0,0 +1,59 @@
+package ee.sk.smartid;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SessionHandleCodecTest {
+
+  @Test
+  public void decode_shouldReturnEncodedFields() throws Exception {
+    SmartIdSessionHandle handle = new SmartIdSessionHandle();
+    handle.setSessionType(SessionType.SIGNATURE);
+    handle.setSessionId("2c52caf4-13b0-41c4-bdc6-aa268403cc00");
+    handle.setHashInBase64("0nbgC2fVdLVQFZJdBbmG7oPoElpCYsQMtrY0c0wKYRg=");
+    handle.setHashType(HashType.SHA256);
+    handle.setRequestedCertificateLevel("QUALIFIED");
+    handle.setVerificationCode("4927");
+
+    SmartIdSessionHandle decoded = SessionHandleCodec.decode(SessionHandleCodec.encode(handle));
+
+    assertEquals(SessionType.SIGNATURE, decoded.getSessionType());
+    assertEquals("2c52caf4-13b0-41c4-bdc6-aa268403cc00", decoded.getSessionId());
+    assertEquals("0nbgC2fVdLVQFZJdBbmG7oPoElpCYsQMtrY0c0wKYRg=", decoded.getHashInBase64());
+    assertEquals(HashType.SHA256, decoded.getHashType());
+    assertEquals("QUALIFIED", decoded.getRequestedCertificateLevel());
+    assertEquals("4927", decoded.getVerificationCode());
+  }
+
+  @Test
+  public void decode_withoutOptionalFields_shouldReturnNulls() throws Exception {
+    SmartIdSessionHandle handle = new SmartIdSessionHandle();
+    handle.setSessionType(SessionType.CERTIFICATE_CHOICE);
+    handle.setSessionId("97f5058e-e308-4c83-ac14-7712b0eb9d86");
+
+    SmartIdSessionHandle decoded = SessionHandleCodec.decode(SessionHandleCodec.encode(handle));
+
+    assertEquals(SessionType.CERTIFICATE_CHOICE, decoded.getSessionType());
+    assertNull(decoded.getHashInBase64());
+    assertNull(decoded.getHashType());
+    assertNull(decoded.getVerificationCode());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void decode_withTruncatedData_shouldThrowException() throws Exception {
+    SmartIdSessionHandle handle = new SmartIdSessionHandle();
+    handle.setSessionType(SessionType.AUTHENTICATION);
+    handle.setSessionId("1dcc1600-29a6-4e95-a95c-d69b31febcfb");
+    byte[] encoded = SessionHandleCodec.encode(handle);
+    SessionHandleCodec.decode(Arrays.copyOf(encoded, encoded.length - 3));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void decode_withUnknownSessionType_shouldThrowException() throws Exception {
+    SessionHandleCodec.decode(new byte[]{1, 1, 0, 3, 'F', 'O', 'O'});
+  }
+}
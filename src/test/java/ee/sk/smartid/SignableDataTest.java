@@ -1,10 +1,23 @@
 package ee.sk.smartid;
 
+import ee.sk.smartid.exception.TechnicalErrorException;
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 public class SignableDataTest {
 
@@ -12,6 +25,8 @@ public class SignableDataTest {
   public static final String SHA512_HASH_IN_BASE64 = "hhhE1nBOhXP+w02WfiC8/vPUJM9IvgTm3AjyvVjHKXQzcQFerYkcw88cnTS0kmS1EHUbH/nlN5N7xGtdb/TsyA==";
   public static final String SHA384_HASH_IN_BASE64 = "v9dsDrvQBv7lg0EFR8GIewKSvnbVgtlsJC0qeScj4/1v0GH51c/RO4+WE1jmrbpK";
   public static final String SHA256_HASH_IN_BASE64 = "f4OxZX/x/FO5LcGBSKHWXfwtSx+j1ncoSt3SABJtkGk=";
+  // SHA-256 signable data of DATA_TO_SIGN, serialized by the version that kept only the data and the hash type
+  private static final String SERIALIZED_EARLIER_VERSION = "rO0ABXNyABplZS5zay5zbWFydGlkLlNpZ25hYmxlRGF0YQpTt0wlmaQ7AgACWwAKZGF0YVRvU2lnbnQAAltCTAAIaGFzaFR5cGV0ABhMZWUvc2svc21hcnRpZC9IYXNoVHlwZTt4cHVyAAJbQqzzF/gGCFTgAgAAeHAAAAAMSGVsbG8gV29ybGQhfnIAFmVlLnNrLnNtYXJ0aWQuSGFzaFR5cGUAAAAAAAAAABIAAHhyAA5qYXZhLmxhbmcuRW51bQAAAAAAAAAAEgAAeHB0AAZTSEEyNTY=";
 
   @Test
   public void signableData_withDefaultHashType_sha512() throws Exception {
@@ -41,4 +56,137 @@ public class SignableDataTest {
     assertArrayEquals(Base64.decodeBase64(SHA384_HASH_IN_BASE64), signableData.calculateHash());
     assertEquals("3486", signableData.calculateVerificationCode());
   }
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void signableData_fromPath() throws Exception {
+    byte[] data = createLargeData();
+    Path file = temporaryFolder.newFile().toPath();
+    Files.write(file, data);
+    SignableData signableData = SignableData.fromPath(file);
+    assertArrayEquals(DigestUtils.sha512(data), signableData.calculateHash());
+    signableData.setHashType(HashType.SHA256);
+    assertArrayEquals(DigestUtils.sha256(data), signableData.calculateHash());
+  }
+
+  @Test(expected = TechnicalErrorException.class)
+  public void signableData_fromMissingPath_shouldThrowException() throws Exception {
+    SignableData.fromPath(temporaryFolder.getRoot().toPath().resolve("missing.pdf")).calculateHash();
+  }
+
+  @Test
+  public void signableData_fromByteBuffer() {
+    byte[] data = createLargeData();
+    ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+    buffer.put(data).flip();
+    SignableData signableData = SignableData.fromByteBuffer(buffer);
+    assertArrayEquals(DigestUtils.sha512(data), signableData.calculateHash());
+    assertArrayEquals(DigestUtils.sha512(data), signableData.calculateHash());
+    assertEquals(0, buffer.position());
+  }
+
+  @Test
+  public void signableData_fromInputStream() {
+    byte[] data = createLargeData();
+    SignableData signableData = SignableData.fromInputStream(new ByteArrayInputStream(data), HashType.SHA384);
+    assertEquals(HashType.SHA384, signableData.getHashType());
+    assertArrayEquals(DigestUtils.sha384(data), signableData.calculateHash());
+    assertEquals(Base64.encodeBase64String(DigestUtils.sha384(data)), signableData.calculateHashInBase64());
+  }
+
+  @Test
+  public void signableData_fromInputStream_sameAsFromByteArray() {
+    SignableData signableData = SignableData.fromInputStream(new ByteArrayInputStream(DATA_TO_SIGN), HashType.SHA512);
+    assertEquals(SHA512_HASH_IN_BASE64, signableData.calculateHashInBase64());
+    assertEquals("4664", signableData.calculateVerificationCode());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void signableData_fromInputStream_changingHashType_shouldThrowException() {
+    SignableData signableData = SignableData.fromInputStream(new ByteArrayInputStream(DATA_TO_SIGN), HashType.SHA512);
+    signableData.setHashType(HashType.SHA256);
+  }
+
+  @Test
+  public void signableData_hashIsCalculatedOncePerHashType() throws Exception {
+    byte[] data = createLargeData();
+    Path file = temporaryFolder.newFile().toPath();
+    Files.write(file, data);
+    SignableData signableData = SignableData.fromPath(file);
+    signableData.setHashType(HashType.SHA256);
+    String hashInBase64 = signableData.calculateHashInBase64();
+    Files.delete(file);
+
+    assertEquals(hashInBase64, signableData.calculateHashInBase64());
+    assertArrayEquals(DigestUtils.sha256(data), signableData.calculateHash());
+    assertEquals(VerificationCodeCalculator.calculate(DigestUtils.sha256(data)), signableData.calculateVerificationCode());
+    try {
+      signableData.setHashType(HashType.SHA512);
+      signableData.calculateHash();
+      fail("Expected the file to be read for a new hash type");
+    } catch (TechnicalErrorException expected) {
+    }
+    signableData.setHashType(HashType.SHA256);
+    assertEquals(hashInBase64, signableData.calculateHashInBase64());
+  }
+
+  @Test
+  public void signableData_modifyingReturnedHash_shouldNotChangeCalculatedHash() {
+    SignableData signableData = new SignableData(DATA_TO_SIGN);
+    signableData.calculateHash()[0] ^= 1;
+    assertEquals(SHA512_HASH_IN_BASE64, Base64.encodeBase64String(signableData.calculateHash()));
+  }
+
+  @Test
+  public void signableData_serializedByEarlierVersion_shouldDeserialize() {
+    SignableData signableData = SerializationUtils.deserialize(Base64.decodeBase64(SERIALIZED_EARLIER_VERSION));
+    assertEquals(HashType.SHA256, signableData.getHashType());
+    assertEquals(SHA256_HASH_IN_BASE64, signableData.calculateHashInBase64());
+    signableData.setHashType(HashType.SHA512);
+    assertEquals(SHA512_HASH_IN_BASE64, signableData.calculateHashInBase64());
+  }
+
+  @Test
+  public void signableData_serializationRoundtrip() {
+    SignableData signableData = new SignableData(DATA_TO_SIGN);
+    signableData.setHashType(HashType.SHA256);
+    signableData.calculateHash();
+    SignableData restoredSignableData = SerializationUtils.roundtrip(signableData);
+    assertEquals(HashType.SHA256, restoredSignableData.getHashType());
+    assertEquals(SHA256_HASH_IN_BASE64, restoredSignableData.calculateHashInBase64());
+  }
+
+  @Test
+  public void signableData_fromPath_serializationRoundtrip() throws Exception {
+    byte[] data = createLargeData();
+    Path file = temporaryFolder.newFile().toPath();
+    Files.write(file, data);
+    SignableData signableData = SerializationUtils.roundtrip(SignableData.fromPath(file));
+    assertArrayEquals(DigestUtils.sha512(data), signableData.calculateHash());
+  }
+
+  @Test
+  public void signableData_fromByteBuffer_serializationRoundtrip() {
+    byte[] data = createLargeData();
+    ByteBuffer buffer = ByteBuffer.wrap(data);
+    buffer.position(100);
+    SignableData signableData = SerializationUtils.roundtrip(SignableData.fromByteBuffer(buffer));
+    assertArrayEquals(DigestUtils.sha512(Arrays.copyOfRange(data, 100, data.length)), signableData.calculateHash());
+    assertEquals(100, buffer.position());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void signableData_fromInputStream_serializationRoundtrip() {
+    SignableData signableData = SerializationUtils.roundtrip(SignableData.fromInputStream(new ByteArrayInputStream(DATA_TO_SIGN), HashType.SHA384));
+    assertEquals(SHA384_HASH_IN_BASE64, signableData.calculateHashInBase64());
+    signableData.setHashType(HashType.SHA256);
+  }
+
+  private static byte[] createLargeData() {
+    byte[] data = new byte[3 * DigestCalculator.CHUNK_SIZE + 17];
+    new Random(42).nextBytes(data);
+    return data;
+  }
 }
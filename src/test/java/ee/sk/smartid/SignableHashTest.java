@@ -20,4 +20,14 @@ public class SignableHashTest {
     hashToSign.setHash(DigestCalculator.calculateDigest("Hello World!".getBytes(), HashType.SHA512));
     Assert.assertEquals("4664", hashToSign.calculateVerificationCode());
   }
+
+  @Test
+  public void calculateVerificationCode_afterSettingNewHash() throws Exception {
+    SignableHash hashToSign = new SignableHash();
+    hashToSign.setHashType(HashType.SHA256);
+    hashToSign.setHashInBase64("jsflWgpkVcWOyICotnVn5lazcXdaIWvcvNOWTYPceYQ=");
+    Assert.assertEquals("4240", hashToSign.calculateVerificationCode());
+    hashToSign.setHash(DigestCalculator.calculateDigest("Hello World!".getBytes(), HashType.SHA256));
+    Assert.assertEquals("7712", hashToSign.calculateVerificationCode());
+  }
 }
@@ -4,6 +4,7 @@ import ee.sk.smartid.exception.InvalidParametersException;
 import ee.sk.smartid.exception.TechnicalErrorException;
 import ee.sk.smartid.exception.UserRefusedException;
 import ee.sk.smartid.rest.SessionStatusPoller;
+import ee.sk.smartid.rest.SessionStatusPollingEngine;
 import ee.sk.smartid.rest.SmartIdConnectorSpy;
 import ee.sk.smartid.rest.dao.SessionSignature;
 import ee.sk.smartid.rest.dao.SessionStatus;
@@ -11,6 +12,10 @@ import ee.sk.smartid.rest.dao.SignatureSessionResponse;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 import static ee.sk.smartid.DummyData.createSessionEndResult;
 import static ee.sk.smartid.DummyData.createUserRefusedSessionStatus;
 import static org.junit.Assert.assertEquals;
@@ -177,6 +182,65 @@ public class SignatureRequestBuilderTest {
     makeSigningRequest();
   }
 
+  @Test
+  public void signAsync_withBlockingConnector() throws Exception {
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    try {
+      SignableHash hashToSign = new SignableHash();
+      hashToSign.setHashType(HashType.SHA256);
+      hashToSign.setHashInBase64("jsflWgpkVcWOyICotnVn5lazcXdaIWvcvNOWTYPceYQ=");
+      SignatureRequestBuilder asyncBuilder = new SignatureRequestBuilder(connector, new SessionStatusPollingEngine(sessionStatusPoller, scheduler));
+
+      SmartIdSignature signature = asyncBuilder
+          .withRelyingPartyUUID("relying-party-uuid")
+          .withRelyingPartyName("relying-party-name")
+          .withCertificateLevel("QUALIFIED")
+          .withSignableHash(hashToSign)
+          .withDocumentNumber("PNOEE-31111111111")
+          .signAsync()
+          .get(5, TimeUnit.SECONDS);
+
+      assertCorrectSignatureRequestMade("QUALIFIED");
+      assertCorrectSessionRequestMade();
+      assertSignatureCorrect(signature);
+    } finally {
+      scheduler.shutdownNow();
+    }
+  }
+
+  @Test
+  public void startAndPoll() throws Exception {
+    SignableHash hashToSign = new SignableHash();
+    hashToSign.setHashType(HashType.SHA256);
+    hashToSign.setHashInBase64("jsflWgpkVcWOyICotnVn5lazcXdaIWvcvNOWTYPceYQ=");
+
+    SmartIdSessionHandle handle = builder
+        .withRelyingPartyUUID("relying-party-uuid")
+        .withRelyingPartyName("relying-party-name")
+        .withCertificateLevel("QUALIFIED")
+        .withSignableHash(hashToSign)
+        .withDocumentNumber("PNOEE-31111111111")
+        .start();
+
+    assertEquals(hashToSign.calculateVerificationCode(), handle.getVerificationCode());
+    assertEquals(HashType.SHA256, handle.getHashType());
+    assertEquals("QUALIFIED", handle.getRequestedCertificateLevel());
+    assertCorrectSignatureRequestMade("QUALIFIED");
+
+    SmartIdSignature signature = builder.poll(handle);
+
+    assertCorrectSessionRequestMade();
+    assertSignatureCorrect(signature);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void poll_withAuthenticationSessionHandle_shouldThrowException() throws Exception {
+    SmartIdSessionHandle handle = new SmartIdSessionHandle();
+    handle.setSessionType(SessionType.AUTHENTICATION);
+    handle.setSessionId("97f5058e-e308-4c83-ac14-7712b0eb9d86");
+    builder.poll(handle);
+  }
+
   private void assertCorrectSignatureRequestMade(String expectedCertificateLevel) {
     assertEquals("PNOEE-31111111111", connector.documentNumberUsed);
     assertEquals("relying-party-uuid", connector.signatureSessionRequestUsed.getRelyingPartyUUID());
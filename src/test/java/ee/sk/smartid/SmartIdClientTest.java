@@ -2,19 +2,32 @@ package ee.sk.smartid;
 
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import ee.sk.smartid.exception.*;
+import ee.sk.smartid.rest.AdaptivePollingStrategy;
+import ee.sk.smartid.rest.PendingSessionJournal;
+import ee.sk.smartid.rest.SmartIdFuture;
 import ee.sk.smartid.rest.dao.NationalIdentity;
 import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
 import org.glassfish.jersey.client.ClientConfig;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.findAll;
 import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
@@ -27,16 +40,23 @@ import static ee.sk.smartid.SmartIdRestServiceStubs.stubRequestWithResponse;
 import static ee.sk.smartid.SmartIdRestServiceStubs.stubSessionStatusWithState;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.startsWith;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class SmartIdClientTest {
 
   @Rule
   public WireMockRule wireMockRule = new WireMockRule(18089);
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   private SmartIdClient client;
 
   @Before
@@ -450,6 +470,18 @@ public class SmartIdClientTest {
     assertTrue("Duration is " + duration, duration < 3000L);
   }
 
+  @Test
+  public void setPollingStrategy_shouldOverridePollingSleepTimeout() throws Exception {
+    stubSessionStatusWithState("1dcc1600-29a6-4e95-a95c-d69b31febcfb", "responses/sessionStatusRunning.json", STARTED, "COMPLETE");
+    stubSessionStatusWithState("1dcc1600-29a6-4e95-a95c-d69b31febcfb", "responses/sessionStatusForSuccessfulAuthenticationRequest.json", "COMPLETE", STARTED);
+    client.setPollingSleepTimeout(TimeUnit.SECONDS, 2L);
+    client.setPollingStrategy(new AdaptivePollingStrategy(TimeUnit.MILLISECONDS, 100L, 200L, 2.0));
+    long duration = measureAuthenticationDuration();
+    assertTrue("Duration is " + duration, duration < 1000L);
+    assertEquals(2, client.getPollingStatistics().getPollCount());
+    assertEquals(1, client.getPollingStatistics().getCompletedSessionCount());
+  }
+
   @Test
   public void verifyAuthentication_withNetworkConnectionConfigurationHavingCustomHeader() throws Exception {
     String headerName = "custom-header";
@@ -495,6 +527,225 @@ public class SmartIdClientTest {
         .withHeader(headerName, equalTo(headerValue)));
   }
 
+  @Test
+  public void builders_shouldShareConnectorAndSessionStatusPoller() throws Exception {
+    CertificateRequestBuilder certificateRequestBuilder = client.getCertificate();
+    SignatureRequestBuilder signatureRequestBuilder = client.createSignature();
+    AuthenticationRequestBuilder authenticationRequestBuilder = client.createAuthentication();
+
+    assertSame(certificateRequestBuilder.getConnector(), signatureRequestBuilder.getConnector());
+    assertSame(certificateRequestBuilder.getConnector(), authenticationRequestBuilder.getConnector());
+    assertSame(certificateRequestBuilder.getSessionStatusPoller(), signatureRequestBuilder.getSessionStatusPoller());
+    assertSame(certificateRequestBuilder.getSessionStatusPoller(), authenticationRequestBuilder.getSessionStatusPoller());
+  }
+
+  @Test
+  public void concurrentRequests_shouldUseSharedClient() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<SmartIdCertificate>> certificates = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        certificates.add(executor.submit(new Callable<SmartIdCertificate>() {
+          @Override
+          public SmartIdCertificate call() throws Exception {
+            return client
+                .getCertificate()
+                .withDocumentNumber("PNOEE-31111111111")
+                .withCertificateLevel("ADVANCED")
+                .fetch();
+          }
+        }));
+      }
+      for (Future<SmartIdCertificate> certificate : certificates) {
+        assertCertificateResponseValid(certificate.get(30, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void changeConfiguration_afterClientHasBeenUsed_shouldThrowException() throws Exception {
+    makeGetCertificateRequest();
+    client.setPollingSleepTimeout(TimeUnit.SECONDS, 2L);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void getBuilder_afterClientHasBeenClosed_shouldThrowException() throws Exception {
+    makeGetCertificateRequest();
+    client.close();
+    client.getCertificate();
+  }
+
+  @Test
+  public void getCertificateAsync() throws Exception {
+    SmartIdCertificate certificate = client
+        .getCertificate()
+        .withNationalIdentity(new NationalIdentity("EE", "31111111111"))
+        .withCertificateLevel("ADVANCED")
+        .fetchAsync()
+        .get(10, TimeUnit.SECONDS);
+
+    assertCertificateResponseValid(certificate);
+  }
+
+  @Test
+  public void signAsync() throws Exception {
+    SignableHash hashToSign = new SignableHash();
+    hashToSign.setHashType(HashType.SHA256);
+    hashToSign.setHashInBase64("0nbgC2fVdLVQFZJdBbmG7oPoElpCYsQMtrY0c0wKYRg=");
+
+    SmartIdSignature signature = client
+        .createSignature()
+        .withDocumentNumber("PNOEE-31111111111")
+        .withSignableHash(hashToSign)
+        .withCertificateLevel("ADVANCED")
+        .signAsync()
+        .get(10, TimeUnit.SECONDS);
+
+    assertValidSignatureCreated(signature);
+  }
+
+  @Test
+  public void authenticateAsync_withPolling() throws Exception {
+    stubSessionStatusWithState("1dcc1600-29a6-4e95-a95c-d69b31febcfb", "responses/sessionStatusRunning.json", STARTED, "COMPLETE");
+    stubSessionStatusWithState("1dcc1600-29a6-4e95-a95c-d69b31febcfb", "responses/sessionStatusForSuccessfulAuthenticationRequest.json", "COMPLETE", STARTED);
+    client.setPollingSleepTimeout(TimeUnit.MILLISECONDS, 10L);
+    AuthenticationHash authenticationHash = new AuthenticationHash();
+    authenticationHash.setHashInBase64("K74MSLkafRuKZ1Ooucvh2xa4Q3nz+R/hFWIShN96SPHNcem+uQ6mFMe9kkJQqp5EaoZnJeaFpl310TmlzRgNyQ==");
+    authenticationHash.setHashType(HashType.SHA512);
+
+    SmartIdAuthenticationResponse authenticationResponse = client
+        .createAuthentication()
+        .withDocumentNumber("PNOEE-31111111111")
+        .withAuthenticationHash(authenticationHash)
+        .withCertificateLevel("ADVANCED")
+        .authenticateAsync()
+        .get(10, TimeUnit.SECONDS);
+
+    assertAuthenticationResponseValid(authenticationResponse);
+    verify(2, getRequestedFor(urlEqualTo("/session/1dcc1600-29a6-4e95-a95c-d69b31febcfb")));
+  }
+
+  @Test
+  public void getCertificateAsync_whenUserAccountNotFound_shouldFailFuture() throws Exception {
+    stubNotFoundResponse("/certificatechoice/pno/EE/31111111111", "requests/certificateChoiceRequest.json");
+    try {
+      client
+          .getCertificate()
+          .withNationalIdentity(new NationalIdentity("EE", "31111111111"))
+          .withCertificateLevel("ADVANCED")
+          .fetchAsync()
+          .get(10, TimeUnit.SECONDS);
+      fail("Expected the future to fail");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(CertificateNotFoundException.class));
+    }
+  }
+
+  @Test
+  public void signAsync_whenUserCancels_shouldFailFuture() throws Exception {
+    stubRequestWithResponse("/session/2c52caf4-13b0-41c4-bdc6-aa268403cc00", "responses/sessionStatusWhenUserHasRefused.json");
+    SignableHash hashToSign = new SignableHash();
+    hashToSign.setHashType(HashType.SHA256);
+    hashToSign.setHashInBase64("0nbgC2fVdLVQFZJdBbmG7oPoElpCYsQMtrY0c0wKYRg=");
+    try {
+      client
+          .createSignature()
+          .withDocumentNumber("PNOEE-31111111111")
+          .withSignableHash(hashToSign)
+          .withCertificateLevel("ADVANCED")
+          .signAsync()
+          .get(10, TimeUnit.SECONDS);
+      fail("Expected the future to fail");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(UserRefusedException.class));
+    }
+  }
+
+  @Test
+  public void signAsync_withoutSessionIdInResponse_shouldFailFuture() throws Exception {
+    stubRequestWithResponse("/signature/document/PNOEE-31111111111", "requests/signatureSessionRequest.json", "responses/signatureSessionResponseWithoutSessionId.json");
+    SignableHash hashToSign = new SignableHash();
+    hashToSign.setHashType(HashType.SHA256);
+    hashToSign.setHashInBase64("0nbgC2fVdLVQFZJdBbmG7oPoElpCYsQMtrY0c0wKYRg=");
+    try {
+      client
+          .createSignature()
+          .withDocumentNumber("PNOEE-31111111111")
+          .withSignableHash(hashToSign)
+          .withCertificateLevel("ADVANCED")
+          .signAsync()
+          .get(10, TimeUnit.SECONDS);
+      fail("Expected the future to fail");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(TechnicalErrorException.class));
+    }
+  }
+
+  @Test
+  public void pendingSessionJournal_shouldResumeAuthenticationAfterRestart() throws Exception {
+    File journalFile = temporaryFolder.newFile("sessions.journal");
+    stubRequestWithResponse("/session/1dcc1600-29a6-4e95-a95c-d69b31febcfb", "responses/sessionStatusRunning.json");
+    client.setPollingSleepTimeout(TimeUnit.MILLISECONDS, 10L);
+    client.setPendingSessionJournal(journalFile);
+    AuthenticationHash authenticationHash = new AuthenticationHash();
+    authenticationHash.setHashInBase64("K74MSLkafRuKZ1Ooucvh2xa4Q3nz+R/hFWIShN96SPHNcem+uQ6mFMe9kkJQqp5EaoZnJeaFpl310TmlzRgNyQ==");
+    authenticationHash.setHashType(HashType.SHA512);
+    SmartIdFuture<SmartIdAuthenticationResponse> interruptedResponse = client
+        .createAuthentication()
+        .withDocumentNumber("PNOEE-31111111111")
+        .withAuthenticationHash(authenticationHash)
+        .withCertificateLevel("ADVANCED")
+        .authenticateAsync();
+    waitForSessionStatusRequest("/session/1dcc1600-29a6-4e95-a95c-d69b31febcfb");
+    client.close();
+    assertFalse(interruptedResponse.isDone());
+
+    stubRequestWithResponse("/session/1dcc1600-29a6-4e95-a95c-d69b31febcfb", "responses/sessionStatusForSuccessfulAuthenticationRequest.json");
+    wireMockRule.resetRequests();
+    SmartIdClient restartedClient = new SmartIdClient();
+    restartedClient.setHostUrl("http://localhost:18089");
+    restartedClient.setPendingSessionJournal(journalFile);
+    List<SmartIdSessionHandle> pendingSessions = restartedClient.getPendingSessions();
+    assertEquals(1, pendingSessions.size());
+    SmartIdSessionHandle handle = pendingSessions.get(0);
+    assertEquals(SessionType.AUTHENTICATION, handle.getSessionType());
+    assertEquals("1dcc1600-29a6-4e95-a95c-d69b31febcfb", handle.getSessionId());
+    assertEquals("ADVANCED", handle.getRequestedCertificateLevel());
+    waitForSessionStatusRequest("/session/1dcc1600-29a6-4e95-a95c-d69b31febcfb");
+
+    SmartIdAuthenticationResponse authenticationResponse = restartedClient
+        .createAuthentication()
+        .awaitAsync(handle)
+        .get(10, TimeUnit.SECONDS);
+    restartedClient.close();
+
+    assertAuthenticationResponseValid(authenticationResponse);
+    verify(1, getRequestedFor(urlEqualTo("/session/1dcc1600-29a6-4e95-a95c-d69b31febcfb")));
+    assertEquals("ADVANCED", authenticationResponse.getRequestedCertificateLevel());
+    PendingSessionJournal journal = new PendingSessionJournal(journalFile);
+    assertEquals(0, journal.getPendingSessionCount());
+    journal.close();
+  }
+
+  @Test
+  public void getPendingSessions_withoutJournal_shouldReturnEmptyList() throws Exception {
+    assertTrue(client.getPendingSessions().isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setPollingThreadCount_withZero_shouldThrowException() throws Exception {
+    client.setPollingThreadCount(0);
+  }
+
+  private void waitForSessionStatusRequest(String url) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000L;
+    while (findAll(getRequestedFor(urlEqualTo(url))).isEmpty() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10L);
+    }
+  }
+
   private long measureSigningDuration() {
     long startTime = System.currentTimeMillis();
     SmartIdSignature signature = createSignature();
@@ -586,7 +837,10 @@ public class SmartIdClientTest {
 
   private ClientConfig getClientConfigWithCustomRequestHeaders(Map<String, String> headers) {
     ClientConfig clientConfig = new ClientConfig().connectorProvider(new ApacheConnectorProvider());
-    clientConfig.register(new ClientRequestHeaderFilter(headers));
+    Map<String, String> requestHeaders = new HashMap<>(headers);
+    // WireMock's gzipped chunked responses break on the connections the client reuses
+    requestHeaders.put("Accept-Encoding", "identity");
+    clientConfig.register(new ClientRequestHeaderFilter(requestHeaders));
     return clientConfig;
   }
 
@@ -0,0 +1,84 @@
+package ee.sk.smartid;
+
+import org.apache.commons.codec.binary.Hex;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TrustedCACertificateIndexTest {
+
+  private static final String AUTHENTICATION_CERTIFICATE = "MIIG7DCCBNSgAwIBAgIQVTkAfl4vSClYnLaf0OGK0DANBgkqhkiG9w0BAQsFADBoMQswCQYDVQQGEwJFRTEiMCAGA1UECgwZQVMgU2VydGlmaXRzZWVyaW1pc2tlc2t1czEXMBUGA1UEYQwOTlRSRUUtMTA3NDcwMTMxHDAaBgNVBAMME1RFU1Qgb2YgRUlELVNLIDIwMTYwHhcNMTcwMjA5MTgzNjE1WhcNMjAwMjA5MTgzNjE1WjCBrjELMAkGA1UEBhMCRUUxIjAgBgNVBAoMGUFTIFNlcnRpZml0c2VlcmltaXNrZXNrdXMxFzAVBgNVBAsMDmF1dGhlbnRpY2F0aW9uMSYwJAYDVQQDDB1WT0xMLEFORFJFUyxQTk9FRS0zOTAwNDE3MDM0NjENMAsGA1UEBAwEVk9MTDEPMA0GA1UEKgwGQU5EUkVTMRowGAYDVQQFExFQTk9FRS0zOTAwNDE3MDM0NjCCAiEwDQYJKoZIhvcNAQEBBQADggIOADCCAgkCggIAb5xICaYyO23IdyQitJnAzm5/Yp012oBdFE/QAWe2lqifeLyzWl5VstoQGa00W7NJ79c4gwhpbHZW1jIlDYq60ytoGr5SH3dRt1h4EodM2/cdwYKsVuIuqQvpTmmjV8I8zOSRuPhEO9bNfGgs0g/gLGguWeYdaEKwGOZrY6khoU7L48XDCnw5tvhM6wWnScCF1IySxnpaGuLhG9EgdHw2G3T+QJpJfTUBMAE2Wm30/2wMw3mc+1Dob/9kKL+UIjoWONAzZIE6+zrtXD9uKCVIt6LOlBsG4C1VmCZg6fVT9OGOhMYdAk/uwI0CbsRNEva0lQN6ICCg5FvJ3xVnxK/UahI5SpFHXwi9zQ6BHNJ2p6XarGGdtNDQBbecsXfy/faeeMr1G9Kg9wKIgqIAeUuL642gxYYZiROQlWGYIqKXFHDQPwMp1r3uYV/J3qZ7befgvP/i2hTfNrp7UBm5mFzM3CcXVJ+orxSyPNrqh9AYlMt4ToZQSAJYwQ+/7NKZZQsQo/jOYSnwDrUHbOGUYXl3IK1KxOb9yPbY2+vB2jwvJx5yS8rROtHrmOEC1vRupehNkfy42YMcexFbUXhio+/MPVM5ed1NXCRMqCrpYEzqe+T18IhYnAIahtdPGFlM4FTrJWm1BC6UvzRJsBS9wP/dLj2vs8wnhq1sUqe4OVB5uZ0CAwEAAaOCAUowggFGMAkGA1UdEwQCMAAwDgYDVR0PAQH/BAQDAgSwMFUGA1UdIAROMEwwQAYKKwYBBAHOHwMRAjAyMDAGCCsGAQUFBwIBFiRodHRwczovL3d3dy5zay5lZS9lbi9yZXBvc2l0b3J5L0NQUy8wCAYGBACPegEBMB0GA1UdDgQWBBQZH75er/J+M8XVPcj3m/U9527hWzAfBgNVHSMEGDAWgBSusOrhNvgmq6XMC2ZV/jodAr8StDATBgNVHSUEDDAKBggrBgEFBQcDAjB9BggrBgEFBQcBAQRxMG8wKQYIKwYBBQUHMAGGHWh0dHA6Ly9haWEuZGVtby5zay5lZS9laWQyMDE2MEIGCCsGAQUFBzAChjZodHRwczovL3NrLmVlL3VwbG9hZC9maWxlcy9URVNUX29mX0VJRC1TS18yMDE2LmRlci5jcnQwDQYJKoZIhvcNAQELBQADggIBAD4HhR0yZ930Dnt5H028IaGpzmRGLS9Mp1uTKTB+wPiwAioVjDlcWgZqnmv1V46fARp7SrQW4L0PAIsv55osubVmgmmVqkrWuZtSWnZ5z791cuabAIsQdCcJQmSEIm+Cl+ty4agJkUV44wLu5At5WU/IgplN176eLE50oQLOakBlulT6IqgyKwTqUEz77rOKdrqpllJrJOI/Wom5OnNs94+SNKJEEI0anoiqHrLljgWUNpuV1Eoia9q4zxpQ70pKgsJFg4Ov+bUOFBPhSg+qH33o11N2JAbGR+4ikLOwvJe5kqux4UySlZmD2fQC4VbwCZT1GF3CQN7XW7Av5sGri6ZQhO33a8kW3xVoWwHXd519s5gHZsLRPpoM4ZJFe1bg+ztL2PwXXx22IKmScev0xS7mZ84n36h0VNakpORKPH6kis+DPOrZqpDl4bMsHEdgRmmkAnZPYLZUC/lyig4z+LkI5ADSEUq7FCn3mmvQeb3iGPeYUraAEFsyUrlpvng58ditZerX+pibKZuiwUynTUW5JNaEN6oswPL1pn4bFh/EF+IECZPoyG/hQclg0D+hklGuM5taG9yv3t+aVluh5A4KbwlOAyUvjBujka4kOqSCl39GP8juEclWJzUs6/eRynCWICMdS3kldX03D6tFrcX3BmntIMrpA/SQ2SFIrOrI";
+
+  private X509Certificate authenticationCertificate;
+  private X509Certificate eidCACertificate;
+  private X509Certificate nqCACertificate;
+
+  @Before
+  public void setUp() throws Exception {
+    authenticationCertificate = CertificateParser.parseX509Certificate(AUTHENTICATION_CERTIFICATE);
+    eidCACertificate = readCertificate("/trusted_certificates/TEST_of_EID-SK_2016.pem.crt");
+    nqCACertificate = readCertificate("/trusted_certificates/TEST_of_NQ-SK_2016.pem.crt");
+  }
+
+  @Test
+  public void getKeyIdentifiers() throws Exception {
+    assertEquals("aeb0eae136f826aba5cc0b6655fe3a1d02bf12b4", Hex.encodeHexString(TrustedCACertificateIndex.getAuthorityKeyIdentifier(authenticationCertificate)));
+    assertEquals("191fbe5eaff27e33c5d53dc8f79bf53de76ee15b", Hex.encodeHexString(TrustedCACertificateIndex.getSubjectKeyIdentifier(authenticationCertificate)));
+    assertEquals("aeb0eae136f826aba5cc0b6655fe3a1d02bf12b4", Hex.encodeHexString(TrustedCACertificateIndex.getSubjectKeyIdentifier(eidCACertificate)));
+  }
+
+  @Test
+  public void findIssuers_shouldReturnOnlyIssuingCA() throws Exception {
+    TrustedCACertificateIndex index = new TrustedCACertificateIndex(Arrays.asList(nqCACertificate, eidCACertificate));
+
+    List<X509Certificate> issuers = index.findIssuers(authenticationCertificate);
+
+    assertEquals(1, issuers.size());
+    assertSame(eidCACertificate, issuers.get(0));
+  }
+
+  @Test
+  public void findIssuers_whenIssuerIsNotTrusted_shouldReturnEmptyList() throws Exception {
+    TrustedCACertificateIndex index = new TrustedCACertificateIndex(Collections.singletonList(nqCACertificate));
+
+    assertTrue(index.findIssuers(authenticationCertificate).isEmpty());
+  }
+
+  @Test
+  public void with_shouldNotModifyOriginalIndex() throws Exception {
+    TrustedCACertificateIndex index = TrustedCACertificateIndex.empty();
+
+    TrustedCACertificateIndex extendedIndex = index.with(eidCACertificate);
+
+    assertTrue(index.getCertificates().isEmpty());
+    assertTrue(index.findIssuers(authenticationCertificate).isEmpty());
+    assertEquals(1, extendedIndex.getCertificates().size());
+    assertSame(eidCACertificate, extendedIndex.findIssuers(authenticationCertificate).get(0));
+  }
+
+  @Test
+  public void defaultTrustedCACertificates_shouldContainIssuer() throws Exception {
+    List<X509Certificate> issuers = DefaultTrustedCACertificates.get().findIssuers(authenticationCertificate);
+
+    assertEquals(1, issuers.size());
+    assertNotNull(issuers.get(0).getPublicKey());
+    authenticationCertificate.verify(issuers.get(0).getPublicKey());
+  }
+
+  private static X509Certificate readCertificate(String resource) throws Exception {
+    try (InputStream is = TrustedCACertificateIndexTest.class.getResourceAsStream(resource)) {
+      return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(is);
+    }
+  }
+}
@@ -1,7 +1,11 @@
 package ee.sk.smartid;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.Test;
 
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 public class VerificationCodeCalculatorTest {
@@ -22,6 +26,54 @@ public class VerificationCodeCalculatorTest {
     assertVerificationCode("4240", "Say 'hello' to my little friend!");
   }
 
+  @Test
+  public void calculate_intoCharArray() {
+    char[] codes = "[----|----]".toCharArray();
+    byte[] hash = DigestCalculator.calculateDigest("Hello World!".getBytes(), HashType.SHA256);
+    VerificationCodeCalculator.calculate(hash, codes, 1);
+    VerificationCodeCalculator.calculate(new byte[]{27, -69}, codes, 6);
+    assertEquals("[7712|4555]", new String(codes));
+  }
+
+  @Test
+  public void calculate_intoStringBuilder() {
+    StringBuilder builder = new StringBuilder("Code: ");
+    VerificationCodeCalculator.calculate(new byte[]{27, -69}, builder);
+    assertEquals("Code: 4555", builder.toString());
+  }
+
+  @Test
+  public void calculateFromDigest() {
+    byte[] hash = DigestCalculator.calculateDigest("Say 'hello' to my little friend!".getBytes(), HashType.SHA256);
+    assertEquals("4240", VerificationCodeCalculator.calculateFromDigest(DigestUtils.sha256(hash)));
+    StringBuilder builder = new StringBuilder();
+    VerificationCodeCalculator.calculateFromDigest(DigestUtils.sha256(hash), builder);
+    assertEquals("4240", builder.toString());
+  }
+
+  @Test
+  public void calculateFromDigest_shouldPadWithZeros() {
+    byte[] digest = new byte[32];
+    digest[31] = 7;
+    assertEquals("0007", VerificationCodeCalculator.calculateFromDigest(digest));
+    digest[30] = (byte) 0xff;
+    digest[31] = (byte) 0xff;
+    assertEquals("5535", VerificationCodeCalculator.calculateFromDigest(digest));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void calculateFromDigest_withWrongLength_shouldThrowException() {
+    VerificationCodeCalculator.calculateFromDigest(new byte[20]);
+  }
+
+  @Test
+  public void calculate_batch() {
+    byte[] helloWorld = DigestCalculator.calculateDigest("Hello World!".getBytes(), HashType.SHA256);
+    byte[] goAhead = DigestCalculator.calculateDigest("Go ahead, make my day.".getBytes(), HashType.SHA256);
+    assertArrayEquals(new String[]{"7712", "4555", "7782"},
+        VerificationCodeCalculator.calculate(Arrays.asList(helloWorld, new byte[]{27, -69}, goAhead)).toArray());
+  }
+
   private void assertVerificationCode(String verificationCode, String dataString) {
     byte[] data = dataString.getBytes();
     byte[] hash = DigestCalculator.calculateDigest(data, HashType.SHA256);
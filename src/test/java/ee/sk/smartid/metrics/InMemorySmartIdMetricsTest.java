@@ -0,0 +1,81 @@
+package ee.sk.smartid.metrics;
+
+import ee.sk.smartid.exception.SessionTimeoutException;
+import ee.sk.smartid.exception.UserRefusedException;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InMemorySmartIdMetricsTest {
+
+  private final InMemorySmartIdMetrics metrics = new InMemorySmartIdMetrics();
+
+  @Test
+  public void recordRequest_shouldCountLatenciesAndStatusesPerEndpoint() {
+    metrics.recordRequest(SmartIdEndpoint.AUTHENTICATION, 200, TimeUnit.MILLISECONDS.toNanos(3L));
+    metrics.recordRequest(SmartIdEndpoint.AUTHENTICATION, 200, TimeUnit.MILLISECONDS.toNanos(40L));
+    metrics.recordRequest(SmartIdEndpoint.AUTHENTICATION, 404, TimeUnit.MILLISECONDS.toNanos(400L));
+    metrics.recordRequest(SmartIdEndpoint.SESSION_STATUS, 0, TimeUnit.SECONDS.toNanos(20L));
+
+    LatencyTimer latency = metrics.getRequestLatency(SmartIdEndpoint.AUTHENTICATION);
+    assertEquals(3L, latency.getCount());
+    assertEquals(147.667, latency.getAverageMillis(), 0.001);
+    assertEquals(400.0, latency.getMaxMillis(), 0.0);
+    assertEquals(50L, latency.getPercentileMillis(50.0));
+    assertEquals(500L, latency.getPercentileMillis(99.0));
+    assertEquals(Long.valueOf(2L), metrics.getStatusCounts(SmartIdEndpoint.AUTHENTICATION).get(200));
+    assertEquals(Long.valueOf(1L), metrics.getStatusCounts(SmartIdEndpoint.AUTHENTICATION).get(404));
+    assertEquals(Long.valueOf(1L), metrics.getStatusCounts(SmartIdEndpoint.SESSION_STATUS).get(0));
+    assertEquals(30000L, metrics.getRequestLatency(SmartIdEndpoint.SESSION_STATUS).getPercentileMillis(50.0));
+    assertTrue(metrics.getStatusCounts(SmartIdEndpoint.SIGNATURE).isEmpty());
+  }
+
+  @Test
+  public void recordSessionComplete_shouldCountPollsAndEndResults() {
+    metrics.recordSessionComplete("OK", 2, TimeUnit.SECONDS.toNanos(4L));
+    metrics.recordSessionComplete("OK", 6, TimeUnit.SECONDS.toNanos(12L));
+    metrics.recordSessionComplete("USER_REFUSED", 1, TimeUnit.SECONDS.toNanos(2L));
+    metrics.recordSessionComplete(null, 1, 0L);
+
+    assertEquals(4L, metrics.getCompletedSessionCount());
+    assertEquals(2.5, metrics.getAveragePollsPerSession(), 0.0);
+    assertEquals(6L, metrics.getMaxPollsPerSession());
+    assertEquals(2L, metrics.getEndResultCount("OK"));
+    assertEquals(1L, metrics.getEndResultCount("USER_REFUSED"));
+    assertEquals(0L, metrics.getEndResultCount("TIMEOUT"));
+    assertEquals(Long.valueOf(1L), metrics.getEndResultCounts().get(""));
+    assertEquals(12000.0, metrics.getTimeToComplete().getMaxMillis(), 0.0);
+  }
+
+  @Test
+  public void recordException_shouldCountByExceptionClass() {
+    metrics.recordException(new UserRefusedException());
+    metrics.recordException(new UserRefusedException());
+    metrics.recordException(new SessionTimeoutException());
+
+    assertEquals(2L, metrics.getExceptionCount(UserRefusedException.class));
+    assertEquals(1L, metrics.getExceptionCount(SessionTimeoutException.class));
+    assertEquals(2, metrics.getExceptionCounts().size());
+  }
+
+  @Test
+  public void latencyTimer_withoutLatencies() {
+    LatencyTimer latency = metrics.getRequestLatency(SmartIdEndpoint.CERTIFICATE_CHOICE);
+    assertEquals(0L, latency.getCount());
+    assertEquals(0.0, latency.getAverageMillis(), 0.0);
+    assertEquals(0L, latency.getPercentileMillis(99.0));
+    assertArrayEquals(new long[LatencyTimer.getBucketBoundsMillis().length + 1], latency.getBucketCounts());
+  }
+
+  @Test
+  public void latencyTimer_aboveLargestBound_shouldUseOverflowBucket() {
+    metrics.recordRequest(SmartIdEndpoint.SESSION_STATUS, 200, TimeUnit.MINUTES.toNanos(10L));
+    LatencyTimer latency = metrics.getRequestLatency(SmartIdEndpoint.SESSION_STATUS);
+    assertEquals(Long.MAX_VALUE, latency.getPercentileMillis(50.0));
+    assertEquals(1L, latency.getBucketCounts()[LatencyTimer.getBucketBoundsMillis().length]);
+  }
+}
@@ -0,0 +1,42 @@
+package ee.sk.smartid.rest;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdaptivePollingStrategyTest {
+
+  private final AdaptivePollingStrategy strategy = new AdaptivePollingStrategy(TimeUnit.MILLISECONDS, 100L, 1000L, 2.0);
+
+  @Test
+  public void afterLongPoll_shouldPollImmediately() throws Exception {
+    assertEquals(0L, strategy.getNextPollDelayMillis(1, true));
+    assertEquals(0L, strategy.getNextPollDelayMillis(10, true));
+  }
+
+  @Test
+  public void withoutLongPolling_shouldBackOffExponentially() throws Exception {
+    assertEquals(100L, strategy.getNextPollDelayMillis(1, false));
+    assertEquals(200L, strategy.getNextPollDelayMillis(2, false));
+    assertEquals(400L, strategy.getNextPollDelayMillis(3, false));
+    assertEquals(800L, strategy.getNextPollDelayMillis(4, false));
+  }
+
+  @Test
+  public void delay_shouldNotExceedMaximum() throws Exception {
+    assertEquals(1000L, strategy.getNextPollDelayMillis(5, false));
+    assertEquals(1000L, strategy.getNextPollDelayMillis(1000, false));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void maxDelayLessThanInitialDelay_shouldThrowException() throws Exception {
+    new AdaptivePollingStrategy(TimeUnit.MILLISECONDS, 100L, 50L, 2.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void multiplierLessThanOne_shouldThrowException() throws Exception {
+    new AdaptivePollingStrategy(TimeUnit.MILLISECONDS, 100L, 1000L, 0.5);
+  }
+}
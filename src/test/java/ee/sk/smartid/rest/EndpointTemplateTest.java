@@ -0,0 +1,57 @@
+package ee.sk.smartid.rest;
+
+import org.junit.Test;
+
+import javax.ws.rs.core.UriBuilder;
+import java.net.URI;
+
+import static org.junit.Assert.assertEquals;
+
+public class EndpointTemplateTest {
+
+  @Test
+  public void build_shouldGiveTheSameUrisAsUriBuilder() {
+    assertSameUri("http://localhost:18089", "/certificatechoice/pno/{country}/{nationalIdentityNumber}", "EE", "123456789");
+    assertSameUri("https://rp-api.smart-id.com/v1/", "/signature/document/{documentNumber}", "PNOEE-31111111111");
+    assertSameUri("https://rp-api.smart-id.com/v1", "/session/{sessionId}", "de305d54-75b4-431b-adb2-eb6b9e546016");
+    assertSameUri("http://localhost:18089/api?version=1", "/authentication/document/{documentNumber}", "PNOEE-123456");
+    assertSameUri("http://localhost:18089", "/authentication/pno/{country}/{nationalIdentityNumber}", "E E", "1/2%3?4#5{6}ä");
+  }
+
+  @Test
+  public void build_withSlashInValue_shouldEncodeSlash() {
+    EndpointTemplate template = new EndpointTemplate("http://localhost:18089", "/signature/document/{documentNumber}");
+
+    URI uri = template.build("PNOEE/31111111111");
+
+    assertEquals("http://localhost:18089/signature/document/PNOEE%2F31111111111", uri.toString());
+    assertEquals(UriBuilder.fromUri("http://localhost:18089").path("/signature/document/{documentNumber}").build("PNOEE/31111111111"), uri);
+  }
+
+  @Test
+  public void buildWithQueryParam_shouldGiveTheSameUrisAsUriBuilder() {
+    EndpointTemplate template = new EndpointTemplate("http://localhost:18089/", "/session/{sessionId}");
+    assertEquals(
+        UriBuilder.fromUri("http://localhost:18089/").path("/session/{sessionId}").queryParam("timeoutMs", 10000L).build("97f5058e"),
+        template.buildWithQueryParam("timeoutMs", "10000", "97f5058e"));
+    template = new EndpointTemplate("http://localhost:18089/api?version=1", "/session/{sessionId}");
+    assertEquals(
+        UriBuilder.fromUri("http://localhost:18089/api?version=1").path("/session/{sessionId}").queryParam("timeoutMs", 10000L).build("97f5058e"),
+        template.buildWithQueryParam("timeoutMs", "10000", "97f5058e"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void build_withMissingValue_shouldThrowException() {
+    new EndpointTemplate("http://localhost:18089", "/certificatechoice/pno/{country}/{nationalIdentityNumber}").build("EE");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void build_withNullValue_shouldThrowException() {
+    new EndpointTemplate("http://localhost:18089", "/signature/document/{documentNumber}").build((String) null);
+  }
+
+  private static void assertSameUri(String endpointUrl, String pathTemplate, String... values) {
+    assertEquals(UriBuilder.fromUri(endpointUrl).path(pathTemplate).build((Object[]) values),
+        new EndpointTemplate(endpointUrl, pathTemplate).build(values));
+  }
+}
@@ -0,0 +1,112 @@
+package ee.sk.smartid.rest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class HashedTimingWheelTest {
+
+  private ExecutorService executor;
+  private HashedTimingWheel timer;
+
+  @Before
+  public void setUp() throws Exception {
+    executor = Executors.newFixedThreadPool(2);
+    timer = new HashedTimingWheel(1L, TimeUnit.MILLISECONDS, 8, executor);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    timer.close();
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void timeout_shouldExpireAfterDelay() throws Exception {
+    final CountDownLatch expired = new CountDownLatch(1);
+    long startTime = System.nanoTime();
+    HashedTimingWheel.Timeout timeout = timer.newTimeout(new CountDownTask(expired), 50L, TimeUnit.MILLISECONDS);
+
+    assertTrue(expired.await(5, TimeUnit.SECONDS));
+    long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    assertThat(duration, greaterThanOrEqualTo(50L));
+    assertTrue(timeout.isExpired());
+    assertEquals(0, timer.getPendingTimeouts());
+  }
+
+  @Test
+  public void timeoutLongerThanWheelRotation_shouldExpireAfterDelay() throws Exception {
+    final CountDownLatch expired = new CountDownLatch(1);
+    long startTime = System.nanoTime();
+    timer.newTimeout(new CountDownTask(expired), 30L, TimeUnit.MILLISECONDS);
+
+    assertTrue(expired.await(5, TimeUnit.SECONDS));
+    assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), greaterThanOrEqualTo(30L));
+  }
+
+  @Test
+  public void cancelledTimeout_shouldNotExpire() throws Exception {
+    final CountDownLatch expired = new CountDownLatch(1);
+    HashedTimingWheel.Timeout timeout = timer.newTimeout(new CountDownTask(expired), 30L, TimeUnit.MILLISECONDS);
+
+    assertTrue(timeout.cancel());
+
+    assertFalse(expired.await(100, TimeUnit.MILLISECONDS));
+    assertTrue(timeout.isCancelled());
+    assertFalse(timeout.cancel());
+    assertEquals(0, timer.getPendingTimeouts());
+  }
+
+  @Test
+  public void manyTimeouts_shouldAllExpire() throws Exception {
+    int timeoutCount = 100000;
+    final CountDownLatch expired = new CountDownLatch(timeoutCount);
+    final AtomicInteger runs = new AtomicInteger();
+    for (int i = 0; i < timeoutCount; i++) {
+      timer.newTimeout(new Runnable() {
+        @Override
+        public void run() {
+          runs.incrementAndGet();
+          expired.countDown();
+        }
+      }, i % 100, TimeUnit.MILLISECONDS);
+    }
+
+    assertTrue(expired.await(30, TimeUnit.SECONDS));
+    assertEquals(timeoutCount, runs.get());
+    assertEquals(0, timer.getPendingTimeouts());
+  }
+
+  @Test(expected = RejectedExecutionException.class)
+  public void newTimeout_afterClose_shouldThrowException() throws Exception {
+    timer.close();
+    timer.newTimeout(new CountDownTask(new CountDownLatch(1)), 1L, TimeUnit.MILLISECONDS);
+  }
+
+  private static class CountDownTask implements Runnable {
+
+    private final CountDownLatch latch;
+
+    CountDownTask(CountDownLatch latch) {
+      this.latch = latch;
+    }
+
+    @Override
+    public void run() {
+      latch.countDown();
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package ee.sk.smartid.rest;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import ee.sk.smartid.rest.dao.CertificateChoiceResponse;
+import ee.sk.smartid.rest.dao.CertificateRequest;
+import ee.sk.smartid.rest.dao.SessionStatus;
+import org.junit.Rule;
+import org.junit.Test;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+
+import static ee.sk.smartid.SmartIdRestServiceStubs.stubRequestWithResponse;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LoggingFilterTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  @Rule
+  public WireMockRule wireMockRule = new WireMockRule(18089);
+
+  @Test
+  public void truncatedBodies_shouldBePassedOnWhole() throws Exception {
+    stubRequestWithResponse("/certificatechoice/document/PNOEE-123456", "requests/certificateChoiceRequest.json", "responses/certificateChoiceResponse.json");
+    stubRequestWithResponse("/session/de305d54-75b4-431b-adb2-eb6b9e546016", "responses/sessionStatusForSuccessfulCertificateRequest.json");
+    Client client = ClientBuilder.newClient().register(new SmartIdJsonProvider()).register(new LoggingFilter(16));
+    try {
+      CertificateRequest request = new CertificateRequest();
+      request.setRelyingPartyUUID("de305d54-75b4-431b-adb2-eb6b9e546014");
+      request.setRelyingPartyName("BANK123");
+      request.setCertificateLevel("ADVANCED");
+      CertificateChoiceResponse response = client.target("http://localhost:18089/certificatechoice/document/PNOEE-123456")
+          .request(MediaType.APPLICATION_JSON).post(Entity.json(request), CertificateChoiceResponse.class);
+      assertEquals("97f5058e-e308-4c83-ac14-7712b0eb9d86", response.getSessionId());
+
+      SessionStatus sessionStatus = client.target("http://localhost:18089/session/de305d54-75b4-431b-adb2-eb6b9e546016")
+          .request(MediaType.APPLICATION_JSON).get(SessionStatus.class);
+      assertEquals("COMPLETE", sessionStatus.getState());
+      assertEquals("QUALIFIED", sessionStatus.getCertificate().getCertificateLevel());
+    } finally {
+      client.close();
+    }
+  }
+
+  @Test
+  public void loggingOutputStream_shouldPassAllBytesThroughAndKeepTheFirstOnes() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    LoggingFilter.LoggingOutputStream loggingOutputStream = new LoggingFilter.LoggingOutputStream(out, new byte[8], 5);
+    loggingOutputStream.write("abc".getBytes(UTF_8));
+    loggingOutputStream.write('d');
+    loggingOutputStream.write("xxefghxx".getBytes(UTF_8), 2, 4);
+    assertEquals("abcdefgh", new String(out.toByteArray(), UTF_8));
+    assertArrayEquals("abcde".getBytes(UTF_8), loggingOutputStream.getBytes());
+    assertEquals(8L, loggingOutputStream.getTotalLength());
+    assertTrue(loggingOutputStream.isTruncated());
+  }
+
+  @Test
+  public void loggingOutputStream_withShortBody_shouldNotBeTruncated() throws Exception {
+    LoggingFilter.LoggingOutputStream loggingOutputStream = new LoggingFilter.LoggingOutputStream(new ByteArrayOutputStream());
+    loggingOutputStream.write("{}".getBytes(UTF_8));
+    assertArrayEquals("{}".getBytes(UTF_8), loggingOutputStream.getBytes());
+    assertFalse(loggingOutputStream.isTruncated());
+  }
+
+  @Test
+  public void maskSensitiveFields() {
+    String body = "{\"relyingPartyUUID\":\"de305d54\",\"relyingPartyName\":\"BANK123\",\"hash\" : \"0nbgC2fVdLVQFZJdBbmG\","
+        + "\"signature\":{\"value\":\"luvjsi1+1iLN9yfDFEh\",\"algorithm\":\"sha256WithRSAEncryption\"},\"cert\":{\"value\":\"MIIHhjCCB";
+    assertEquals("{\"relyingPartyUUID\":\"***\",\"relyingPartyName\":\"BANK123\",\"hash\" : \"***\","
+        + "\"signature\":{\"value\":\"***\",\"algorithm\":\"sha256WithRSAEncryption\"},\"cert\":{\"value\":\"***",
+        LoggingFilter.maskSensitiveFields(body));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void construct_withNegativeMaxBodyLength_shouldThrowException() {
+    new LoggingFilter(-1);
+  }
+}
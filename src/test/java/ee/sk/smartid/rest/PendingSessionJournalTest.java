@@ -0,0 +1,178 @@
+package ee.sk.smartid.rest;
+
+import ee.sk.smartid.exception.TechnicalErrorException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PendingSessionJournalTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File file;
+  private PendingSessionJournal journal;
+
+  @Before
+  public void setUp() throws Exception {
+    file = new File(temporaryFolder.getRoot(), "sessions.journal");
+    journal = new PendingSessionJournal(file);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    journal.close();
+  }
+
+  @Test
+  public void newJournal_shouldBeEmpty() throws Exception {
+    assertTrue(journal.getPendingSessions().isEmpty());
+  }
+
+  @Test
+  public void reopen_shouldReplayPendingSessions() throws Exception {
+    journal.sessionStarted("session-1", new byte[]{1, 2, 3});
+    journal.sessionStarted("session-2", null);
+    journal.sessionStarted("session-3", new byte[]{4});
+    journal.sessionFinished("session-2");
+    journal.close();
+
+    journal = new PendingSessionJournal(file);
+    Map<String, byte[]> pendingSessions = journal.getPendingSessions();
+
+    assertEquals(2, pendingSessions.size());
+    assertArrayEquals(new byte[]{1, 2, 3}, pendingSessions.get("session-1"));
+    assertArrayEquals(new byte[]{4}, pendingSessions.get("session-3"));
+  }
+
+  @Test
+  public void sessionFinished_withUnknownSession_shouldBeIgnored() throws Exception {
+    journal.sessionFinished("session-1");
+    assertEquals(0, journal.getPendingSessionCount());
+  }
+
+  @Test
+  public void fullJournal_shouldBeCompacted() throws Exception {
+    journal.close();
+    file = new File(temporaryFolder.getRoot(), "small.journal");
+    journal = new PendingSessionJournal(file, 64);
+    for (int i = 0; i < 1000; i++) {
+      journal.sessionStarted("session-" + i, new byte[]{(byte) i});
+      if (i % 10 != 0) {
+        journal.sessionFinished("session-" + i);
+      }
+    }
+    journal.close();
+    long compactedLength = file.length();
+
+    journal = new PendingSessionJournal(file, 64);
+    Map<String, byte[]> pendingSessions = journal.getPendingSessions();
+
+    assertEquals(100, pendingSessions.size());
+    assertArrayEquals(new byte[]{(byte) 990}, pendingSessions.get("session-990"));
+    assertTrue(compactedLength < 1000 * 20);
+    assertFalse(new File(file.getPath() + ".tmp").exists());
+  }
+
+  @Test
+  public void partiallyWrittenRecord_shouldBeIgnored() throws Exception {
+    journal.sessionStarted("session-1", null);
+    journal.sessionStarted("session-2", null);
+    journal.close();
+    int secondRecordPosition = 4 + 9 + 2 + "session-1".length() + 8;
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    randomAccessFile.seek(secondRecordPosition + 9 + 2);
+    randomAccessFile.write('x');
+    randomAccessFile.close();
+
+    journal = new PendingSessionJournal(file);
+    journal.sessionStarted("session-3", null);
+    journal.close();
+    journal = new PendingSessionJournal(file);
+
+    assertEquals(2, journal.getPendingSessionCount());
+    assertTrue(journal.getPendingSessions().containsKey("session-1"));
+    assertTrue(journal.getPendingSessions().containsKey("session-3"));
+  }
+
+  @Test
+  public void truncatedRecord_shouldBeIgnored() throws Exception {
+    journal.sessionStarted("session-1", null);
+    journal.sessionStarted("session-2", new byte[]{1, 2, 3});
+    journal.close();
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    randomAccessFile.setLength(randomAccessFile.length() - 1);
+    randomAccessFile.close();
+
+    journal = new PendingSessionJournal(file);
+
+    assertEquals(1, journal.getPendingSessionCount());
+    assertTrue(journal.getPendingSessions().containsKey("session-1"));
+  }
+
+  @Test
+  public void reopen_shouldDropSessionsOlderThanSessionLifetime() throws Exception {
+    journal.sessionStarted("session-1", new byte[]{1});
+    journal.close();
+    Thread.sleep(50L);
+
+    journal = new PendingSessionJournal(file, 1 << 20, TimeUnit.MILLISECONDS, 20L);
+    journal.sessionStarted("session-2", new byte[]{2});
+    journal.close();
+    journal = new PendingSessionJournal(file, 1 << 20, TimeUnit.HOURS, 1L);
+
+    assertEquals(1, journal.getPendingSessionCount());
+    assertTrue(journal.getPendingSessions().containsKey("session-2"));
+  }
+
+  @Test
+  public void compaction_shouldKeepStartTimeOfPendingSessions() throws Exception {
+    journal.close();
+    file = new File(temporaryFolder.getRoot(), "small.journal");
+    journal = new PendingSessionJournal(file, 64);
+    journal.sessionStarted("session-old", null);
+    Thread.sleep(50L);
+    for (int i = 0; i < 100; i++) {
+      journal.sessionStarted("session-" + i, null);
+      journal.sessionFinished("session-" + i);
+    }
+    journal.close();
+
+    journal = new PendingSessionJournal(file, 64, TimeUnit.MILLISECONDS, 20L);
+
+    assertEquals(0, journal.getPendingSessionCount());
+  }
+
+  @Test
+  public void recordsAfterClose_shouldBeIgnored() throws Exception {
+    journal.sessionStarted("session-1", null);
+    journal.close();
+    journal.sessionFinished("session-1");
+
+    journal = new PendingSessionJournal(file);
+
+    assertEquals(1, journal.getPendingSessionCount());
+  }
+
+  @Test(expected = TechnicalErrorException.class)
+  public void open_whenFileIsNotJournal_shouldThrowException() throws Exception {
+    File otherFile = temporaryFolder.newFile("other.txt");
+    FileOutputStream outputStream = new FileOutputStream(otherFile);
+    outputStream.write("not a journal".getBytes("UTF-8"));
+    outputStream.close();
+    new PendingSessionJournal(otherFile);
+  }
+}
@@ -6,11 +6,13 @@ import ee.sk.smartid.exception.SessionNotFoundException;
 import ee.sk.smartid.exception.SessionTimeoutException;
 import ee.sk.smartid.exception.TechnicalErrorException;
 import ee.sk.smartid.exception.UserRefusedException;
+import ee.sk.smartid.metrics.InMemorySmartIdMetrics;
 import ee.sk.smartid.rest.dao.*;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -20,6 +22,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class SessionStatusPollerTest {
 
@@ -54,12 +57,14 @@ public class SessionStatusPollerTest {
 
   @Test
   public void setPollingSleepTime() throws Exception {
+    List<Long> sleeps = useRecordingSleeper();
     poller.setPollingSleepTime(TimeUnit.MILLISECONDS, 200L);
     addMultipleRunningSessionResponses(5);
     connector.responses.add(createCompleteSessionStatus());
-    long duration = measurePollingDuration();
-    assertTrue(duration > 1000L);
-    assertTrue(duration < 1100L);
+    SessionStatus status = poller.fetchFinalSessionStatus("97f5058e-e308-4c83-ac14-7712b0eb9d86");
+    assertCompleteStateReceived(status);
+    assertEquals(6, connector.responseNumber);
+    assertEquals(Arrays.asList(200L, 200L, 200L, 200L, 200L), sleeps);
   }
 
   @Test
@@ -115,12 +120,83 @@ public class SessionStatusPollerTest {
     poller.fetchFinalSessionStatus("97f5058e-e308-4c83-ac14-7712b0eb9d86");
   }
 
-  private long measurePollingDuration() {
-    long startTime = System.currentTimeMillis();
-    SessionStatus status = poller.fetchFinalSessionStatus("97f5058e-e308-4c83-ac14-7712b0eb9d86");
-    long endTime = System.currentTimeMillis();
-    assertCompleteStateReceived(status);
-    return endTime - startTime;
+  @Test
+  public void adaptivePollingStrategy_withLongPolling_shouldNotSleepBetweenPolls() throws Exception {
+    List<Long> sleeps = useRecordingSleeper();
+    poller.setPollingStrategy(new AdaptivePollingStrategy(TimeUnit.MILLISECONDS, 500L, 1000L, 2.0));
+    poller.setResponseSocketOpenTime(TimeUnit.SECONDS, 30L);
+    addMultipleRunningSessionResponses(5);
+    connector.responses.add(createCompleteSessionStatus());
+    poller.fetchFinalSessionStatus("97f5058e-e308-4c83-ac14-7712b0eb9d86");
+    assertEquals(6, connector.responseNumber);
+    assertEquals(Arrays.asList(0L, 0L, 0L, 0L, 0L), sleeps);
+  }
+
+  @Test
+  public void adaptivePollingStrategy_withoutLongPolling_shouldBackOff() throws Exception {
+    List<Long> sleeps = useRecordingSleeper();
+    poller.setPollingStrategy(new AdaptivePollingStrategy(TimeUnit.MILLISECONDS, 100L, 400L, 2.0));
+    addMultipleRunningSessionResponses(4);
+    connector.responses.add(createCompleteSessionStatus());
+    poller.fetchFinalSessionStatus("97f5058e-e308-4c83-ac14-7712b0eb9d86");
+    assertEquals(5, connector.responseNumber);
+    assertEquals(Arrays.asList(100L, 200L, 400L, 400L), sleeps);
+  }
+
+  @Test(expected = SessionTimeoutException.class)
+  public void sessionDeadlineExceeded_shouldThrowException() throws Exception {
+    poller.setPollingSleepTime(TimeUnit.MILLISECONDS, 50L);
+    poller.setSessionDeadline(TimeUnit.MILLISECONDS, 120L);
+    addMultipleRunningSessionResponses(10);
+    connector.responses.add(createCompleteSessionStatus());
+    poller.fetchFinalSessionStatus("97f5058e-e308-4c83-ac14-7712b0eb9d86");
+  }
+
+  @Test
+  public void pollingStatistics_shouldCountPollsAndCompletedSessions() throws Exception {
+    addMultipleRunningSessionResponses(2);
+    connector.responses.add(createCompleteSessionStatus());
+    poller.fetchFinalSessionStatus("97f5058e-e308-4c83-ac14-7712b0eb9d86");
+    PollingStatistics statistics = poller.getPollingStatistics();
+    assertEquals(3, statistics.getPollCount());
+    assertEquals(1, statistics.getCompletedSessionCount());
+    assertEquals(3.0, statistics.getAveragePollsPerSession(), 0.0);
+    assertEquals(0, statistics.getDeadlineExceededCount());
+  }
+
+  @Test
+  public void metrics_shouldRecordCompletedSessionsAndExceptions() throws Exception {
+    InMemorySmartIdMetrics metrics = new InMemorySmartIdMetrics();
+    poller.setMetrics(metrics);
+    addMultipleRunningSessionResponses(2);
+    connector.responses.add(createCompleteSessionStatus());
+    connector.responses.add(DummyData.createUserRefusedSessionStatus());
+    poller.fetchFinalSessionStatus("97f5058e-e308-4c83-ac14-7712b0eb9d86");
+    try {
+      poller.fetchFinalSessionStatus("97f5058e-e308-4c83-ac14-7712b0eb9d86");
+      fail("Expected the user to refuse");
+    } catch (UserRefusedException e) {
+      assertEquals(2L, metrics.getCompletedSessionCount());
+      assertEquals(1L, metrics.getEndResultCount("OK"));
+      assertEquals(1L, metrics.getEndResultCount("USER_REFUSED"));
+      assertEquals(3L, metrics.getMaxPollsPerSession());
+      assertEquals(2.0, metrics.getAveragePollsPerSession(), 0.0);
+      assertEquals(1L, metrics.getExceptionCount(UserRefusedException.class));
+    }
+  }
+
+  /**
+   * Replaces the poller with one that records the delays between the polls instead of sleeping
+   */
+  private List<Long> useRecordingSleeper() {
+    final List<Long> sleeps = new ArrayList<>();
+    poller = new SessionStatusPoller(connector) {
+      @Override
+      void sleep(long delayMillis) {
+        sleeps.add(delayMillis);
+      }
+    };
+    return sleeps;
   }
 
   private void addMultipleRunningSessionResponses(int numberOfResponses) {
@@ -0,0 +1,363 @@
+package ee.sk.smartid.rest;
+
+import ee.sk.smartid.DummyData;
+import ee.sk.smartid.exception.SessionNotFoundException;
+import ee.sk.smartid.exception.SessionTimeoutException;
+import ee.sk.smartid.exception.UserRefusedException;
+import ee.sk.smartid.rest.SessionStatusPollerTest.SmartIdConnectorStub;
+import ee.sk.smartid.rest.dao.SessionStatus;
+import ee.sk.smartid.rest.dao.SessionStatusRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.ws.rs.client.InvocationCallback;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static ee.sk.smartid.DummyData.createSessionEndResult;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SessionStatusPollingEngineTest {
+
+  private static final String SESSION_ID = "97f5058e-e308-4c83-ac14-7712b0eb9d86";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private ScheduledExecutorService scheduler;
+
+  @Before
+  public void setUp() throws Exception {
+    scheduler = Executors.newScheduledThreadPool(2);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  public void getFirstCompleteResponse() throws Exception {
+    SmartIdConnectorStub connector = new SmartIdConnectorStub();
+    connector.responses.add(createCompleteSessionStatus());
+    SessionStatusPollingEngine engine = createEngine(connector);
+
+    SessionStatus status = engine.fetchFinalSessionStatus(SESSION_ID).get(5, TimeUnit.SECONDS);
+
+    assertEquals("COMPLETE", status.getState());
+    assertEquals(SESSION_ID, connector.sessionIdUsed);
+    assertEquals(1, connector.responseNumber);
+    assertEquals(0, engine.getPendingSessionCount());
+  }
+
+  @Test
+  public void pollAndGetThirdCompleteResponse() throws Exception {
+    SmartIdConnectorStub connector = new SmartIdConnectorStub();
+    connector.responses.add(createRunningSessionStatus());
+    connector.responses.add(createRunningSessionStatus());
+    connector.responses.add(createCompleteSessionStatus());
+    SessionStatusPollingEngine engine = createEngine(connector);
+
+    SessionStatus status = engine.fetchFinalSessionStatus(SESSION_ID).get(5, TimeUnit.SECONDS);
+
+    assertEquals("COMPLETE", status.getState());
+    assertEquals(3, connector.responseNumber);
+  }
+
+  @Test
+  public void getUserRefusedResponse_shouldFailFuture() throws Exception {
+    SmartIdConnectorStub connector = new SmartIdConnectorStub();
+    connector.responses.add(DummyData.createUserRefusedSessionStatus());
+    SessionStatusPollingEngine engine = createEngine(connector);
+
+    try {
+      engine.fetchFinalSessionStatus(SESSION_ID).get(5, TimeUnit.SECONDS);
+      fail("Expected the future to fail");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(UserRefusedException.class));
+    }
+    assertEquals(0, engine.getPendingSessionCount());
+  }
+
+  @Test
+  public void completion_shouldNotifyCallback() throws Exception {
+    SmartIdConnectorStub connector = new SmartIdConnectorStub();
+    connector.responses.add(createRunningSessionStatus());
+    connector.responses.add(createCompleteSessionStatus());
+    SessionStatusPollingEngine engine = createEngine(connector);
+    final CountDownLatch callbackCalled = new CountDownLatch(1);
+    final AtomicReference<SessionStatus> statusReceived = new AtomicReference<>();
+
+    engine.fetchFinalSessionStatus(SESSION_ID).whenComplete(new InvocationCallback<SessionStatus>() {
+      @Override
+      public void completed(SessionStatus sessionStatus) {
+        statusReceived.set(sessionStatus);
+        callbackCalled.countDown();
+      }
+
+      @Override
+      public void failed(Throwable throwable) {
+      }
+    });
+
+    assertTrue(callbackCalled.await(5, TimeUnit.SECONDS));
+    assertEquals("COMPLETE", statusReceived.get().getState());
+  }
+
+  @Test
+  public void cancel_shouldStopPolling() throws Exception {
+    CountingConnector connector = new CountingConnector(Integer.MAX_VALUE);
+    SessionStatusPollingEngine engine = createEngine(connector);
+
+    SmartIdFuture<SessionStatus> future = engine.fetchFinalSessionStatus(SESSION_ID);
+    Thread.sleep(20L);
+    future.cancel(false);
+    Thread.sleep(20L);
+    int pollsAfterCancel = connector.pollCount.get();
+    Thread.sleep(50L);
+
+    assertTrue(future.isCancelled());
+    assertEquals(pollsAfterCancel, connector.pollCount.get());
+    assertEquals(0, engine.getPendingSessionCount());
+  }
+
+  @Test
+  public void schedulerShutdownDuringPoll_shouldLeaveSessionPending() throws Exception {
+    final CountDownLatch pollStarted = new CountDownLatch(1);
+    final CountDownLatch schedulerShutDown = new CountDownLatch(1);
+    SmartIdConnectorStub connector = new SmartIdConnectorStub() {
+      @Override
+      public SessionStatus getSessionStatus(SessionStatusRequest request) throws SessionNotFoundException {
+        pollStarted.countDown();
+        try {
+          schedulerShutDown.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return createRunningSessionStatus();
+      }
+    };
+    SessionStatusPollingEngine engine = createEngine(connector);
+
+    SmartIdFuture<SessionStatus> future = engine.fetchFinalSessionStatus(SESSION_ID);
+    assertTrue(pollStarted.await(5, TimeUnit.SECONDS));
+    scheduler.shutdown();
+    schedulerShutDown.countDown();
+    assertTrue(scheduler.awaitTermination(5, TimeUnit.SECONDS));
+
+    assertFalse(future.isDone());
+    assertEquals(1, engine.getPendingSessionCount());
+  }
+
+  @Test
+  public void pollManySessionsConcurrently() throws Exception {
+    CountingConnector connector = new CountingConnector(3);
+    SessionStatusPollingEngine engine = createEngine(connector);
+    List<SmartIdFuture<SessionStatus>> futures = new ArrayList<>();
+
+    for (int i = 0; i < 2000; i++) {
+      futures.add(engine.fetchFinalSessionStatus("session-" + i));
+    }
+    for (SmartIdFuture<SessionStatus> future : futures) {
+      assertEquals("COMPLETE", future.get(30, TimeUnit.SECONDS).getState());
+    }
+
+    assertEquals(2000 * 4, connector.pollCount.get());
+    assertEquals(0, engine.getPendingSessionCount());
+  }
+
+  @Test
+  public void pollManySessionsConcurrently_withTimingWheel() throws Exception {
+    CountingConnector connector = new CountingConnector(3);
+    SessionStatusPoller poller = new SessionStatusPoller(connector);
+    poller.setPollingSleepTime(TimeUnit.MILLISECONDS, 1L);
+    HashedTimingWheel timingWheel = new HashedTimingWheel(1L, TimeUnit.MILLISECONDS, 64, scheduler);
+    try {
+      SessionStatusPollingEngine engine = new SessionStatusPollingEngine(poller, timingWheel);
+      List<SmartIdFuture<SessionStatus>> futures = new ArrayList<>();
+
+      for (int i = 0; i < 2000; i++) {
+        futures.add(engine.fetchFinalSessionStatus(UUID.randomUUID().toString()));
+      }
+      for (SmartIdFuture<SessionStatus> future : futures) {
+        assertEquals("COMPLETE", future.get(30, TimeUnit.SECONDS).getState());
+      }
+
+      assertEquals(2000 * 4, connector.pollCount.get());
+      assertEquals(2000, connector.pollsPerSession.size());
+      assertEquals(0, engine.getPendingSessionCount());
+    } finally {
+      timingWheel.close();
+    }
+  }
+
+  @Test
+  public void sessionDeadlineExceeded_shouldFailFuture() throws Exception {
+    CountingConnector connector = new CountingConnector(Integer.MAX_VALUE);
+    SessionStatusPollingEngine engine = createEngine(connector);
+    engine.getSessionStatusPoller().setSessionDeadline(TimeUnit.MILLISECONDS, 50L);
+
+    try {
+      engine.fetchFinalSessionStatus(SESSION_ID).get(5, TimeUnit.SECONDS);
+      fail("Expected the future to fail");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(SessionTimeoutException.class));
+    }
+    assertEquals(1, engine.getSessionStatusPoller().getPollingStatistics().getDeadlineExceededCount());
+    assertEquals(0, engine.getPendingSessionCount());
+  }
+
+  @Test
+  public void pendingSessionJournal_shouldKeepSessionUntilComplete() throws Exception {
+    final CountDownLatch pollStarted = new CountDownLatch(1);
+    final CountDownLatch releasePoll = new CountDownLatch(1);
+    SmartIdConnectorStub connector = new SmartIdConnectorStub() {
+      @Override
+      public SessionStatus getSessionStatus(SessionStatusRequest request) throws SessionNotFoundException {
+        pollStarted.countDown();
+        try {
+          releasePoll.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return createCompleteSessionStatus();
+      }
+    };
+    SessionStatusPollingEngine engine = createEngine(connector);
+    PendingSessionJournal journal = new PendingSessionJournal(new File(temporaryFolder.getRoot(), "sessions.journal"));
+    engine.setPendingSessionJournal(journal);
+    try {
+      SmartIdFuture<SessionStatus> future = engine.fetchFinalSessionStatus(SESSION_ID, new byte[]{1});
+      assertTrue(pollStarted.await(5, TimeUnit.SECONDS));
+      assertEquals(1, journal.getPendingSessionCount());
+      releasePoll.countDown();
+      future.get(5, TimeUnit.SECONDS);
+
+      assertEquals(0, journal.getPendingSessionCount());
+    } finally {
+      journal.close();
+    }
+  }
+
+  @Test
+  public void pendingSessionJournal_shouldDropFailedSession() throws Exception {
+    SmartIdConnectorStub connector = new SmartIdConnectorStub();
+    connector.responses.add(DummyData.createUserRefusedSessionStatus());
+    SessionStatusPollingEngine engine = createEngine(connector);
+    PendingSessionJournal journal = new PendingSessionJournal(new File(temporaryFolder.getRoot(), "sessions.journal"));
+    engine.setPendingSessionJournal(journal);
+    try {
+      engine.fetchFinalSessionStatus(SESSION_ID).get(5, TimeUnit.SECONDS);
+      fail("Expected the future to fail");
+    } catch (ExecutionException e) {
+      assertEquals(0, journal.getPendingSessionCount());
+    } finally {
+      journal.close();
+    }
+  }
+
+  @Test
+  public void resumeSession_shouldFinishJournaledSessionAndHandOverItsStatus() throws Exception {
+    File journalFile = new File(temporaryFolder.getRoot(), "sessions.journal");
+    PendingSessionJournal journal = new PendingSessionJournal(journalFile);
+    journal.sessionStarted(SESSION_ID, new byte[]{1});
+    SmartIdConnectorStub connector = new SmartIdConnectorStub();
+    connector.responses.add(createCompleteSessionStatus());
+    SessionStatusPollingEngine engine = createEngine(connector);
+    engine.setPendingSessionJournal(journal);
+    try {
+      engine.resumeSession(SESSION_ID);
+      SessionStatus status = engine.fetchFinalSessionStatus(SESSION_ID, new byte[]{2}).get(5, TimeUnit.SECONDS);
+
+      assertEquals("COMPLETE", status.getState());
+      assertEquals(1, connector.responseNumber);
+      assertEquals(0, journal.getPendingSessionCount());
+    } finally {
+      journal.close();
+    }
+  }
+
+  @Test
+  public void resumeSession_unclaimedStatus_shouldBeDroppedAfterSessionLifetime() throws Exception {
+    File journalFile = new File(temporaryFolder.getRoot(), "sessions.journal");
+    PendingSessionJournal journal = new PendingSessionJournal(journalFile, 1024, TimeUnit.MILLISECONDS, 50L);
+    journal.sessionStarted(SESSION_ID, new byte[]{1});
+    SmartIdConnectorStub connector = new SmartIdConnectorStub();
+    connector.responses.add(createCompleteSessionStatus());
+    connector.responses.add(createCompleteSessionStatus());
+    SessionStatusPollingEngine engine = createEngine(connector);
+    engine.setPendingSessionJournal(journal);
+    try {
+      engine.resumeSession(SESSION_ID);
+      assertEquals(1, engine.getResumedSessionCount());
+      long deadline = System.currentTimeMillis() + 5000L;
+      while (engine.getResumedSessionCount() > 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10L);
+      }
+      assertEquals(0, engine.getResumedSessionCount());
+      assertEquals(0, journal.getPendingSessionCount());
+
+      engine.fetchFinalSessionStatus(SESSION_ID, new byte[]{2}).get(5, TimeUnit.SECONDS);
+      assertEquals(2, connector.responseNumber);
+    } finally {
+      journal.close();
+    }
+  }
+
+  private SessionStatusPollingEngine createEngine(SmartIdConnector connector) {
+    SessionStatusPoller poller = new SessionStatusPoller(connector);
+    poller.setPollingSleepTime(TimeUnit.MILLISECONDS, 1L);
+    return new SessionStatusPollingEngine(poller, scheduler);
+  }
+
+  private static SessionStatus createCompleteSessionStatus() {
+    SessionStatus sessionStatus = new SessionStatus();
+    sessionStatus.setState("COMPLETE");
+    sessionStatus.setResult(createSessionEndResult());
+    return sessionStatus;
+  }
+
+  private static SessionStatus createRunningSessionStatus() {
+    SessionStatus status = new SessionStatus();
+    status.setState("RUNNING");
+    return status;
+  }
+
+  private static class CountingConnector extends SmartIdConnectorStub {
+
+    private final int runningResponsesPerSession;
+    private final ConcurrentMap<String, AtomicInteger> pollsPerSession = new ConcurrentHashMap<>();
+    private final AtomicInteger pollCount = new AtomicInteger();
+
+    CountingConnector(int runningResponsesPerSession) {
+      this.runningResponsesPerSession = runningResponsesPerSession;
+    }
+
+    @Override
+    public SessionStatus getSessionStatus(SessionStatusRequest request) throws SessionNotFoundException {
+      pollCount.incrementAndGet();
+      pollsPerSession.putIfAbsent(request.getSessionId(), new AtomicInteger());
+      int sessionPolls = pollsPerSession.get(request.getSessionId()).incrementAndGet();
+      return sessionPolls > runningResponsesPerSession ? createCompleteSessionStatus() : createRunningSessionStatus();
+    }
+  }
+}
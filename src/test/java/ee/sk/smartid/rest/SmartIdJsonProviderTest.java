@@ -0,0 +1,115 @@
+package ee.sk.smartid.rest;
+
+import ee.sk.smartid.rest.dao.AuthenticationSessionRequest;
+import ee.sk.smartid.rest.dao.CertificateRequest;
+import ee.sk.smartid.rest.dao.NationalIdentity;
+import ee.sk.smartid.rest.dao.SessionStatus;
+import org.junit.Test;
+
+import javax.ws.rs.core.MediaType;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SmartIdJsonProviderTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private final SmartIdJsonProvider provider = new SmartIdJsonProvider();
+
+  @Test
+  public void readSessionStatus() throws Exception {
+    String json = "{\"state\":\"COMPLETE\",\"result\":{\"endResult\":\"USER_REFUSED\",\"documentNumber\":\"PNOEE-31111111111\"},"
+        + "\"signature\":{\"value\":\"B+C9XVjIAZnCHH9vfBSv\",\"algorithm\":\"sha512WithRSAEncryption\"},"
+        + "\"cert\":{\"value\":\"MIIHhjCCBW6gAwIBAgIQDNYLtVwrKURYStrYApYViTANBgkqhkiG9\",\"certificateLevel\":\"ADVANCED\"},\"unknown\":[1]}";
+    SessionStatus sessionStatus = (SessionStatus) read(SessionStatus.class, json);
+
+    assertSame("COMPLETE", sessionStatus.getState());
+    assertSame("USER_REFUSED", sessionStatus.getResult().getEndResult());
+    assertEquals("PNOEE-31111111111", sessionStatus.getResult().getDocumentNumber());
+    assertEquals("B+C9XVjIAZnCHH9vfBSv", sessionStatus.getSignature().getValueInBase64());
+    assertSame("sha512WithRSAEncryption", sessionStatus.getSignature().getAlgorithm());
+    assertEquals("MIIHhjCCBW6gAwIBAgIQDNYLtVwrKURYStrYApYViTANBgkqhkiG9", sessionStatus.getCertificate().getValue());
+    assertSame("ADVANCED", sessionStatus.getCertificate().getCertificateLevel());
+  }
+
+  @Test
+  public void readRunningSessionStatus_shouldNotBindTheRestOfTheMessage() throws Exception {
+    SessionStatus sessionStatus = (SessionStatus) read(SessionStatus.class, "{\"state\":\"RUNNING\",\"result\":{}}");
+    assertSame("RUNNING", sessionStatus.getState());
+    assertNull(sessionStatus.getResult());
+    sessionStatus = (SessionStatus) read(SessionStatus.class, "{\"result\":{\"state\":\"COMPLETE\"},\"state\":\"RUNNING\"}");
+    assertSame("RUNNING", sessionStatus.getState());
+    assertNull(sessionStatus.getResult());
+  }
+
+  @Test
+  public void readRunningSessionStatus_shouldReturnModifiableStatus() throws Exception {
+    SessionStatus sessionStatus = (SessionStatus) read(SessionStatus.class, "{\"state\":\"RUNNING\"}");
+    sessionStatus.setState("COMPLETE");
+    assertNotSame(sessionStatus, read(SessionStatus.class, "{\"state\":\"RUNNING\"}"));
+    assertSame("RUNNING", ((SessionStatus) read(SessionStatus.class, "{\"state\":\"RUNNING\"}")).getState());
+  }
+
+  @Test
+  public void readSessionStatus_withStateAfterOtherFields() throws Exception {
+    SessionStatus sessionStatus = (SessionStatus) read(SessionStatus.class,
+        "{\"result\":{\"endResult\":\"OK\"},\"state\":\"COMPLETE\",\"cert\":{\"certificateLevel\":\"QUALIFIED\"},\"unknown\":{\"state\":\"RUNNING\"}}");
+    assertSame("COMPLETE", sessionStatus.getState());
+    assertSame("OK", sessionStatus.getResult().getEndResult());
+    assertSame("QUALIFIED", sessionStatus.getCertificate().getCertificateLevel());
+  }
+
+  @Test
+  public void readSessionStatus_withoutState() throws Exception {
+    SessionStatus sessionStatus = (SessionStatus) read(SessionStatus.class, "{\"result\":{\"endResult\":\"OK\"}}");
+    assertNull(sessionStatus.getState());
+    assertSame("OK", sessionStatus.getResult().getEndResult());
+  }
+
+  @Test
+  public void readSessionStatus_withLowerCaseRunningState_shouldBindAllFields() throws Exception {
+    SessionStatus sessionStatus = (SessionStatus) read(SessionStatus.class, "{\"state\":\"running\",\"result\":{}}");
+    assertEquals("running", sessionStatus.getState());
+    assertNotNull(sessionStatus.getResult());
+  }
+
+  @Test
+  public void writeRequest_shouldLeaveOutEmptyOptionalFields() throws Exception {
+    CertificateRequest request = new CertificateRequest();
+    request.setRelyingPartyUUID("de305d54-75b4-431b-adb2-eb6b9e546014");
+    request.setRelyingPartyName("BANK123");
+    request.setNonce("");
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    provider.writeTo(request, CertificateRequest.class, CertificateRequest.class, null, MediaType.APPLICATION_JSON_TYPE, null, output);
+    assertEquals("{\"relyingPartyUUID\":\"de305d54-75b4-431b-adb2-eb6b9e546014\",\"relyingPartyName\":\"BANK123\"}", new String(output.toByteArray(), UTF_8));
+  }
+
+  @Test
+  public void isReadableAndWriteable_onlyForTheMessagesOfTheApi() {
+    assertTrue(provider.isReadable(SessionStatus.class, SessionStatus.class, null, MediaType.APPLICATION_JSON_TYPE));
+    assertFalse(provider.isReadable(SessionStatus.class, SessionStatus.class, null, MediaType.TEXT_HTML_TYPE));
+    assertFalse(provider.isReadable(String.class, String.class, null, MediaType.APPLICATION_JSON_TYPE));
+    assertTrue(provider.isWriteable(AuthenticationSessionRequest.class, AuthenticationSessionRequest.class, null, MediaType.APPLICATION_JSON_TYPE));
+    assertFalse(provider.isWriteable(NationalIdentity.class, NationalIdentity.class, null, MediaType.APPLICATION_JSON_TYPE));
+  }
+
+  @Test
+  public void getRecurringValue() {
+    assertSame("OK", SmartIdJsonProvider.getRecurringValue("xOKx".toCharArray(), 1, 2));
+    assertNull(SmartIdJsonProvider.getRecurringValue("OX".toCharArray(), 0, 2));
+    assertNull(SmartIdJsonProvider.getRecurringValue("OK".toCharArray(), 0, 1));
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object read(Class<?> type, String json) throws Exception {
+    return provider.readFrom((Class<Object>) type, type, null, MediaType.APPLICATION_JSON_TYPE, null, new ByteArrayInputStream(json.getBytes(UTF_8)));
+  }
+}
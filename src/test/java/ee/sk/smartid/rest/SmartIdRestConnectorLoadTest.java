@@ -0,0 +1,118 @@
+package ee.sk.smartid.rest;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import ee.sk.smartid.ClientRequestHeaderFilter;
+import ee.sk.smartid.rest.dao.SessionStatus;
+import ee.sk.smartid.rest.dao.SessionStatusRequest;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.conn.HttpConnectionFactory;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static ee.sk.smartid.SmartIdRestServiceStubs.stubRequestWithResponse;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class SmartIdRestConnectorLoadTest {
+
+  private static final int MAX_CONNECTIONS = 4;
+  private static final int THREADS = 8;
+  private static final int REQUESTS_PER_THREAD = 50;
+
+  @Rule
+  public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().port(18089).containerThreads(50));
+
+  private CountingConnectionFactory connectionFactory;
+  private SmartIdRestConnector connector;
+
+  @Before
+  public void setUp() throws Exception {
+    stubRequestWithResponse("/session/de305d54-75b4-431b-adb2-eb6b9e546016", "responses/sessionStatusRunning.json");
+    connectionFactory = new CountingConnectionFactory();
+    PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(connectionFactory);
+    connectionManager.setMaxTotal(MAX_CONNECTIONS);
+    connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS);
+    ClientConfig clientConfig = new ClientConfig().connectorProvider(new ApacheConnectorProvider());
+    clientConfig.property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager);
+    // WireMock's gzipped chunked responses break on reused connections
+    clientConfig.register(new ClientRequestHeaderFilter(Collections.singletonMap("Accept-Encoding", "identity")));
+    connector = new SmartIdRestConnector("http://localhost:18089", clientConfig);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    connector.close();
+  }
+
+  @Test
+  public void concurrentSessionStatusRequests_shouldReusePooledConnections() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<Integer>> results = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++) {
+        results.add(executor.submit(new SessionStatusRequester()));
+      }
+      int successfulRequests = 0;
+      for (Future<Integer> result : results) {
+        successfulRequests += result.get(30, TimeUnit.SECONDS);
+      }
+      assertEquals(THREADS * REQUESTS_PER_THREAD, successfulRequests);
+      assertThat(connectionFactory.createdConnections.get(), lessThanOrEqualTo(MAX_CONNECTIONS));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void getSessionStatus_afterConnectorIsClosed_shouldThrowException() throws Exception {
+    connector.close();
+    connector.getSessionStatus(new SessionStatusRequest("de305d54-75b4-431b-adb2-eb6b9e546016"));
+  }
+
+  private class SessionStatusRequester implements Callable<Integer> {
+
+    @Override
+    public Integer call() throws Exception {
+      int successfulRequests = 0;
+      for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+        SessionStatus sessionStatus = connector.getSessionStatus(new SessionStatusRequest("de305d54-75b4-431b-adb2-eb6b9e546016"));
+        if ("RUNNING".equals(sessionStatus.getState())) {
+          successfulRequests++;
+        }
+      }
+      return successfulRequests;
+    }
+  }
+
+  private static class CountingConnectionFactory implements HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> {
+
+    private final AtomicInteger createdConnections = new AtomicInteger();
+
+    @Override
+    public ManagedHttpClientConnection create(HttpRoute route, ConnectionConfig config) {
+      createdConnections.incrementAndGet();
+      return ManagedHttpClientConnectionFactory.INSTANCE.create(route, config);
+    }
+  }
+}
@@ -3,6 +3,8 @@ package ee.sk.smartid.rest;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import ee.sk.smartid.ClientRequestHeaderFilter;
 import ee.sk.smartid.exception.*;
+import ee.sk.smartid.metrics.InMemorySmartIdMetrics;
+import ee.sk.smartid.metrics.SmartIdEndpoint;
 import ee.sk.smartid.rest.dao.*;
 import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
 import org.glassfish.jersey.client.ClientConfig;
@@ -11,8 +13,10 @@ import org.junit.Rule;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
@@ -21,10 +25,13 @@ import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static ee.sk.smartid.SmartIdRestServiceStubs.*;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.core.StringStartsWith.startsWith;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 public class SmartIdRestConnectorTest {
 
@@ -51,6 +58,14 @@ public class SmartIdRestConnectorTest {
     assertEquals("RUNNING", sessionStatus.getState());
   }
 
+  @Test
+  public void getSessionStatus_shouldReuseRecurringValues() throws Exception {
+    SessionStatus sessionStatus = getStubbedSessionStatusWithResponse("responses/sessionStatusForSuccessfulCertificateRequest.json");
+    assertSame("COMPLETE", sessionStatus.getState());
+    assertSame("OK", sessionStatus.getResult().getEndResult());
+    assertSame("QUALIFIED", sessionStatus.getCertificate().getCertificateLevel());
+  }
+
   @Test
   public void getSessionStatus_forSuccessfulCertificateRequest() throws Exception {
     SessionStatus sessionStatus = getStubbedSessionStatusWithResponse("responses/sessionStatusForSuccessfulCertificateRequest.json");
@@ -433,9 +448,105 @@ public class SmartIdRestConnectorTest {
         .withHeader(headerName, equalTo(headerValue)));
   }
 
+  @Test
+  public void getSessionStatusAsync() throws Exception {
+    stubRequestWithResponse("/session/de305d54-75b4-431b-adb2-eb6b9e546016", "responses/sessionStatusForSuccessfulSigningRequest.json");
+    SessionStatusRequest request = new SessionStatusRequest("de305d54-75b4-431b-adb2-eb6b9e546016");
+    SessionStatus sessionStatus = ((AsyncSmartIdConnector) connector).getSessionStatusAsync(request).get(5, TimeUnit.SECONDS);
+    assertSuccessfulResponse(sessionStatus);
+    assertNotNull(sessionStatus.getSignature());
+  }
+
+  @Test
+  public void getNotExistingSessionStatusAsync_shouldFailFuture() throws Exception {
+    stubNotFoundResponse("/session/de305d54-75b4-431b-adb2-eb6b9e546016");
+    SessionStatusRequest request = new SessionStatusRequest("de305d54-75b4-431b-adb2-eb6b9e546016");
+    try {
+      ((AsyncSmartIdConnector) connector).getSessionStatusAsync(request).get(5, TimeUnit.SECONDS);
+      fail("Expected the future to fail");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(SessionNotFoundException.class));
+    }
+  }
+
+  @Test
+  public void getCertificateAsync_usingNationalIdentityNumber() throws Exception {
+    stubRequestWithResponse("/certificatechoice/pno/EE/123456789", "requests/certificateChoiceRequest.json", "responses/certificateChoiceResponse.json");
+    NationalIdentity identity = new NationalIdentity("EE", "123456789");
+    CertificateRequest request = createDummyCertificateRequest();
+    CertificateChoiceResponse response = ((AsyncSmartIdConnector) connector).getCertificateAsync(identity, request).get(5, TimeUnit.SECONDS);
+    assertEquals("97f5058e-e308-4c83-ac14-7712b0eb9d86", response.getSessionId());
+  }
+
+  @Test
+  public void signAsync_whenSystemUnderMaintenance_shouldFailFuture() throws Exception {
+    stubErrorResponse("/signature/document/PNOEE-123456", "requests/signatureSessionRequest.json", 580);
+    SignatureSessionRequest request = createDummySignatureSessionRequest();
+    try {
+      ((AsyncSmartIdConnector) connector).signAsync("PNOEE-123456", request).get(5, TimeUnit.SECONDS);
+      fail("Expected the future to fail");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(ServerMaintenanceException.class));
+    }
+  }
+
+  @Test
+  public void authenticateAsync_whenDocumentNumberNotFound_shouldFailFuture() throws Exception {
+    stubNotFoundResponse("/authentication/document/PNOEE-123456", "requests/authenticationSessionRequest.json");
+    AuthenticationSessionRequest request = createDummyAuthenticationSessionRequest();
+    try {
+      ((AsyncSmartIdConnector) connector).authenticateAsync("PNOEE-123456", request).get(5, TimeUnit.SECONDS);
+      fail("Expected the future to fail");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(UserAccountNotFoundException.class));
+    }
+  }
+
+  @Test
+  public void getSessionStatus_withPollingRequest_shouldReuseTheRequestUri() throws Exception {
+    stubRequestWithResponse("/session/de305d54-75b4-431b-adb2-eb6b9e546016", "responses/sessionStatusRunning.json");
+    PollingSessionStatusRequest request = new PollingSessionStatusRequest("de305d54-75b4-431b-adb2-eb6b9e546016");
+    request.setResponseSocketOpenTime(TimeUnit.SECONDS, 10L);
+    connector.getSessionStatus(request);
+    URI uri = request.getUri(((SmartIdRestConnector) connector).getSessionStatusTemplate());
+    ((AsyncSmartIdConnector) connector).getSessionStatusAsync(request).get(5, TimeUnit.SECONDS);
+    assertSame(uri, request.getUri(((SmartIdRestConnector) connector).getSessionStatusTemplate()));
+    assertEquals("http://localhost:18089/session/de305d54-75b4-431b-adb2-eb6b9e546016?timeoutMs=10000", uri.toString());
+    verify(2, getRequestedFor(urlEqualTo("/session/de305d54-75b4-431b-adb2-eb6b9e546016?timeoutMs=10000")));
+  }
+
+  @Test
+  public void metrics_shouldRecordLatenciesStatusesAndExceptions() throws Exception {
+    InMemorySmartIdMetrics metrics = new InMemorySmartIdMetrics();
+    ((SmartIdRestConnector) connector).setMetrics(metrics);
+    stubRequestWithResponse("/session/de305d54-75b4-431b-adb2-eb6b9e546016", "responses/sessionStatusRunning.json");
+    stubErrorResponse("/signature/document/PNOEE-123456", "requests/signatureSessionRequest.json", 580);
+    connector.getSessionStatus(new SessionStatusRequest("de305d54-75b4-431b-adb2-eb6b9e546016"));
+    try {
+      connector.sign("PNOEE-123456", createDummySignatureSessionRequest());
+      fail("Expected the server to be under maintenance");
+    } catch (ServerMaintenanceException expected) {
+    }
+    try {
+      ((AsyncSmartIdConnector) connector).signAsync("PNOEE-123456", createDummySignatureSessionRequest()).get(5, TimeUnit.SECONDS);
+      fail("Expected the future to fail");
+    } catch (ExecutionException expected) {
+    }
+
+    assertEquals(1L, metrics.getRequestLatency(SmartIdEndpoint.SESSION_STATUS).getCount());
+    assertEquals(Long.valueOf(1L), metrics.getStatusCounts(SmartIdEndpoint.SESSION_STATUS).get(200));
+    assertEquals(2L, metrics.getRequestLatency(SmartIdEndpoint.SIGNATURE).getCount());
+    assertEquals(Long.valueOf(2L), metrics.getStatusCounts(SmartIdEndpoint.SIGNATURE).get(580));
+    assertEquals(0L, metrics.getRequestLatency(SmartIdEndpoint.AUTHENTICATION).getCount());
+    assertEquals(2L, metrics.getExceptionCount(ServerMaintenanceException.class));
+  }
+
   private ClientConfig getClientConfigWithCustomRequestHeader(Map<String, String> headers) {
     ClientConfig clientConfig = new ClientConfig().connectorProvider(new ApacheConnectorProvider());
-    clientConfig.register(new ClientRequestHeaderFilter(headers));
+    Map<String, String> requestHeaders = new HashMap<>(headers);
+    // WireMock's gzipped chunked responses break on the connections the client reuses
+    requestHeaders.put("Accept-Encoding", "identity");
+    clientConfig.register(new ClientRequestHeaderFilter(requestHeaders));
     return clientConfig;
   }
 